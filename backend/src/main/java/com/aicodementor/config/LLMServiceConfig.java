@@ -1,16 +1,36 @@
 package com.aicodementor.config;
 
+import com.aicodementor.service.InferenceCallAborter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+
 @Configuration
 public class LLMServiceConfig {
 
+    /**
+     * Bounded timeouts: without them a hung inference server pins scheduler workers forever.
+     * Connections are registered with the aborter, so a cancelled inference call can be cut off.
+     */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Value("${llm.connect-timeout-ms:2000}") int connectTimeoutMs,
+                                     @Value("${llm.llamacpp.timeout:180}") int readTimeoutSeconds,
+                                     InferenceCallAborter callAborter) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                callAborter.register(connection);
+            }
+        };
+        requestFactory.setConnectTimeout(connectTimeoutMs);
+        requestFactory.setReadTimeout(readTimeoutSeconds * 1000);
+        return new RestTemplate(requestFactory);
     }
 
     // ObjectMapper is now provided by JacksonConfig with proper LocalDateTime serialization
@@ -2,6 +2,8 @@ package com.aicodementor.controller;
 
 import com.aicodementor.entity.Exercise;
 import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.service.HintCacheService;
+import com.aicodementor.service.KnowledgeIndexer;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,6 +15,8 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
 import org.hibernate.Hibernate;
 import org.hibernate.LazyInitializationException;
@@ -33,6 +37,12 @@ public class ExerciseController {
     @Autowired
     private ExerciseRepository exerciseRepository;
     
+    @Autowired
+    private HintCacheService hintCacheService;
+    
+    @Autowired
+    private KnowledgeIndexer knowledgeIndexer;
+    
     @GetMapping
     @Transactional(readOnly = true)
     public ResponseEntity<Page<Exercise>> getAllExercises(
@@ -193,6 +203,15 @@ public class ExerciseController {
         
         Exercise updatedExercise = exerciseRepository.save(exercise);
         
+        // Tests or statement may have changed: cached hints no longer apply. Dropped once the update
+        // is committed, or a concurrent hint request could cache a hint for the old tests again
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                hintCacheService.invalidate(id);
+            }
+        });
+        
         // Flush to ensure the update is persisted immediately
         exerciseRepository.flush();
         
@@ -214,6 +233,8 @@ public class ExerciseController {
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteExercise(@PathVariable Long id) {
         if (exerciseRepository.existsById(id)) {
+            hintCacheService.invalidate(id);
+            knowledgeIndexer.forgetExercise(id);
             exerciseRepository.deleteById(id);
             return ResponseEntity.noContent().build();
         } else {
@@ -221,6 +242,56 @@ public class ExerciseController {
         }
     }
     
+    /**
+     * Drop the cached hints of an exercise (e.g. after a teacher noticed a bad hint)
+     */
+    @DeleteMapping("/{id}/hint-cache")
+    public ResponseEntity<Map<String, Object>> invalidateHintCache(@PathVariable Long id) {
+        if (!exerciseRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        int removed = hintCacheService.invalidate(id);
+        
+        Map<String, Object> response = new HashMap<>();
+        response.put("exerciseId", id);
+        response.put("removedCount", removed);
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Semantic hint reuse of an exercise: similarity threshold and hit rate
+     */
+    @GetMapping("/{id}/hint-cache")
+    public ResponseEntity<Map<String, Object>> getHintCacheStats(@PathVariable Long id) {
+        if (!exerciseRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(hintCacheService.snapshot(id));
+    }
+    
+    /**
+     * Set the similarity a cached hint needs to be reused for another failure of this exercise
+     * ({"threshold": 0.95}); {"threshold": null} goes back to the global default
+     */
+    @PutMapping("/{id}/hint-cache/threshold")
+    public ResponseEntity<Map<String, Object>> setHintSimilarityThreshold(@PathVariable Long id,
+                                                                          @RequestBody Map<String, Double> request) {
+        if (!exerciseRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        try {
+            hintCacheService.setThreshold(id, request.get("threshold"));
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> error = new HashMap<>();
+            error.put("error", e.getMessage());
+            return ResponseEntity.badRequest().body(error);
+        } finally {
+            // Whatever was saved, the next lookup reads the threshold from the table
+            hintCacheService.evictThreshold(id);
+        }
+        return ResponseEntity.ok(hintCacheService.snapshot(id));
+    }
+    
     @GetMapping("/topics")
     public ResponseEntity<List<String>> getAllTopics() {
         List<String> topics = exerciseRepository.findAllTopics();
@@ -234,6 +305,8 @@ public class ExerciseController {
     @DeleteMapping("/all")
     public ResponseEntity<Map<String, Object>> deleteAllExercises() {
         long count = exerciseRepository.count();
+        hintCacheService.invalidateAll();
+        knowledgeIndexer.forgetAll();
         exerciseRepository.deleteAll();
         
         Map<String, Object> response = new HashMap<>();
@@ -250,6 +323,10 @@ public class ExerciseController {
     public ResponseEntity<Map<String, Object>> deleteDemoExercises() {
         List<Exercise> demoExercises = exerciseRepository.findByCreatorIsNull();
         long count = demoExercises.size();
+        demoExercises.forEach(exercise -> {
+            hintCacheService.invalidate(exercise.getId());
+            knowledgeIndexer.forgetExercise(exercise.getId());
+        });
         exerciseRepository.deleteAll(demoExercises);
         
         Map<String, Object> response = new HashMap<>();
@@ -0,0 +1,126 @@
+package com.aicodementor.controller;
+
+import com.aicodementor.dto.BulkGenerationRequest;
+import com.aicodementor.dto.BulkGenerationResponse;
+import com.aicodementor.dto.ExerciseGenerationRequest;
+import com.aicodementor.dto.ExerciseGenerationResponse;
+import com.aicodementor.dto.GenerationJobResponse;
+import com.aicodementor.service.GenerationJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous exercise generation: submit a job, follow its progress (polling or SSE),
+ * fetch the result once it has succeeded.
+ */
+@RestController
+@RequestMapping("/api/llm/jobs")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:3001", "http://localhost:5173"})
+public class GenerationJobController {
+    
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobController.class);
+    
+    @Autowired
+    private GenerationJobService jobService;
+    
+    /**
+     * Queues the generation and returns 202 with the job id right away
+     */
+    @PostMapping
+    public ResponseEntity<GenerationJobResponse> submit(@RequestBody ExerciseGenerationRequest request) {
+        try {
+            GenerationJobResponse job = jobService.submit(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/llm/jobs/" + job.id())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Generation job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "30")
+                    .build();
+        }
+    }
+    
+    /**
+     * Bulk generation (e.g. a week of a syllabus): one job per item, run concurrently on all
+     * usable llama.cpp slots. Follow the items with GET /batch/{batchId}/events.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<BulkGenerationResponse> submitBatch(@RequestBody BulkGenerationRequest request) {
+        try {
+            BulkGenerationResponse batch = jobService.submitBatch(request);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/api/llm/jobs/batch/" + batch.batchId())
+                    .body(batch);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Generation batch rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "60")
+                    .build();
+        }
+    }
+    
+    @GetMapping("/batch/{batchId}")
+    public ResponseEntity<BulkGenerationResponse> getBatch(@PathVariable String batchId) {
+        return jobService.findBatch(batchId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Per-item status as the batch progresses ("item" events, then one "finished" event)
+     */
+    @GetMapping(value = "/batch/{batchId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter batchEvents(@PathVariable String batchId) {
+        return jobService.subscribeBatch(batchId);
+    }
+    
+    @GetMapping("/{id}")
+    public ResponseEntity<GenerationJobResponse> getJob(@PathVariable Long id) {
+        return jobService.find(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Generated exercise: 200 once the job succeeded, 409 while it is pending or if it failed
+     */
+    @GetMapping("/{id}/result")
+    public ResponseEntity<ExerciseGenerationResponse> getResult(@PathVariable Long id) {
+        return jobService.find(id)
+                .map(job -> job.result() != null
+                        ? ResponseEntity.ok(job.result())
+                        : ResponseEntity.status(HttpStatus.CONFLICT).<ExerciseGenerationResponse>build())
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@PathVariable Long id) {
+        return jobService.subscribe(id);
+    }
+    
+    @DeleteMapping("/{id}")
+    public ResponseEntity<GenerationJobResponse> cancel(@PathVariable Long id) {
+        return jobService.cancel(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    /**
+     * Worker pool and job counts per status
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> stats() {
+        return ResponseEntity.ok(jobService.snapshot());
+    }
+}
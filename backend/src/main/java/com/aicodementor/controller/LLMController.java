@@ -4,9 +4,19 @@ import com.aicodementor.dto.*;
 import com.aicodementor.entity.Exercise;
 import com.aicodementor.entity.User;
 import com.aicodementor.repository.ExerciseRepository;
-import com.aicodementor.repository.UserRepository;
 import com.aicodementor.service.CodeExecutionService;
+import com.aicodementor.service.DuplicateExerciseService;
+import com.aicodementor.service.ExerciseAuthoringService;
+import com.aicodementor.service.ExerciseRetrievalService;
+import com.aicodementor.service.ExerciseVerifier;
+import com.aicodementor.service.HintCacheService;
+import com.aicodementor.service.InferenceEndpointPool;
+import com.aicodementor.service.InferenceTelemetry;
+import com.aicodementor.service.KnowledgeIndexService;
+import com.aicodementor.service.KnowledgeIndexer;
 import com.aicodementor.service.LLMService;
+import com.aicodementor.service.LlamaSlotScheduler;
+import com.aicodementor.service.TokenBudgetTracker;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -14,8 +24,14 @@ import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 @RestController
@@ -25,6 +41,8 @@ public class LLMController {
     
     private static final Logger logger = LoggerFactory.getLogger(LLMController.class);
     
+    private static final List<String> DUPLICATE_ACTIONS = List.of("merge", "skip", "save");
+    
     @Autowired
     private LLMService llmService;
     
@@ -35,7 +53,37 @@ public class LLMController {
     private ExerciseRepository exerciseRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private LlamaSlotScheduler slotScheduler;
+    
+    @Autowired
+    private InferenceEndpointPool endpointPool;
+
+    @Autowired
+    private InferenceTelemetry inferenceTelemetry;
+
+    @Autowired
+    private TokenBudgetTracker tokenBudgetTracker;
+
+    @Autowired
+    private HintCacheService hintCacheService;
+
+    @Autowired
+    private KnowledgeIndexService knowledgeIndexService;
+
+    @Autowired
+    private ExerciseAuthoringService exerciseAuthoringService;
+    
+    @Autowired
+    private ExerciseRetrievalService exerciseRetrievalService;
+    
+    @Autowired
+    private KnowledgeIndexer knowledgeIndexer;
+    
+    @Autowired
+    private DuplicateExerciseService duplicateExerciseService;
+    
+    @Autowired
+    private ExerciseVerifier exerciseVerifier;
     
     /**
      * Teacher workflow: Generate exercise from natural language description
@@ -53,11 +101,13 @@ public class LLMController {
     }
     
     /**
-     * Teacher workflow: Save generated exercise (with possible modifications)
+     * Teacher workflow: Save generated exercise (with possible modifications).
+     * A near-duplicate of an existing exercise is answered with 409 and the candidates, unless the
+     * request says what to do with it ({@code duplicateAction}: merge, skip or save).
      */
     @PostMapping("/save-exercise")
     @Transactional
-    public ResponseEntity<Exercise> saveExercise(@RequestBody ExerciseSaveRequest request,
+    public ResponseEntity<?> saveExercise(@RequestBody ExerciseSaveRequest request,
                                           @RequestHeader(value = "Authorization", required = false) String authToken) {
         try {
             logger.info("Saving exercise - Title: {}, Description: {}, Difficulty: {}, Published: {}", 
@@ -77,42 +127,8 @@ public class LLMController {
                 throw new IllegalArgumentException("Le niveau de difficulté est requis");
             }
             
-            // Find teacher (for demo, use first user with TEACHER role, or create one if none exists)
-            Optional<User> teacherOpt = userRepository.findAll().stream()
-                    .filter(u -> u.getRole() == User.UserRole.TEACHER)
-                    .findFirst();
-            
-            User teacher;
-            if (teacherOpt.isEmpty()) {
-                // Create a default teacher if none exists
-                logger.warn("No teacher found, creating default teacher user");
-                // Check if teacher user already exists by username or email
-                Optional<User> existingTeacher = userRepository.findByUsername("teacher");
-                if (existingTeacher.isEmpty()) {
-                    existingTeacher = userRepository.findByEmail("teacher@demo.com");
-                }
-                
-                if (existingTeacher.isPresent()) {
-                    teacher = existingTeacher.get();
-                    // Update role if needed
-                    if (teacher.getRole() != User.UserRole.TEACHER) {
-                        teacher.setRole(User.UserRole.TEACHER);
-                        teacher = userRepository.save(teacher);
-                    }
-                    logger.info("Using existing teacher user: {}", teacher.getId());
-                } else {
-                    teacher = new User();
-                    teacher.setUsername("teacher");
-                    teacher.setEmail("teacher@demo.com");
-                    teacher.setPassword("demo123");
-                    teacher.setFullName("Prof. Demo");
-                    teacher.setRole(User.UserRole.TEACHER);
-                    teacher = userRepository.save(teacher);
-                    logger.info("Created default teacher user: {}", teacher.getId());
-                }
-            } else {
-                teacher = teacherOpt.get();
-            }
+            // Find teacher (for demo, first TEACHER user, created if none exists)
+            User teacher = exerciseAuthoringService.resolveDefaultTeacher();
             
             // Parse difficulty level with error handling
             Exercise.DifficultyLevel difficultyLevel;
@@ -147,6 +163,55 @@ public class LLMController {
             // Set the creator - JPA will automatically save the relationship in the database
             exercise.setCreator(teacher);
             
+            // Near-duplicate check against the in-memory MinHash index, before anything is written
+            String duplicateAction = request.duplicateAction() != null
+                    ? request.duplicateAction().trim().toLowerCase(Locale.ROOT) : "";
+            if (!duplicateAction.isEmpty() && !DUPLICATE_ACTIONS.contains(duplicateAction)) {
+                throw new IllegalArgumentException("Action invalide pour un doublon: " + request.duplicateAction() + ". Valeurs acceptées: merge, skip, save");
+            }
+            boolean explicitMerge = "merge".equals(duplicateAction) && request.mergeInto() != null;
+            List<DuplicateExerciseService.DuplicateCandidate> duplicates = "save".equals(duplicateAction) || explicitMerge
+                    ? List.of()
+                    : duplicateExerciseService.findDuplicates(exercise.getProblemStatement(), exercise.getSolution(), null);
+            if (duplicateAction.isEmpty() && !duplicates.isEmpty()) {
+                logger.info("Exercise '{}' looks like {} existing exercise(s), closest: {}",
+                    exercise.getTitle(), duplicates.size(), duplicates.get(0));
+                Map<String, Object> conflict = errorBody(HttpStatus.CONFLICT, "Conflict", "Un exercice très similaire existe déjà");
+                conflict.put("duplicates", duplicates);
+                conflict.put("options", DUPLICATE_ACTIONS);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(conflict);
+            }
+            if ("skip".equals(duplicateAction) || "merge".equals(duplicateAction)) {
+                // Skip and merge only ever touch an existing exercise: without a target, nothing is saved
+                if (!explicitMerge && duplicates.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorBody(HttpStatus.NOT_FOUND, "Not Found",
+                        "Aucun exercice similaire trouvé : précisez mergeInto ou utilisez l'action save"));
+                }
+                Long targetId = explicitMerge ? request.mergeInto() : duplicates.get(0).exerciseId();
+                Optional<Exercise> target = exerciseRepository.findById(targetId);
+                if (target.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.NOT_FOUND).body(errorBody(HttpStatus.NOT_FOUND, "Not Found",
+                        "Exercice non trouvé: " + targetId));
+                }
+                Exercise existing = target.get();
+                if ("skip".equals(duplicateAction)) {
+                    logger.info("Exercise '{}' skipped as a duplicate of exercise {}", exercise.getTitle(), targetId);
+                    return ResponseEntity.ok(existing);
+                }
+                mergeExercise(existing, exercise);
+                Exercise merged = exerciseRepository.save(existing);
+                // Tests or statement changed: cached hints no longer apply. Dropped once the merge
+                // is committed, or a concurrent hint request could cache a hint for the old tests again
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        hintCacheService.invalidate(targetId);
+                    }
+                });
+                logger.info("Exercise '{}' merged into exercise {}", exercise.getTitle(), targetId);
+                return ResponseEntity.ok(merged);
+            }
+            
             // Save the exercise - this will persist the creator_id foreign key in the database
             Exercise savedExercise = exerciseRepository.save(exercise);
             logger.info("Exercise saved successfully with ID: {}, Title: {}, Published: {}, Creator ID: {}", 
@@ -181,6 +246,32 @@ public class LLMController {
         }
     }
     
+    private static Map<String, Object> errorBody(HttpStatus status, String error, String message) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("status", status.value());
+        body.put("error", error);
+        body.put("message", message);
+        return body;
+    }
+    
+    /**
+     * Overwrites an existing exercise with the content of a near-duplicate; the creator is kept
+     * and it stays published if either was.
+     */
+    private static void mergeExercise(Exercise target, Exercise source) {
+        target.setTitle(source.getTitle());
+        target.setDescription(source.getDescription());
+        target.setTopic(source.getTopic());
+        target.setDifficulty(source.getDifficulty());
+        target.setProblemStatement(source.getProblemStatement());
+        target.setStarterCode(source.getStarterCode());
+        target.setUnitTests(source.getUnitTests());
+        target.setSolution(source.getSolution());
+        target.setConcepts(source.getConcepts());
+        target.setExamples(source.getExamples());
+        target.setPublished(target.isPublished() || source.isPublished());
+    }
+    
     /**
      * Student workflow: Execute code against test cases
      */
@@ -206,14 +297,97 @@ public class LLMController {
     public ResponseEntity<HintResponse> getHint(@RequestBody HintRequest request) {
         logger.info("Generating hint for test: {}", request.testName());
         
-        String hint = llmService.generateHint(
+        HintResponse response = llmService.generateHintResponse(
+            request.exerciseId(),
             request.testName(),
             request.testCode(),
             request.studentCode(),
             request.errorMessage()
         );
         
-        return ResponseEntity.ok(new HintResponse(hint != null && !hint.isEmpty() ? hint : "Relisez attentivement l'énoncé et vérifiez votre logique."));
+        if (response.hint() == null || response.hint().isEmpty()) {
+            return ResponseEntity.ok(new HintResponse("Relisez attentivement l'énoncé et vérifiez votre logique.", response.degraded()));
+        }
+        return ResponseEntity.ok(response);
+    }
+    
+    /**
+     * Inference queue metrics: slots, in-flight and queued requests per priority class
+     */
+    @GetMapping("/scheduler")
+    public ResponseEntity<Map<String, Object>> getSchedulerStats() {
+        return ResponseEntity.ok(slotScheduler.snapshot());
+    }
+    
+    /**
+     * Inference endpoints: health, slots and load of each server process
+     */
+    @GetMapping("/endpoints")
+    public ResponseEntity<List<Map<String, Object>>> getEndpoints() {
+        return ResponseEntity.ok(endpointPool.snapshot());
+    }
+    
+    /**
+     * Rolling inference statistics per call type: tokens/s, prompt-cache reuse, share of inference time
+     */
+    @GetMapping("/telemetry")
+    public ResponseEntity<Map<String, Object>> getTelemetry() {
+        return ResponseEntity.ok(inferenceTelemetry.snapshot());
+    }
+    
+    /**
+     * Output token budgets per call type and difficulty, with observed lengths and truncation rate
+     */
+    @GetMapping("/token-budgets")
+    public ResponseEntity<Map<String, Object>> getTokenBudgets() {
+        return ResponseEntity.ok(tokenBudgetTracker.snapshot());
+    }
+    
+    /**
+     * Hint cache size and hit rate
+     */
+    @GetMapping("/hint-cache")
+    public ResponseEntity<Map<String, Object>> getHintCacheStats() {
+        return ResponseEntity.ok(hintCacheService.snapshot());
+    }
+    
+    /**
+     * Knowledge base vector index: entries per content type, embedding provider and search latency
+     */
+    @GetMapping("/knowledge-index")
+    public ResponseEntity<Map<String, Object>> getKnowledgeIndexStats() {
+        return ResponseEntity.ok(knowledgeIndexService.snapshot());
+    }
+    
+    /**
+     * Background indexing of exercises and submissions: checkpoints, pending rows, batches and failures
+     */
+    @GetMapping("/knowledge-indexer")
+    public ResponseEntity<Map<String, Object>> getKnowledgeIndexerStats() {
+        return ResponseEntity.ok(knowledgeIndexer.snapshot());
+    }
+    
+    /**
+     * Retrieval of similar exercises for generation: retrievals, reuses and latency
+     */
+    @GetMapping("/retrieval")
+    public ResponseEntity<Map<String, Object>> getRetrievalStats() {
+        return ResponseEntity.ok(exerciseRetrievalService.snapshot());
+    }
+    
+    /**
+     * Near-duplicate index: size, LSH parameters, checks and flagged saves
+     */
+    @GetMapping("/duplicates")
+    public ResponseEntity<Map<String, Object>> getDuplicateStats() {
+        return ResponseEntity.ok(duplicateExerciseService.snapshot());
+    }
+    
+    /**
+     * Exercise verification runners: free, running and stuck after a timeout
+     */
+    @GetMapping("/verifier")
+    public ResponseEntity<Map<String, Object>> getVerifierStats() {
+        return ResponseEntity.ok(exerciseVerifier.snapshot());
     }
 }
-
@@ -0,0 +1,92 @@
+package com.aicodementor.controller;
+
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.SubmissionRepository;
+import com.aicodementor.service.PlagiarismService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Copied-solution detection for teachers: submissions similar to one submission, the most similar
+ * pairs of one exercise, and a report over every exercise.
+ */
+@RestController
+@RequestMapping("/api/plagiarism")
+@CrossOrigin(origins = {"http://localhost:3000", "http://localhost:5173"})
+public class PlagiarismController {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlagiarismController.class);
+
+    @Autowired
+    private PlagiarismService plagiarismService;
+
+    @Autowired
+    private SubmissionRepository submissionRepository;
+
+    @Autowired
+    private ExerciseRepository exerciseRepository;
+
+    /**
+     * Closest submission of each other student to this submission
+     */
+    @GetMapping("/submissions/{id}/similar")
+    public ResponseEntity<List<PlagiarismService.SimilarSubmission>> getSimilarSubmissions(
+            @PathVariable Long id,
+            @RequestParam(required = false) Double minSimilarity,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (!submissionRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(plagiarismService.similarToSubmission(id, minSimilarity(minSimilarity), Math.max(1, limit)));
+    }
+
+    /**
+     * Most similar pairs of submissions of different students for one exercise
+     */
+    @GetMapping("/exercises/{id}/similar")
+    public ResponseEntity<List<PlagiarismService.SimilarPair>> getSimilarPairs(
+            @PathVariable Long id,
+            @RequestParam(required = false) Double minSimilarity,
+            @RequestParam(defaultValue = "50") int limit) {
+        if (!exerciseRepository.existsById(id)) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(plagiarismService.similarInExercise(id, minSimilarity(minSimilarity), Math.max(1, limit)));
+    }
+
+    /**
+     * Batch report: most similar pairs across all exercises, computed in parallel
+     */
+    @GetMapping("/report")
+    public ResponseEntity<Map<String, Object>> getReport(
+            @RequestParam(required = false) Double minSimilarity,
+            @RequestParam(defaultValue = "200") int limit) {
+        Map<String, Object> report = plagiarismService.report(minSimilarity(minSimilarity), Math.max(1, limit));
+        logger.info("Plagiarism report: {} pair(s) in {} ms", ((List<?>) report.get("pairs")).size(), report.get("elapsedMs"));
+        return ResponseEntity.ok(report);
+    }
+
+    /**
+     * Index size, fingerprinting parameters and report timings
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(plagiarismService.snapshot());
+    }
+
+    private double minSimilarity(Double requested) {
+        if (requested == null) {
+            return plagiarismService.defaultMinSimilarity();
+        }
+        if (requested < 0 || requested > 1) {
+            throw new IllegalArgumentException("minSimilarity doit être compris entre 0 et 1");
+        }
+        return requested;
+    }
+}
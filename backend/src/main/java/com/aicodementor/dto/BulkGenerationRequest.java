@@ -0,0 +1,11 @@
+package com.aicodementor.dto;
+
+import java.util.List;
+
+/**
+ * Request DTO for generating a set of exercises at once (e.g. a week of a syllabus)
+ */
+public record BulkGenerationRequest(
+    List<ExerciseGenerationRequest> items,
+    boolean saveAsDrafts  // save each successful result as an unpublished exercise
+) {}
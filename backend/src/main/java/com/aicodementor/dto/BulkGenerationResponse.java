@@ -0,0 +1,13 @@
+package com.aicodementor.dto;
+
+import java.util.List;
+
+/**
+ * Response DTO for a bulk generation: one job per item, in request order
+ */
+public record BulkGenerationResponse(
+    String batchId,
+    int total,
+    int finished,
+    List<GenerationJobResponse> jobs
+) {}
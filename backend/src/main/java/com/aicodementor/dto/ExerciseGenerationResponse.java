@@ -11,5 +11,6 @@ public record ExerciseGenerationResponse(
     String starterCode,
     String unitTests,
     String exampleSolution,
-    String examples
+    String examples,
+    boolean degraded  // true when the LLM was unavailable and templates were used instead
 ) {}
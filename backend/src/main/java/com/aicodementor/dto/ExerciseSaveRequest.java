@@ -1,7 +1,9 @@
 package com.aicodementor.dto;
 
 /**
- * Request DTO for saving an exercise
+ * Request DTO for saving an exercise.
+ * {@code duplicateAction} answers a near-duplicate warning: "merge" (into {@code mergeInto}, else
+ * the closest duplicate), "skip" (keep the existing exercise) or "save" (save it anyway).
  */
 public record ExerciseSaveRequest(
     String title,
@@ -14,5 +16,7 @@ public record ExerciseSaveRequest(
     String solution,
     String concepts,
     String examples,
-    boolean published
+    boolean published,
+    String duplicateAction,
+    Long mergeInto
 ) {}
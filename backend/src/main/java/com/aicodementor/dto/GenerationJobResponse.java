@@ -0,0 +1,19 @@
+package com.aicodementor.dto;
+
+import java.time.LocalDateTime;
+
+/**
+ * Response DTO for an asynchronous exercise generation job
+ */
+public record GenerationJobResponse(
+    Long id,
+    String status,      // QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+    String stage,       // current generation stage (solution, tests, examples, done)
+    int progress,       // 0 to 100
+    String error,
+    String batchId,     // set for jobs of a bulk submission
+    Long exerciseId,    // draft exercise saved from the result, if requested
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    ExerciseGenerationResponse result  // only set once the job has succeeded
+) {}
@@ -5,5 +5,6 @@ package com.aicodementor.dto;
  * Used to provide helpful hints to students when their code fails tests
  */
 public record HintResponse(
-    String hint  // AI-generated hint to help the student fix their code
+    String hint,  // AI-generated hint to help the student fix their code
+    boolean degraded  // true when the LLM was unavailable and a generic hint was returned
 ) {}
@@ -0,0 +1,33 @@
+package com.aicodementor.entity;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * JPA listener of {@code Exercise} and {@code Submission}: turns their lifecycle callbacks into
+ * {@link EntityChangedEvent}s, so the services that follow these tables are not referenced from
+ * the entities.
+ */
+@Component
+public class EntityChangePublisher {
+
+    private final ApplicationEventPublisher events;
+
+    public EntityChangePublisher(ApplicationEventPublisher events) {
+        this.events = events;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void saved(Object entity) {
+        events.publishEvent(new EntityChangedEvent(entity, EntityChangedEvent.Kind.SAVED));
+    }
+
+    @PostRemove
+    public void removed(Object entity) {
+        events.publishEvent(new EntityChangedEvent(entity, EntityChangedEvent.Kind.REMOVED));
+    }
+}
@@ -0,0 +1,13 @@
+package com.aicodementor.entity;
+
+/**
+ * Published by {@link EntityChangePublisher} when an exercise or a submission is written or
+ * deleted, in the thread and transaction that wrote it.
+ */
+public record EntityChangedEvent(Object entity, Kind kind) {
+
+    public enum Kind {
+        SAVED,
+        REMOVED
+    }
+}
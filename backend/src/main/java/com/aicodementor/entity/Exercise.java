@@ -15,7 +15,8 @@ import java.util.List;
 import java.util.Objects;
 
 @Entity
-@Table(name = "exercises")
+@Table(name = "exercises", indexes = @Index(name = "idx_exercises_changed", columnList = "updated_at, id"))
+@EntityListeners(EntityChangePublisher.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Exercise {
     
@@ -70,6 +71,10 @@ public class Exercise {
     @Column(name = "is_published")
     private boolean isPublished = false;
     
+    // Minimum similarity for reusing a cached hint of another failure; null = llm.hint-cache.semantic.threshold
+    @Column(name = "hint_similarity_threshold")
+    private Double hintSimilarityThreshold;
+    
     @Column(name = "created_at")
     @JsonFormat(pattern = "yyyy-MM-dd'T'HH:mm:ss")
     private LocalDateTime createdAt;
@@ -142,6 +147,14 @@ public class Exercise {
         return isPublished;
     }
     
+    public Double getHintSimilarityThreshold() {
+        return hintSimilarityThreshold;
+    }
+    
+    public void setHintSimilarityThreshold(Double hintSimilarityThreshold) {
+        this.hintSimilarityThreshold = hintSimilarityThreshold;
+    }
+    
     // Getters and Setters
     public Long getId() {
         return id;
@@ -0,0 +1,214 @@
+package com.aicodementor.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Asynchronous exercise generation request, persisted so that queued and running
+ * jobs are resumed after a restart.
+ */
+@Entity
+@Table(name = "generation_jobs", indexes = @Index(name = "idx_generation_jobs_batch", columnList = "batch_id"))
+public class GenerationJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private JobStatus status;
+    
+    @Column(name = "request_json", columnDefinition = "TEXT", nullable = false)
+    private String requestJson; // serialized ExerciseGenerationRequest
+    
+    @Column(name = "result_json", columnDefinition = "TEXT")
+    private String resultJson; // serialized ExerciseGenerationResponse
+    
+    @Column(columnDefinition = "TEXT")
+    private String error;
+    
+    @Column(length = 50)
+    private String stage;
+    
+    @Column(name = "batch_id", length = 36)
+    private String batchId; // set for jobs submitted together through the bulk endpoint
+    
+    @Column(name = "save_exercise")
+    private Boolean saveExercise; // save the result as an unpublished exercise
+    
+    @Column(name = "exercise_id")
+    private Long exerciseId; // exercise saved from the result, if any
+    
+    private Integer progress;
+    
+    private Integer attempts;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+    
+    public GenerationJob() {
+    }
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+        if (status == null) {
+            status = JobStatus.QUEUED;
+        }
+        if (progress == null) {
+            progress = 0;
+        }
+        if (attempts == null) {
+            attempts = 0;
+        }
+    }
+    
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    public boolean isFinished() {
+        return status == JobStatus.SUCCEEDED || status == JobStatus.FAILED || status == JobStatus.CANCELLED;
+    }
+    
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+    
+    public void setId(Long id) {
+        this.id = id;
+    }
+    
+    public JobStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+    
+    public String getRequestJson() {
+        return requestJson;
+    }
+    
+    public void setRequestJson(String requestJson) {
+        this.requestJson = requestJson;
+    }
+    
+    public String getResultJson() {
+        return resultJson;
+    }
+    
+    public void setResultJson(String resultJson) {
+        this.resultJson = resultJson;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public String getStage() {
+        return stage;
+    }
+    
+    public void setStage(String stage) {
+        this.stage = stage;
+    }
+    
+    public String getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(String batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Boolean getSaveExercise() {
+        return saveExercise;
+    }
+    
+    public void setSaveExercise(Boolean saveExercise) {
+        this.saveExercise = saveExercise;
+    }
+    
+    public Long getExerciseId() {
+        return exerciseId;
+    }
+    
+    public void setExerciseId(Long exerciseId) {
+        this.exerciseId = exerciseId;
+    }
+    
+    public Integer getProgress() {
+        return progress;
+    }
+    
+    public void setProgress(Integer progress) {
+        this.progress = progress;
+    }
+    
+    public Integer getAttempts() {
+        return attempts;
+    }
+    
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+    
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+    
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+    
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+    
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+    
+    public enum JobStatus {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED
+    }
+}
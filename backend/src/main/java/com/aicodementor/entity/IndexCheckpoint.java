@@ -0,0 +1,84 @@
+package com.aicodementor.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * How far the background knowledge indexer got in one source table: the (updated_at, id) of the
+ * last row it indexed. Rows changed after it are indexed again, so a restart resumes where it stopped.
+ */
+@Entity
+@Table(name = "index_checkpoints")
+public class IndexCheckpoint {
+
+    @Id
+    @Column(length = 50)
+    private String source; // "exercise", "submission"
+
+    @Column(name = "last_updated_at")
+    private LocalDateTime lastUpdatedAt;
+
+    @Column(name = "last_id")
+    private Long lastId;
+
+    @Column(name = "indexed_count")
+    private Long indexedCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public IndexCheckpoint() {
+    }
+
+    public IndexCheckpoint(String source) {
+        this.source = source;
+        this.lastId = 0L;
+        this.indexedCount = 0L;
+    }
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+
+    public LocalDateTime getLastUpdatedAt() {
+        return lastUpdatedAt;
+    }
+
+    public void setLastUpdatedAt(LocalDateTime lastUpdatedAt) {
+        this.lastUpdatedAt = lastUpdatedAt;
+    }
+
+    public Long getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Long lastId) {
+        this.lastId = lastId;
+    }
+
+    public Long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public void setIndexedCount(Long indexedCount) {
+        this.indexedCount = indexedCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
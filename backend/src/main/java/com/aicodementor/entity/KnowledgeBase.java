@@ -5,7 +5,7 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "knowledge_base")
+@Table(name = "knowledge_base", indexes = @Index(name = "idx_knowledge_base_source", columnList = "content_type, source_id"))
 public class KnowledgeBase {
     
     @Id
@@ -22,7 +22,17 @@ public class KnowledgeBase {
     private String metadata; // JSON格式的元数据
     
     @Column(name = "embedding", columnDefinition = "TEXT")
-    private String embeddingJson; // 存储为JSON字符串的向量
+    private String embeddingJson; // 旧格式：JSON字符串的向量，启动时迁移到 embeddingVector
+    
+    @Lob
+    @Column(name = "embedding_vector")
+    private byte[] embeddingVector; // 单位向量，VectorCodec 编码（float32 或 int8，小端）
+    
+    @Column(name = "embedding_norm")
+    private Float embeddingNorm; // 原始向量的 L2 范数
+    
+    @Column(name = "source_id")
+    private Long sourceId; // 来源行的 id（exercise_example 为练习 id，submission 为提交 id）
     
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "exercise_id")
@@ -90,6 +100,30 @@ public class KnowledgeBase {
         this.embeddingJson = embeddingJson;
     }
     
+    public byte[] getEmbeddingVector() {
+        return embeddingVector;
+    }
+    
+    public void setEmbeddingVector(byte[] embeddingVector) {
+        this.embeddingVector = embeddingVector;
+    }
+    
+    public Float getEmbeddingNorm() {
+        return embeddingNorm;
+    }
+    
+    public void setEmbeddingNorm(Float embeddingNorm) {
+        this.embeddingNorm = embeddingNorm;
+    }
+    
+    public Long getSourceId() {
+        return sourceId;
+    }
+    
+    public void setSourceId(Long sourceId) {
+        this.sourceId = sourceId;
+    }
+    
     public Exercise getExercise() {
         return exercise;
     }
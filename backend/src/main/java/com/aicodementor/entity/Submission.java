@@ -8,7 +8,8 @@ import java.time.LocalDateTime;
 import java.util.Objects;
 
 @Entity
-@Table(name = "submissions")
+@Table(name = "submissions", indexes = @Index(name = "idx_submissions_changed", columnList = "updated_at, id"))
+@EntityListeners(EntityChangePublisher.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Submission {
     
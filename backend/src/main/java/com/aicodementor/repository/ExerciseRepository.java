@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -53,5 +54,27 @@ public interface ExerciseRepository extends JpaRepository<Exercise, Long> {
     Page<Exercise> findByDifficultyAndCreatorNotNull(@Param("difficulty") Exercise.DifficultyLevel difficulty, Pageable pageable);
     
     List<Exercise> findByCreatorIsNull();
+    
+    /**
+     * Exercises changed after the (updatedAt, id) position, in that order, up to {@code until} (keyset pagination
+     * for the background knowledge indexer)
+     */
+    @Query("SELECT e FROM Exercise e WHERE (e.updatedAt > :at OR (e.updatedAt = :at AND e.id > :id)) "
+         + "AND e.updatedAt <= :until ORDER BY e.updatedAt, e.id")
+    List<Exercise> findChangedAfter(@Param("at") LocalDateTime at, @Param("id") long id,
+                                    @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Query("SELECT COUNT(e) FROM Exercise e WHERE e.updatedAt > :at OR (e.updatedAt = :at AND e.id > :id)")
+    long countChangedAfter(@Param("at") LocalDateTime at, @Param("id") long id);
+    
+    /**
+     * (id, problemStatement, solution) of the exercises after {@code afterId}, in id order
+     * (paged load of the near-duplicate index, without the other columns)
+     */
+    @Query("SELECT e.id, e.problemStatement, e.solution FROM Exercise e WHERE e.id > :afterId ORDER BY e.id")
+    List<Object[]> findDuplicateSourcesAfter(@Param("afterId") long afterId, Pageable pageable);
+    
+    @Query("SELECT e.starterCode FROM Exercise e WHERE e.id = :id")
+    Optional<String> findStarterCodeById(@Param("id") Long id);
 }
 
@@ -0,0 +1,63 @@
+package com.aicodementor.repository;
+
+import com.aicodementor.entity.GenerationJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface GenerationJobRepository extends JpaRepository<GenerationJob, Long> {
+    
+    /**
+     * Jobs in the given states, oldest first (used to resume work after a restart)
+     */
+    List<GenerationJob> findByStatusInOrderByCreatedAtAsc(Collection<GenerationJob.JobStatus> statuses);
+    
+    List<GenerationJob> findByBatchIdOrderByIdAsc(String batchId);
+    
+    long countByStatus(GenerationJob.JobStatus status);
+    
+    // Status transitions are conditional updates, so a worker and a cancel racing on the same
+    // job cannot overwrite each other: each returns 1 only if the job was in the expected state
+    
+    /**
+     * {@code from} -> {@code to} (QUEUED -> RUNNING), counting one more attempt
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE GenerationJob j SET j.status = :to, j.stage = :stage, j.startedAt = :now, j.updatedAt = :now, "
+        + "j.attempts = COALESCE(j.attempts, 0) + 1 WHERE j.id = :id AND j.status = :from")
+    int start(@Param("id") Long id, @Param("from") GenerationJob.JobStatus from, @Param("to") GenerationJob.JobStatus to,
+              @Param("stage") String stage, @Param("now") LocalDateTime now);
+    
+    /**
+     * Stage and progress of a job still in {@code status}
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE GenerationJob j SET j.stage = :stage, j.progress = :progress, j.updatedAt = :now "
+        + "WHERE j.id = :id AND j.status = :status")
+    int updateProgress(@Param("id") Long id, @Param("status") GenerationJob.JobStatus status, @Param("stage") String stage,
+                       @Param("progress") int progress, @Param("now") LocalDateTime now);
+    
+    /**
+     * Ends a job in one of {@code from}; a null progress keeps the current one
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE GenerationJob j SET j.status = :to, j.stage = :stage, j.progress = COALESCE(:progress, j.progress), "
+        + "j.resultJson = COALESCE(:resultJson, j.resultJson), j.error = COALESCE(:error, j.error), "
+        + "j.exerciseId = COALESCE(:exerciseId, j.exerciseId), j.finishedAt = :now, j.updatedAt = :now "
+        + "WHERE j.id = :id AND j.status IN :from")
+    int finish(@Param("id") Long id, @Param("from") Collection<GenerationJob.JobStatus> from,
+               @Param("to") GenerationJob.JobStatus to, @Param("stage") String stage, @Param("progress") Integer progress,
+               @Param("resultJson") String resultJson, @Param("error") String error,
+               @Param("exerciseId") Long exerciseId, @Param("now") LocalDateTime now);
+}
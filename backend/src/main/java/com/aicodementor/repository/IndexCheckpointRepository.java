@@ -0,0 +1,9 @@
+package com.aicodementor.repository;
+
+import com.aicodementor.entity.IndexCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IndexCheckpointRepository extends JpaRepository<IndexCheckpoint, String> {
+}
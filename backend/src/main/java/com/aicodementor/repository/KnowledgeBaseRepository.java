@@ -1,9 +1,13 @@
 package com.aicodementor.repository;
 
 import com.aicodementor.entity.KnowledgeBase;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
@@ -23,6 +27,31 @@ public interface KnowledgeBaseRepository extends JpaRepository<KnowledgeBase, Lo
      * Find knowledge base entries by exercise ID and content type
      */
     List<KnowledgeBase> findByExerciseIdAndContentType(Long exerciseId, String contentType);
+    
+    /**
+     * Id, content type, exercise id and binary embedding of embedded entries after {@code afterId}, in id order,
+     * without loading the content
+     */
+    @Query("SELECT k.id, k.contentType, e.id, k.embeddingVector FROM KnowledgeBase k LEFT JOIN k.exercise e "
+         + "WHERE k.embeddingVector IS NOT NULL AND k.id > :afterId ORDER BY k.id")
+    List<Object[]> findEmbeddingsAfter(@Param("afterId") long afterId, Pageable pageable);
+    
+    /**
+     * Entries still holding a JSON embedding, for the migration to the binary column
+     */
+    List<KnowledgeBase> findByEmbeddingJsonIsNotNull(Pageable pageable);
+    
+    /**
+     * Entries indexed from the given source rows (see {@code sourceId})
+     */
+    List<KnowledgeBase> findByContentTypeAndSourceIdIn(String contentType, Collection<Long> sourceIds);
+    
+    /**
+     * Submission entries whose submission no longer exists
+     */
+    @Query("SELECT k.id FROM KnowledgeBase k WHERE k.contentType = :contentType "
+         + "AND NOT EXISTS (SELECT s.id FROM Submission s WHERE s.id = k.sourceId)")
+    List<Long> findOrphanedSubmissionEntries(@Param("contentType") String contentType);
 }
 
 
@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -33,6 +34,25 @@ public interface SubmissionRepository extends JpaRepository<Submission, Long> {
     long countByStatus(Submission.SubmissionStatus status);
     
     long countByUserIdAndStatus(Long userId, Submission.SubmissionStatus status);
+    
+    /**
+     * Submissions changed after the (updatedAt, id) position, in that order, up to {@code until} (keyset pagination
+     * for the background knowledge indexer)
+     */
+    @Query("SELECT s FROM Submission s WHERE (s.updatedAt > :at OR (s.updatedAt = :at AND s.id > :id)) "
+         + "AND s.updatedAt <= :until ORDER BY s.updatedAt, s.id")
+    List<Submission> findChangedAfter(@Param("at") LocalDateTime at, @Param("id") long id,
+                                      @Param("until") LocalDateTime until, Pageable pageable);
+    
+    @Query("SELECT COUNT(s) FROM Submission s WHERE s.updatedAt > :at OR (s.updatedAt = :at AND s.id > :id)")
+    long countChangedAfter(@Param("at") LocalDateTime at, @Param("id") long id);
+    
+    /**
+     * (id, exercise id, user id, code) of the submissions after {@code afterId}, in id order
+     * (paged load of the plagiarism index)
+     */
+    @Query("SELECT s.id, s.exercise.id, s.user.id, s.code FROM Submission s WHERE s.id > :afterId ORDER BY s.id")
+    List<Object[]> findFingerprintSourcesAfter(@Param("afterId") long afterId, Pageable pageable);
 }
 
 
@@ -0,0 +1,94 @@
+package com.aicodementor.service;
+
+/**
+ * Consecutive-failure circuit breaker for one inference endpoint.
+ *
+ * - CLOSED: calls flow; {@code failureThreshold} consecutive failures open the circuit.
+ * - OPEN: calls are rejected immediately until {@code openDurationMs} has elapsed.
+ * - HALF_OPEN: a single probe call is let through; its outcome closes or re-opens the circuit.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openDurationMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+    private long timesOpened;
+
+    public CircuitBreaker(int failureThreshold, long openDurationMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationMs = Math.max(0, openDurationMs);
+    }
+
+    /**
+     * Whether a call would currently be let through (does not reserve the half-open probe).
+     */
+    public synchronized boolean isCallPermitted() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> System.currentTimeMillis() - openedAt >= openDurationMs;
+            case HALF_OPEN -> !probeInFlight;
+        };
+    }
+
+    /**
+     * Reserves permission for one call; in half-open state only the first caller gets it.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openDurationMs) {
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.HALF_OPEN && !probeInFlight) {
+            probeInFlight = true;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                timesOpened++;
+            }
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    /**
+     * Ends a call that says nothing about the endpoint's health (e.g. a read timeout on a long
+     * generation): the state and failure count are unchanged, a half-open probe slot is freed.
+     */
+    public synchronized void recordIgnored() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+}
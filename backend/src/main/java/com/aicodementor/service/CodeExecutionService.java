@@ -31,9 +31,14 @@ public class CodeExecutionService {
     
     private static final Logger logger = LoggerFactory.getLogger(CodeExecutionService.class);
     
+    private static final Pattern PUBLIC_KEYWORD = Pattern.compile("\\bpublic\\b");
+    
     @Autowired
     private LLMService llmService;
     
+    @Autowired
+    private JavaSourceAnalyzer sourceAnalyzer;
+    
     /**
      * Execute student code against test cases
      */
@@ -219,11 +224,12 @@ public class CodeExecutionService {
                 Launcher launcher = LauncherFactory.create();
                 
                 // Custom listener to capture test results
-                TestResultListener listener = new TestResultListener(exercise, studentCode, llmService);
+                TestResultListener listener = new TestResultListener();
                 launcher.registerTestExecutionListeners(listener);
                 launcher.execute(request);
                 
                 results = listener.getResults();
+                attachHints(listener.getFailed(), exercise, studentCode);
                 
                 if (results.isEmpty()) {
                     logger.warn("No tests discovered. Test class: {}", testClassName);
@@ -265,47 +271,14 @@ public class CodeExecutionService {
      * Extract class name from Java code
      */
     private String extractClassName(String code) {
-        if (code == null || code.isEmpty()) {
-            return "Solution";
-        }
-        
-        // Try to find public class declaration
-        Pattern pattern = Pattern.compile(
-            "(?:public\\s+)?class\\s+(\\w+)"
-        );
-        Matcher matcher = pattern.matcher(code);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        return "Solution";
+        return sourceAnalyzer.analyze(code).className("Solution");
     }
     
     /**
      * Extract test class name from test code
      */
     private String extractTestClassName(String testCode) {
-        if (testCode == null || testCode.isEmpty()) {
-            return "SolutionTest";
-        }
-        
-        // Try to find test class declaration
-        Pattern pattern = Pattern.compile(
-            "(?:public\\s+)?class\\s+(\\w+Test\\w*)"
-        );
-        Matcher matcher = pattern.matcher(testCode);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        // Fallback: try to find any class ending with Test
-        pattern = Pattern.compile("class\\s+(\\w*Test\\w*)");
-        matcher = pattern.matcher(testCode);
-        if (matcher.find()) {
-            return matcher.group(1);
-        }
-        
-        return "SolutionTest";
+        return sourceAnalyzer.analyze(testCode).testClassName("SolutionTest");
     }
     
     /**
@@ -316,13 +289,24 @@ public class CodeExecutionService {
             return code;
         }
         
-        // Replace "public class ClassName" with "class ClassName"
-        String result = code.replaceAll(
-            "public\\s+class\\s+" + className,
-            "class " + className
-        );
-        
-        return result;
+        // Only the top-level declaration's own modifiers: the same words in comments or strings stay
+        JavaSourceModel.TypeInfo type = sourceAnalyzer.analyze(code).types().stream()
+            .filter(t -> t.topLevel() && t.isPublic() && t.name().equals(className) && t.modifiersStart() >= 0)
+            .findFirst()
+            .orElse(null);
+        if (type == null) {
+            return code;
+        }
+        Matcher matcher = PUBLIC_KEYWORD.matcher(code)
+            .region(type.modifiersStart(), type.modifiersEnd());
+        if (!matcher.find()) {
+            return code;
+        }
+        int end = matcher.end();
+        while (end < code.length() && Character.isWhitespace(code.charAt(end))) {
+            end++;
+        }
+        return code.substring(0, matcher.start()) + code.substring(end);
     }
     
     private void cleanupTempDirectory(Path tempDir) {
@@ -337,21 +321,44 @@ public class CodeExecutionService {
     }
     
     /**
-     * Custom test execution listener to capture results
+     * Generates the hints of all failed tests with one batched LLM call,
+     * instead of one call per failure re-sending the same exercise and student code.
+     */
+    private void attachHints(List<TestExecutionResponse.TestResult> failed, Exercise exercise, String studentCode) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        List<HintFailure> failures = failed.stream()
+                .map(r -> new HintFailure(r.getTestName(), r.getMessage()))
+                .toList();
+        try {
+            List<String> hints = llmService.generateHints(
+                exercise.getId(),
+                failures,
+                exercise.getUnitTests(),
+                studentCode,
+                exercise.getProblemStatement() != null ? exercise.getProblemStatement() : exercise.getDescription()
+            );
+            for (int i = 0; i < failed.size(); i++) {
+                failed.get(i).setHint(hints.get(i));
+            }
+        } catch (Exception e) {
+            logger.error("Hint generation failed", e);
+            for (TestExecutionResponse.TestResult result : failed) {
+                result.setHint("Relisez attentivement l'énoncé et vérifiez votre logique.");
+            }
+        }
+    }
+    
+    /**
+     * Custom test execution listener to capture results.
+     * Failed tests are collected so that their hints can be generated in one batch afterwards.
      */
     private static class TestResultListener implements TestExecutionListener {
         private final List<TestExecutionResponse.TestResult> results = new ArrayList<>();
-        private final Exercise exercise;
-        private final String studentCode;
-        private final LLMService llmService;
+        private final List<TestExecutionResponse.TestResult> failed = new ArrayList<>();
         private final Map<String, TestIdentifier> testMap = new HashMap<>();
         
-        public TestResultListener(Exercise exercise, String studentCode, LLMService llmService) {
-            this.exercise = exercise;
-            this.studentCode = studentCode;
-            this.llmService = llmService;
-        }
-        
         @Override
         public void executionStarted(TestIdentifier testIdentifier) {
             if (testIdentifier.isTest()) {
@@ -365,38 +372,33 @@ public class CodeExecutionService {
                 String testName = testIdentifier.getDisplayName();
                 boolean passed = testExecutionResult.getStatus() == org.junit.platform.engine.TestExecutionResult.Status.SUCCESSFUL;
                 String message = "";
-                String hint = "";
+                boolean needsHint = false;
                 
                 if (!passed && testExecutionResult.getThrowable().isPresent()) {
                     Throwable throwable = testExecutionResult.getThrowable().get();
                     message = throwable.getMessage();
-                    
-                    // Generate hint using LLM for failed tests
-                    try {
-                        hint = llmService.generateHint(
-                            testName, 
-                            exercise.getUnitTests(), 
-                            studentCode, 
-                            message,
-                            exercise.getProblemStatement() != null ? exercise.getProblemStatement() : exercise.getDescription()
-                        );
-                    } catch (Exception e) {
-                        hint = "Relisez attentivement l'énoncé et vérifiez votre logique.";
-                    }
+                    needsHint = true;
                 }
                 
                 TestExecutionResponse.TestResult result = new TestExecutionResponse.TestResult();
                 result.setTestName(testName);
                 result.setPassed(passed);
                 result.setMessage(message);
-                result.setHint(hint);
+                result.setHint("");
                 results.add(result);
+                if (needsHint) {
+                    failed.add(result);
+                }
             }
         }
         
         public List<TestExecutionResponse.TestResult> getResults() {
             return results;
         }
+        
+        public List<TestExecutionResponse.TestResult> getFailed() {
+            return failed;
+        }
     }
 }
 
@@ -0,0 +1,95 @@
+package com.aicodementor.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Provider-neutral description of one completion call.
+ * Each {@link InferenceProvider} maps it onto its own wire format.
+ */
+public record CompletionRequest(
+    LLMCallType callType,
+    String prompt,
+    int maxTokens,
+    double temperature,
+    double topP,
+    int topK,
+    double repeatPenalty,
+    List<String> stop,
+    Map<String, Object> jsonSchema,
+    int slotId,
+    long seed
+) {
+
+    /** Let the server pick the slot. */
+    public static final int ANY_SLOT = -1;
+
+    /** Let the server pick a random seed. */
+    public static final long RANDOM_SEED = -1;
+
+    private static final String EOS = "</s>";
+
+    /**
+     * Defaults used for code generation: low temperature, and only stop on code block
+     * markers or EOS so that long solutions are not truncated.
+     */
+    public static CompletionRequest of(LLMCallType callType, String prompt, int maxTokens) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            0.2, 0.95, 40, 1.15, List.of("```", EOS), null, ANY_SLOT, RANDOM_SEED);
+    }
+
+    public CompletionRequest withSampling(double temperature, double topP, int topK, double repeatPenalty) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stop, jsonSchema, slotId, seed);
+    }
+
+    /**
+     * Stop sequences; ignored except for EOS while a JSON schema constrains the output (see
+     * {@link #withJsonSchema}).
+     */
+    public CompletionRequest withStop(List<String> stop) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stopsFor(stop, jsonSchema), jsonSchema, slotId, seed);
+    }
+
+    /**
+     * Changes the output budget, e.g. to retry a call that hit its {@code maxTokens}.
+     */
+    public CompletionRequest withMaxTokens(int maxTokens) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stop, jsonSchema, slotId, seed);
+    }
+
+    /**
+     * Constrains sampling to JSON matching {@code jsonSchema}. The grammar ends the output itself,
+     * and text stops ("\n\n", "```") can occur inside valid JSON (whitespace, string values), where
+     * they would cut the document short: only the EOS marker is kept.
+     */
+    public CompletionRequest withJsonSchema(Map<String, Object> jsonSchema) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stopsFor(stop, jsonSchema), jsonSchema, slotId, seed);
+    }
+
+    private static List<String> stopsFor(List<String> stop, Map<String, Object> jsonSchema) {
+        if (jsonSchema == null || stop == null) {
+            return stop;
+        }
+        return stop.stream().filter(EOS::equals).toList();
+    }
+
+    /**
+     * Pins the call to one server slot, whose KV cache still holds the previous prompt.
+     */
+    public CompletionRequest withSlot(int slotId) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stop, jsonSchema, slotId, seed);
+    }
+
+    /**
+     * Fixes the sampling seed, so that concurrent samples of one prompt differ reproducibly.
+     */
+    public CompletionRequest withSeed(long seed) {
+        return new CompletionRequest(callType, prompt, maxTokens,
+            temperature, topP, topK, repeatPenalty, stop, jsonSchema, slotId, seed);
+    }
+}
@@ -0,0 +1,10 @@
+package com.aicodementor.service;
+
+/**
+ * Raw text produced by the model, the endpoint that served it and the server's timings.
+ */
+public record CompletionResult(
+    String content,
+    String endpoint,
+    InferenceTimings timings
+) {}
@@ -0,0 +1,28 @@
+package com.aicodementor.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Cache keys derived from text content.
+ */
+final class ContentHash {
+
+    private ContentHash() {
+    }
+
+    /**
+     * The first 128 bits of the SHA-256 of the UTF-8 text, as 32 hex characters: short enough for
+     * an indexed column, long enough that distinct texts never share a key in practice.
+     */
+    static String sha256(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
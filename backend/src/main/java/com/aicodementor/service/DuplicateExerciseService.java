@@ -0,0 +1,264 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.repository.ExerciseRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Near-duplicate detection for the exercise catalog.
+ *
+ * An exercise is the set of word 3-grams of its problem statement plus the token 5-grams of its
+ * solution (comments dropped, declared type names abstracted, so a renamed copy still matches).
+ * Every exercise's MinHash signature is kept in a {@link MinHashIndex}, built in the background
+ * at startup and kept current by {@link KnowledgeIndexingListener} after each commit. A check
+ * costs one signature and a few bucket lookups, whatever the size of the catalog.
+ * Until the initial build is done, checks find nothing rather than wait.
+ */
+@Service
+public class DuplicateExerciseService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DuplicateExerciseService.class);
+
+    private static final int LOAD_PAGE_SIZE = 500;
+    private static final int STATEMENT_SHINGLE = 3;
+    private static final int CODE_SHINGLE = 5;
+    private static final Set<String> TYPE_DECLARATIONS = Set.of("class", "interface", "record", "enum");
+
+    public record DuplicateCandidate(Long exerciseId, String title, double similarity) {
+    }
+
+    private final ExerciseRepository exerciseRepository;
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxResults;
+    private final MinHashIndex index;
+
+    // Initial load, then the listener's changes: an exercise edited while the load pages through
+    // the table is re-signed after the load, so the stale row it read never wins
+    private final SerialTaskRunner updates =
+        new SerialTaskRunner("duplicate-index", logger, "Near-duplicate index update");
+
+    private volatile boolean ready;
+    private final AtomicLong checks = new AtomicLong();
+    private final AtomicLong flagged = new AtomicLong();
+    private final AtomicLong checkNanos = new AtomicLong();
+
+    public DuplicateExerciseService(ExerciseRepository exerciseRepository,
+                                    @Value("${llm.duplicates.enabled:true}") boolean enabled,
+                                    @Value("${llm.duplicates.threshold:0.8}") double threshold,
+                                    @Value("${llm.duplicates.num-hashes:128}") int numHashes,
+                                    @Value("${llm.duplicates.bands:16}") int bands,
+                                    @Value("${llm.duplicates.max-candidates:500}") int maxCandidates,
+                                    @Value("${llm.duplicates.max-results:5}") int maxResults) {
+        this.exerciseRepository = exerciseRepository;
+        this.enabled = enabled;
+        this.threshold = Math.min(1.0, Math.max(0.0, threshold));
+        this.maxResults = Math.max(1, maxResults);
+        this.index = new MinHashIndex(numHashes, bands, maxCandidates);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            updates.submit(this::load);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updates.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Exercises whose statement and solution are at least {@code llm.duplicates.threshold} similar
+     * to the given ones, most similar first; {@code excludeId} (may be null) is the exercise itself.
+     */
+    public List<DuplicateCandidate> findDuplicates(String problemStatement, String solution, Long excludeId) {
+        if (!enabled || !ready) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            int[] signature = index.signature(shingles(problemStatement, solution));
+            if (signature == null) {
+                return List.of();
+            }
+            List<MinHashIndex.Match> matches = index.query(signature, threshold, maxResults, excludeId);
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Exercise> exercises = exerciseRepository.findAllById(
+                    matches.stream().map(MinHashIndex.Match::id).toList()).stream()
+                .collect(Collectors.toMap(Exercise::getId, Function.identity()));
+            List<DuplicateCandidate> candidates = new ArrayList<>(matches.size());
+            for (MinHashIndex.Match match : matches) {
+                Exercise exercise = exercises.get(match.id());
+                if (exercise != null) {
+                    candidates.add(new DuplicateCandidate(exercise.getId(), exercise.getTitle(),
+                        Math.round(match.similarity() * 1000) / 1000.0));
+                }
+            }
+            if (!candidates.isEmpty()) {
+                flagged.incrementAndGet();
+            }
+            return candidates;
+        } finally {
+            checks.incrementAndGet();
+            checkNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Re-indexes an exercise after a committed insert or update.
+     */
+    public void update(Long exerciseId, String problemStatement, String solution) {
+        if (!enabled || exerciseId == null) {
+            return;
+        }
+        updates.submit(() -> {
+            int[] signature = index.signature(shingles(problemStatement, solution));
+            if (signature == null) {
+                index.remove(exerciseId);
+            } else {
+                index.put(exerciseId, signature);
+            }
+        });
+    }
+
+    /**
+     * Drops an exercise after a committed delete.
+     */
+    public void remove(Long exerciseId) {
+        if (enabled && exerciseId != null) {
+            updates.submit(() -> index.remove(exerciseId));
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = checks.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("exercises", index.size());
+        stats.put("threshold", threshold);
+        stats.put("numHashes", index.numHashes());
+        stats.put("bands", index.bands());
+        stats.put("rowsPerBand", index.rows());
+        stats.put("lshThreshold", Math.round(index.lshThreshold() * 1000) / 1000.0);
+        stats.put("checks", count);
+        stats.put("flagged", flagged.get());
+        stats.put("avgCheckMs", count > 0 ? Math.round(checkNanos.get() / 1e4 / count) / 100.0 : 0);
+        return stats;
+    }
+
+    // ==================== Internals ====================
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+        try {
+            long lastId = 0;
+            List<Object[]> page;
+            while (!(page = exerciseRepository.findDuplicateSourcesAfter(lastId, PageRequest.of(0, LOAD_PAGE_SIZE))).isEmpty()) {
+                for (Object[] row : page) {
+                    lastId = (Long) row[0];
+                    int[] signature = index.signature(shingles((String) row[1], (String) row[2]));
+                    if (signature != null) {
+                        index.put(lastId, signature);
+                        loaded++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load the near-duplicate index: {}", e.getMessage());
+        }
+        ready = true;
+        logger.info("Near-duplicate index loaded {} exercise(s) in {} ms", loaded, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Shingle hashes of an exercise: word 3-grams of the statement, token 5-grams of the solution.
+     */
+    static long[] shingles(String problemStatement, String solution) {
+        List<String> words = words(problemStatement);
+        List<String> tokens = codeTokens(solution);
+        long[] shingles = new long[shingleCount(words.size(), STATEMENT_SHINGLE) + shingleCount(tokens.size(), CODE_SHINGLE)];
+        int n = addShingles(words, STATEMENT_SHINGLE, 's', shingles, 0);
+        addShingles(tokens, CODE_SHINGLE, 'c', shingles, n);
+        return shingles;
+    }
+
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}+", "")
+            .toLowerCase(Locale.ROOT);
+        int wordStart = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                words.add(normalized.substring(wordStart, i));
+                wordStart = -1;
+            }
+        }
+        return words;
+    }
+
+    private static List<String> codeTokens(String source) {
+        List<JavaTokenizer.Token> tokens = JavaTokenizer.tokenize(source);
+        Set<String> declaredTypes = new HashSet<>();
+        for (int i = 0; i + 1 < tokens.size(); i++) {
+            if (tokens.get(i).kind() == JavaTokenizer.Kind.KEYWORD && TYPE_DECLARATIONS.contains(tokens.get(i).text())
+                    && tokens.get(i + 1).kind() == JavaTokenizer.Kind.IDENTIFIER) {
+                declaredTypes.add(tokens.get(i + 1).text());
+            }
+        }
+        List<String> texts = new ArrayList<>(tokens.size());
+        for (JavaTokenizer.Token token : tokens) {
+            if (token.kind() == JavaTokenizer.Kind.COMMENT) {
+                continue;
+            }
+            boolean declaredType = token.kind() == JavaTokenizer.Kind.IDENTIFIER && declaredTypes.contains(token.text());
+            texts.add(declaredType ? "$T" : token.text());
+        }
+        return texts;
+    }
+
+    private static int shingleCount(int items, int width) {
+        return items == 0 ? 0 : Math.max(1, items - width + 1);
+    }
+
+    private static int addShingles(List<String> items, int width, long salt, long[] shingles, int n) {
+        int count = shingleCount(items.size(), width);
+        for (int i = 0; i < count; i++) {
+            long hash = salt;
+            for (int j = i, end = Math.min(items.size(), i + width); j < end; j++) {
+                hash = MinHashIndex.mix(hash * 31 + items.get(j).hashCode());
+            }
+            shingles[n++] = hash;
+        }
+        return n;
+    }
+}
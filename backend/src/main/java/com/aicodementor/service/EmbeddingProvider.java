@@ -0,0 +1,44 @@
+package com.aicodementor.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns text into a dense vector, locally: no text leaves the deployment.
+ */
+public interface EmbeddingProvider {
+
+    /**
+     * Name used in {@code embedding.provider}.
+     */
+    String name();
+
+    /**
+     * Vector length, or 0 until the first embedding when the model decides it.
+     */
+    int dimension();
+
+    /**
+     * Embedding of {@code text}. Throws on transport or server errors.
+     */
+    float[] embed(String text);
+
+    /**
+     * {@code text} cut to at most {@code maxTokens} tokens of the model, so it fits its context.
+     * Providers without a context limit return it unchanged.
+     */
+    default String truncate(String text, int maxTokens) {
+        return text;
+    }
+
+    /**
+     * Embeddings of several texts, in order. Providers that batch on the server override this.
+     */
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+}
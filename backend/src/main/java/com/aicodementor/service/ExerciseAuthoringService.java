@@ -0,0 +1,120 @@
+package com.aicodementor.service;
+
+import com.aicodementor.dto.ExerciseGenerationResponse;
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.entity.User;
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Persistence side of exercise authoring: owner resolution and saving generated exercises.
+ */
+@Service
+public class ExerciseAuthoringService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExerciseAuthoringService.class);
+
+    private final ExerciseRepository exerciseRepository;
+    private final UserRepository userRepository;
+
+    public ExerciseAuthoringService(ExerciseRepository exerciseRepository, UserRepository userRepository) {
+        this.exerciseRepository = exerciseRepository;
+        this.userRepository = userRepository;
+    }
+
+    /**
+     * Teacher owning saved exercises (for demo, the first user with TEACHER role, created if none exists)
+     */
+    @Transactional
+    public synchronized User resolveDefaultTeacher() {
+        Optional<User> teacherOpt = userRepository.findAll().stream()
+                .filter(u -> u.getRole() == User.UserRole.TEACHER)
+                .findFirst();
+        if (teacherOpt.isPresent()) {
+            return teacherOpt.get();
+        }
+
+        // Create a default teacher if none exists
+        logger.warn("No teacher found, creating default teacher user");
+        // Check if teacher user already exists by username or email
+        Optional<User> existingTeacher = userRepository.findByUsername("teacher");
+        if (existingTeacher.isEmpty()) {
+            existingTeacher = userRepository.findByEmail("teacher@demo.com");
+        }
+
+        User teacher;
+        if (existingTeacher.isPresent()) {
+            teacher = existingTeacher.get();
+            // Update role if needed
+            if (teacher.getRole() != User.UserRole.TEACHER) {
+                teacher.setRole(User.UserRole.TEACHER);
+                teacher = userRepository.save(teacher);
+            }
+            logger.info("Using existing teacher user: {}", teacher.getId());
+        } else {
+            teacher = new User();
+            teacher.setUsername("teacher");
+            teacher.setEmail("teacher@demo.com");
+            teacher.setPassword("demo123");
+            teacher.setFullName("Prof. Demo");
+            teacher.setRole(User.UserRole.TEACHER);
+            teacher = userRepository.save(teacher);
+            logger.info("Created default teacher user: {}", teacher.getId());
+        }
+        return teacher;
+    }
+
+    /**
+     * Saves a generated exercise as an unpublished draft of the default teacher.
+     */
+    @Transactional
+    public Exercise saveGeneratedDraft(ExerciseGenerationResponse generated) {
+        Exercise exercise = new Exercise();
+        exercise.setTitle(truncate(generated.title(), 200));
+        exercise.setDescription(generated.detailedDescription());
+        exercise.setProblemStatement(generated.detailedDescription());
+        exercise.setTopic(topicOf(generated.concepts()));
+        exercise.setDifficulty(parseDifficulty(generated.difficulty()));
+        exercise.setStarterCode(generated.starterCode());
+        exercise.setUnitTests(generated.unitTests());
+        exercise.setSolution(generated.exampleSolution());
+        exercise.setConcepts(generated.concepts());
+        exercise.setExamples(generated.examples());
+        exercise.setPublished(false);
+        exercise.setCreator(resolveDefaultTeacher());
+
+        Exercise saved = exerciseRepository.save(exercise);
+        logger.info("Saved generated exercise {} as draft: {}", saved.getId(), saved.getTitle());
+        return saved;
+    }
+
+    private static Exercise.DifficultyLevel parseDifficulty(String difficulty) {
+        try {
+            return Exercise.DifficultyLevel.valueOf(difficulty.trim().toUpperCase(Locale.ROOT));
+        } catch (RuntimeException e) {
+            return Exercise.DifficultyLevel.L1;
+        }
+    }
+
+    /**
+     * First listed concept, or "Général"
+     */
+    private static String topicOf(String concepts) {
+        if (concepts == null || concepts.isBlank()) {
+            return "Général";
+        }
+        String first = concepts.split("[,;\\n]")[0].trim();
+        return first.isEmpty() ? "Général" : truncate(first, 100);
+    }
+
+    private static String truncate(String text, int max) {
+        return text.length() > max ? text.substring(0, max) : text;
+    }
+}
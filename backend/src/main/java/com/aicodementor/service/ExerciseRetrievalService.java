@@ -0,0 +1,152 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.repository.ExerciseRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Similar exercises of the catalog, used as few-shot context when generating a new one.
+ *
+ * Every exercise with a solution and tests has one {@code knowledge_base} row with
+ * {@code contentType = "exercise_example"}, embedded from its title and problem statement and kept
+ * up to date by {@link KnowledgeIndexer}, so a retrieval is one embedding call plus one
+ * {@link KnowledgeIndexService} search and a lookup by id.
+ */
+@Service
+public class ExerciseRetrievalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExerciseRetrievalService.class);
+
+    public static final String CONTENT_TYPE = "exercise_example";
+
+    // Problem statements beyond this length add noise, not meaning, to the embedding
+    private static final int EMBEDDED_STATEMENT_CHARS = 1500;
+
+    public record SimilarExercise(Exercise exercise, float score) {
+    }
+
+    private final ExerciseRepository exerciseRepository;
+    private final KnowledgeIndexService knowledgeIndex;
+    private final boolean enabled;
+    private final int topK;
+    private final double minScore;
+    private final double reuseScore;
+
+    private final AtomicLong retrievals = new AtomicLong();
+    private final AtomicLong withExamples = new AtomicLong();
+    private final AtomicLong retrievalNanos = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    public ExerciseRetrievalService(ExerciseRepository exerciseRepository,
+                                    KnowledgeIndexService knowledgeIndex,
+                                    @Value("${llm.retrieval.enabled:true}") boolean enabled,
+                                    @Value("${llm.retrieval.top-k:2}") int topK,
+                                    @Value("${llm.retrieval.min-score:0.75}") double minScore,
+                                    @Value("${llm.retrieval.reuse-score:0.97}") double reuseScore) {
+        this.exerciseRepository = exerciseRepository;
+        this.knowledgeIndex = knowledgeIndex;
+        this.enabled = enabled;
+        this.topK = Math.max(1, topK);
+        this.minScore = minScore;
+        this.reuseScore = reuseScore;
+    }
+
+    public boolean isEnabled() {
+        return enabled && knowledgeIndex.isEnabled();
+    }
+
+    /**
+     * Up to {@code llm.retrieval.top-k} exercises similar to {@code task} (at least
+     * {@code llm.retrieval.min-score}), best first; empty when retrieval is unavailable.
+     */
+    public List<SimilarExercise> similar(String task) {
+        if (!isEnabled() || isBlank(task)) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        try {
+            List<KnowledgeIndexService.KnowledgeMatch> matches = knowledgeIndex.search(CONTENT_TYPE, task, topK, null).stream()
+                .filter(match -> match.score() >= minScore && match.exerciseId() != null)
+                .toList();
+            if (matches.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Exercise> exercises = exerciseRepository.findAllById(
+                    matches.stream().map(KnowledgeIndexService.KnowledgeMatch::exerciseId).toList()).stream()
+                .collect(Collectors.toMap(Exercise::getId, Function.identity()));
+            List<SimilarExercise> result = new ArrayList<>(matches.size());
+            for (KnowledgeIndexService.KnowledgeMatch match : matches) {
+                Exercise exercise = exercises.get(match.exerciseId());
+                if (exercise != null && isIndexable(exercise)) {
+                    result.add(new SimilarExercise(exercise, match.score()));
+                }
+            }
+            if (!result.isEmpty()) {
+                withExamples.incrementAndGet();
+            }
+            return result;
+        } catch (Exception e) {
+            logger.warn("Exercise retrieval failed: {}", e.getMessage());
+            return List.of();
+        } finally {
+            retrievals.incrementAndGet();
+            retrievalNanos.addAndGet(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Whether the match is close enough to stand for the requested exercise itself.
+     */
+    public boolean isReusable(SimilarExercise match) {
+        return match.score() >= reuseScore;
+    }
+
+    /**
+     * Counts a generation answered by an existing exercise instead of the model.
+     */
+    public void recordReuse() {
+        reused.incrementAndGet();
+    }
+
+    public Map<String, Object> snapshot() {
+        long count = retrievals.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", isEnabled());
+        stats.put("topK", topK);
+        stats.put("minScore", minScore);
+        stats.put("reuseScore", reuseScore);
+        stats.put("retrievals", count);
+        stats.put("withExamples", withExamples.get());
+        stats.put("reused", reused.get());
+        stats.put("avgRetrievalMs", count > 0 ? Math.round(retrievalNanos.get() / 1e4 / count) / 100.0 : 0);
+        return stats;
+    }
+
+    static boolean isIndexable(Exercise exercise) {
+        return !isBlank(exercise.getSolution()) && !isBlank(exercise.getUnitTests());
+    }
+
+    static String embeddingText(Exercise exercise) {
+        String statement = exercise.getProblemStatement();
+        if (isBlank(statement)) {
+            statement = exercise.getDescription();
+        }
+        statement = statement == null ? "" : statement.strip();
+        if (statement.length() > EMBEDDED_STATEMENT_CHARS) {
+            statement = statement.substring(0, EMBEDDED_STATEMENT_CHARS);
+        }
+        return exercise.getTitle() + "\n" + statement;
+    }
+
+    private static boolean isBlank(String text) {
+        return text == null || text.isBlank();
+    }
+}
@@ -0,0 +1,46 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+
+import java.util.List;
+
+/**
+ * A classic exercise with its complete, verified material.
+ *
+ * Code pieces use {@code {{Class}}} for the class under test, so a template can be instantiated
+ * under another class name. A description matches when every keyword group has at least one
+ * keyword in it and no excluded keyword appears. Keywords are accent-free, lower-case word
+ * prefixes ("invers" matches "inverser" and "inverse"); multi-word keywords match as phrases.
+ * {@code level} is the difficulty level the material is written for (L1, L2, ...).
+ */
+public record ExerciseTemplate(
+    String id,
+    String className,
+    Exercise.DifficultyLevel level,
+    List<List<String>> keywordGroups,
+    List<String> excluded,
+    String solution,
+    String starterCode,
+    String unitTests,
+    String examples
+) {
+
+    static final String CLASS_PLACEHOLDER = "{{Class}}";
+
+    /**
+     * Material of the template for {@code targetClassName} (the template's own class name if null).
+     */
+    public Instance instantiate(String targetClassName) {
+        String name = targetClassName == null || targetClassName.isBlank() ? className : targetClassName;
+        return new Instance(
+            name,
+            solution.replace(CLASS_PLACEHOLDER, name),
+            starterCode.replace(CLASS_PLACEHOLDER, name),
+            unitTests.replace(CLASS_PLACEHOLDER, name),
+            examples
+        );
+    }
+
+    public record Instance(String className, String solution, String starterCode, String unitTests, String examples) {
+    }
+}
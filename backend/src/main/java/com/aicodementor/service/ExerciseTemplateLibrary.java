@@ -0,0 +1,1030 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise.DifficultyLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Indexed library of parameterized templates for the classic exercise families
+ * (array sum/max/min/average, string reversal, palindromes, counting, factorial, ...).
+ *
+ * A description matching a template is answered in milliseconds without the LLM. Matching is
+ * conservative: besides the template's keyword groups, the description may contain at most
+ * {@code llm.templates.max-unmatched-words} meaningful words the template does not explain,
+ * so "somme des nombres pairs" is left to the LLM rather than answered with a plain sum.
+ * Each template is written for one difficulty level; it only answers requests at most
+ * {@code llm.templates.max-level-gap} levels away from it, and the closest level wins a tie.
+ */
+@Component
+public class ExerciseTemplateLibrary {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExerciseTemplateLibrary.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_WORD = Pattern.compile("[^a-z0-9]+");
+    private static final int MIN_PREFIX = 3;
+
+    /** Words carrying no task-specific meaning in exercise descriptions (accent-free). */
+    private static final Set<String> GENERIC_WORDS = Set.of(
+        "ecrire", "ecris", "ecrivez", "implementer", "implementez", "creer", "creez", "coder", "programmer",
+        "write", "create", "implement", "fonction", "function", "methode", "method", "classe", "class",
+        "programme", "program", "qui", "que", "dont", "retourne", "retourner", "renvoie", "renvoyer",
+        "return", "returns", "calcule", "calculer", "calculate", "compute", "computes", "determine",
+        "determiner", "donne", "donnee", "donnees", "donnes", "given", "les", "des", "une", "aux", "dans",
+        "pour", "par", "sur", "avec", "the", "and", "for", "that", "which", "from", "java", "entier",
+        "entiers", "integer", "integers", "int", "nombre", "nombres", "number", "numbers", "element",
+        "elements", "valeur", "valeurs", "value", "values", "chaine", "chaines", "string", "strings",
+        "caracteres", "tableau", "tableaux", "array", "arrays", "liste", "list", "statique", "static",
+        "simple", "exercice", "exercise", "vous", "devez", "doit", "permet", "permettant", "son", "sa",
+        "ses", "leur", "est", "cette", "ce", "tous", "toutes", "all", "its", "parametre", "parametres",
+        "parameter", "entree", "input", "resultat", "result", "trouver", "find", "verifier", "check",
+        "suite", "terme", "ieme", "rang"
+    );
+
+    private final List<ExerciseTemplate> templates;
+    private final Map<String, List<ExerciseTemplate>> keywordIndex = new HashMap<>();
+    private final int maxUnmatchedWords;
+    private final int maxLevelGap;
+    private final boolean enabled;
+
+    public ExerciseTemplateLibrary(@Value("${llm.templates.enabled:true}") boolean enabled,
+                                   @Value("${llm.templates.max-unmatched-words:2}") int maxUnmatchedWords,
+                                   @Value("${llm.templates.max-level-gap:1}") int maxLevelGap) {
+        this.enabled = enabled;
+        this.maxUnmatchedWords = Math.max(0, maxUnmatchedWords);
+        this.maxLevelGap = Math.max(0, maxLevelGap);
+        this.templates = List.copyOf(builtInTemplates());
+        for (ExerciseTemplate template : templates) {
+            for (List<String> group : template.keywordGroups()) {
+                for (String keyword : group) {
+                    keywordIndex.computeIfAbsent(firstWord(keyword), k -> new ArrayList<>()).add(template);
+                }
+            }
+        }
+        logger.info("Exercise template library: {} template(s), {} indexed keyword(s)",
+            templates.size(), keywordIndex.size());
+    }
+
+    /**
+     * Result of a successful match.
+     *
+     * @param unmatchedWords meaningful words of the description the template does not explain
+     * @param levelGap       levels between the requested difficulty and the template's (0 when none was requested)
+     */
+    public record Match(ExerciseTemplate template, int unmatchedWords, int levelGap) {
+    }
+
+    /**
+     * Best template for the description at any difficulty level.
+     */
+    public Optional<Match> match(String description) {
+        return match(description, null);
+    }
+
+    /**
+     * Best template for the description, if one matches confidently: every keyword group
+     * satisfied, no excluded keyword, few unexplained words, a level close to {@code difficulty}
+     * (L1, L2, ...; any level when null or unknown). Among several, the most specific (most
+     * keyword groups), then the closest level, then the one explaining the most words wins.
+     */
+    public Optional<Match> match(String description, String difficulty) {
+        if (!enabled || description == null || description.isBlank()) {
+            return Optional.empty();
+        }
+        String text = normalize(description);
+        List<String> words = Arrays.stream(NON_WORD.split(text)).filter(w -> !w.isEmpty()).toList();
+        String spaced = " " + String.join(" ", words) + " ";
+
+        // Candidates: templates having a keyword that is a prefix of some description word
+        Set<ExerciseTemplate> candidates = new LinkedHashSet<>();
+        for (String word : words) {
+            for (int len = Math.min(word.length(), 12); len >= MIN_PREFIX; len--) {
+                List<ExerciseTemplate> hit = keywordIndex.get(word.substring(0, len));
+                if (hit != null) {
+                    candidates.addAll(hit);
+                }
+            }
+        }
+
+        DifficultyLevel requested = parseLevel(difficulty);
+        Match best = null;
+        for (ExerciseTemplate template : candidates) {
+            if (!matchesAllGroups(template, spaced) || containsAny(spaced, template.excluded())) {
+                continue;
+            }
+            int gap = requested != null ? Math.abs(requested.ordinal() - template.level().ordinal()) : 0;
+            if (gap > maxLevelGap) {
+                continue;
+            }
+            int unmatched = countUnmatchedWords(template, words);
+            if (unmatched > maxUnmatchedWords) {
+                continue;
+            }
+            Match match = new Match(template, unmatched, gap);
+            if (best == null || isBetter(match, best)) {
+                best = match;
+            }
+        }
+        if (best != null) {
+            logger.info("Description matches exercise template '{}' ({} unmatched word(s), {} level(s) away)",
+                best.template().id(), best.unmatchedWords(), best.levelGap());
+        }
+        return Optional.ofNullable(best);
+    }
+
+    public List<ExerciseTemplate> getTemplates() {
+        return templates;
+    }
+
+    // ============================================================
+    // Matching
+    // ============================================================
+    private static boolean isBetter(Match match, Match current) {
+        int groups = match.template().keywordGroups().size();
+        int currentGroups = current.template().keywordGroups().size();
+        if (groups != currentGroups) {
+            return groups > currentGroups;
+        }
+        if (match.levelGap() != current.levelGap()) {
+            return match.levelGap() < current.levelGap();
+        }
+        return match.unmatchedWords() < current.unmatchedWords();
+    }
+
+    private static DifficultyLevel parseLevel(String difficulty) {
+        if (difficulty == null || difficulty.isBlank()) {
+            return null;
+        }
+        try {
+            return DifficultyLevel.valueOf(difficulty.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean matchesAllGroups(ExerciseTemplate template, String spaced) {
+        for (List<String> group : template.keywordGroups()) {
+            if (!containsAny(spaced, group)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * True if one of the keywords starts a word of {@code spaced} (words joined by single spaces).
+     */
+    private static boolean containsAny(String spaced, List<String> keywords) {
+        for (String keyword : keywords) {
+            if (spaced.contains(" " + keyword)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countUnmatchedWords(ExerciseTemplate template, List<String> words) {
+        int unmatched = 0;
+        for (String word : words) {
+            if (word.length() < MIN_PREFIX || GENERIC_WORDS.contains(word) || isExplained(template, word)) {
+                continue;
+            }
+            unmatched++;
+        }
+        return unmatched;
+    }
+
+    private static boolean isExplained(ExerciseTemplate template, String word) {
+        for (List<String> group : template.keywordGroups()) {
+            for (String keyword : group) {
+                for (String part : keyword.split(" ")) {
+                    if (word.startsWith(part) && part.length() >= MIN_PREFIX || word.equals(part)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    static String normalize(String text) {
+        String n = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        return DIACRITICS.matcher(n).replaceAll("");
+    }
+
+    private static String firstWord(String keyword) {
+        int space = keyword.indexOf(' ');
+        String word = space < 0 ? keyword : keyword.substring(0, space);
+        return word.length() > 12 ? word.substring(0, 12) : word;
+    }
+
+    // ============================================================
+    // Built-in templates
+    // ============================================================
+    private static List<ExerciseTemplate> builtInTemplates() {
+        List<ExerciseTemplate> list = new ArrayList<>();
+
+        list.add(new ExerciseTemplate("array-sum", "ArraySum", DifficultyLevel.L1,
+            List.of(List.of("somme", "sum", "additionn", "total"), List.of("tableau", "array", "liste", "elements")),
+            List.of("pair", "impair", "even", "odd", "positi", "negati", "carre", "square", "matrice", "matrix",
+                "deux tableaux", "chiffre", "digit", "cumul", "prefix"),
+            """
+            public class {{Class}} {
+                public static int sum(int[] array) {
+                    if (array == null || array.length == 0) return 0;
+                    int total = 0;
+                    for (int num : array) {
+                        total += num;
+                    }
+                    return total;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int sum(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(6, {{Class}}.sum(new int[]{1, 2, 3}));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.sum(new int[]{}));
+                    assertEquals(0, {{Class}}.sum(null));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(-2, {{Class}}.sum(new int[]{-5, 3, 0}));
+                    assertEquals(42, {{Class}}.sum(new int[]{42}));
+                }
+            }""",
+            """
+            Entrée : [1, 2, 3] → Sortie : 6
+            Entrée : [-5, 3, 0] → Sortie : -2
+            Entrée : [] → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("array-max", "ArrayMax", DifficultyLevel.L1,
+            List.of(List.of("maximum", "max", "plus grand", "largest"), List.of("tableau", "array", "liste", "elements")),
+            List.of("deuxieme", "second", "indice", "index", "position", "matrice", "matrix", "sous", "chaine", "string", "mot"),
+            """
+            public class {{Class}} {
+                public static int findMax(int[] array) {
+                    if (array == null || array.length == 0) {
+                        throw new IllegalArgumentException("Le tableau ne doit pas être vide");
+                    }
+                    int max = array[0];
+                    for (int i = 1; i < array.length; i++) {
+                        if (array[i] > max) {
+                            max = array[i];
+                        }
+                    }
+                    return max;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int findMax(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(9, {{Class}}.findMax(new int[]{3, 9, 4}));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(7, {{Class}}.findMax(new int[]{7}));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.findMax(new int[]{}));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.findMax(null));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(-1, {{Class}}.findMax(new int[]{-8, -1, -3}));
+                    assertEquals(5, {{Class}}.findMax(new int[]{5, 5, 2}));
+                }
+            }""",
+            """
+            Entrée : [3, 9, 4] → Sortie : 9
+            Entrée : [-8, -1, -3] → Sortie : -1
+            Entrée : [7] → Sortie : 7"""));
+
+        list.add(new ExerciseTemplate("array-min", "ArrayMin", DifficultyLevel.L1,
+            List.of(List.of("minimum", "min", "plus petit", "smallest"), List.of("tableau", "array", "liste", "elements")),
+            List.of("deuxieme", "second", "indice", "index", "position", "matrice", "matrix", "chaine", "string", "mot"),
+            """
+            public class {{Class}} {
+                public static int findMin(int[] array) {
+                    if (array == null || array.length == 0) {
+                        throw new IllegalArgumentException("Le tableau ne doit pas être vide");
+                    }
+                    int min = array[0];
+                    for (int i = 1; i < array.length; i++) {
+                        if (array[i] < min) {
+                            min = array[i];
+                        }
+                    }
+                    return min;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int findMin(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(3, {{Class}}.findMin(new int[]{3, 9, 4}));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(7, {{Class}}.findMin(new int[]{7}));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.findMin(new int[]{}));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.findMin(null));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(-8, {{Class}}.findMin(new int[]{-8, -1, -3}));
+                    assertEquals(2, {{Class}}.findMin(new int[]{5, 2, 2}));
+                }
+            }""",
+            """
+            Entrée : [3, 9, 4] → Sortie : 3
+            Entrée : [-8, -1, -3] → Sortie : -8
+            Entrée : [7] → Sortie : 7"""));
+
+        list.add(new ExerciseTemplate("array-average", "ArrayAverage", DifficultyLevel.L1,
+            List.of(List.of("moyenne", "average", "mean"), List.of("tableau", "array", "liste", "elements", "notes")),
+            List.of("ponderee", "weighted", "mobile", "moving", "matrice", "matrix", "mediane", "median"),
+            """
+            public class {{Class}} {
+                public static double average(int[] array) {
+                    if (array == null || array.length == 0) return 0.0;
+                    long total = 0;
+                    for (int num : array) {
+                        total += num;
+                    }
+                    return (double) total / array.length;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static double average(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return 0.0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(2.0, {{Class}}.average(new int[]{1, 2, 3}), 0.0001);
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0.0, {{Class}}.average(new int[]{}), 0.0001);
+                    assertEquals(0.0, {{Class}}.average(null), 0.0001);
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(2.5, {{Class}}.average(new int[]{1, 2, 3, 4}), 0.0001);
+                    assertEquals(-1.0, {{Class}}.average(new int[]{-3, 1}), 0.0001);
+                }
+            }""",
+            """
+            Entrée : [1, 2, 3] → Sortie : 2.0
+            Entrée : [1, 2, 3, 4] → Sortie : 2.5
+            Entrée : [] → Sortie : 0.0"""));
+
+        list.add(new ExerciseTemplate("string-reverse", "StringReverser", DifficultyLevel.L1,
+            List.of(List.of("invers", "reverse", "renvers", "miroir"), List.of("chaine", "string", "mot", "texte", "phrase")),
+            List.of("ordre des mots", "word order", "tableau", "array", "liste", "nombre", "entier", "chiffre"),
+            """
+            public class {{Class}} {
+                public static String reverse(String str) {
+                    if (str == null || str.isEmpty()) return str;
+                    StringBuilder reversed = new StringBuilder();
+                    for (int i = str.length() - 1; i >= 0; i--) {
+                        reversed.append(str.charAt(i));
+                    }
+                    return reversed.toString();
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static String reverse(String str) {
+                    // TODO: implémentez cette méthode
+                    return null;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals("olleh", {{Class}}.reverse("hello"));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals("", {{Class}}.reverse(""));
+                    assertNull({{Class}}.reverse(null));
+                    assertEquals("a", {{Class}}.reverse("a"));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals("avaJ emmargorP", {{Class}}.reverse("Programme Java"));
+                    assertEquals("radar", {{Class}}.reverse("radar"));
+                }
+            }""",
+            """
+            Entrée : "hello" → Sortie : "olleh"
+            Entrée : "Programme Java" → Sortie : "avaJ emmargorP"
+            Entrée : "" → Sortie : \"\""""));
+
+        list.add(new ExerciseTemplate("palindrome", "PalindromeChecker", DifficultyLevel.L1,
+            List.of(List.of("palindrom")),
+            List.of("plus long", "longest", "sous", "substring", "nombre de", "compter", "count", "liste", "tableau"),
+            """
+            public class {{Class}} {
+                public static boolean isPalindrome(String str) {
+                    if (str == null) return false;
+                    String cleaned = str.replaceAll("[^A-Za-z0-9]", "").toLowerCase();
+                    int left = 0;
+                    int right = cleaned.length() - 1;
+                    while (left < right) {
+                        if (cleaned.charAt(left) != cleaned.charAt(right)) {
+                            return false;
+                        }
+                        left++;
+                        right--;
+                    }
+                    return true;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static boolean isPalindrome(String str) {
+                    // TODO: implémentez cette méthode
+                    return false;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertTrue({{Class}}.isPalindrome("radar"));
+                    assertFalse({{Class}}.isPalindrome("java"));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertTrue({{Class}}.isPalindrome(""));
+                    assertTrue({{Class}}.isPalindrome("a"));
+                    assertFalse({{Class}}.isPalindrome(null));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertTrue({{Class}}.isPalindrome("Esope reste ici et se repose"));
+                    assertTrue({{Class}}.isPalindrome("Kayak"));
+                    assertFalse({{Class}}.isPalindrome("ab"));
+                }
+            }""",
+            """
+            Entrée : "radar" → Sortie : true
+            Entrée : "Esope reste ici et se repose" → Sortie : true
+            Entrée : "java" → Sortie : false"""));
+
+        list.add(new ExerciseTemplate("count-char", "CharCounter", DifficultyLevel.L1,
+            List.of(List.of("compt", "count", "combien", "occurrence"),
+                List.of("caractere", "lettre", "char", "character", "letter")),
+            List.of("voyelle", "vowel", "consonne", "majuscule", "uppercase", "mot", "word", "chaque", "each",
+                "frequence", "tableau", "array"),
+            """
+            public class {{Class}} {
+                public static int count(String str, char ch) {
+                    if (str == null) return 0;
+                    int count = 0;
+                    for (int i = 0; i < str.length(); i++) {
+                        if (str.charAt(i) == ch) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int count(String str, char ch) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(3, {{Class}}.count("banana", 'a'));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.count("", 'a'));
+                    assertEquals(0, {{Class}}.count(null, 'a'));
+                    assertEquals(0, {{Class}}.count("java", 'z'));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(1, {{Class}}.count("Java", 'J'));
+                    assertEquals(0, {{Class}}.count("Java", 'j'));
+                    assertEquals(4, {{Class}}.count("a b c d e", ' '));
+                }
+            }""",
+            """
+            Entrée : "banana", 'a' → Sortie : 3
+            Entrée : "Java", 'J' → Sortie : 1
+            Entrée : "", 'a' → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("count-words", "CountWords", DifficultyLevel.L1,
+            List.of(List.of("compt", "count", "combien", "nombre de mots"), List.of("mot", "word")),
+            List.of("chaque", "each", "frequence", "frequency", "distinct", "unique", "plus long", "longest",
+                "voyelle", "vowel", "fichier", "file"),
+            """
+            public class {{Class}} {
+                public static int countWords(String text) {
+                    if (text == null || text.trim().isEmpty()) return 0;
+                    return text.trim().split("\\\\s+").length;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int countWords(String text) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(3, {{Class}}.countWords("le chat dort"));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.countWords(""));
+                    assertEquals(0, {{Class}}.countWords("   "));
+                    assertEquals(0, {{Class}}.countWords(null));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(4, {{Class}}.countWords("  Java   est un langage "));
+                    assertEquals(1, {{Class}}.countWords("bonjour"));
+                }
+            }""",
+            """
+            Entrée : "le chat dort" → Sortie : 3
+            Entrée : "  Java   est un langage " → Sortie : 4
+            Entrée : "" → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("count-vowels", "VowelCounter", DifficultyLevel.L1,
+            List.of(List.of("voyelle", "vowel")),
+            List.of("supprim", "remove", "remplac", "replace", "consonne", "consonant", "chaque", "each", "tableau", "array"),
+            """
+            public class {{Class}} {
+                public static int countVowels(String str) {
+                    if (str == null) return 0;
+                    int count = 0;
+                    for (char c : str.toLowerCase().toCharArray()) {
+                        if ("aeiouy".indexOf(c) >= 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int countVowels(String str) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(2, {{Class}}.countVowels("java"));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.countVowels(""));
+                    assertEquals(0, {{Class}}.countVowels(null));
+                    assertEquals(0, {{Class}}.countVowels("bcd"));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(5, {{Class}}.countVowels("AEIOU"));
+                    assertEquals(2, {{Class}}.countVowels("Python"));
+                }
+            }""",
+            """
+            Entrée : "java" → Sortie : 2
+            Entrée : "AEIOU" → Sortie : 5
+            Entrée : "bcd" → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("factorial", "Factorial", DifficultyLevel.L1,
+            List.of(List.of("factoriel", "factorial")),
+            List.of("chiffre", "digit", "zeros", "trailing", "tableau", "array", "biginteger", "grand nombre"),
+            """
+            public class {{Class}} {
+                public static long factorial(int n) {
+                    if (n < 0) {
+                        throw new IllegalArgumentException("n doit être positif ou nul");
+                    }
+                    long result = 1;
+                    for (int i = 2; i <= n; i++) {
+                        result *= i;
+                    }
+                    return result;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static long factorial(int n) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(120, {{Class}}.factorial(5));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(1, {{Class}}.factorial(0));
+                    assertEquals(1, {{Class}}.factorial(1));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.factorial(-1));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(3628800L, {{Class}}.factorial(10));
+                    assertEquals(2432902008176640000L, {{Class}}.factorial(20));
+                }
+            }""",
+            """
+            Entrée : 5 → Sortie : 120
+            Entrée : 10 → Sortie : 3628800
+            Entrée : 0 → Sortie : 1"""));
+
+        list.add(new ExerciseTemplate("fibonacci", "Fibonacci", DifficultyLevel.L1,
+            List.of(List.of("fibonacci")),
+            List.of("tableau", "array", "liste", "list", "suite des", "affich", "print", "pair", "even", "somme", "sum"),
+            """
+            public class {{Class}} {
+                public static long fibonacci(int n) {
+                    if (n < 0) {
+                        throw new IllegalArgumentException("n doit être positif ou nul");
+                    }
+                    long previous = 0;
+                    long current = 1;
+                    for (int i = 0; i < n; i++) {
+                        long next = previous + current;
+                        previous = current;
+                        current = next;
+                    }
+                    return previous;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static long fibonacci(int n) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(5, {{Class}}.fibonacci(5));
+                    assertEquals(55, {{Class}}.fibonacci(10));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.fibonacci(0));
+                    assertEquals(1, {{Class}}.fibonacci(1));
+                    assertThrows(IllegalArgumentException.class, () -> {{Class}}.fibonacci(-1));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(1, {{Class}}.fibonacci(2));
+                    assertEquals(12586269025L, {{Class}}.fibonacci(50));
+                }
+            }""",
+            """
+            Entrée : 5 → Sortie : 5
+            Entrée : 10 → Sortie : 55
+            Entrée : 0 → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("is-prime", "PrimeChecker", DifficultyLevel.L2,
+            List.of(List.of("premier", "prime"), List.of("nombre", "entier", "number", "integer", "est premier", "is prime")),
+            List.of("premier element", "first", "premiere", "tableau", "array", "liste", "list", "jusqu", "until",
+                "facteur", "factor", "crible", "sieve", "somme", "sum", "compt", "count", "pair"),
+            """
+            public class {{Class}} {
+                public static boolean isPrime(int n) {
+                    if (n < 2) return false;
+                    for (int i = 2; (long) i * i <= n; i++) {
+                        if (n % i == 0) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static boolean isPrime(int n) {
+                    // TODO: implémentez cette méthode
+                    return false;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertTrue({{Class}}.isPrime(7));
+                    assertFalse({{Class}}.isPrime(8));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertFalse({{Class}}.isPrime(0));
+                    assertFalse({{Class}}.isPrime(1));
+                    assertFalse({{Class}}.isPrime(-7));
+                    assertTrue({{Class}}.isPrime(2));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertTrue({{Class}}.isPrime(97));
+                    assertFalse({{Class}}.isPrime(91));
+                    assertTrue({{Class}}.isPrime(2147483647));
+                }
+            }""",
+            """
+            Entrée : 7 → Sortie : true
+            Entrée : 91 → Sortie : false
+            Entrée : 1 → Sortie : false"""));
+
+        list.add(new ExerciseTemplate("gcd", "Gcd", DifficultyLevel.L2,
+            List.of(List.of("pgcd", "gcd", "plus grand commun diviseur", "greatest common divisor")),
+            List.of("ppcm", "lcm", "tableau", "array", "liste", "fraction"),
+            """
+            public class {{Class}} {
+                public static int gcd(int a, int b) {
+                    a = Math.abs(a);
+                    b = Math.abs(b);
+                    while (b != 0) {
+                        int remainder = a % b;
+                        a = b;
+                        b = remainder;
+                    }
+                    return a;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int gcd(int a, int b) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(6, {{Class}}.gcd(12, 18));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(5, {{Class}}.gcd(5, 0));
+                    assertEquals(5, {{Class}}.gcd(0, 5));
+                    assertEquals(0, {{Class}}.gcd(0, 0));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(1, {{Class}}.gcd(17, 5));
+                    assertEquals(4, {{Class}}.gcd(-8, 12));
+                }
+            }""",
+            """
+            Entrée : 12, 18 → Sortie : 6
+            Entrée : 17, 5 → Sortie : 1
+            Entrée : 5, 0 → Sortie : 5"""));
+
+        list.add(new ExerciseTemplate("count-even", "EvenCounter", DifficultyLevel.L1,
+            List.of(List.of("compt", "count", "combien", "nombre de"), List.of("pair", "even"),
+                List.of("tableau", "array", "liste", "elements")),
+            List.of("impair", "odd", "somme", "sum", "produit", "product", "indice", "index", "position"),
+            """
+            public class {{Class}} {
+                public static int countEven(int[] array) {
+                    if (array == null) return 0;
+                    int count = 0;
+                    for (int num : array) {
+                        if (num % 2 == 0) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int countEven(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return 0;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertEquals(2, {{Class}}.countEven(new int[]{1, 2, 3, 4}));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertEquals(0, {{Class}}.countEven(new int[]{}));
+                    assertEquals(0, {{Class}}.countEven(null));
+                    assertEquals(0, {{Class}}.countEven(new int[]{1, 3, 5}));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertEquals(3, {{Class}}.countEven(new int[]{0, -2, 7, -4}));
+                }
+            }""",
+            """
+            Entrée : [1, 2, 3, 4] → Sortie : 2
+            Entrée : [0, -2, 7, -4] → Sortie : 3
+            Entrée : [] → Sortie : 0"""));
+
+        list.add(new ExerciseTemplate("array-sort", "ArraySorter", DifficultyLevel.L2,
+            List.of(List.of("tri", "sort", "ordonn", "ordre croissant"), List.of("tableau", "array", "liste", "entiers")),
+            List.of("decroissant", "descending", "fusion", "merge", "rapide", "quick", "tas", "heap", "chaine",
+                "string", "mot", "objet", "object", "comparator", "deux tableaux", "est trie", "verifi"),
+            """
+            public class {{Class}} {
+                public static int[] sort(int[] array) {
+                    if (array == null) return null;
+                    int[] sorted = array.clone();
+                    for (int i = 0; i < sorted.length - 1; i++) {
+                        for (int j = 0; j < sorted.length - 1 - i; j++) {
+                            if (sorted[j] > sorted[j + 1]) {
+                                int tmp = sorted[j];
+                                sorted[j] = sorted[j + 1];
+                                sorted[j + 1] = tmp;
+                            }
+                        }
+                    }
+                    return sorted;
+                }
+            }""",
+            """
+            public class {{Class}} {
+                public static int[] sort(int[] array) {
+                    // TODO: implémentez cette méthode
+                    return array;
+                }
+            }""",
+            """
+            import org.junit.jupiter.api.Test;
+            import static org.junit.jupiter.api.Assertions.*;
+
+            public class {{Class}}Test {
+
+                @Test
+                void testCasBasique() {
+                    assertArrayEquals(new int[]{1, 2, 3}, {{Class}}.sort(new int[]{3, 1, 2}));
+                }
+
+                @Test
+                void testCasLimite() {
+                    assertArrayEquals(new int[]{}, {{Class}}.sort(new int[]{}));
+                    assertNull({{Class}}.sort(null));
+                    assertArrayEquals(new int[]{4}, {{Class}}.sort(new int[]{4}));
+                }
+
+                @Test
+                void testCasComplexe() {
+                    assertArrayEquals(new int[]{-5, 0, 0, 7, 9}, {{Class}}.sort(new int[]{9, 0, -5, 7, 0}));
+                    int[] original = {2, 1};
+                    {{Class}}.sort(original);
+                    assertArrayEquals(new int[]{2, 1}, original);
+                }
+            }""",
+            """
+            Entrée : [3, 1, 2] → Sortie : [1, 2, 3]
+            Entrée : [9, 0, -5, 7, 0] → Sortie : [-5, 0, 0, 7, 9]
+            Entrée : [] → Sortie : []"""));
+
+        return list;
+    }
+}
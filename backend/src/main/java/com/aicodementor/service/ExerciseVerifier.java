@@ -0,0 +1,267 @@
+package com.aicodementor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.engine.discovery.DiscoverySelectors;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Checks a generated exercise before anyone sees it: compiles the solution together with its
+ * tests in memory and runs the tests against the solution.
+ *
+ * Each run gets its own daemon thread, at most {@code llm.execution.max-runners} at once. A run
+ * past the timeout is interrupted; generated code that ignores the interrupt (a busy loop) keeps
+ * its thread, which the JVM cannot kill, so the thread is set aside as stuck and its place is
+ * given to a new runner. Past {@code llm.execution.max-stuck} stuck threads, verifications are
+ * refused until some of them end, so repeated timeouts cannot pile up threads without bound.
+ */
+@Service
+public class ExerciseVerifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExerciseVerifier.class);
+
+    /**
+     * Outcome of one verification. {@code diagnostics} holds the javac errors when the code
+     * did not compile; {@code failures} the failed tests otherwise.
+     */
+    public record Verification(boolean compiled, List<String> diagnostics,
+                               int totalTests, int passedTests, List<HintFailure> failures) {
+
+        public boolean passed() {
+            return compiled && totalTests > 0 && passedTests == totalTests;
+        }
+
+        static Verification compileError(List<String> diagnostics) {
+            return new Verification(false, diagnostics, 0, 0, List.of());
+        }
+    }
+
+    private final JavaSourceAnalyzer sourceAnalyzer;
+    /** Time a timed-out run is given to react to its interrupt before it counts as stuck. */
+    private static final long INTERRUPT_GRACE_MS = 500;
+
+    private final long timeoutMs;
+    private final int maxStuck;
+    private final Semaphore runnerSlots;
+    private final Set<Thread> live = ConcurrentHashMap.newKeySet();
+    private final Set<Thread> stuck = ConcurrentHashMap.newKeySet();
+    private final AtomicLong stuckTotal = new AtomicLong();
+    private final AtomicInteger counter = new AtomicInteger();
+    private volatile boolean shutdown;
+
+    public ExerciseVerifier(JavaSourceAnalyzer sourceAnalyzer,
+                            @Value("${llm.execution.timeout-seconds:10}") long timeoutSeconds,
+                            @Value("${llm.execution.max-runners:4}") int maxRunners,
+                            @Value("${llm.execution.max-stuck:8}") int maxStuck) {
+        this.sourceAnalyzer = sourceAnalyzer;
+        this.timeoutMs = Math.max(1, timeoutSeconds) * 1000L;
+        this.runnerSlots = new Semaphore(Math.max(1, maxRunners));
+        this.maxStuck = Math.max(1, maxStuck);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        shutdown = true;
+        live.forEach(Thread::interrupt);
+    }
+
+    /**
+     * Runner limits, running and stuck runners (threads still busy with a run that timed out).
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("timeoutMs", timeoutMs);
+        result.put("freeRunners", runnerSlots.availablePermits());
+        result.put("liveRunners", live.size());
+        result.put("stuckRunners", stuck.size());
+        result.put("maxStuck", maxStuck);
+        result.put("stuckRunnersTotal", stuckTotal.get());
+        return result;
+    }
+
+    /**
+     * Compiles {@code solution} alone; used to discard broken candidates before tests exist.
+     */
+    public Verification compileOnly(String solution) {
+        String className = sourceAnalyzer.analyze(solution).className("Solution");
+        InMemoryJavaCompiler.Result result = InMemoryJavaCompiler.compile(
+            Map.of(className, solution), getClass().getClassLoader());
+        return result.success()
+            ? new Verification(true, List.of(), 0, 0, List.of())
+            : Verification.compileError(result.diagnostics());
+    }
+
+    /**
+     * Compiles solution and tests together and runs the tests, within the execution timeout.
+     */
+    public Verification verify(String solution, String tests) {
+        String className = sourceAnalyzer.analyze(solution).className("Solution");
+        String testClassName = sourceAnalyzer.analyze(tests).testClassName(className + "Test");
+        if (className.equals(testClassName)) {
+            return Verification.compileError(List.of("Solution and tests declare the same class " + className));
+        }
+
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put(className, solution);
+        sources.put(testClassName, tests);
+        InMemoryJavaCompiler.Result compiled = InMemoryJavaCompiler.compile(sources, getClass().getClassLoader());
+        if (!compiled.success()) {
+            return Verification.compileError(compiled.diagnostics());
+        }
+
+        return runWithTimeout(className, testClassName, () -> runTests(compiled.classLoader(), testClassName));
+    }
+
+    private Verification runWithTimeout(String className, String testClassName, Callable<Verification> tests) {
+        if (shutdown) {
+            return new Verification(true, List.of(), 0, 0, List.of());
+        }
+        if (stuck.size() >= maxStuck) {
+            logger.warn("Verification of {} refused: {} runner(s) stuck in timed-out tests", className, stuck.size());
+            return failed(testClassName, "Verifier saturated: " + stuck.size() + " runs still stuck after their timeout");
+        }
+        boolean acquired;
+        try {
+            acquired = runnerSlots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Verification(true, List.of(), 0, 0, List.of());
+        }
+        if (!acquired) {
+            return failed(testClassName, "Timeout: no verification runner free within " + timeoutMs + " ms");
+        }
+
+        FutureTask<Verification> run = new FutureTask<>(tests);
+        RunnerState state = new RunnerState();
+        Thread runner = new Thread(() -> {
+            try {
+                run.run();
+            } finally {
+                live.remove(Thread.currentThread());
+                finished(Thread.currentThread(), state);
+            }
+        }, "exercise-verifier-" + counter.incrementAndGet());
+        runner.setDaemon(true);
+        live.add(runner);
+        runner.start();
+
+        try {
+            return run.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            run.cancel(true);
+            logger.warn("Verification of {} timed out after {} ms", className, timeoutMs);
+            setAsideIfStuck(runner, state);
+            return failed(testClassName, "Timeout: tests did not finish in " + timeoutMs + " ms");
+        } catch (ExecutionException e) {
+            return failed(testClassName, String.valueOf(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            run.cancel(true);
+            return new Verification(true, List.of(), 0, 0, List.of());
+        }
+    }
+
+    /**
+     * Slot ownership of one runner thread; the runner finishing and the caller setting it aside
+     * may race, so both go through its monitor.
+     */
+    private static final class RunnerState {
+        boolean holdsSlot = true;
+        boolean finished;
+    }
+
+    private void finished(Thread runner, RunnerState state) {
+        synchronized (state) {
+            state.finished = true;
+            if (state.holdsSlot) {
+                state.holdsSlot = false;
+                runnerSlots.release();
+            } else if (stuck.remove(runner)) {
+                logger.info("Stuck verification runner {} finished", runner.getName());
+            }
+        }
+    }
+
+    /**
+     * Gives an interrupted runner a short grace period; if it is still running, it is recorded as
+     * stuck and its slot goes to the next run.
+     */
+    private void setAsideIfStuck(Thread runner, RunnerState state) {
+        try {
+            runner.join(INTERRUPT_GRACE_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (state) {
+            if (state.finished) {
+                return;
+            }
+            state.holdsSlot = false;
+            stuck.add(runner);
+            runnerSlots.release();
+        }
+        stuckTotal.incrementAndGet();
+        logger.warn("Verification runner {} ignores its interrupt; replaced ({} stuck)", runner.getName(), stuck.size());
+    }
+
+    private static Verification failed(String testClassName, String message) {
+        return new Verification(true, List.of(), 1, 0, List.of(new HintFailure(testClassName, message)));
+    }
+
+    private Verification runTests(ClassLoader classLoader, String testClassName) {
+        Thread current = Thread.currentThread();
+        ClassLoader original = current.getContextClassLoader();
+        try {
+            current.setContextClassLoader(classLoader);
+            LauncherDiscoveryRequest request = LauncherDiscoveryRequestBuilder.request()
+                .selectors(DiscoverySelectors.selectClass(classLoader, testClassName))
+                .build();
+            Launcher launcher = LauncherFactory.create();
+            SummaryListener listener = new SummaryListener();
+            launcher.execute(request, listener);
+            return new Verification(true, List.of(), listener.total, listener.passed, listener.failures);
+        } finally {
+            current.setContextClassLoader(original);
+        }
+    }
+
+    private static final class SummaryListener implements TestExecutionListener {
+        private int total;
+        private int passed;
+        private final List<HintFailure> failures = new ArrayList<>();
+
+        @Override
+        public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult result) {
+            if (!testIdentifier.isTest()) {
+                return;
+            }
+            total++;
+            if (result.getStatus() == TestExecutionResult.Status.SUCCESSFUL) {
+                passed++;
+            } else {
+                String message = result.getThrowable()
+                    .map(t -> t.getClass().getSimpleName() + ": " + t.getMessage())
+                    .orElse(result.getStatus().name());
+                failures.add(new HintFailure(testIdentifier.getDisplayName(), message));
+            }
+        }
+    }
+}
@@ -0,0 +1,578 @@
+package com.aicodementor.service;
+
+import com.aicodementor.dto.BulkGenerationRequest;
+import com.aicodementor.dto.BulkGenerationResponse;
+import com.aicodementor.dto.ExerciseGenerationRequest;
+import com.aicodementor.dto.ExerciseGenerationResponse;
+import com.aicodementor.dto.GenerationJobResponse;
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.entity.GenerationJob;
+import com.aicodementor.entity.GenerationJob.JobStatus;
+import com.aicodementor.repository.GenerationJobRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous exercise generation.
+ *
+ * A job is persisted in {@code generation_jobs} before it is queued, so the HTTP request returns
+ * immediately and the work survives the browser tab closing. A fixed number of workers run the
+ * jobs; their inference calls still go through {@link LlamaSlotScheduler} with BATCH priority, so
+ * hints keep precedence. Jobs that were queued or running when the server stopped are re-queued
+ * at startup, up to {@code llm.jobs.max-attempts} runs per job.
+ *
+ * A bulk submission is one job per item sharing a batch id. With {@code llm.jobs.workers: 0} the
+ * worker count follows the scheduler's BATCH capacity, so a batch keeps every usable slot busy.
+ */
+@Service
+public class GenerationJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GenerationJobService.class);
+
+    private final GenerationJobRepository jobRepository;
+    private final LLMService llmService;
+    private final LlamaSlotScheduler slotScheduler;
+    private final ExerciseAuthoringService authoringService;
+    private final ObjectMapper objectMapper;
+    private final int configuredWorkers;
+    private final int maxQueued;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long sseTimeoutMs;
+
+    private final ThreadPoolExecutor workers;
+    // One permit per job a client may still queue; taken before the job is persisted, returned
+    // when a worker picks it up or it is cancelled while waiting
+    private final Semaphore queueSlots;
+    private final Map<Long, ActiveJob> active = new ConcurrentHashMap<>();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    private final Map<String, List<SseEmitter>> batchSubscribers = new ConcurrentHashMap<>();
+
+    public GenerationJobService(GenerationJobRepository jobRepository,
+                                LLMService llmService,
+                                LlamaSlotScheduler slotScheduler,
+                                InferenceEndpointPool endpointPool,
+                                ExerciseAuthoringService authoringService,
+                                ObjectMapper objectMapper,
+                                @Value("${llm.jobs.workers:0}") int workerCount,
+                                @Value("${llm.jobs.max-queued:100}") int maxQueued,
+                                @Value("${llm.jobs.max-batch:50}") int maxBatchSize,
+                                @Value("${llm.jobs.max-attempts:3}") int maxAttempts,
+                                @Value("${llm.jobs.sse-timeout-ms:900000}") long sseTimeoutMs) {
+        this.jobRepository = jobRepository;
+        this.llmService = llmService;
+        this.slotScheduler = slotScheduler;
+        this.authoringService = authoringService;
+        this.objectMapper = objectMapper;
+        this.configuredWorkers = workerCount;
+        this.maxQueued = Math.max(1, maxQueued);
+        this.queueSlots = new Semaphore(this.maxQueued);
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.sseTimeoutMs = sseTimeoutMs;
+        int size = workerCount > 0 ? workerCount : slotScheduler.batchCapacity();
+        // Unbounded queue: the bound is enforced by queueSlots in submit() so that resumed jobs are never dropped
+        this.workers = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), new WorkerThreadFactory());
+        if (workerCount <= 0) {
+            // Registered after the scheduler's own listener, so its capacity is already refreshed
+            endpointPool.addTopologyListener(this::resizeWorkers);
+        }
+    }
+
+    /**
+     * Matches the worker count to the scheduler's BATCH capacity.
+     * A generation is a sequence of calls, so one worker per usable slot keeps the slots busy.
+     */
+    private synchronized void resizeWorkers() {
+        int target = Math.max(1, slotScheduler.batchCapacity());
+        int current = workers.getMaximumPoolSize();
+        if (target == current) {
+            return;
+        }
+        // Core size may never exceed max size: grow max first, shrink core first
+        if (target > current) {
+            workers.setMaximumPoolSize(target);
+            workers.setCorePoolSize(target);
+        } else {
+            workers.setCorePoolSize(target);
+            workers.setMaximumPoolSize(target);
+        }
+        logger.info("Generation workers resized: {} -> {}", current, target);
+    }
+
+    /**
+     * Re-queues the jobs interrupted by the last shutdown, oldest first.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterruptedJobs() {
+        List<GenerationJob> pending = jobRepository.findByStatusInOrderByCreatedAtAsc(
+            List.of(JobStatus.QUEUED, JobStatus.RUNNING));
+        int resumed = 0;
+        for (GenerationJob job : pending) {
+            if (job.getAttempts() != null && job.getAttempts() >= maxAttempts) {
+                job.setStatus(JobStatus.FAILED);
+                job.setError("Abandoned after " + job.getAttempts() + " interrupted attempt(s)");
+                job.setFinishedAt(LocalDateTime.now());
+                jobRepository.save(job);
+                continue;
+            }
+            job.setStatus(JobStatus.QUEUED);
+            jobRepository.save(job);
+            enqueue(job.getId(), false);
+            resumed++;
+        }
+        if (!pending.isEmpty()) {
+            logger.info("Resumed {} of {} interrupted generation job(s)", resumed, pending.size());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Running jobs stay RUNNING in the table and are resumed at the next startup
+        workers.shutdownNow();
+        subscribers.values().forEach(list -> list.forEach(SseEmitter::complete));
+        batchSubscribers.values().forEach(list -> list.forEach(SseEmitter::complete));
+    }
+
+    // ============================================================
+    // Job API
+    // ============================================================
+
+    /**
+     * Persists and queues a generation job.
+     *
+     * @throws RejectedExecutionException when {@code llm.jobs.max-queued} jobs are already waiting
+     */
+    public GenerationJobResponse submit(ExerciseGenerationRequest request) {
+        validate(request);
+        reserveQueueSlots(1);
+        GenerationJob job;
+        try {
+            job = jobRepository.save(newJob(request, null, false));
+        } catch (RuntimeException e) {
+            queueSlots.release();
+            throw e;
+        }
+        enqueue(job.getId(), true);
+        logger.info("Queued generation job {}", job.getId());
+        return toResponse(job);
+    }
+
+    /**
+     * Queues one job per item under a shared batch id, in request order. The batch is accepted
+     * or rejected as a whole.
+     *
+     * @throws RejectedExecutionException when the items do not fit in the waiting queue
+     */
+    public BulkGenerationResponse submitBatch(BulkGenerationRequest request) {
+        if (request == null || request.items() == null || request.items().isEmpty()) {
+            throw new IllegalArgumentException("La liste d'exercices à générer est vide");
+        }
+        if (request.items().size() > maxBatchSize) {
+            throw new IllegalArgumentException("Trop d'exercices dans le lot (maximum " + maxBatchSize + ")");
+        }
+        request.items().forEach(this::validate);
+        reserveQueueSlots(request.items().size());
+
+        String batchId = UUID.randomUUID().toString();
+        List<GenerationJob> jobs = new ArrayList<>();
+        for (ExerciseGenerationRequest item : request.items()) {
+            jobs.add(newJob(item, batchId, request.saveAsDrafts()));
+        }
+        try {
+            jobs = jobRepository.saveAll(jobs);
+        } catch (RuntimeException e) {
+            queueSlots.release(request.items().size());
+            throw e;
+        }
+        for (GenerationJob job : jobs) {
+            enqueue(job.getId(), true);
+        }
+        logger.info("Queued generation batch {} with {} job(s)", batchId, jobs.size());
+        return toBatchResponse(batchId, jobs);
+    }
+
+    public Optional<BulkGenerationResponse> findBatch(String batchId) {
+        List<GenerationJob> jobs = jobRepository.findByBatchIdOrderByIdAsc(batchId);
+        return jobs.isEmpty() ? Optional.empty() : Optional.of(toBatchResponse(batchId, jobs));
+    }
+
+    public Optional<GenerationJobResponse> find(Long id) {
+        return jobRepository.findById(id).map(this::toResponse);
+    }
+
+    /**
+     * Cancels a queued or running job. A queued job leaves the worker queue; a running
+     * generation is interrupted and stops at its next stage at the latest, its partial result
+     * discarded.
+     *
+     * @return the job, or empty if it does not exist
+     */
+    public Optional<GenerationJobResponse> cancel(Long id) {
+        ActiveJob handle = active.get(id);
+        if (handle != null && !handle.settle()) {
+            // The worker is already recording the outcome
+            return find(id);
+        }
+        int updated = jobRepository.finish(id, List.of(JobStatus.QUEUED, JobStatus.RUNNING), JobStatus.CANCELLED,
+            "cancelled", null, null, null, null, LocalDateTime.now());
+        if (handle != null) {
+            // A task cancelled before it starts never runs, so its permit and handle are dropped here
+            handle.future.cancel(true);
+            workers.remove(handle.future);
+            release(handle);
+            active.remove(id, handle);
+        }
+        GenerationJob job = jobRepository.findById(id).orElse(null);
+        if (job == null) {
+            return Optional.empty();
+        }
+        if (updated > 0) {
+            logger.info("Cancelled generation job {}", id);
+            publish(job);
+        }
+        return Optional.of(toResponse(job));
+    }
+
+    /**
+     * Server-sent events for one job: the current state right away, then one "progress" event
+     * per stage. The stream completes once the job is finished.
+     */
+    public SseEmitter subscribe(Long id) {
+        GenerationJob job = jobRepository.findById(id)
+            .orElseThrow(() -> new IllegalArgumentException("Job not found: " + id));
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> list = subscribers.computeIfAbsent(id, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        Runnable remove = () -> list.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        // Re-read after registering so a transition in between is not missed
+        send(emitter, jobRepository.findById(id).orElse(job));
+        return emitter;
+    }
+
+    /**
+     * Server-sent events for a whole batch: an "item" event with the current state of every job,
+     * then one per job change as items complete, and a final "finished" event with the summary.
+     */
+    public SseEmitter subscribeBatch(String batchId) {
+        if (jobRepository.findByBatchIdOrderByIdAsc(batchId).isEmpty()) {
+            throw new IllegalArgumentException("Batch not found: " + batchId);
+        }
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        List<SseEmitter> list = batchSubscribers.computeIfAbsent(batchId, k -> new CopyOnWriteArrayList<>());
+        list.add(emitter);
+        Runnable remove = () -> list.remove(emitter);
+        emitter.onCompletion(remove);
+        emitter.onTimeout(remove);
+        emitter.onError(e -> remove.run());
+
+        List<GenerationJob> jobs = jobRepository.findByBatchIdOrderByIdAsc(batchId);
+        try {
+            for (GenerationJob job : jobs) {
+                emitter.send(SseEmitter.event().name("item").data(toResponse(job)));
+            }
+            if (jobs.stream().allMatch(GenerationJob::isFinished)) {
+                emitter.send(SseEmitter.event().name("finished").data(toBatchResponse(batchId, jobs)));
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            emitter.completeWithError(e);
+        }
+        return emitter;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("workers", workers.getMaximumPoolSize());
+        result.put("workersFollowSlots", configuredWorkers <= 0);
+        result.put("active", workers.getActiveCount());
+        result.put("queued", workers.getQueue().size());
+        result.put("maxQueued", maxQueued);
+        for (JobStatus status : JobStatus.values()) {
+            result.put(status.name().toLowerCase(), jobRepository.countByStatus(status));
+        }
+        return result;
+    }
+
+    // ============================================================
+    // Worker
+    // ============================================================
+    /**
+     * In-memory handle of a queued or running job: its task, whether it holds a queue permit, and
+     * whether its outcome is settled (by the worker finishing or by a cancel, whichever comes first).
+     */
+    private static final class ActiveJob {
+        final Long id;
+        final AtomicBoolean holdsSlot;
+        final AtomicBoolean settled = new AtomicBoolean();
+        FutureTask<Void> future;
+
+        ActiveJob(Long id, boolean holdsSlot) {
+            this.id = id;
+            this.holdsSlot = new AtomicBoolean(holdsSlot);
+        }
+
+        boolean settle() {
+            return settled.compareAndSet(false, true);
+        }
+
+        boolean isCancelled() {
+            return settled.get() || Thread.currentThread().isInterrupted();
+        }
+    }
+
+    /**
+     * @param holdsSlot whether the job took a queue permit (resumed jobs do not)
+     */
+    private void enqueue(Long jobId, boolean holdsSlot) {
+        ActiveJob handle = new ActiveJob(jobId, holdsSlot);
+        handle.future = new FutureTask<>(() -> run(handle), null);
+        active.put(jobId, handle);
+        try {
+            workers.execute(handle.future);
+        } catch (RejectedExecutionException e) {
+            // Shutting down: the job stays QUEUED in the table and is resumed at the next startup
+            active.remove(jobId, handle);
+            release(handle);
+            throw e;
+        }
+    }
+
+    private void release(ActiveJob handle) {
+        if (handle.holdsSlot.compareAndSet(true, false)) {
+            queueSlots.release();
+        }
+    }
+
+    private void run(ActiveJob handle) {
+        Long jobId = handle.id;
+        release(handle);
+        try {
+            if (handle.isCancelled()
+                    || jobRepository.start(jobId, JobStatus.QUEUED, JobStatus.RUNNING, "started", LocalDateTime.now()) == 0) {
+                return; // cancelled while waiting
+            }
+            jobRepository.findById(jobId).ifPresent(this::publish);
+            execute(handle);
+        } finally {
+            active.remove(jobId, handle);
+        }
+    }
+
+    private void execute(ActiveJob handle) {
+        Long jobId = handle.id;
+        String resultJson = null;
+        String error = null;
+        ExerciseGenerationResponse response = null;
+        try {
+            GenerationJob job = jobRepository.findById(jobId).orElseThrow();
+            ExerciseGenerationRequest request = objectMapper.readValue(job.getRequestJson(), ExerciseGenerationRequest.class);
+            response = llmService.generateExercise(request, (stage, percent) -> {
+                if (handle.isCancelled()) {
+                    throw new CancellationException("Generation job " + jobId + " cancelled");
+                }
+                updateProgress(jobId, stage, percent);
+            });
+            resultJson = write(response);
+        } catch (Exception e) {
+            if (handle.isCancelled()) {
+                return;
+            }
+            logger.error("Generation job {} failed", jobId, e);
+            error = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        }
+        if (!handle.settle()) {
+            return; // cancelled meanwhile
+        }
+
+        Long exerciseId = null;
+        if (error == null && Boolean.TRUE.equals(jobRepository.findById(jobId).map(GenerationJob::getSaveExercise).orElse(null))) {
+            DraftOutcome draft = saveDraft(jobId, response);
+            exerciseId = draft.exerciseId();
+            error = draft.error();
+        }
+        boolean succeeded = resultJson != null;
+        jobRepository.finish(jobId, List.of(JobStatus.RUNNING), succeeded ? JobStatus.SUCCEEDED : JobStatus.FAILED,
+            succeeded ? "done" : "failed", succeeded ? 100 : null, resultJson, error, exerciseId, LocalDateTime.now());
+        GenerationJob job = jobRepository.findById(jobId).orElse(null);
+        if (job != null) {
+            logger.info("Generation job {} {}", jobId, job.getStatus());
+            publish(job);
+        }
+    }
+
+    private void updateProgress(Long jobId, String stage, int percent) {
+        if (jobRepository.updateProgress(jobId, JobStatus.RUNNING, stage, Math.max(0, Math.min(100, percent)),
+                LocalDateTime.now()) > 0) {
+            jobRepository.findById(jobId).ifPresent(this::publish);
+        }
+    }
+
+    private record DraftOutcome(Long exerciseId, String error) {
+    }
+
+    /**
+     * Saves a successful result as an unpublished exercise. Template fallbacks (degraded
+     * results) are not saved; the job stays succeeded and the reason is kept in its error.
+     */
+    private DraftOutcome saveDraft(Long jobId, ExerciseGenerationResponse response) {
+        if (response.degraded()) {
+            return new DraftOutcome(null, "Draft not saved: generated without the LLM (degraded mode)");
+        }
+        try {
+            Exercise saved = authoringService.saveGeneratedDraft(response);
+            return new DraftOutcome(saved.getId(), null);
+        } catch (Exception e) {
+            logger.warn("Could not save draft of generation job {}: {}", jobId, e.getMessage());
+            return new DraftOutcome(null, "Draft not saved: " + e.getMessage());
+        }
+    }
+
+    private void validate(ExerciseGenerationRequest request) {
+        if (request == null || request.naturalLanguageDescription() == null
+                || request.naturalLanguageDescription().isBlank()) {
+            throw new IllegalArgumentException("La description de l'exercice est requise");
+        }
+    }
+
+    /**
+     * Takes {@code jobs} queue permits at once, so concurrent submissions cannot overfill the queue.
+     */
+    private void reserveQueueSlots(int jobs) {
+        if (!queueSlots.tryAcquire(jobs)) {
+            throw new RejectedExecutionException("Generation queue is full (" + maxQueued + " jobs waiting)");
+        }
+    }
+
+    private GenerationJob newJob(ExerciseGenerationRequest request, String batchId, boolean saveExercise) {
+        GenerationJob job = new GenerationJob();
+        job.setStatus(JobStatus.QUEUED);
+        job.setStage("queued");
+        job.setRequestJson(write(request));
+        job.setBatchId(batchId);
+        job.setSaveExercise(saveExercise);
+        return job;
+    }
+
+    // ============================================================
+    // Events and mapping
+    // ============================================================
+    private void publish(GenerationJob job) {
+        List<SseEmitter> list = subscribers.get(job.getId());
+        if (list != null) {
+            for (SseEmitter emitter : list) {
+                send(emitter, job);
+            }
+            if (job.isFinished()) {
+                subscribers.remove(job.getId());
+            }
+        }
+        if (job.getBatchId() != null) {
+            publishBatch(job);
+        }
+    }
+
+    private void publishBatch(GenerationJob job) {
+        List<SseEmitter> list = batchSubscribers.get(job.getBatchId());
+        if (list == null || list.isEmpty()) {
+            return;
+        }
+        List<GenerationJob> jobs = job.isFinished() ? jobRepository.findByBatchIdOrderByIdAsc(job.getBatchId()) : null;
+        boolean batchFinished = jobs != null && jobs.stream().allMatch(GenerationJob::isFinished);
+        for (SseEmitter emitter : list) {
+            try {
+                emitter.send(SseEmitter.event().name("item").data(toResponse(job)));
+                if (batchFinished) {
+                    emitter.send(SseEmitter.event().name("finished").data(toBatchResponse(job.getBatchId(), jobs)));
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        if (batchFinished) {
+            batchSubscribers.remove(job.getBatchId());
+        }
+    }
+
+    private void send(SseEmitter emitter, GenerationJob job) {
+        try {
+            emitter.send(SseEmitter.event()
+                .name(job.isFinished() ? "finished" : "progress")
+                .data(toResponse(job)));
+            if (job.isFinished()) {
+                emitter.complete();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // Client went away; the emitter callbacks unregister it
+            emitter.completeWithError(e);
+        }
+    }
+
+    private GenerationJobResponse toResponse(GenerationJob job) {
+        ExerciseGenerationResponse result = null;
+        if (job.getStatus() == JobStatus.SUCCEEDED && job.getResultJson() != null) {
+            try {
+                result = objectMapper.readValue(job.getResultJson(), ExerciseGenerationResponse.class);
+            } catch (IOException e) {
+                logger.warn("Could not read result of generation job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+        return new GenerationJobResponse(
+            job.getId(),
+            job.getStatus().name(),
+            job.getStage(),
+            job.getProgress() != null ? job.getProgress() : 0,
+            job.getError(),
+            job.getBatchId(),
+            job.getExerciseId(),
+            job.getCreatedAt(),
+            job.getUpdatedAt(),
+            result
+        );
+    }
+
+    private BulkGenerationResponse toBatchResponse(String batchId, List<GenerationJob> jobs) {
+        List<GenerationJobResponse> items = jobs.stream().map(this::toResponse).toList();
+        int finished = (int) jobs.stream().filter(GenerationJob::isFinished).count();
+        return new BulkGenerationResponse(batchId, jobs.size(), finished, items);
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize " + value.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static final class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "llm-job-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package com.aicodementor.service;
+
+/**
+ * Receives the stages of one exercise generation, for job progress reporting.
+ */
+@FunctionalInterface
+public interface GenerationProgressListener {
+
+    GenerationProgressListener NONE = (stage, percent) -> { };
+
+    /**
+     * @param stage   short stage name ("solution", "tests", ...)
+     * @param percent overall progress, 0 to 100
+     */
+    void onProgress(String stage, int percent);
+}
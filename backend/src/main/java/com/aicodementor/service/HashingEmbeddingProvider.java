@@ -0,0 +1,65 @@
+package com.aicodementor.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Model-free embeddings: words and character trigrams hashed into a fixed number of signed
+ * buckets. Captures lexical overlap only, but needs no server; for development, tests and
+ * deployments without an embedding model.
+ */
+@Component
+public class HashingEmbeddingProvider implements EmbeddingProvider {
+
+    private final int dimension;
+
+    public HashingEmbeddingProvider(@Value("${embedding.dimension:384}") int dimension) {
+        this.dimension = Math.max(16, dimension);
+    }
+
+    @Override
+    public String name() {
+        return "hashing";
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        if (text == null) {
+            return vector;
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFD)
+            .replaceAll("\\p{M}+", "")
+            .toLowerCase(Locale.ROOT);
+        int wordStart = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && wordStart < 0) {
+                wordStart = i;
+            } else if (!wordChar && wordStart >= 0) {
+                String word = normalized.substring(wordStart, i);
+                add(vector, word.hashCode(), 1.0f);
+                String padded = " " + word + " ";
+                for (int j = 0; j + 3 <= padded.length(); j++) {
+                    add(vector, padded.substring(j, j + 3).hashCode() * 31 + 7, 0.5f);
+                }
+                wordStart = -1;
+            }
+        }
+        return vector;
+    }
+
+    private void add(float[] vector, int hash, float weight) {
+        int mixed = hash * 0x9E3779B9;
+        int bucket = Math.floorMod(mixed >>> 1, dimension);
+        vector[bucket] += (mixed & 1) == 0 ? weight : -weight;
+    }
+}
@@ -0,0 +1,89 @@
+package com.aicodementor.service;
+
+import java.util.Arrays;
+
+/**
+ * Vectors in primitive {@code float[]} chunks of {@value #CHUNK_VECTORS} vectors each: growing
+ * allocates a new chunk instead of copying everything, and a vector is one contiguous run.
+ */
+public final class HeapVectorStorage implements VectorStorage {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_VECTORS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_VECTORS - 1;
+
+    private final int dimension;
+    private float[][] chunks = new float[4][];
+    private volatile int size;
+
+    public HeapVectorStorage(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        int slot = size;
+        int chunk = slot >>> CHUNK_SHIFT;
+        if (chunk == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        if (chunks[chunk] == null) {
+            chunks[chunk] = new float[CHUNK_VECTORS * dimension];
+        }
+        System.arraycopy(vector, 0, chunks[chunk], (slot & CHUNK_MASK) * dimension, dimension);
+        size = slot + 1;
+        return slot;
+    }
+
+    @Override
+    public float dot(int slot, float[] query) {
+        float[] chunk = chunks[slot >>> CHUNK_SHIFT];
+        return dot(chunk, (slot & CHUNK_MASK) * dimension, query, 0, dimension);
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        return dot(chunks[a >>> CHUNK_SHIFT], (a & CHUNK_MASK) * dimension,
+            chunks[b >>> CHUNK_SHIFT], (b & CHUNK_MASK) * dimension, dimension);
+    }
+
+    @Override
+    public float[] get(int slot) {
+        int offset = (slot & CHUNK_MASK) * dimension;
+        return Arrays.copyOfRange(chunks[slot >>> CHUNK_SHIFT], offset, offset + dimension);
+    }
+
+    /**
+     * Four independent accumulators: the JIT does not reorder a single float sum.
+     */
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < length; i += 4) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+            s1 += a[aOffset + i + 1] * b[bOffset + i + 1];
+            s2 += a[aOffset + i + 2] * b[bOffset + i + 2];
+            s3 += a[aOffset + i + 3] * b[bOffset + i + 3];
+        }
+        for (; i < length; i++) {
+            s0 += a[aOffset + i] * b[bOffset + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+}
@@ -0,0 +1,457 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.entity.KnowledgeBase;
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.KnowledgeBaseRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Reusable hints for identical failures.
+ *
+ * Most students of a class fail the same test the same way, so a hint is keyed by
+ * exercise id, test name, normalized error message and a structural fingerprint of the
+ * student's method (identifiers and string literals abstracted away). Entries live in an
+ * LRU map and are persisted in {@code knowledge_base} with {@code contentType = "hint"},
+ * reloaded at startup. Entries expire after the TTL; a teacher can invalidate an exercise.
+ *
+ * When the exact key misses, the failure context (test, error, student method) is embedded and
+ * compared with the contexts of the exercise's earlier hints in {@link KnowledgeIndexService}:
+ * the nearest hint is reused when its similarity reaches the exercise's threshold
+ * ({@link Exercise#getHintSimilarityThreshold()}, else {@code llm.hint-cache.semantic.threshold}).
+ */
+@Service
+public class HintCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HintCacheService.class);
+
+    public static final String CONTENT_TYPE = "hint";
+
+    private static final Pattern OBJECT_HASH = Pattern.compile("@[0-9a-f]{4,}");
+    private static final Pattern LINE_REF = Pattern.compile("\\(\\w+\\.java:\\d+\\)|\\bline \\d+\\b|\\bligne \\d+\\b");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // Student code beyond this length adds noise, not meaning, to the failure context
+    private static final int CONTEXT_CODE_CHARS = 2000;
+
+    private final KnowledgeBaseRepository knowledgeBaseRepository;
+    private final ExerciseRepository exerciseRepository;
+    private final KnowledgeIndexService knowledgeIndex;
+    private final ObjectMapper objectMapper;
+    private final int maxEntries;
+    private final Duration ttl;
+    private final boolean semanticEnabled;
+    private final double defaultThreshold;
+
+    private final Map<String, Entry> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong semanticHits = new AtomicLong();
+    private final AtomicLong semanticMisses = new AtomicLong();
+    private final Map<Long, ExerciseStats> statsByExercise = new ConcurrentHashMap<>();
+    // Keys being persisted: concurrent puts of one key write a single row
+    private final Set<String> persisting = ConcurrentHashMap.newKeySet();
+    // Per-exercise threshold overrides; NaN caches "no override" so the table is read once
+    private final Map<Long, Double> thresholds = new ConcurrentHashMap<>();
+    // Bumped by every eviction, so a value read from the table before it is not cached after it
+    private final AtomicLong thresholdEvictions = new AtomicLong();
+
+    public HintCacheService(KnowledgeBaseRepository knowledgeBaseRepository,
+                            ExerciseRepository exerciseRepository,
+                            KnowledgeIndexService knowledgeIndex,
+                            ObjectMapper objectMapper,
+                            @Value("${llm.hint-cache.max-entries:5000}") int maxEntries,
+                            @Value("${llm.hint-cache.ttl-hours:168}") long ttlHours,
+                            @Value("${llm.hint-cache.semantic.enabled:true}") boolean semanticEnabled,
+                            @Value("${llm.hint-cache.semantic.threshold:0.92}") double defaultThreshold) {
+        this.knowledgeBaseRepository = knowledgeBaseRepository;
+        this.exerciseRepository = exerciseRepository;
+        this.knowledgeIndex = knowledgeIndex;
+        this.objectMapper = objectMapper;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttl = Duration.ofHours(Math.max(1, ttlHours));
+        this.semanticEnabled = semanticEnabled;
+        this.defaultThreshold = defaultThreshold;
+        this.entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                // Evicted from memory only: the row stays in the table until its TTL expires
+                return size() > HintCacheService.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Loads the persisted, still valid hints (most recent first) and deletes expired rows.
+     */
+    @PostConstruct
+    public void warmUp() {
+        try {
+            List<KnowledgeBase> rows = new ArrayList<>(knowledgeBaseRepository.findByContentType(CONTENT_TYPE));
+            rows.sort(Comparator.comparing(KnowledgeBase::getUpdatedAt,
+                Comparator.nullsFirst(Comparator.naturalOrder())).reversed());
+            List<KnowledgeBase> expired = new ArrayList<>();
+            int loaded = 0;
+            synchronized (entries) {
+                for (KnowledgeBase row : rows) {
+                    if (isExpired(row.getUpdatedAt())) {
+                        expired.add(row);
+                        continue;
+                    }
+                    if (loaded >= maxEntries) {
+                        continue;
+                    }
+                    JsonNode meta = objectMapper.readTree(row.getMetadata());
+                    String key = meta.path("key").asText(null);
+                    if (key != null && !entries.containsKey(key)) {
+                        Long exerciseId = meta.hasNonNull("exerciseId") ? meta.get("exerciseId").asLong() : null;
+                        entries.put(key, new Entry(row.getContent(), exerciseId, row.getId(), row.getUpdatedAt()));
+                        loaded++;
+                    }
+                }
+            }
+            if (!expired.isEmpty()) {
+                knowledgeBaseRepository.deleteAll(expired);
+                expired.forEach(row -> knowledgeIndex.remove(row.getId()));
+            }
+            logger.info("Hint cache loaded {} hint(s), purged {} expired", loaded, expired.size());
+        } catch (Exception e) {
+            logger.warn("Could not load persisted hints: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Cache key for one failure. The fingerprint ignores naming, formatting, comments and string
+     * contents but keeps structure, operators and numeric literals.
+     */
+    public String keyFor(Long exerciseId, String testName, String errorMessage, String studentMethod) {
+        return ContentHash.sha256(exerciseId + "\n" + (testName == null ? "" : testName.trim()) + "\n"
+            + normalizeError(errorMessage) + "\n" + fingerprint(studentMethod));
+    }
+
+    /**
+     * Text a failure is compared by: test name, normalized error and the student's method.
+     */
+    public static String semanticContext(String testName, String errorMessage, String studentMethod) {
+        String code = studentMethod == null ? "" : studentMethod.strip();
+        if (code.length() > CONTEXT_CODE_CHARS) {
+            code = code.substring(0, CONTEXT_CODE_CHARS);
+        }
+        return "Test: " + (testName == null ? "" : testName.trim()) + "\n"
+            + "Error: " + normalizeError(errorMessage) + "\n"
+            + "Code:\n" + code;
+    }
+
+    /**
+     * Exact hit first, then the nearest earlier hint of the same exercise. A semantic hit is also
+     * cached under {@code key}, so the same failure hits exactly next time.
+     */
+    public Optional<String> find(String key, Long exerciseId, String context) {
+        Optional<String> exact = get(key);
+        if (exact.isPresent() || !semanticEnabled || exerciseId == null || context == null) {
+            return exact;
+        }
+        ExerciseStats stats = statsByExercise.computeIfAbsent(exerciseId, id -> new ExerciseStats());
+        List<KnowledgeIndexService.KnowledgeMatch> matches = knowledgeIndex.search(CONTENT_TYPE, context, 1, exerciseId);
+        if (!matches.isEmpty() && matches.get(0).score() >= thresholdFor(exerciseId)) {
+            KnowledgeIndexService.KnowledgeMatch match = matches.get(0);
+            Optional<KnowledgeBase> row = loadHint(match.id());
+            if (row.isPresent()) {
+                String hint = row.get().getContent();
+                synchronized (entries) {
+                    entries.putIfAbsent(key, new Entry(hint, exerciseId, row.get().getId(), row.get().getUpdatedAt()));
+                }
+                semanticHits.incrementAndGet();
+                stats.hits.incrementAndGet();
+                logger.debug("Reused hint {} for exercise {} (similarity {})", match.id(), exerciseId, match.score());
+                return Optional.of(hint);
+            }
+        }
+        semanticMisses.incrementAndGet();
+        stats.misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public Optional<String> get(String key) {
+        Entry entry;
+        Entry expired = null;
+        synchronized (entries) {
+            entry = entries.get(key);
+            if (entry != null && isExpired(entry.updatedAt())) {
+                entries.remove(key);
+                expired = entry;
+                entry = null;
+            }
+        }
+        if (expired != null) {
+            // Outside the lock: the delete is a database round trip. It only touches the expired
+            // entry's row, so a hint put for the same key meanwhile is kept.
+            deleteRow(expired.rowId());
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        return Optional.of(entry.hint());
+    }
+
+    /**
+     * Caches a freshly generated hint; {@code context} (see {@link #semanticContext}) is what
+     * later failures are compared with. Serialized per key: when students hit the same failure
+     * at once, the first hint is kept and the others are dropped, so the key has a single row.
+     */
+    public void put(String key, Long exerciseId, String testName, String hint, String context) {
+        if (exerciseId == null || hint == null || hint.isBlank()) {
+            return;
+        }
+        if (!persisting.add(key)) {
+            return; // another request is caching a hint for this failure
+        }
+        try {
+            synchronized (entries) {
+                if (entries.containsKey(key)) {
+                    return;
+                }
+            }
+            Long rowId = persist(key, exerciseId, testName, hint, context);
+            synchronized (entries) {
+                entries.put(key, new Entry(hint, exerciseId, rowId, LocalDateTime.now()));
+            }
+        } finally {
+            persisting.remove(key);
+        }
+    }
+
+    /**
+     * Drops every cached hint of an exercise, in memory and in the table.
+     * Called when a teacher edits or deletes the exercise, or explicitly. Runs in a transaction of
+     * its own, so the rows are really deleted when it is called from an after-commit callback.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public int invalidate(Long exerciseId) {
+        evictThreshold(exerciseId);
+        int removed;
+        synchronized (entries) {
+            int before = entries.size();
+            entries.values().removeIf(e -> exerciseId.equals(e.exerciseId()));
+            removed = before - entries.size();
+        }
+        try {
+            List<KnowledgeBase> rows = knowledgeBaseRepository.findByExerciseIdAndContentType(exerciseId, CONTENT_TYPE);
+            knowledgeBaseRepository.deleteAll(rows);
+            rows.forEach(row -> knowledgeIndex.remove(row.getId()));
+            removed = Math.max(removed, rows.size());
+        } catch (Exception e) {
+            logger.warn("Could not delete persisted hints of exercise {}: {}", exerciseId, e.getMessage());
+        }
+        logger.info("Invalidated {} cached hint(s) of exercise {}", removed, exerciseId);
+        return removed;
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+        List<KnowledgeBase> rows = knowledgeBaseRepository.findByContentType(CONTENT_TYPE);
+        knowledgeBaseRepository.deleteAll(rows);
+        rows.forEach(row -> knowledgeIndex.remove(row.getId()));
+        thresholds.clear();
+    }
+
+    /**
+     * Similarity a cached hint needs to be reused for another failure of this exercise.
+     */
+    public double thresholdFor(Long exerciseId) {
+        Double threshold = thresholds.get(exerciseId);
+        if (threshold == null) {
+            // Read outside the map: a repository call must not run under the map's bin lock
+            long evictions = thresholdEvictions.get();
+            threshold = exerciseRepository.findById(exerciseId)
+                .map(Exercise::getHintSimilarityThreshold)
+                .orElse(Double.NaN);
+            if (thresholds.putIfAbsent(exerciseId, threshold) == null && thresholdEvictions.get() != evictions) {
+                thresholds.remove(exerciseId, threshold); // possibly read before a concurrent change
+            }
+        }
+        return Double.isNaN(threshold) ? defaultThreshold : threshold;
+    }
+
+    /**
+     * Forgets the cached threshold of an exercise; the next lookup reads it from the table.
+     */
+    public void evictThreshold(Long exerciseId) {
+        thresholdEvictions.incrementAndGet();
+        thresholds.remove(exerciseId);
+    }
+
+    /**
+     * Sets (or with null, clears) an exercise's threshold override. Returns the effective threshold.
+     */
+    public double setThreshold(Long exerciseId, Double threshold) {
+        if (threshold != null && (threshold.isNaN() || threshold < 0 || threshold > 1)) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1");
+        }
+        Exercise exercise = exerciseRepository.findById(exerciseId)
+            .orElseThrow(() -> new IllegalArgumentException("Exercise not found: " + exerciseId));
+        exercise.setHintSimilarityThreshold(threshold);
+        exerciseRepository.save(exercise);
+        evictThreshold(exerciseId);
+        return thresholdFor(exerciseId);
+    }
+
+    /**
+     * Semantic lookups of one exercise: threshold, hits, misses and hit rate.
+     */
+    public Map<String, Object> snapshot(Long exerciseId) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        ExerciseStats stats = statsByExercise.get(exerciseId);
+        long h = stats != null ? stats.hits.get() : 0;
+        long m = stats != null ? stats.misses.get() : 0;
+        result.put("exerciseId", exerciseId);
+        result.put("threshold", thresholdFor(exerciseId));
+        result.put("semanticHits", h);
+        result.put("semanticMisses", m);
+        result.put("semanticHitRate", rate(h, m));
+        return result;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        long h = hits.get();
+        long m = misses.get();
+        synchronized (entries) {
+            result.put("entries", entries.size());
+        }
+        result.put("maxEntries", maxEntries);
+        result.put("ttlHours", ttl.toHours());
+        result.put("hits", h);
+        result.put("misses", m);
+        result.put("hitRate", rate(h, m));
+        long sh = semanticHits.get();
+        long sm = semanticMisses.get();
+        result.put("semanticEnabled", semanticEnabled);
+        result.put("semanticThreshold", defaultThreshold);
+        result.put("semanticHits", sh);
+        result.put("semanticMisses", sm);
+        result.put("semanticHitRate", rate(sh, sm));
+        result.put("semanticExercises", statsByExercise.size());
+        return result;
+    }
+
+    private static double rate(long hits, long misses) {
+        return hits + misses > 0 ? Math.round(hits * 100.0 / (hits + misses)) / 100.0 : 0;
+    }
+
+    // ============================================================
+    // Key normalization
+    // ============================================================
+    static String normalizeError(String errorMessage) {
+        if (errorMessage == null) {
+            return "";
+        }
+        String normalized = OBJECT_HASH.matcher(errorMessage).replaceAll("@");
+        normalized = LINE_REF.matcher(normalized).replaceAll("");
+        normalized = WHITESPACE.matcher(normalized).replaceAll(" ").trim();
+        return normalized.length() > 300 ? normalized.substring(0, 300) : normalized;
+    }
+
+    static String fingerprint(String code) {
+        StringBuilder sb = new StringBuilder();
+        for (JavaTokenizer.Token token : JavaTokenizer.tokenize(code)) {
+            switch (token.kind()) {
+                case COMMENT -> {
+                    continue;
+                }
+                case IDENTIFIER -> sb.append('i');
+                case STRING -> sb.append('s');
+                case CHAR -> sb.append('c');
+                default -> sb.append(token.text());
+            }
+            sb.append(' ');
+        }
+        return ContentHash.sha256(sb.toString());
+    }
+
+    private Long persist(String key, Long exerciseId, String testName, String hint, String context) {
+        try {
+            Map<String, Object> meta = new LinkedHashMap<>();
+            meta.put("key", key);
+            meta.put("exerciseId", exerciseId);
+            meta.put("testName", testName);
+            meta.put("context", context);
+
+            KnowledgeBase row = new KnowledgeBase();
+            row.setContentType(CONTENT_TYPE);
+            row.setContent(hint);
+            row.setMetadata(objectMapper.writeValueAsString(meta));
+            row.setExercise(exerciseRepository.getReferenceById(exerciseId));
+            if (semanticEnabled && context != null) {
+                return knowledgeIndex.index(row, context).getId();
+            }
+            return knowledgeBaseRepository.save(row).getId();
+        } catch (Exception e) {
+            logger.warn("Could not persist hint for exercise {}: {}", exerciseId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A persisted hint by row id, unless it has expired (then it is deleted).
+     */
+    private Optional<KnowledgeBase> loadHint(long rowId) {
+        try {
+            Optional<KnowledgeBase> row = knowledgeBaseRepository.findById(rowId);
+            if (row.isPresent() && isExpired(row.get().getUpdatedAt())) {
+                deleteRow(rowId);
+                return Optional.empty();
+            }
+            if (row.isEmpty()) {
+                knowledgeIndex.remove(rowId);
+            }
+            return row;
+        } catch (Exception e) {
+            logger.debug("Could not load hint row {}: {}", rowId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    private void deleteRow(Long rowId) {
+        if (rowId == null) {
+            return;
+        }
+        knowledgeIndex.remove(rowId);
+        try {
+            knowledgeBaseRepository.deleteById(rowId);
+        } catch (Exception e) {
+            logger.debug("Could not delete expired hint row {}: {}", rowId, e.getMessage());
+        }
+    }
+
+    private boolean isExpired(LocalDateTime updatedAt) {
+        return updatedAt != null && updatedAt.plus(ttl).isBefore(LocalDateTime.now());
+    }
+
+    private record Entry(String hint, Long exerciseId, Long rowId, LocalDateTime updatedAt) {
+    }
+
+    private static final class ExerciseStats {
+        final AtomicLong hits = new AtomicLong();
+        final AtomicLong misses = new AtomicLong();
+    }
+}
@@ -0,0 +1,9 @@
+package com.aicodementor.service;
+
+/**
+ * One failed test of a submission, as input to batched hint generation.
+ */
+public record HintFailure(
+    String testName,
+    String errorMessage
+) {}
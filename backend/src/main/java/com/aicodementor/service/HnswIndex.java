@@ -0,0 +1,547 @@
+package com.aicodementor.service;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongPredicate;
+
+/**
+ * Approximate nearest neighbours by inner product over unit vectors (cosine similarity):
+ * a hierarchical navigable small world graph (Malkov and Yashunin) on top of a {@link VectorStorage}.
+ *
+ * Nodes are storage slots; each maps to a caller id. Updating an id adds a new node and
+ * tombstones the old one, which stays in the graph for routing but is never returned.
+ * Searches share a read lock, inserts take the write lock.
+ */
+public final class HnswIndex {
+
+    public record Match(long id, float score) {
+    }
+
+    private final VectorStorage storage;
+    private final int m;
+    private final int maxLinks0;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Visited> visited = ThreadLocal.withInitial(Visited::new);
+
+    private long[] ids = new long[1024];
+    /** links[node][level]: neighbour count in [0], neighbours after it. */
+    private int[][][] links = new int[1024][][];
+    private final Map<Long, Integer> nodeOf = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+    private boolean closed;
+
+    public HnswIndex(VectorStorage storage, int m, int efConstruction) {
+        this.storage = storage;
+        this.m = Math.max(4, m);
+        this.maxLinks0 = this.m * 2;
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelFactor = 1.0 / Math.log(this.m);
+    }
+
+    public int dimension() {
+        return storage.dimension();
+    }
+
+    /**
+     * Live ids.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return nodeOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Nodes in the graph, tombstones included.
+     */
+    public int nodes() {
+        return storage.size();
+    }
+
+    /**
+     * Live ids, in no particular order.
+     */
+    public long[] liveIds() {
+        lock.readLock().lock();
+        try {
+            return nodeOf.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copy of the vector of {@code id}, or null when the id is absent.
+     */
+    public float[] vector(long id) {
+        lock.readLock().lock();
+        try {
+            Integer node = closed ? null : nodeOf.get(id);
+            return node != null ? storage.get(node) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces the vector of {@code id}. The vector must be unit length.
+     */
+    public void add(long id, float[] vector) {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Index is closed");
+            }
+            Integer previous = nodeOf.get(id);
+            if (previous != null) {
+                deleted.set(previous);
+            }
+            int node = storage.add(vector);
+            nodeOf.put(id, node);
+            insert(node, id, vector);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer node = nodeOf.remove(id);
+            if (node == null) {
+                return false;
+            }
+            deleted.set(node);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(long id) {
+        lock.readLock().lock();
+        try {
+            return nodeOf.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Similarity of {@code id}'s vector to {@code query}, or NaN when the id is absent.
+     */
+    public float score(long id, float[] query) {
+        lock.readLock().lock();
+        try {
+            Integer node = closed ? null : nodeOf.get(id);
+            return node != null ? storage.dot(node, query) : Float.NaN;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The {@code k} most similar live ids accepted by {@code filter} (null for all), best first.
+     * {@code ef} is the candidate list size: larger is slower and more accurate.
+     */
+    public List<Match> search(float[] query, int k, int ef, LongPredicate filter) {
+        if (k <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            if (closed || entryPoint < 0 || nodeOf.isEmpty()) {
+                return List.of();
+            }
+            int current = entryPoint;
+            float currentScore = storage.dot(current, query);
+            for (int level = maxLevel; level > 0; level--) {
+                int[] best = greedy(query, current, currentScore, level);
+                current = best[0];
+                currentScore = Float.intBitsToFloat(best[1]);
+            }
+            NodeHeap found = searchLayer(query, current, currentScore, Math.max(ef, k), 0, filter, true);
+            int n = Math.min(k, found.size());
+            Match[] matches = new Match[found.size()];
+            for (int i = found.size() - 1; i >= 0; i--) {
+                float score = found.topScore();
+                matches[i] = new Match(ids[found.pop()], score);
+            }
+            return List.of(Arrays.copyOf(matches, n));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Exact top-k over the given ids, for filters too selective for the graph.
+     */
+    public List<Match> exact(float[] query, int k, Iterable<Long> candidateIds) {
+        lock.readLock().lock();
+        try {
+            if (closed) {
+                return List.of();
+            }
+            NodeHeap top = new NodeHeap(k + 1, false);
+            for (Long id : candidateIds) {
+                Integer node = nodeOf.get(id);
+                if (node == null) {
+                    continue;
+                }
+                top.push(node, storage.dot(node, query));
+                if (top.size() > k) {
+                    top.pop();
+                }
+            }
+            Match[] matches = new Match[top.size()];
+            for (int i = matches.length - 1; i >= 0; i--) {
+                float score = top.topScore();
+                matches[i] = new Match(ids[top.pop()], score);
+            }
+            return List.of(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the storage once running searches are done; later calls find an empty index.
+     */
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (!closed) {
+                closed = true;
+                storage.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== Graph construction ====================
+
+    private void insert(int node, long id, float[] vector) {
+        ensureCapacity(node + 1);
+        ids[node] = id;
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelFactor);
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[1 + maxLinks(l)];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        float currentScore = storage.dot(current, vector);
+        for (int l = maxLevel; l > level; l--) {
+            int[] best = greedy(vector, current, currentScore, l);
+            current = best[0];
+            currentScore = Float.intBitsToFloat(best[1]);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            NodeHeap candidates = searchLayer(vector, current, currentScore, efConstruction, l, null, false);
+            int[] sorted = candidates.drainBestFirst();
+            current = sorted[0];
+            currentScore = storage.dot(current, vector);
+            int[] neighbours = selectNeighbours(node, sorted, m);
+            int[] own = links[node][l];
+            System.arraycopy(neighbours, 0, own, 1, neighbours.length);
+            own[0] = neighbours.length;
+            for (int neighbour : neighbours) {
+                connect(neighbour, node, l);
+            }
+        }
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] list = links[from][level];
+        int count = list[0];
+        if (count < list.length - 1) {
+            list[count + 1] = to;
+            list[0] = count + 1;
+            return;
+        }
+        // Full: keep the most diverse set among the old neighbours and the new one
+        int[] candidates = Arrays.copyOfRange(list, 1, count + 2);
+        candidates[count] = to;
+        sortBySimilarity(from, candidates);
+        int[] kept = selectNeighbours(from, candidates, list.length - 1);
+        System.arraycopy(kept, 0, list, 1, kept.length);
+        list[0] = kept.length;
+    }
+
+    /**
+     * Neighbour selection heuristic: a candidate (best first) is kept when it is closer to
+     * {@code base} than to every neighbour kept so far, so links spread in all directions.
+     * Remaining places are filled with the best pruned candidates.
+     */
+    private int[] selectNeighbours(int base, int[] bestFirst, int max) {
+        int[] kept = new int[Math.min(max, bestFirst.length)];
+        int count = 0;
+        boolean[] used = new boolean[bestFirst.length];
+        for (int i = 0; i < bestFirst.length && count < kept.length; i++) {
+            int candidate = bestFirst[i];
+            if (candidate == base) {
+                used[i] = true;
+                continue;
+            }
+            float toBase = storage.dot(candidate, base);
+            boolean diverse = true;
+            for (int j = 0; j < count && diverse; j++) {
+                diverse = storage.dot(candidate, kept[j]) <= toBase;
+            }
+            if (diverse) {
+                kept[count++] = candidate;
+                used[i] = true;
+            }
+        }
+        // Keep pruned connections: a sparse list would weaken the graph's connectivity
+        for (int i = 0; i < bestFirst.length && count < kept.length; i++) {
+            if (!used[i]) {
+                kept[count++] = bestFirst[i];
+            }
+        }
+        return count == kept.length ? kept : Arrays.copyOf(kept, count);
+    }
+
+    private void sortBySimilarity(int base, int[] nodes) {
+        float[] scores = new float[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            scores[i] = storage.dot(nodes[i], base);
+        }
+        // Insertion sort: lists are at most 2 * m + 1 long
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    private int maxLinks(int level) {
+        return level == 0 ? maxLinks0 : m;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes > ids.length) {
+            int capacity = Math.max(nodes, ids.length * 2);
+            ids = Arrays.copyOf(ids, capacity);
+            links = Arrays.copyOf(links, capacity);
+        }
+    }
+
+    // ==================== Search ====================
+
+    /**
+     * Best node reachable from {@code start} on {@code level} by hill climbing; score as float bits.
+     */
+    private int[] greedy(float[] query, int start, float startScore, int level) {
+        int current = start;
+        float currentScore = startScore;
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] list = links[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float score = storage.dot(list[i], query);
+                if (score > currentScore) {
+                    currentScore = score;
+                    current = list[i];
+                    improved = true;
+                }
+            }
+        }
+        return new int[]{current, Float.floatToRawIntBits(currentScore)};
+    }
+
+    /**
+     * Beam search on one level. Returns up to {@code ef} nodes in a min-heap (worst on top).
+     * With {@code liveOnly}, tombstones and filtered-out ids are traversed but not returned.
+     */
+    private NodeHeap searchLayer(float[] query, int start, float startScore, int ef, int level,
+                                 LongPredicate filter, boolean liveOnly) {
+        Visited seen = visited.get();
+        seen.reset(storage.size());
+        NodeHeap candidates = new NodeHeap(ef * 2, true);
+        NodeHeap results = new NodeHeap(ef + 1, false);
+        seen.mark(start);
+        candidates.push(start, startScore);
+        if (accept(start, filter, liveOnly)) {
+            results.push(start, startScore);
+        }
+        while (candidates.size() > 0) {
+            float bestScore = candidates.topScore();
+            if (results.size() >= ef && bestScore < results.topScore()) {
+                break;
+            }
+            int node = candidates.pop();
+            if (level >= links[node].length) {
+                continue;
+            }
+            int[] list = links[node][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbour = list[i];
+                if (!seen.mark(neighbour)) {
+                    continue;
+                }
+                float score = storage.dot(neighbour, query);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    if (accept(neighbour, filter, liveOnly)) {
+                        results.push(neighbour, score);
+                        if (results.size() > ef) {
+                            results.pop();
+                        }
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private boolean accept(int node, LongPredicate filter, boolean liveOnly) {
+        if (!liveOnly) {
+            return true;
+        }
+        return !deleted.get(node) && (filter == null || filter.test(ids[node]));
+    }
+
+    /**
+     * Visited marks by epoch: resetting is O(1) instead of clearing a set per search.
+     */
+    private static final class Visited {
+        private int[] marks = new int[0];
+        private int epoch;
+
+        void reset(int nodes) {
+            if (marks.length < nodes) {
+                marks = new int[Math.max(nodes, marks.length * 2)];
+                epoch = 0;
+            }
+            if (++epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        /** True when {@code node} was not seen yet in this search. */
+        boolean mark(int node) {
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+
+    /**
+     * Binary heap of nodes keyed by score: best on top when {@code max}, worst on top otherwise.
+     */
+    private static final class NodeHeap {
+        private int[] nodes;
+        private float[] scores;
+        private final boolean max;
+        private int size;
+
+        NodeHeap(int capacity, boolean max) {
+            this.nodes = new int[Math.max(4, capacity)];
+            this.scores = new float[nodes.length];
+            this.max = max;
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!above(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            size--;
+            if (size > 0) {
+                int node = nodes[size];
+                float score = scores[size];
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && above(scores[child + 1], scores[child])) {
+                        child++;
+                    }
+                    if (!above(scores[child], score)) {
+                        break;
+                    }
+                    nodes[i] = nodes[child];
+                    scores[i] = scores[child];
+                    i = child;
+                }
+                nodes[i] = node;
+                scores[i] = score;
+            }
+            return top;
+        }
+
+        /** Contents best first; empties the heap. Only for min-heaps (worst on top). */
+        int[] drainBestFirst() {
+            int[] out = new int[size];
+            for (int i = out.length - 1; i >= 0; i--) {
+                out[i] = pop();
+            }
+            return out;
+        }
+
+        private boolean above(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.aicodementor.service;
+
+import javax.tools.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Compiles Java sources without touching the disk.
+ * Sources and class files live in memory; the result exposes a class loader over the produced
+ * bytecode, so a candidate can be compiled and tested in a few hundred milliseconds.
+ */
+public final class InMemoryJavaCompiler {
+
+    /**
+     * Outcome of one compilation. {@code diagnostics} holds one "Class.java:line: message"
+     * entry per error; {@code classLoader} is null when compilation failed.
+     */
+    public record Result(boolean success, List<String> diagnostics, ClassLoader classLoader) {
+    }
+
+    private InMemoryJavaCompiler() {
+    }
+
+    /**
+     * Compiles the given sources (top-level class name to source, default package) against
+     * the application class path.
+     */
+    public static Result compile(Map<String, String> sources, ClassLoader parent) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return new Result(false, List.of("Java compiler not available (running on a JRE?)"), null);
+        }
+
+        List<JavaFileObject> units = new ArrayList<>();
+        sources.forEach((className, source) -> units.add(new SourceFile(className, source)));
+
+        DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+        Map<String, ClassFile> classFiles = new HashMap<>();
+        try (StandardJavaFileManager standard = compiler.getStandardFileManager(diagnostics, Locale.ROOT, null);
+             JavaFileManager fileManager = new MemoryFileManager(standard, classFiles)) {
+            boolean success = compiler.getTask(null, fileManager, diagnostics,
+                List.of("-proc:none", "-g", "-cp", System.getProperty("java.class.path")),
+                null, units).call();
+
+            List<String> errors = new ArrayList<>();
+            for (Diagnostic<? extends JavaFileObject> d : diagnostics.getDiagnostics()) {
+                if (d.getKind() == Diagnostic.Kind.ERROR) {
+                    String file = d.getSource() != null ? d.getSource().getName().replaceFirst("^/", "") : "?";
+                    errors.add(file + ":" + d.getLineNumber() + ": " + d.getMessage(Locale.ROOT));
+                }
+            }
+            if (!success) {
+                return new Result(false, errors, null);
+            }
+            return new Result(true, errors, new MemoryClassLoader(classFiles, parent));
+        } catch (IOException | RuntimeException e) {
+            return new Result(false, List.of("Compilation failed: " + e.getMessage()), null);
+        }
+    }
+
+    private static final class SourceFile extends SimpleJavaFileObject {
+        private final String source;
+
+        SourceFile(String className, String source) {
+            super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+    }
+
+    private static final class ClassFile extends SimpleJavaFileObject {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ClassFile(String className) {
+            super(URI.create("mem:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+        }
+
+        @Override
+        public OutputStream openOutputStream() {
+            return bytes;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static final class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+        private final Map<String, ClassFile> classFiles;
+
+        MemoryFileManager(StandardJavaFileManager delegate, Map<String, ClassFile> classFiles) {
+            super(delegate);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        public JavaFileObject getJavaFileForOutput(Location location, String className,
+                                                   JavaFileObject.Kind kind, FileObject sibling) {
+            ClassFile file = new ClassFile(className);
+            classFiles.put(className, file);
+            return file;
+        }
+    }
+
+    private static final class MemoryClassLoader extends ClassLoader {
+        private final Map<String, ClassFile> classFiles;
+
+        MemoryClassLoader(Map<String, ClassFile> classFiles, ClassLoader parent) {
+            super(parent);
+            this.classFiles = classFiles;
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            ClassFile file = classFiles.get(name);
+            if (file == null) {
+                throw new ClassNotFoundException(name);
+            }
+            byte[] bytes = file.toByteArray();
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
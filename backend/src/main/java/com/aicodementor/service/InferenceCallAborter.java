@@ -0,0 +1,80 @@
+package com.aicodementor.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * HTTP connections opened by the threads running inference calls, so a cancelled call can be
+ * aborted while the server is still generating. Interrupting the thread is not enough: a blocking
+ * socket read ignores interrupts. Closing the connection makes llama.cpp stop the generation and
+ * free its slot.
+ *
+ * Only calls between {@link #begin()} and {@link #end()} are tracked; other users of the shared
+ * RestTemplate (health checks, embeddings) are ignored.
+ */
+@Component
+public class InferenceCallAborter {
+
+    private static final class Call {
+        private final List<HttpURLConnection> connections = new ArrayList<>();
+        private boolean aborted;
+    }
+
+    private final Map<Thread, Call> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Starts tracking the connections the current thread opens.
+     */
+    public void begin() {
+        calls.put(Thread.currentThread(), new Call());
+    }
+
+    /**
+     * Stops tracking the current thread, once its call is over.
+     */
+    public void end() {
+        calls.remove(Thread.currentThread());
+    }
+
+    /**
+     * Called for every connection about to be opened. Fails when the current thread's call was
+     * aborted in the meantime, so no new request is sent for it.
+     */
+    public void register(HttpURLConnection connection) throws IOException {
+        Call call = calls.get(Thread.currentThread());
+        if (call == null) {
+            return;
+        }
+        synchronized (call) {
+            if (call.aborted) {
+                throw new IOException("Inference call aborted");
+            }
+            call.connections.add(connection);
+        }
+    }
+
+    /**
+     * Closes the connections of the call {@code thread} is running: a read blocked on one of them
+     * fails at once. Returns false when the thread runs no tracked call.
+     */
+    public boolean abort(Thread thread) {
+        Call call = calls.get(thread);
+        if (call == null) {
+            return false;
+        }
+        List<HttpURLConnection> open;
+        synchronized (call) {
+            call.aborted = true;
+            open = new ArrayList<>(call.connections);
+            call.connections.clear();
+        }
+        open.forEach(HttpURLConnection::disconnect);
+        return true;
+    }
+}
@@ -0,0 +1,185 @@
+package com.aicodementor.service;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One inference server process in the pool, with its live load, health and circuit breaker.
+ */
+public class InferenceEndpoint {
+
+    private final String url;
+    private final int weight;
+    private final CircuitBreaker circuitBreaker;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean healthy = true;
+    private volatile int slots;
+    private volatile String lastError;
+
+    // Slot affinity: which call type each server slot last served, and whether we have a request on it
+    private final Object slotLock = new Object();
+    private LLMCallType[] slotOwner = new LLMCallType[0];
+    private boolean[] slotBusy = new boolean[0];
+    private long slotAssignments;
+    private long slotAffinityHits;
+
+    public InferenceEndpoint(String url, int weight, CircuitBreaker circuitBreaker) {
+        this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+        this.weight = Math.max(1, weight);
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Parses {@code url} or {@code url|weight}.
+     */
+    public static InferenceEndpoint parse(String spec, CircuitBreaker circuitBreaker) {
+        String trimmed = spec.trim();
+        int sep = trimmed.lastIndexOf('|');
+        if (sep < 0) {
+            return new InferenceEndpoint(trimmed, 1, circuitBreaker);
+        }
+        try {
+            return new InferenceEndpoint(trimmed.substring(0, sep).trim(),
+                Integer.parseInt(trimmed.substring(sep + 1).trim()), circuitBreaker);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid endpoint weight in: " + spec, e);
+        }
+    }
+
+    /**
+     * Outstanding requests per unit of weight, counting the one about to be routed.
+     */
+    double load() {
+        return (outstanding.get() + 1.0) / weight;
+    }
+
+    void acquire() {
+        outstanding.incrementAndGet();
+    }
+
+    void release(boolean success, String error) {
+        outstanding.decrementAndGet();
+        if (success) {
+            completed.incrementAndGet();
+        } else {
+            failures.incrementAndGet();
+            lastError = error;
+        }
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getWeight() {
+        return weight;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    /**
+     * Healthy and not rejected by its circuit breaker.
+     */
+    public boolean isAvailable() {
+        return healthy && circuitBreaker.isCallPermitted();
+    }
+
+    CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    void setHealthy(boolean healthy) {
+        this.healthy = healthy;
+    }
+
+    /**
+     * Parallel slots reported by the server, 0 when unknown.
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    void setSlots(int slots) {
+        this.slots = slots;
+        synchronized (slotLock) {
+            slotOwner = Arrays.copyOf(slotOwner, slots);
+            slotBusy = Arrays.copyOf(slotBusy, slots);
+        }
+    }
+
+    /**
+     * Picks a free slot for the call type: one that last served the same type (its KV cache
+     * already holds the type's prompt prefix), else an unused one, else any free one.
+     * Returns {@link CompletionRequest#ANY_SLOT} when slots are unknown or all busy.
+     */
+    int acquireSlot(LLMCallType callType) {
+        synchronized (slotLock) {
+            int unused = -1;
+            int free = -1;
+            for (int i = 0; i < slotBusy.length; i++) {
+                if (slotBusy[i]) {
+                    continue;
+                }
+                if (slotOwner[i] == callType) {
+                    slotBusy[i] = true;
+                    slotAssignments++;
+                    slotAffinityHits++;
+                    return i;
+                }
+                if (slotOwner[i] == null && unused < 0) {
+                    unused = i;
+                }
+                if (free < 0) {
+                    free = i;
+                }
+            }
+            int chosen = unused >= 0 ? unused : free;
+            if (chosen < 0) {
+                return CompletionRequest.ANY_SLOT;
+            }
+            slotBusy[chosen] = true;
+            slotOwner[chosen] = callType;
+            slotAssignments++;
+            return chosen;
+        }
+    }
+
+    void releaseSlot(int slot) {
+        synchronized (slotLock) {
+            if (slot >= 0 && slot < slotBusy.length) {
+                slotBusy[slot] = false;
+            }
+        }
+    }
+
+    Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("url", url);
+        result.put("weight", weight);
+        result.put("healthy", healthy);
+        result.put("circuit", circuitBreaker.getState());
+        result.put("circuitOpenedCount", circuitBreaker.getTimesOpened());
+        result.put("slots", slots);
+        result.put("outstanding", outstanding.get());
+        result.put("completed", completed.get());
+        result.put("failures", failures.get());
+        result.put("lastError", lastError);
+        synchronized (slotLock) {
+            result.put("slotOwners", Arrays.toString(slotOwner));
+            result.put("slotAssignments", slotAssignments);
+            result.put("slotAffinityHits", slotAffinityHits);
+        }
+        return result;
+    }
+}
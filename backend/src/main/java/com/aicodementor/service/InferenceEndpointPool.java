@@ -0,0 +1,331 @@
+package com.aicodementor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpTimeoutException;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of inference server processes behind one provider.
+ *
+ * - Routing: least outstanding requests per unit of weight among available endpoints.
+ * - Failover: a connection or 5xx error counts against the endpoint's circuit breaker and the request
+ *   moves on, unless it is a long generation the failing server may already have worked on
+ *   ({@code llm.failover.max-tokens}). A read timeout is not an endpoint failure: the server is
+ *   busy, not down, so it neither counts against the breaker nor is retried elsewhere.
+ * - Fast fail: when every endpoint is unhealthy or has an open circuit, calls throw
+ *   {@link LLMUnavailableException} immediately instead of waiting for a timeout.
+ * - Health: a background probe tracks liveness and refreshes slot counts.
+ * - Slot affinity: each call is pinned to a server slot that last served the same call type,
+ *   so llama.cpp can reuse the KV cache of the type's constant prompt prefix.
+ *
+ * Several llama.cpp processes on one machine are listed in {@code llm.endpoints};
+ * the scheduler's capacity grows with the sum of their slots.
+ */
+@Service
+public class InferenceEndpointPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(InferenceEndpointPool.class);
+
+    private final InferenceProvider provider;
+    private final List<InferenceEndpoint> endpoints;
+    private final long healthCheckIntervalMs;
+    private final boolean slotAffinity;
+    private final int failoverMaxTokens;
+    private final List<Runnable> topologyListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService healthChecker = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "llm-health-check");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public InferenceEndpointPool(List<InferenceProvider> providers, String llamacppBaseUrl,
+                                 @Value("${llm.provider:llamacpp}") String providerName,
+                                 @Value("${llm.ollama.base-url:http://localhost:11434}") String ollamaBaseUrl,
+                                 @Value("${llm.localai.base-url:http://localhost:8081}") String localaiBaseUrl,
+                                 @Value("${llm.endpoints:}") String endpointsSpec,
+                                 @Value("${llm.health-check.interval-ms:10000}") long healthCheckIntervalMs,
+                                 @Value("${llm.circuit-breaker.failure-threshold:3}") int failureThreshold,
+                                 @Value("${llm.circuit-breaker.open-ms:30000}") long openDurationMs,
+                                 @Value("${llm.slot-affinity:true}") boolean slotAffinity,
+                                 @Value("${llm.failover.max-tokens:512}") int failoverMaxTokens) {
+        this.provider = providers.stream()
+            .filter(p -> p.name().equalsIgnoreCase(providerName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown LLM provider: " + providerName));
+        this.healthCheckIntervalMs = healthCheckIntervalMs;
+        this.slotAffinity = slotAffinity;
+        this.failoverMaxTokens = failoverMaxTokens;
+
+        List<InferenceEndpoint> parsed = new ArrayList<>();
+        if (endpointsSpec != null && !endpointsSpec.isBlank()) {
+            for (String spec : endpointsSpec.split(",")) {
+                if (!spec.isBlank()) {
+                    parsed.add(InferenceEndpoint.parse(spec, new CircuitBreaker(failureThreshold, openDurationMs)));
+                }
+            }
+        }
+        if (parsed.isEmpty()) {
+            String baseUrl = switch (provider.name()) {
+                case "ollama" -> ollamaBaseUrl;
+                case "localai" -> localaiBaseUrl;
+                default -> llamacppBaseUrl;
+            };
+            parsed.add(new InferenceEndpoint(baseUrl, 1, new CircuitBreaker(failureThreshold, openDurationMs)));
+        }
+        this.endpoints = List.copyOf(parsed);
+        logger.info("LLM provider '{}' with {} endpoint(s): {}", provider.name(), endpoints.size(),
+            endpoints.stream().map(InferenceEndpoint::getUrl).toList());
+    }
+
+    @PostConstruct
+    public void startHealthChecks() {
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, healthCheckIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        healthChecker.shutdownNow();
+    }
+
+    /**
+     * Runs the request on the least loaded available endpoint, failing over to the next one on error.
+     * Throws {@link LLMUnavailableException} without any network call when nothing is available,
+     * and right away on a read timeout or on a failed long generation (see the class comment).
+     * Throws {@link CancellationException} when the calling thread is interrupted: the call was
+     * cancelled and is not retried elsewhere.
+     */
+    public CompletionResult complete(CompletionRequest request) {
+        Set<InferenceEndpoint> tried = new HashSet<>();
+        RuntimeException lastError = null;
+        InferenceEndpoint endpoint;
+        while ((endpoint = select(tried)) != null) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Inference call " + request.callType() + " cancelled");
+            }
+            tried.add(endpoint);
+            CircuitBreaker breaker = endpoint.getCircuitBreaker();
+            if (!breaker.tryAcquire()) {
+                continue;
+            }
+            endpoint.acquire();
+            int slot = slotAffinity ? endpoint.acquireSlot(request.callType()) : CompletionRequest.ANY_SLOT;
+            try {
+                CompletionResult result = provider.complete(endpoint, request.withSlot(slot));
+                endpoint.release(true, null);
+                onCallSucceeded(endpoint);
+                return result;
+            } catch (HttpClientErrorException e) {
+                // 4xx: the server is alive but the request itself is wrong, another endpoint would reject it too
+                endpoint.release(false, e.getMessage());
+                onCallSucceeded(endpoint);
+                throw e;
+            } catch (RuntimeException e) {
+                endpoint.release(false, e.getMessage());
+                if (Thread.currentThread().isInterrupted()) {
+                    // Cut off on purpose by the scheduler: says nothing about the endpoint
+                    breaker.recordIgnored();
+                    throw new CancellationException("Inference call " + request.callType() + " cancelled");
+                }
+                Failure failure = classify(e);
+                if (failure == Failure.READ_TIMEOUT) {
+                    breaker.recordIgnored();
+                    logger.warn("Inference endpoint {} timed out on {} call, not retrying: {}",
+                        endpoint.getUrl(), request.callType(), e.getMessage());
+                    throw new LLMUnavailableException("Inference call " + request.callType() + " timed out", e);
+                }
+                onCallFailed(endpoint);
+                lastError = e;
+                if (failure == Failure.PROCESSED && request.maxTokens() > failoverMaxTokens) {
+                    logger.warn("Inference endpoint {} failed for {} call, not retrying a {}-token generation: {}",
+                        endpoint.getUrl(), request.callType(), request.maxTokens(), e.getMessage());
+                    break;
+                }
+                logger.warn("Inference endpoint {} failed for {} call, failing over: {}",
+                    endpoint.getUrl(), request.callType(), e.getMessage());
+            } finally {
+                endpoint.releaseSlot(slot);
+            }
+        }
+        throw new LLMUnavailableException("No inference endpoint available for " + request.callType(), lastError);
+    }
+
+    /**
+     * How far a failed call got: never reached the server, timed out waiting for the answer, or
+     * failed after the server may have started generating.
+     */
+    enum Failure {
+        NOT_SENT,
+        READ_TIMEOUT,
+        PROCESSED
+    }
+
+    static Failure classify(RuntimeException e) {
+        if (e instanceof HttpServerErrorException server) {
+            // 503: llama.cpp is loading the model or has no free slot, nothing was generated
+            return server.getStatusCode().value() == 503 ? Failure.NOT_SENT : Failure.PROCESSED;
+        }
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof UnknownHostException
+                    || cause instanceof NoRouteToHostException || cause instanceof HttpConnectTimeoutException) {
+                return Failure.NOT_SENT;
+            }
+            if (cause instanceof SocketTimeoutException) {
+                // HttpURLConnection reports both timeouts with this type: "Connect timed out" / "Read timed out"
+                String message = cause.getMessage();
+                return message != null && message.toLowerCase(Locale.ROOT).contains("connect")
+                    ? Failure.NOT_SENT : Failure.READ_TIMEOUT;
+            }
+            if (cause instanceof HttpTimeoutException) {
+                return Failure.READ_TIMEOUT;
+            }
+        }
+        return Failure.PROCESSED;
+    }
+
+    /**
+     * Token count of {@code text} by the model's tokenizer, asked to the least loaded available
+     * endpoint (all endpoints serve the same model), or -1 when no tokenizer can be reached.
+     * Tokenizing does not occupy a slot, so it bypasses slots and circuit breakers.
+     */
+    public int countTokens(String text) {
+        InferenceEndpoint endpoint = select(Set.of());
+        if (endpoint == null) {
+            return -1;
+        }
+        try {
+            return provider.countTokens(endpoint, text);
+        } catch (RuntimeException e) {
+            logger.debug("Tokenizer unavailable on {}: {}", endpoint.getUrl(), e.getMessage());
+            return -1;
+        }
+    }
+
+    /**
+     * True when at least one endpoint would accept a call right now.
+     */
+    public boolean isAvailable() {
+        return endpoints.stream().anyMatch(InferenceEndpoint::isAvailable);
+    }
+
+    private InferenceEndpoint select(Set<InferenceEndpoint> tried) {
+        InferenceEndpoint best = null;
+        for (InferenceEndpoint candidate : endpoints) {
+            if (tried.contains(candidate) || !candidate.isAvailable()) {
+                continue;
+            }
+            if (best == null || candidate.load() < best.load()) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private void onCallSucceeded(InferenceEndpoint endpoint) {
+        CircuitBreaker breaker = endpoint.getCircuitBreaker();
+        CircuitBreaker.State before = breaker.getState();
+        breaker.recordSuccess();
+        if (before != CircuitBreaker.State.CLOSED) {
+            logger.info("Circuit closed for inference endpoint {}", endpoint.getUrl());
+            fireTopologyChange();
+        }
+    }
+
+    private void onCallFailed(InferenceEndpoint endpoint) {
+        CircuitBreaker breaker = endpoint.getCircuitBreaker();
+        CircuitBreaker.State before = breaker.getState();
+        breaker.recordFailure();
+        if (before != CircuitBreaker.State.OPEN && breaker.getState() == CircuitBreaker.State.OPEN) {
+            logger.warn("Circuit opened for inference endpoint {}", endpoint.getUrl());
+            fireTopologyChange();
+        }
+    }
+
+    private void checkHealth() {
+        boolean changed = false;
+        for (InferenceEndpoint endpoint : endpoints) {
+            try {
+                boolean healthy = provider.isHealthy(endpoint);
+                if (healthy != endpoint.isHealthy()) {
+                    logger.info("Inference endpoint {} is now {}", endpoint.getUrl(), healthy ? "healthy" : "unhealthy");
+                    endpoint.setHealthy(healthy);
+                    changed = true;
+                }
+                if (healthy && endpoint.getSlots() == 0) {
+                    int slots = provider.discoverSlots(endpoint);
+                    if (slots > 0) {
+                        logger.info("Inference endpoint {} has {} slot(s)", endpoint.getUrl(), slots);
+                        endpoint.setSlots(slots);
+                        changed = true;
+                    }
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Health check error for {}: {}", endpoint.getUrl(), e.getMessage());
+            }
+        }
+        if (changed) {
+            fireTopologyChange();
+        }
+    }
+
+    /**
+     * Total parallel capacity of the available endpoints (all endpoints when none is available,
+     * so that the scheduler keeps dispatching and callers fail fast instead of queueing forever).
+     */
+    public int totalSlots(int fallbackSlotsPerEndpoint) {
+        boolean anyAvailable = isAvailable();
+        int total = 0;
+        for (InferenceEndpoint endpoint : endpoints) {
+            if (!anyAvailable || endpoint.isAvailable()) {
+                total += endpoint.getSlots() > 0 ? endpoint.getSlots() : fallbackSlotsPerEndpoint;
+            }
+        }
+        return Math.max(1, total);
+    }
+
+    /**
+     * Registers a callback run whenever health or slot counts change.
+     */
+    public void addTopologyListener(Runnable listener) {
+        topologyListeners.add(listener);
+    }
+
+    private void fireTopologyChange() {
+        for (Runnable listener : topologyListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                logger.warn("Topology listener failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    public String getProviderName() {
+        return provider.name();
+    }
+
+    List<InferenceEndpoint> endpoints() {
+        return endpoints;
+    }
+
+    public List<Map<String, Object>> snapshot() {
+        return endpoints.stream().map(InferenceEndpoint::snapshot).toList();
+    }
+}
@@ -0,0 +1,36 @@
+package com.aicodementor.service;
+
+/**
+ * Wire protocol of an inference server (llama.cpp, Ollama, LocalAI...).
+ * Providers are stateless: the endpoint to talk to is passed on every call.
+ */
+public interface InferenceProvider {
+
+    /**
+     * Name used in {@code llm.provider}.
+     */
+    String name();
+
+    /**
+     * Runs one completion. Throws on transport or server errors so the pool can fail over.
+     */
+    CompletionResult complete(InferenceEndpoint endpoint, CompletionRequest request);
+
+    /**
+     * Cheap liveness probe.
+     */
+    boolean isHealthy(InferenceEndpoint endpoint);
+
+    /**
+     * Number of requests the server processes in parallel, or 0 when it cannot be discovered.
+     */
+    int discoverSlots(InferenceEndpoint endpoint);
+
+    /**
+     * Number of tokens the server's model splits {@code text} into, or -1 when the server
+     * exposes no tokenizer. Throws on transport errors.
+     */
+    default int countTokens(InferenceEndpoint endpoint, String text) {
+        return -1;
+    }
+}
@@ -0,0 +1,183 @@
+package com.aicodementor.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call-type inference statistics built from the servers' own timings.
+ *
+ * - Micrometer meters ({@code llm.inference.*}, tagged by call type) for dashboards.
+ * - A rolling window of the last {@code windowSize} calls per type for the stats endpoint:
+ *   tokens/s, prompt-cache reuse, truncations and each type's share of inference time.
+ */
+@Service
+public class InferenceTelemetry {
+
+    private final MeterRegistry meterRegistry;
+    private final int windowSize;
+    private final Map<LLMCallType, Window> windows = new EnumMap<>(LLMCallType.class);
+
+    public InferenceTelemetry(MeterRegistry meterRegistry,
+                              @Value("${llm.telemetry.window:200}") int windowSize) {
+        this.meterRegistry = meterRegistry;
+        this.windowSize = Math.max(1, windowSize);
+        for (LLMCallType type : LLMCallType.values()) {
+            windows.put(type, new Window(this.windowSize));
+        }
+    }
+
+    public void recordSuccess(LLMCallType callType, CompletionResult result, long wallMs) {
+        InferenceTimings timings = result.timings() != null ? result.timings() : InferenceTimings.NONE;
+        String tag = tagFor(callType);
+
+        timer(tag, "success").record(wallMs, TimeUnit.MILLISECONDS);
+        tokens(tag, "prompt").record(timings.promptTokens());
+        tokens(tag, "cached").record(timings.cachedTokens());
+        tokens(tag, "predicted").record(timings.predictedTokens());
+        if (timings.predictedPerSecond() > 0) {
+            DistributionSummary.builder("llm.inference.tokens_per_second")
+                .description("Generation speed reported by the server")
+                .tag("call_type", tag)
+                .register(meterRegistry)
+                .record(timings.predictedPerSecond());
+        }
+
+        windows.get(callType).add(new Sample(wallMs, timings, true));
+    }
+
+    public void recordFailure(LLMCallType callType, long wallMs) {
+        timer(tagFor(callType), "failure").record(wallMs, TimeUnit.MILLISECONDS);
+        windows.get(callType).add(new Sample(wallMs, InferenceTimings.NONE, false));
+    }
+
+    private Timer timer(String callType, String outcome) {
+        return Timer.builder("llm.inference.duration")
+            .description("Wall time of one completion call, excluding scheduler queueing")
+            .tag("call_type", callType)
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private DistributionSummary tokens(String callType, String kind) {
+        return DistributionSummary.builder("llm.inference.tokens")
+            .baseUnit("tokens")
+            .tag("call_type", callType)
+            .tag("kind", kind)
+            .register(meterRegistry);
+    }
+
+    private static String tagFor(LLMCallType callType) {
+        return callType.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Rolling statistics per call type, for the stats endpoint.
+     */
+    public Map<String, Object> snapshot() {
+        Map<LLMCallType, List<Sample>> samples = new EnumMap<>(LLMCallType.class);
+        long totalWallMs = 0;
+        for (LLMCallType type : LLMCallType.values()) {
+            List<Sample> list = windows.get(type).copy();
+            samples.put(type, list);
+            for (Sample s : list) {
+                totalWallMs += s.wallMs;
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("window", windowSize);
+        for (LLMCallType type : LLMCallType.values()) {
+            result.put(tagFor(type), summarize(samples.get(type), windows.get(type).total(), totalWallMs));
+        }
+        return result;
+    }
+
+    private Map<String, Object> summarize(List<Sample> samples, long totalCalls, long allTypesWallMs) {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("totalCalls", totalCalls);
+        stats.put("windowCalls", samples.size());
+
+        List<Long> wall = new ArrayList<>();
+        long failures = 0;
+        long wallMs = 0;
+        long promptTokens = 0;
+        long cachedTokens = 0;
+        long predictedTokens = 0;
+        double predictedMs = 0;
+        long truncated = 0;
+        for (Sample s : samples) {
+            wallMs += s.wallMs;
+            if (!s.success) {
+                failures++;
+                continue;
+            }
+            wall.add(s.wallMs);
+            promptTokens += s.timings.promptTokens();
+            cachedTokens += s.timings.cachedTokens();
+            predictedTokens += s.timings.predictedTokens();
+            predictedMs += s.timings.predictedMs();
+            if (s.timings.stoppedByLimit()) {
+                truncated++;
+            }
+        }
+        int ok = wall.size();
+        Collections.sort(wall);
+
+        stats.put("failures", failures);
+        stats.put("avgWallMs", ok > 0 ? wall.stream().mapToLong(Long::longValue).sum() / ok : 0);
+        stats.put("p95WallMs", ok > 0 ? wall.get(Math.min(ok - 1, (int) Math.ceil(ok * 0.95) - 1)) : 0);
+        stats.put("avgPromptTokens", ok > 0 ? promptTokens / ok : 0);
+        stats.put("avgPredictedTokens", ok > 0 ? predictedTokens / ok : 0);
+        stats.put("tokensPerSecond", predictedMs > 0 ? round(predictedTokens * 1000.0 / predictedMs) : 0);
+        stats.put("promptCacheReuse", promptTokens > 0 ? round((double) cachedTokens / promptTokens) : 0);
+        stats.put("truncated", truncated);
+        stats.put("shareOfInferenceTime", allTypesWallMs > 0 ? round((double) wallMs / allTypesWallMs) : 0);
+        return stats;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+
+    private record Sample(long wallMs, InferenceTimings timings, boolean success) {
+    }
+
+    /**
+     * Fixed-size ring buffer of the most recent samples.
+     */
+    private static final class Window {
+        private final Sample[] ring;
+        private int next;
+        private long total;
+
+        Window(int size) {
+            this.ring = new Sample[size];
+        }
+
+        synchronized void add(Sample sample) {
+            ring[next] = sample;
+            next = (next + 1) % ring.length;
+            total++;
+        }
+
+        synchronized List<Sample> copy() {
+            List<Sample> list = new ArrayList<>(ring.length);
+            for (Sample s : ring) {
+                if (s != null) {
+                    list.add(s);
+                }
+            }
+            return list;
+        }
+
+        synchronized long total() {
+            return total;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.aicodementor.service;
+
+/**
+ * Server-side accounting of one completion call.
+ *
+ * - {@code promptTokens}: prompt tokens in the request ({@code tokens_evaluated} on llama.cpp).
+ * - {@code promptProcessed}: prompt tokens actually evaluated, the rest came from the prompt cache.
+ * - {@code stoppedByLimit}: generation hit {@code n_predict}, so the output is probably cut off.
+ */
+public record InferenceTimings(
+    int promptTokens,
+    int promptProcessed,
+    int predictedTokens,
+    double promptMs,
+    double predictedMs,
+    double predictedPerSecond,
+    boolean stoppedByLimit
+) {
+
+    /** Used by providers that report nothing. */
+    public static final InferenceTimings NONE = new InferenceTimings(0, 0, 0, 0, 0, 0, false);
+
+    /**
+     * Prompt tokens reused from the server's KV cache.
+     */
+    public int cachedTokens() {
+        return Math.max(0, promptTokens - promptProcessed);
+    }
+}
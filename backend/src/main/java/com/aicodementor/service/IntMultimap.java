@@ -0,0 +1,121 @@
+package com.aicodementor.service;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Multimap of int keys to non-negative int values in two flat arrays (open addressing, linear
+ * probing): 8 bytes per entry instead of a boxed map entry and list per key. Removed entries
+ * leave a tombstone, swept on the next resize. Not thread-safe; owners lock around it.
+ */
+final class IntMultimap {
+
+    private static final int EMPTY = -1;
+    private static final int REMOVED = -2;
+    private static final double MAX_LOAD = 0.7;
+    private static final int MIN_CAPACITY = 1024;
+
+    private int[] keys = new int[MIN_CAPACITY];
+    private int[] values = filled(MIN_CAPACITY);
+    private int used;
+    private int live;
+
+    int size() {
+        return live;
+    }
+
+    void put(int key, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Values must be non-negative");
+        }
+        if (used + 1 > values.length * MAX_LOAD) {
+            // Grows when live entries fill it, otherwise only sweeps the tombstones
+            rehash(Math.max(MIN_CAPACITY, (int) Math.min(Integer.MAX_VALUE - 8, (live + 1) / MAX_LOAD * 1.5)));
+        }
+        int capacity = values.length;
+        int pos = home(key, capacity);
+        while (values[pos] >= 0) {
+            pos = next(pos, capacity);
+        }
+        if (values[pos] == EMPTY) {
+            used++;
+        }
+        keys[pos] = key;
+        values[pos] = value;
+        live++;
+    }
+
+    boolean remove(int key, int value) {
+        int capacity = values.length;
+        for (int pos = home(key, capacity); values[pos] != EMPTY; pos = next(pos, capacity)) {
+            if (values[pos] == value && keys[pos] == key) {
+                values[pos] = REMOVED;
+                live--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Calls {@code action} with the values of {@code key} until it returns false.
+     */
+    void forEach(int key, IntPredicate action) {
+        int capacity = values.length;
+        for (int pos = home(key, capacity); values[pos] != EMPTY; pos = next(pos, capacity)) {
+            if (values[pos] >= 0 && keys[pos] == key && !action.test(values[pos])) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Values of {@code key}, counted up to {@code limit}.
+     */
+    int count(int key, int limit) {
+        int count = 0;
+        int capacity = values.length;
+        for (int pos = home(key, capacity); values[pos] != EMPTY && count < limit; pos = next(pos, capacity)) {
+            if (values[pos] >= 0 && keys[pos] == key) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new int[capacity];
+        values = filled(capacity);
+        used = 0;
+        live = 0;
+        for (int pos = 0; pos < oldValues.length; pos++) {
+            if (oldValues[pos] >= 0) {
+                int target = home(oldKeys[pos], capacity);
+                while (values[target] != EMPTY) {
+                    target = next(target, capacity);
+                }
+                keys[target] = oldKeys[pos];
+                values[target] = oldValues[pos];
+                used++;
+                live++;
+            }
+        }
+    }
+
+    private static int home(int key, int capacity) {
+        // Multiply-shift instead of a power-of-two mask, so the table can grow by 1.5x
+        return (int) (((key * 0x9E3779B9L) & 0xFFFFFFFFL) * capacity >>> 32);
+    }
+
+    private static int next(int pos, int capacity) {
+        return pos + 1 == capacity ? 0 : pos + 1;
+    }
+
+    private static int[] filled(int capacity) {
+        int[] slots = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        return slots;
+    }
+}
@@ -0,0 +1,440 @@
+package com.aicodementor.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Turns raw model output into the Java source of one exercise class.
+ *
+ * The output is tokenized once with {@link JavaTokenizer}; a single walk over the tokens finds
+ * the code (imports and the first class, plus any further top-level types that follow it) and
+ * collects the rewrites, then the kept source is copied once with the rewrites applied:
+ * - prose before and after the code and markdown fences are dropped;
+ * - the class is renamed to the expected name;
+ * - solutions: {@code main} is removed unless the task asks for it;
+ * - tests: duplicated test methods and duplicated copies of the class are dropped, the JUnit
+ *   imports are added when missing, and garbled references to the class under test are fixed.
+ * Braces, keywords and names inside strings and comments are never mistaken for code, and the
+ * whitespace of the kept code is preserved.
+ */
+public final class JavaSnippetNormalizer {
+
+    private static final Set<String> MODIFIERS = Set.of(
+        "public", "protected", "private", "static", "final", "abstract", "sealed", "non-sealed", "strictfp");
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record");
+    private static final Set<String> AFTER_CLASS_NAME = Set.of("{", "extends", "implements", "<", "permits");
+
+    private static final String TEST_IMPORT = "import org.junit.jupiter.api.Test;";
+    private static final String ASSERTIONS_IMPORT = "import static org.junit.jupiter.api.Assertions.*;";
+
+    /** Names the model produces from the French "Écrire une fonction qui ..." task wording. */
+    private static final Map<String, String> GARBLED_NAMES = Map.of(
+        "Crire", "",
+        "CrireFonctionQui", "",
+        "Crirereverse", ".reverse"
+    );
+
+    private JavaSnippetNormalizer() {
+    }
+
+    /**
+     * Solution class named {@code className}; {@code main} is kept only when {@code keepMain}.
+     */
+    public static String solution(String raw, String className, boolean keepMain) {
+        return new Pass(raw, className, null, keepMain).run();
+    }
+
+    /**
+     * Test class named {@code testClassName}, whose references to the class under test
+     * ({@code testClassName} without the "Test" suffix) are fixed.
+     */
+    public static String tests(String raw, String testClassName) {
+        String classUnderTest = testClassName != null && testClassName.endsWith("Test")
+            ? testClassName.substring(0, testClassName.length() - 4) : null;
+        return new Pass(raw, testClassName, classUnderTest, true).run();
+    }
+
+    /**
+     * Every use of the identifier {@code from} in code renamed to {@code to}; strings, comments and
+     * longer names containing {@code from} are left alone.
+     */
+    public static String rename(String source, String from, String to) {
+        if (source == null || from.equals(to)) {
+            return source;
+        }
+        StringBuilder sb = new StringBuilder(source.length());
+        int copied = 0;
+        for (JavaTokenizer.Token t : JavaTokenizer.tokenize(source)) {
+            if (t.kind() == JavaTokenizer.Kind.IDENTIFIER && t.text().equals(from)) {
+                sb.append(source, copied, t.start()).append(to);
+                copied = t.end();
+            }
+        }
+        return sb.append(source, copied, source.length()).toString();
+    }
+
+    private record Edit(int start, int end, String replacement) {
+    }
+
+    private static final class Pass {
+        private final String source;
+        private final List<JavaTokenizer.Token> tokens;
+        private final String targetName;
+        private final String classUnderTest;
+        private final boolean tests;
+        private final boolean keepMain;
+        private final List<Edit> edits = new ArrayList<>();
+
+        private int firstImport = -1;
+        private int lastImportEnd = -1;
+        private boolean hasTestImport;
+        private boolean hasAssertionsImport;
+
+        Pass(String raw, String targetName, String classUnderTest, boolean keepMain) {
+            this.source = raw == null ? "" : raw;
+            this.tokens = JavaTokenizer.tokenize(source);
+            this.targetName = targetName;
+            this.classUnderTest = classUnderTest;
+            this.tests = classUnderTest != null;
+            this.keepMain = keepMain;
+        }
+
+        String run() {
+            int n = tokens.size();
+            int decl = findDeclaration();
+            if (decl < 0) {
+                // No class: keep everything from the first import, minus the fences
+                int from = firstImport >= 0 ? firstImport : 0;
+                collectFences(from, n);
+                return n == 0 ? "" : copy(tokens.get(from).start(), source.length());
+            }
+
+            int declStart = decl;
+            while (declStart > 0 && MODIFIERS.contains(tokens.get(declStart - 1).text())) {
+                declStart--;
+            }
+            int startToken = firstImport >= 0 && firstImport < declStart ? firstImport : declStart;
+
+            JavaTokenizer.Token name = tokens.get(decl + 1);
+            if (targetName != null && !targetName.isBlank() && !targetName.equals(name.text())) {
+                edits.add(new Edit(name.start(), name.end(), targetName));
+            }
+
+            int last = walkClass(decl + 2, true);
+            int end = source.length();
+            if (last >= 0) {
+                end = tokens.get(last).end();
+                Set<String> typeNames = new HashSet<>(Set.of(name.text()));
+                int next;
+                while ((next = followingDeclaration(last + 1, typeNames)) >= 0) {
+                    int closed = walkClass(next, false);
+                    if (closed < 0) {
+                        end = source.length();
+                        break;
+                    }
+                    last = closed;
+                    end = tokens.get(last).end();
+                }
+            }
+            collectFences(startToken, n);
+            if (tests) {
+                addJUnitImports(declStart);
+            }
+            return copy(tokens.get(startToken).start(), end);
+        }
+
+        /**
+         * Index of the first "class Name {" (or extends/implements/...), recording the imports before it.
+         */
+        private int findDeclaration() {
+            for (int i = 0; i < tokens.size(); i++) {
+                JavaTokenizer.Token t = tokens.get(i);
+                if (t.kind() == JavaTokenizer.Kind.KEYWORD && ("import".equals(t.text()) || "package".equals(t.text()))
+                        && startsLine(t)) {
+                    i = readImport(i);
+                    continue;
+                }
+                if (isTypeDeclaration(i) && "class".equals(t.text())) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private int readImport(int i) {
+            StringBuilder name = new StringBuilder();
+            int j = i + 1;
+            while (j < tokens.size() && !";".equals(tokens.get(j).text()) && !startsLine(tokens.get(j))) {
+                name.append(tokens.get(j).text());
+                j++;
+            }
+            if (firstImport < 0) {
+                firstImport = i;
+            }
+            String imported = name.toString();
+            hasTestImport |= imported.equals("org.junit.jupiter.api.Test") || imported.equals("org.junit.jupiter.api.*");
+            hasAssertionsImport |= imported.startsWith("staticorg.junit.jupiter.api.Assertions");
+            if (j < tokens.size() && ";".equals(tokens.get(j).text())) {
+                lastImportEnd = j;
+                return j;
+            }
+            lastImportEnd = j - 1;
+            return j - 1;
+        }
+
+        private boolean isTypeDeclaration(int i) {
+            JavaTokenizer.Token t = tokens.get(i);
+            if (!TYPE_KEYWORDS.contains(t.text()) || i + 2 >= tokens.size()
+                    || tokens.get(i + 1).kind() != JavaTokenizer.Kind.IDENTIFIER) {
+                return false;
+            }
+            boolean qualified = i > 0 && ".".equals(tokens.get(i - 1).text());
+            return !qualified && AFTER_CLASS_NAME.contains(tokens.get(i + 2).text());
+        }
+
+        /**
+         * Index of the next top-level type declaration keyword right after {@code from}
+         * (comments, modifiers and annotations allowed in between), or -1.
+         * A second copy of a type already kept ends the code.
+         */
+        private int followingDeclaration(int from, Set<String> typeNames) {
+            int i = from;
+            while (i < tokens.size()) {
+                JavaTokenizer.Token t = tokens.get(i);
+                if (t.kind() == JavaTokenizer.Kind.COMMENT || MODIFIERS.contains(t.text())) {
+                    i++;
+                } else if ("@".equals(t.text()) && i + 1 < tokens.size()) {
+                    i += 2;
+                } else if (isTypeDeclaration(i)) {
+                    return typeNames.add(tokens.get(i + 1).text()) ? i : -1;
+                } else {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Walks a class from its header to its closing brace and returns that brace's index
+         * (-1 when the output was cut off). Members of the primary class are inspected on the way:
+         * main and duplicated test methods are removed, references to the class under test fixed.
+         */
+        private int walkClass(int from, boolean primary) {
+            int i = from;
+            while (i < tokens.size() && !"{".equals(tokens.get(i).text())) {
+                i++;
+            }
+            int depth = 0;
+            int memberStart = -1;
+            String memberName = null;
+            String memberKey = null;
+            boolean memberStatic = false;
+            boolean memberTest = false;
+            Set<String> seenTests = new HashSet<>();
+
+            for (; i < tokens.size(); i++) {
+                JavaTokenizer.Token t = tokens.get(i);
+                String text = t.text();
+                if (t.kind() == JavaTokenizer.Kind.COMMENT) {
+                    continue;
+                }
+                if (tests && primary) {
+                    fixReference(i);
+                }
+                if ("{".equals(text)) {
+                    depth++;
+                    if (depth == 1) {
+                        memberStart = -1;
+                    }
+                    continue;
+                }
+                if ("}".equals(text)) {
+                    depth--;
+                    if (depth == 0) {
+                        return i;
+                    }
+                    if (depth == 1 && memberStart >= 0) {
+                        endMember(memberStart, i, memberName, memberKey, memberStatic, memberTest, seenTests, primary);
+                        memberStart = -1;
+                    }
+                    continue;
+                }
+                if (depth != 1) {
+                    continue;
+                }
+                if (memberStart < 0) {
+                    memberStart = i;
+                    memberName = null;
+                    memberKey = null;
+                    memberStatic = false;
+                    memberTest = false;
+                }
+                if (";".equals(text)) {
+                    endMember(memberStart, i, memberName, memberKey, memberStatic, memberTest, seenTests, primary);
+                    memberStart = -1;
+                } else if ("static".equals(text)) {
+                    memberStatic = true;
+                } else if ("@".equals(text) && i + 1 < tokens.size() && "Test".equals(tokens.get(i + 1).text())) {
+                    memberTest = true;
+                } else if (memberName == null && t.kind() == JavaTokenizer.Kind.IDENTIFIER
+                        && i + 1 < tokens.size() && "(".equals(tokens.get(i + 1).text())
+                        && !"@".equals(tokens.get(i - 1).text())) {
+                    memberName = text;
+                    memberKey = text + parameters(i + 1);
+                }
+            }
+            return -1;
+        }
+
+        private void endMember(int first, int last, String name, String key, boolean isStatic, boolean isTest,
+                               Set<String> seenTests, boolean primary) {
+            if (!primary || name == null) {
+                return;
+            }
+            boolean main = !tests && !keepMain && isStatic && "main".equals(name);
+            boolean duplicate = tests && isTest && !seenTests.add(key);
+            if (main || duplicate) {
+                edits.add(new Edit(lineStart(tokens.get(first).start()), lineEnd(tokens.get(last).end()), ""));
+            }
+        }
+
+        /**
+         * Parameter list of the method whose "(" is at {@code open}, whitespace removed.
+         */
+        private String parameters(int open) {
+            StringBuilder params = new StringBuilder();
+            int depth = 0;
+            for (int i = open; i < tokens.size(); i++) {
+                String text = tokens.get(i).text();
+                params.append(text);
+                if ("(".equals(text)) {
+                    depth++;
+                } else if (")".equals(text) && --depth == 0) {
+                    break;
+                }
+            }
+            return params.toString();
+        }
+
+        /**
+         * "Crire.reverse(" or "Cr.reverse(" in a test stands for the class under test.
+         * Only capitalized names are considered: lower-case ones are variables ({@code s.length()}).
+         */
+        private void fixReference(int i) {
+            JavaTokenizer.Token t = tokens.get(i);
+            if (t.kind() != JavaTokenizer.Kind.IDENTIFIER || t.text().equals(classUnderTest)
+                    || t.text().equals(targetName) || !Character.isUpperCase(t.text().charAt(0))
+                    || (i > 0 && ".".equals(tokens.get(i - 1).text()))) {
+                return;
+            }
+            String garbledSuffix = GARBLED_NAMES.get(t.text());
+            if (garbledSuffix != null) {
+                edits.add(new Edit(t.start(), t.end(), classUnderTest + garbledSuffix));
+                return;
+            }
+            boolean call = i + 3 < tokens.size() && ".".equals(tokens.get(i + 1).text())
+                && tokens.get(i + 2).kind() == JavaTokenizer.Kind.IDENTIFIER && "(".equals(tokens.get(i + 3).text());
+            String lower = t.text().toLowerCase(Locale.ROOT);
+            if (call && (lower.startsWith("crire") || lower.equals("cr"))) {
+                edits.add(new Edit(t.start(), t.end(), classUnderTest));
+            }
+        }
+
+        /**
+         * Drops markdown fences: three backticks and the language tag glued to them.
+         */
+        private void collectFences(int from, int to) {
+            for (int i = from; i + 2 < to; i++) {
+                JavaTokenizer.Token t = tokens.get(i);
+                if ("`".equals(t.text()) && "`".equals(tokens.get(i + 1).text()) && "`".equals(tokens.get(i + 2).text())) {
+                    int end = tokens.get(i + 2).end();
+                    if (i + 3 < to && tokens.get(i + 3).start() == end
+                            && tokens.get(i + 3).kind() == JavaTokenizer.Kind.IDENTIFIER) {
+                        end = tokens.get(i + 3).end();
+                    }
+                    edits.add(new Edit(t.start(), end, ""));
+                    i += 2;
+                }
+            }
+        }
+
+        private void addJUnitImports(int declStart) {
+            if (hasTestImport && hasAssertionsImport) {
+                return;
+            }
+            StringBuilder missing = new StringBuilder();
+            if (!hasTestImport) {
+                missing.append(TEST_IMPORT).append('\n');
+            }
+            if (!hasAssertionsImport) {
+                missing.append(ASSERTIONS_IMPORT).append('\n');
+            }
+            if (lastImportEnd >= 0 && lastImportEnd < declStart) {
+                int at = tokens.get(lastImportEnd).end();
+                edits.add(new Edit(at, at, "\n" + missing.substring(0, missing.length() - 1)));
+            } else {
+                int at = tokens.get(declStart).start();
+                edits.add(new Edit(at, at, missing + "\n"));
+            }
+        }
+
+        private String copy(int from, int to) {
+            edits.sort((a, b) -> a.start() != b.start() ? Integer.compare(a.start(), b.start())
+                : Integer.compare(b.end(), a.end()));
+            StringBuilder out = new StringBuilder(to - from + 128);
+            int cursor = from;
+            for (Edit edit : edits) {
+                if (edit.start() < cursor || edit.start() > to) {
+                    continue;
+                }
+                out.append(source, cursor, edit.start()).append(edit.replacement());
+                cursor = Math.min(to, Math.max(cursor, edit.end()));
+            }
+            if (cursor < to) {
+                out.append(source, cursor, to);
+            }
+            return out.toString().trim();
+        }
+
+        private boolean startsLine(JavaTokenizer.Token t) {
+            for (int i = t.start() - 1; i >= 0 && source.charAt(i) != '\n'; i--) {
+                if (!Character.isWhitespace(source.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Start of the line when only whitespace precedes {@code offset} on it, else {@code offset}.
+         */
+        private int lineStart(int offset) {
+            int i = offset;
+            while (i > 0 && source.charAt(i - 1) != '\n') {
+                if (!Character.isWhitespace(source.charAt(i - 1))) {
+                    return offset;
+                }
+                i--;
+            }
+            return i;
+        }
+
+        /**
+         * Past the line break when only whitespace follows {@code offset} on its line, else {@code offset}.
+         */
+        private int lineEnd(int offset) {
+            int i = offset;
+            while (i < source.length() && source.charAt(i) != '\n') {
+                if (!Character.isWhitespace(source.charAt(i))) {
+                    return offset;
+                }
+                i++;
+            }
+            return Math.min(source.length(), i + 1);
+        }
+    }
+}
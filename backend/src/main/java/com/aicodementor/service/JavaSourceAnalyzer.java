@@ -0,0 +1,158 @@
+package com.aicodementor.service;
+
+import com.sun.source.tree.AnnotationTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.SourcePositions;
+import com.sun.source.util.Trees;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.lang.model.element.Modifier;
+import javax.lang.model.SourceVersion;
+import javax.tools.*;
+import java.net.URI;
+import java.util.*;
+
+/**
+ * Parses Java sources with the compiler tree API ({@link JavacTask#parse()}: syntax only, no
+ * attribution, so it is fast and tolerates code that does not compile) and caches the resulting
+ * {@link JavaSourceModel} by source hash: a submission is parsed once for compilation, test
+ * discovery and hint prompts.
+ */
+@Service
+public class JavaSourceAnalyzer {
+
+    private static final Logger logger = LoggerFactory.getLogger(JavaSourceAnalyzer.class);
+
+    private final int maxEntries;
+    private final Map<String, JavaSourceModel> models;
+
+    public JavaSourceAnalyzer(@Value("${llm.source-model.cache-entries:1000}") int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.models = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, JavaSourceModel> eldest) {
+                return size() > JavaSourceAnalyzer.this.maxEntries;
+            }
+        };
+    }
+
+    public JavaSourceModel analyze(String source) {
+        if (source == null || source.isBlank()) {
+            return JavaSourceModel.unparsed(source == null ? "" : source);
+        }
+        String key = ContentHash.sha256(source);
+        synchronized (models) {
+            JavaSourceModel cached = models.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JavaSourceModel model = parse(source);
+        synchronized (models) {
+            models.put(key, model);
+        }
+        return model;
+    }
+
+    private JavaSourceModel parse(String source) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        if (compiler == null) {
+            return JavaSourceModel.unparsed(source);
+        }
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///Source.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        try {
+            // Syntax errors are reported here and ignored: the parser recovers and still builds a tree
+            DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+            JavacTask task = (JavacTask) compiler.getTask(null, null, diagnostics,
+                List.of("-proc:none"), null, List.of(file));
+            SourcePositions positions = Trees.instance(task).getSourcePositions();
+            List<JavaSourceModel.TypeInfo> types = new ArrayList<>();
+            for (CompilationUnitTree unit : task.parse()) {
+                for (Tree declaration : unit.getTypeDecls()) {
+                    if (declaration instanceof ClassTree type) {
+                        collect(type, true, source, unit, positions, types);
+                    }
+                }
+            }
+            return new JavaSourceModel(source, true, List.copyOf(types));
+        } catch (Exception e) {
+            logger.warn("Could not parse Java source: {}", e.getMessage());
+            return JavaSourceModel.unparsed(source);
+        }
+    }
+
+    private void collect(ClassTree type, boolean topLevel, String source, CompilationUnitTree unit,
+                         SourcePositions positions, List<JavaSourceModel.TypeInfo> out) {
+        String name = type.getSimpleName().toString();
+        if (!SourceVersion.isIdentifier(name)) {
+            return;
+        }
+        List<JavaSourceModel.MethodInfo> methods = new ArrayList<>();
+        List<ClassTree> nested = new ArrayList<>();
+        for (Tree member : type.getMembers()) {
+            if (member instanceof MethodTree method && method.getReturnType() != null) {
+                Set<Modifier> flags = method.getModifiers().getFlags();
+                methods.add(new JavaSourceModel.MethodInfo(
+                    method.getName().toString(),
+                    flags.contains(Modifier.STATIC),
+                    flags.contains(Modifier.PUBLIC),
+                    method.getReturnType().toString(),
+                    method.getParameters().stream().map(VariableTree::getType).map(Tree::toString).toList(),
+                    method.getModifiers().getAnnotations().stream()
+                        .map(AnnotationTree::getAnnotationType).map(Tree::toString).toList(),
+                    signature(method, source, unit, positions),
+                    (int) positions.getStartPosition(unit, method),
+                    (int) positions.getEndPosition(unit, method)));
+            } else if (member instanceof ClassTree inner) {
+                nested.add(inner);
+            }
+        }
+        out.add(new JavaSourceModel.TypeInfo(
+            name,
+            topLevel,
+            type.getModifiers().getFlags().contains(Modifier.PUBLIC),
+            (int) positions.getStartPosition(unit, type),
+            (int) positions.getEndPosition(unit, type),
+            (int) positions.getStartPosition(unit, type.getModifiers()),
+            (int) positions.getEndPosition(unit, type.getModifiers()),
+            List.copyOf(methods)));
+        for (ClassTree inner : nested) {
+            collect(inner, false, source, unit, positions, out);
+        }
+    }
+
+    /**
+     * Source text between the annotations and the body, whitespace collapsed.
+     */
+    private static String signature(MethodTree method, String source, CompilationUnitTree unit,
+                                    SourcePositions positions) {
+        List<? extends AnnotationTree> annotations = method.getModifiers().getAnnotations();
+        long from = annotations.isEmpty()
+            ? positions.getStartPosition(unit, method)
+            : positions.getEndPosition(unit, annotations.get(annotations.size() - 1));
+        long to = method.getBody() != null
+            ? positions.getStartPosition(unit, method.getBody())
+            : positions.getEndPosition(unit, method);
+        if (from < 0 || to <= from || to > source.length()) {
+            return method.getReturnType() + " " + method.getName() + "(...)";
+        }
+        String text = source.substring((int) from, (int) to).trim();
+        if (text.endsWith(";")) {
+            text = text.substring(0, text.length() - 1);
+        }
+        return text.replaceAll("\\s+", " ").trim();
+    }
+}
@@ -0,0 +1,95 @@
+package com.aicodementor.service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Structure of one Java source: its classes and their methods, with source offsets.
+ * Built by {@link JavaSourceAnalyzer}; {@code parsed} is false when no parser was available,
+ * in which case the model is empty and callers use their defaults.
+ */
+public record JavaSourceModel(String source, boolean parsed, List<TypeInfo> types) {
+
+    /**
+     * A class (or interface, enum, record). Offsets are -1 when unknown; {@code modifiersStart}
+     * and {@code modifiersEnd} delimit the modifiers and annotations in front of the declaration.
+     */
+    public record TypeInfo(String name, boolean topLevel, boolean isPublic,
+                           int start, int end, int modifiersStart, int modifiersEnd,
+                           List<MethodInfo> methods) {
+    }
+
+    /**
+     * A method (constructors excluded). Types are as written in the source ("List<Integer>", "int[]");
+     * {@code annotations} holds the annotation names as written ("Test"); {@code signature} is the
+     * declaration without annotations and body, on one line ("public static int somme(int[] tab)").
+     */
+    public record MethodInfo(String name, boolean isStatic, boolean isPublic, String returnType,
+                             List<String> parameterTypes, List<String> annotations, String signature,
+                             int start, int end) {
+
+        public boolean isTest() {
+            return annotations.contains("Test") || annotations.contains("org.junit.jupiter.api.Test");
+        }
+    }
+
+    static JavaSourceModel unparsed(String source) {
+        return new JavaSourceModel(source, false, List.of());
+    }
+
+    /**
+     * The class a file would be named after: the first public top-level class, else the first one.
+     */
+    public Optional<TypeInfo> primaryType() {
+        Optional<TypeInfo> publicType = types.stream().filter(t -> t.topLevel() && t.isPublic()).findFirst();
+        return publicType.isPresent() ? publicType : types.stream().filter(TypeInfo::topLevel).findFirst();
+    }
+
+    public String className(String fallback) {
+        return primaryType().map(TypeInfo::name).orElse(fallback);
+    }
+
+    /**
+     * First top-level class whose name contains "Test".
+     */
+    public String testClassName(String fallback) {
+        return types.stream()
+            .filter(t -> t.topLevel() && t.name().contains("Test"))
+            .map(TypeInfo::name)
+            .findFirst()
+            .orElse(fallback);
+    }
+
+    /**
+     * First static method of the primary class other than {@code main}: the method an exercise asks for.
+     */
+    public Optional<MethodInfo> firstStaticMethod() {
+        return primaryType().flatMap(t -> t.methods().stream()
+            .filter(m -> m.isStatic() && !"main".equals(m.name()))
+            .findFirst());
+    }
+
+    /**
+     * First method named {@code name}, looked up in the primary class first.
+     */
+    public Optional<MethodInfo> method(String name) {
+        Optional<TypeInfo> primary = primaryType();
+        Optional<MethodInfo> inPrimary = primary.flatMap(t -> t.methods().stream()
+            .filter(m -> m.name().equals(name)).findFirst());
+        if (inPrimary.isPresent()) {
+            return inPrimary;
+        }
+        return types.stream()
+            .flatMap(t -> t.methods().stream())
+            .filter(m -> m.name().equals(name))
+            .findFirst();
+    }
+
+    /**
+     * Source text of a method, annotations included, or null when its extent is unknown.
+     */
+    public String text(MethodInfo method) {
+        return method.start() >= 0 && method.end() > method.start() && method.end() <= source.length()
+            ? source.substring(method.start(), method.end()) : null;
+    }
+}
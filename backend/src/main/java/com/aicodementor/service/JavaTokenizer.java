@@ -0,0 +1,141 @@
+package com.aicodementor.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Minimal single-pass Java lexer.
+ * Good enough for fingerprinting and normalizing snippets; it does not validate the code
+ * and never throws, so half-written student code still tokenizes.
+ */
+public final class JavaTokenizer {
+
+    public enum Kind {
+        KEYWORD,
+        IDENTIFIER,
+        NUMBER,
+        STRING,
+        CHAR,
+        OPERATOR,
+        COMMENT
+    }
+
+    /**
+     * One token; {@code start} is its offset in the source, so callers can rewrite the source
+     * while keeping the whitespace between tokens.
+     */
+    public record Token(Kind kind, String text, int start) {
+
+        public int end() {
+            return start + text.length();
+        }
+    }
+
+    private static final Set<String> KEYWORDS = Set.of(
+        "abstract", "assert", "boolean", "break", "byte", "case", "catch", "char", "class", "const",
+        "continue", "default", "do", "double", "else", "enum", "extends", "final", "finally", "float",
+        "for", "goto", "if", "implements", "import", "instanceof", "int", "interface", "long", "native",
+        "new", "package", "private", "protected", "public", "return", "short", "static", "strictfp",
+        "super", "switch", "synchronized", "this", "throw", "throws", "transient", "try", "void",
+        "volatile", "while", "var", "record", "yield", "true", "false", "null"
+    );
+
+    private JavaTokenizer() {
+    }
+
+    /**
+     * Tokens of {@code source} without whitespace; comments are kept as {@link Kind#COMMENT}.
+     */
+    public static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        if (source == null) {
+            return tokens;
+        }
+        int n = source.length();
+        int i = 0;
+        while (i < n) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < n && source.charAt(i + 1) == '/') {
+                int end = source.indexOf('\n', i);
+                end = end < 0 ? n : end;
+                tokens.add(new Token(Kind.COMMENT, source.substring(i, end), i));
+                i = end;
+            } else if (c == '/' && i + 1 < n && source.charAt(i + 1) == '*') {
+                int end = source.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                tokens.add(new Token(Kind.COMMENT, source.substring(i, end), i));
+                i = end;
+            } else if (c == '"' || c == '\'') {
+                int end = skipQuoted(source, i, c);
+                tokens.add(new Token(c == '"' ? Kind.STRING : Kind.CHAR, source.substring(i, end), i));
+                i = end;
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int end = i + 1;
+                while (end < n && Character.isJavaIdentifierPart(source.charAt(end))) {
+                    end++;
+                }
+                String word = source.substring(i, end);
+                tokens.add(new Token(KEYWORDS.contains(word) ? Kind.KEYWORD : Kind.IDENTIFIER, word, i));
+                i = end;
+            } else if (Character.isDigit(c) || (c == '.' && i + 1 < n && Character.isDigit(source.charAt(i + 1)))) {
+                int end = i + 1;
+                while (end < n && (Character.isLetterOrDigit(source.charAt(end))
+                    || source.charAt(end) == '.' || source.charAt(end) == '_')) {
+                    end++;
+                }
+                tokens.add(new Token(Kind.NUMBER, source.substring(i, end), i));
+                i = end;
+            } else {
+                int end = operatorEnd(source, i);
+                tokens.add(new Token(Kind.OPERATOR, source.substring(i, end), i));
+                i = end;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * End index (exclusive) of a quoted literal; text blocks and escapes are handled,
+     * an unterminated literal runs to the end of the line.
+     */
+    private static int skipQuoted(String source, int start, char quote) {
+        int n = source.length();
+        if (quote == '"' && source.startsWith("\"\"\"", start)) {
+            int end = source.indexOf("\"\"\"", start + 3);
+            return end < 0 ? n : end + 3;
+        }
+        int i = start + 1;
+        while (i < n) {
+            char c = source.charAt(i);
+            if (c == '\\') {
+                i += 2;
+                continue;
+            }
+            if (c == quote) {
+                return i + 1;
+            }
+            if (c == '\n') {
+                return i;
+            }
+            i++;
+        }
+        return n;
+    }
+
+    private static final String[] OPERATORS = {
+        ">>>=", "<<=", ">>=", ">>>", "...", "->", "::", "++", "--", "&&", "||",
+        "==", "!=", "<=", ">=", "+=", "-=", "*=", "/=", "%=", "&=", "|=", "^=", "<<", ">>"
+    };
+
+    private static int operatorEnd(String source, int start) {
+        for (String op : OPERATORS) {
+            if (source.startsWith(op, start)) {
+                return start + op.length();
+            }
+        }
+        return start + 1;
+    }
+}
@@ -0,0 +1,645 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.KnowledgeBase;
+import com.aicodementor.repository.KnowledgeBaseRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Similarity search over {@code knowledge_base}.
+ *
+ * One {@link HnswIndex} per content type ("hint", "exercise_example"...), loaded from the
+ * stored embeddings at startup and updated as rows are indexed. Embeddings are computed locally
+ * by the configured {@link EmbeddingProvider} and kept unit length, so similarity is cosine.
+ * They are stored in binary ({@link VectorCodec}, float32 or int8) with the original norm;
+ * JSON embeddings of older rows are converted at startup.
+ * A search restricted to one exercise scans that exercise's entries exactly when there are few
+ * of them, since a graph search with a very selective filter would visit most of the graph.
+ *
+ * Vectors live on the heap or, with {@code embedding.storage.tier: mapped}, off-heap in
+ * memory-mapped segment files ({@link MappedVectorStorage}). Updated and removed entries leave
+ * tombstones; a background task rebuilds an index into fresh storage once they pass
+ * {@code deleted-ratio}, replaying the writes made meanwhile before swapping it in.
+ */
+@Service
+public class KnowledgeIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIndexService.class);
+
+    private static final int LOAD_PAGE_SIZE = 1000;
+
+    public record KnowledgeMatch(long id, String contentType, Long exerciseId, float score) {
+    }
+
+    private record Entry(String contentType, Long exerciseId) {
+    }
+
+    /**
+     * Current index of one content type. While it is compacted, writes are also recorded in
+     * {@code replay}, to be applied to the rebuilt index before it replaces this one.
+     */
+    private static final class IndexSlot {
+        volatile HnswIndex index;
+        List<Consumer<HnswIndex>> replay;
+
+        IndexSlot(HnswIndex index) {
+            this.index = index;
+        }
+    }
+
+    private final KnowledgeBaseRepository knowledgeBaseRepository;
+    private final ObjectMapper objectMapper;
+    private final EmbeddingProvider provider;
+    private final boolean enabled;
+    private final int dimension;
+    private final int maxTokens;
+    private final int m;
+    private final int efConstruction;
+    private final int efSearch;
+    private final int exactScanLimit;
+    private final VectorCodec.Format storageFormat;
+    private final int migrationBatchSize;
+    private final boolean mappedTier;
+    private final Path segmentDirectory;
+    private final int segmentVectors;
+    private final long compactionIntervalMs;
+    private final int compactionMinDeleted;
+    private final double compactionDeletedRatio;
+
+    private final Map<String, IndexSlot> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, Set<Long>> idsByExercise = new ConcurrentHashMap<>();
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong searchNanos = new AtomicLong();
+    private final AtomicLong embedded = new AtomicLong();
+    private final AtomicLong embedFailures = new AtomicLong();
+    private final AtomicLong rejectedTexts = new AtomicLong();
+    private final AtomicLong compactions = new AtomicLong();
+    private final AtomicLong storageGeneration = new AtomicLong();
+    private volatile int skippedAtLoad;
+    private final ScheduledExecutorService compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "knowledge-index-compactor");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public KnowledgeIndexService(KnowledgeBaseRepository knowledgeBaseRepository,
+                                 ObjectMapper objectMapper,
+                                 List<EmbeddingProvider> providers,
+                                 @Value("${embedding.provider:llamacpp}") String providerName,
+                                 @Value("${embedding.enabled:true}") boolean enabled,
+                                 @Value("${embedding.dimension:384}") int dimension,
+                                 @Value("${embedding.max-tokens:510}") int maxTokens,
+                                 @Value("${embedding.index.m:16}") int m,
+                                 @Value("${embedding.index.ef-construction:100}") int efConstruction,
+                                 @Value("${embedding.index.ef-search:64}") int efSearch,
+                                 @Value("${embedding.index.exact-scan-limit:2000}") int exactScanLimit,
+                                 @Value("${embedding.storage.format:float32}") String storageFormat,
+                                 @Value("${embedding.storage.migration-batch:500}") int migrationBatchSize,
+                                 @Value("${embedding.storage.tier:heap}") String storageTier,
+                                 @Value("${embedding.storage.segment-dir:./data/vectors}") String segmentDirectory,
+                                 @Value("${embedding.storage.segment-vectors:65536}") int segmentVectors,
+                                 @Value("${embedding.index.compaction.interval-ms:60000}") long compactionIntervalMs,
+                                 @Value("${embedding.index.compaction.min-deleted:1000}") int compactionMinDeleted,
+                                 @Value("${embedding.index.compaction.deleted-ratio:0.3}") double compactionDeletedRatio) {
+        this.knowledgeBaseRepository = knowledgeBaseRepository;
+        this.objectMapper = objectMapper;
+        this.provider = providers.stream()
+            .filter(p -> p.name().equalsIgnoreCase(providerName))
+            .findFirst()
+            .orElseThrow(() -> new IllegalArgumentException("Unknown embedding provider: " + providerName));
+        this.enabled = enabled;
+        this.dimension = dimension;
+        this.maxTokens = Math.max(16, maxTokens);
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.efSearch = Math.max(1, efSearch);
+        this.exactScanLimit = Math.max(0, exactScanLimit);
+        this.storageFormat = VectorCodec.Format.valueOf(storageFormat.trim().toUpperCase(Locale.ROOT));
+        this.migrationBatchSize = Math.max(1, migrationBatchSize);
+        this.mappedTier = "mapped".equalsIgnoreCase(storageTier.trim());
+        this.segmentDirectory = Path.of(segmentDirectory);
+        this.segmentVectors = Math.max(1, segmentVectors);
+        this.compactionIntervalMs = compactionIntervalMs;
+        this.compactionMinDeleted = Math.max(1, compactionMinDeleted);
+        this.compactionDeletedRatio = Math.min(1.0, Math.max(0.0, compactionDeletedRatio));
+    }
+
+    /**
+     * Converts JSON embeddings, then indexes every stored embedding of the expected dimension.
+     * Rows embedded by another model (other dimension) are skipped until they are embedded again.
+     * Blobs are decoded into one reused array: nothing is parsed or boxed per component.
+     */
+    @PostConstruct
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        if (mappedTier) {
+            clearSegmentDirectory();
+        }
+        migrateJsonEmbeddings();
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+        int skipped = 0;
+        float[] scratch = new float[dimension];
+        try {
+            long lastId = 0;
+            List<Object[]> page;
+            while (!(page = knowledgeBaseRepository.findEmbeddingsAfter(lastId, PageRequest.of(0, LOAD_PAGE_SIZE))).isEmpty()) {
+                for (Object[] row : page) {
+                    lastId = (Long) row[0];
+                    byte[] blob = (byte[]) row[3];
+                    if (!decodeInto(blob, scratch)) {
+                        skipped++;
+                        continue;
+                    }
+                    add(lastId, (String) row[1], (Long) row[2], scratch);
+                    loaded++;
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load knowledge base embeddings: {}", e.getMessage());
+        }
+        skippedAtLoad = skipped;
+        logger.info("Knowledge index loaded {} vector(s) in {} ms with provider '{}', {} storage ({} skipped)",
+            loaded, System.currentTimeMillis() - start, provider.name(), mappedTier ? "mapped" : "heap", skipped);
+        if (compactionIntervalMs > 0) {
+            compactor.scheduleWithFixedDelay(this::compactAll, compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        compactor.shutdownNow();
+        indexes.values().forEach(slot -> slot.index.close());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Unit-length embedding of {@code text}, or null when the provider is unavailable.
+     */
+    public float[] embed(String text) {
+        float[] vector = embedRaw(text);
+        return vector != null ? normalize(vector) : null;
+    }
+
+    /**
+     * Embeds the row's content when it has no embedding yet, saves it and adds it to the index.
+     * Returns the saved row; it is saved unindexed when no embedding could be computed.
+     */
+    public KnowledgeBase index(KnowledgeBase row) {
+        return index(row, row.getContent());
+    }
+
+    /**
+     * Same, but embeds {@code embeddingText} rather than the content, for rows looked up by something
+     * other than what they hold (a hint is found by the failure it explains).
+     */
+    public KnowledgeBase index(KnowledgeBase row, String embeddingText) {
+        float[] vector = new float[dimension];
+        if (!decodeInto(row.getEmbeddingVector(), vector)) {
+            vector = null;
+            float[] raw = embedRaw(embeddingText);
+            if (raw != null) {
+                vector = normalize(raw);
+                store(row, vector, VectorCodec.norm(raw));
+            } else {
+                row.setEmbeddingVector(null);
+                row.setEmbeddingNorm(null);
+            }
+        }
+        KnowledgeBase saved = knowledgeBaseRepository.save(row);
+        if (vector != null) {
+            Long exerciseId = saved.getExercise() != null ? saved.getExercise().getId() : null;
+            add(saved.getId(), saved.getContentType(), exerciseId, vector);
+        }
+        return saved;
+    }
+
+    /**
+     * Batch form of {@link #index(KnowledgeBase, String)}: the rows without an embedding are embedded
+     * in one provider call, then all rows are saved and indexed. When the batch call fails the rows
+     * are embedded one by one; a row the provider still rejects is saved without an embedding (not
+     * searchable) so one bad text cannot hold up the others. Returns null and saves nothing only
+     * when the provider is unavailable, so the caller can retry the whole batch later.
+     */
+    public List<KnowledgeBase> indexAll(List<KnowledgeBase> rows, List<String> embeddingTexts) {
+        List<float[]> vectors = new ArrayList<>(rows.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < rows.size(); i++) {
+            float[] vector = new float[dimension];
+            if (decodeInto(rows.get(i).getEmbeddingVector(), vector)) {
+                vectors.add(vector);
+            } else {
+                vectors.add(null);
+                missing.add(i);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<String> texts = missing.stream().map(embeddingTexts::get).toList();
+            List<float[]> raw = embedAllRaw(texts);
+            if (raw == null) {
+                raw = embedEachRaw(texts);
+                if (raw == null) {
+                    return null;
+                }
+            }
+            for (int j = 0; j < missing.size(); j++) {
+                int i = missing.get(j);
+                if (raw.get(j) == null) {
+                    rows.get(i).setEmbeddingVector(null);
+                    rows.get(i).setEmbeddingNorm(null);
+                    continue;
+                }
+                float[] unit = normalize(raw.get(j));
+                store(rows.get(i), unit, VectorCodec.norm(raw.get(j)));
+                vectors.set(i, unit);
+            }
+        }
+        List<KnowledgeBase> saved = knowledgeBaseRepository.saveAll(rows);
+        for (int i = 0; i < saved.size(); i++) {
+            KnowledgeBase row = saved.get(i);
+            add(row.getId(), row.getContentType(), row.getExercise() != null ? row.getExercise().getId() : null, vectors.get(i));
+        }
+        return saved;
+    }
+
+    /**
+     * Adds or replaces an entry; {@code vector} must be unit length.
+     */
+    public void add(Long id, String contentType, Long exerciseId, float[] vector) {
+        if (!enabled || id == null || contentType == null || vector == null || vector.length != dimension) {
+            return;
+        }
+        Entry previous = entries.put(id, new Entry(contentType, exerciseId));
+        if (previous != null) {
+            forget(id, previous);
+        }
+        IndexSlot slot = indexes.computeIfAbsent(contentType, type -> new IndexSlot(newIndex(type)));
+        synchronized (slot) {
+            slot.index.add(id, vector);
+            if (slot.replay != null) {
+                float[] copy = vector.clone();
+                slot.replay.add(index -> index.add(id, copy));
+            }
+        }
+        if (exerciseId != null) {
+            idsByExercise.computeIfAbsent(exerciseId, key -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+    }
+
+    /**
+     * Removes an entry from the index (not from the table).
+     */
+    public void remove(Long id) {
+        if (id == null) {
+            return;
+        }
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            forget(id, entry);
+        }
+    }
+
+    /**
+     * The {@code k} entries of {@code contentType} most similar to {@code text}, best first,
+     * restricted to one exercise when {@code exerciseId} is not null.
+     */
+    public List<KnowledgeMatch> search(String contentType, String text, int k, Long exerciseId) {
+        float[] query = embed(text);
+        return query != null ? search(contentType, query, k, exerciseId) : List.of();
+    }
+
+    public List<KnowledgeMatch> search(String contentType, float[] query, int k, Long exerciseId) {
+        IndexSlot slot = indexes.get(contentType);
+        if (!enabled || slot == null || query == null || query.length != dimension) {
+            return List.of();
+        }
+        HnswIndex index = slot.index;
+        long start = System.nanoTime();
+        List<HnswIndex.Match> matches;
+        if (exerciseId == null) {
+            matches = index.search(query, k, efSearch, null);
+        } else {
+            Set<Long> ids = idsByExercise.getOrDefault(exerciseId, Set.of());
+            matches = ids.size() <= exactScanLimit
+                ? index.exact(query, k, ids)
+                : index.search(query, k, efSearch, id -> {
+                    Entry entry = entries.get(id);
+                    return entry != null && exerciseId.equals(entry.exerciseId());
+                });
+        }
+        searches.incrementAndGet();
+        searchNanos.addAndGet(System.nanoTime() - start);
+
+        List<KnowledgeMatch> result = new ArrayList<>(matches.size());
+        for (HnswIndex.Match match : matches) {
+            Entry entry = entries.get(match.id());
+            if (entry != null) {
+                result.add(new KnowledgeMatch(match.id(), entry.contentType(), entry.exerciseId(), match.score()));
+            }
+        }
+        return result;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("provider", provider.name());
+        stats.put("dimension", dimension);
+        Map<String, Object> perType = new TreeMap<>();
+        indexes.forEach((type, slot) -> {
+            HnswIndex index = slot.index;
+            perType.put(type, Map.of("size", index.size(), "deleted", index.nodes() - index.size()));
+        });
+        stats.put("indexes", perType);
+        stats.put("storageTier", mappedTier ? "mapped" : "heap");
+        stats.put("compactions", compactions.get());
+        stats.put("skippedAtLoad", skippedAtLoad);
+        long count = searches.get();
+        stats.put("searches", count);
+        stats.put("avgSearchMicros", count > 0 ? Math.round(searchNanos.get() / 1000.0 / count * 10) / 10.0 : 0);
+        stats.put("embedded", embedded.get());
+        stats.put("embedFailures", embedFailures.get());
+        stats.put("rejectedTexts", rejectedTexts.get());
+        stats.put("maxTokens", maxTokens);
+        return stats;
+    }
+
+    // ============================================================
+    // Vectors
+    // ============================================================
+    private float[] embedRaw(String text) {
+        if (!enabled || text == null || text.isBlank()) {
+            return null;
+        }
+        try {
+            float[] vector = provider.embed(provider.truncate(text, maxTokens));
+            embedded.incrementAndGet();
+            return checkDimension(vector) ? vector : null;
+        } catch (RuntimeException e) {
+            embedFailures.incrementAndGet();
+            logger.debug("Embedding failed with provider '{}': {}", provider.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    private List<float[]> embedAllRaw(List<String> texts) {
+        if (!enabled) {
+            return null;
+        }
+        try {
+            List<float[]> vectors = provider.embedAll(texts.stream().map(text -> provider.truncate(text, maxTokens)).toList());
+            embedded.addAndGet(vectors.size());
+            for (float[] vector : vectors) {
+                if (!checkDimension(vector)) {
+                    return null;
+                }
+            }
+            return vectors;
+        } catch (RuntimeException e) {
+            embedFailures.incrementAndGet();
+            logger.debug("Batch embedding of {} text(s) failed with provider '{}': {}",
+                texts.size(), provider.name(), e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Embeds the texts one at a time, with null for each text the provider rejects; null when none
+     * could be embedded and the provider does not answer a trivial text either (it is down).
+     */
+    private List<float[]> embedEachRaw(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        int rejected = 0;
+        for (String text : texts) {
+            float[] vector = embedRaw(text);
+            vectors.add(vector);
+            if (vector == null) {
+                rejected++;
+            }
+        }
+        if (rejected == texts.size() && embedRaw("ping") == null) {
+            return null;
+        }
+        if (rejected > 0) {
+            rejectedTexts.addAndGet(rejected);
+            logger.warn("Embedding provider '{}' rejected {} of {} text(s); saved without embedding",
+                provider.name(), rejected, texts.size());
+        }
+        return vectors;
+    }
+
+    /**
+     * Decodes a stored blob of the expected dimension into {@code out} as a unit vector.
+     */
+    private boolean decodeInto(byte[] blob, float[] out) {
+        try {
+            if (blob == null || blob.length == 0 || VectorCodec.dimension(blob) != dimension) {
+                return false;
+            }
+            VectorCodec.decode(blob, out);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // float32 vectors are stored unit length; int8 rounding moves the norm slightly
+        if (VectorCodec.format(blob) == VectorCodec.Format.INT8) {
+            normalizeInPlace(out);
+        }
+        return true;
+    }
+
+    private void store(KnowledgeBase row, float[] unit, float norm) {
+        row.setEmbeddingVector(VectorCodec.encode(unit, storageFormat));
+        row.setEmbeddingNorm(norm);
+        row.setEmbeddingJson(null);
+    }
+
+    private boolean checkDimension(float[] vector) {
+        if (vector.length == dimension) {
+            return true;
+        }
+        logger.warn("Embedding provider '{}' returned {} dimensions, embedding.dimension is {}",
+            provider.name(), vector.length, dimension);
+        return false;
+    }
+
+    private void forget(Long id, Entry entry) {
+        IndexSlot slot = indexes.get(entry.contentType());
+        if (slot != null) {
+            synchronized (slot) {
+                slot.index.remove(id);
+                if (slot.replay != null) {
+                    slot.replay.add(index -> index.remove(id));
+                }
+            }
+        }
+        if (entry.exerciseId() != null) {
+            Set<Long> ids = idsByExercise.get(entry.exerciseId());
+            if (ids != null) {
+                ids.remove(id);
+            }
+        }
+    }
+
+    static float[] normalize(float[] vector) {
+        float[] unit = vector.clone();
+        normalizeInPlace(unit);
+        return unit;
+    }
+
+    private static void normalizeInPlace(float[] vector) {
+        float norm = VectorCodec.norm(vector);
+        if (norm == 0) {
+            return;
+        }
+        float scale = 1f / norm;
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    // ============================================================
+    // Storage and compaction
+    // ============================================================
+    private HnswIndex newIndex(String contentType) {
+        VectorStorage storage = mappedTier
+            ? new MappedVectorStorage(segmentDirectory.resolve(
+                contentType.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + storageGeneration.incrementAndGet()),
+                dimension, segmentVectors)
+            : new HeapVectorStorage(dimension);
+        return new HnswIndex(storage, m, efConstruction);
+    }
+
+    void compactAll() {
+        indexes.forEach((contentType, slot) -> {
+            HnswIndex index = slot.index;
+            int deleted = index.nodes() - index.size();
+            if (deleted >= compactionMinDeleted && deleted > index.nodes() * compactionDeletedRatio) {
+                compact(contentType, slot);
+            }
+        });
+    }
+
+    /**
+     * Rebuilds an index from its live vectors into fresh storage; searches keep using the old one
+     * until the swap, and the old storage is released once its running searches are done.
+     */
+    private void compact(String contentType, IndexSlot slot) {
+        long start = System.currentTimeMillis();
+        HnswIndex old;
+        synchronized (slot) {
+            old = slot.index;
+            slot.replay = new ArrayList<>();
+        }
+        HnswIndex fresh = newIndex(contentType);
+        try {
+            for (long id : old.liveIds()) {
+                float[] vector = old.vector(id);
+                if (vector != null) {
+                    fresh.add(id, vector);
+                }
+            }
+        } catch (RuntimeException e) {
+            synchronized (slot) {
+                slot.replay = null;
+            }
+            fresh.close();
+            logger.warn("Compaction of the '{}' index failed: {}", contentType, e.getMessage());
+            return;
+        }
+        int deleted;
+        synchronized (slot) {
+            slot.replay.forEach(write -> write.accept(fresh));
+            slot.replay = null;
+            slot.index = fresh;
+            deleted = old.nodes() - fresh.size();
+        }
+        old.close();
+        compactions.incrementAndGet();
+        logger.info("Compacted the '{}' index: {} live vector(s), {} dropped, in {} ms",
+            contentType, fresh.size(), deleted, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Segment files are a working copy of the table: leftovers of a previous run are deleted.
+     */
+    private void clearSegmentDirectory() {
+        if (!Files.isDirectory(segmentDirectory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(segmentDirectory)) {
+            paths.sorted(Comparator.reverseOrder())
+                .filter(path -> !path.equals(segmentDirectory))
+                .forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            logger.warn("Could not clear vector segment directory {}: {}", segmentDirectory, e.getMessage());
+        }
+    }
+
+    // ============================================================
+    // Migration of JSON embeddings
+    // ============================================================
+    /**
+     * Rewrites rows that still hold a JSON embedding into the binary column, in batches.
+     * Unreadable JSON is dropped: the row is embedded again when it is next indexed.
+     */
+    void migrateJsonEmbeddings() {
+        long start = System.currentTimeMillis();
+        int migrated = 0;
+        int dropped = 0;
+        try {
+            List<KnowledgeBase> batch;
+            while (!(batch = knowledgeBaseRepository.findByEmbeddingJsonIsNotNull(PageRequest.of(0, migrationBatchSize))).isEmpty()) {
+                for (KnowledgeBase row : batch) {
+                    float[] raw = parseVector(row.getEmbeddingJson());
+                    if (raw != null && raw.length > 0) {
+                        store(row, normalize(raw), VectorCodec.norm(raw));
+                        migrated++;
+                    } else {
+                        row.setEmbeddingJson(null);
+                        dropped++;
+                    }
+                }
+                knowledgeBaseRepository.saveAll(batch);
+            }
+        } catch (Exception e) {
+            logger.warn("Could not migrate JSON embeddings: {}", e.getMessage());
+        }
+        if (migrated + dropped > 0) {
+            logger.info("Migrated {} JSON embedding(s) to {} in {} ms ({} unreadable dropped)",
+                migrated, storageFormat, System.currentTimeMillis() - start, dropped);
+        }
+    }
+
+    private float[] parseVector(String json) {
+        try {
+            return objectMapper.readValue(json, float[].class);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.entity.IndexCheckpoint;
+import com.aicodementor.entity.KnowledgeBase;
+import com.aicodementor.entity.Submission;
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.IndexCheckpointRepository;
+import com.aicodementor.repository.KnowledgeBaseRepository;
+import com.aicodementor.repository.SubmissionRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keeps {@code knowledge_base} in step with the exercises and submissions, in the background.
+ *
+ * Each source table is read in (updated_at, id) order from a checkpoint persisted in
+ * {@code index_checkpoints}, in micro-batches of {@code batch-size} rows: the rows whose text
+ * changed are embedded in one provider call, then upserted ("exercise_example" and "submission"
+ * entries, found again by {@code sourceId}) and the checkpoint moves past the batch. A restart
+ * resumes from the checkpoint. A row the embedding model rejects is stored without an embedding and
+ * skipped; only a batch hitting an unavailable provider is retried, with exponential backoff, and
+ * without holding up the other source.
+ *
+ * {@link KnowledgeIndexingListener} only wakes the indexer after a commit. Wake-ups are coalesced
+ * into one pending run, so a burst of writes costs the writers nothing and the indexer reads the
+ * backlog from the tables at its own pace. Rows are only read once they are {@code settle-ms} old,
+ * so a transaction committing a little after stamping its rows is not skipped.
+ */
+@Service
+public class KnowledgeIndexer {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnowledgeIndexer.class);
+
+    public static final String SUBMISSION_CONTENT_TYPE = "submission";
+
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime FAR_FUTURE = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final long MIN_BACKOFF_MS = 1000;
+
+    private enum Progress {
+        DONE,
+        MORE,       // batches left for the next run
+        SETTLING,   // only rows younger than settle-ms left
+        FAILED
+    }
+
+    /**
+     * One source table: its change queries, the keyset of a row and how a batch is upserted.
+     */
+    private record Source<T>(String name,
+                             ChangeQuery<T> changedAfter,
+                             BiFunction<LocalDateTime, Long, Long> countChangedAfter,
+                             Function<T, Long> id,
+                             Function<T, LocalDateTime> updatedAt,
+                             Function<List<T>, Boolean> upsert) {
+    }
+
+    @FunctionalInterface
+    private interface ChangeQuery<T> {
+        List<T> find(LocalDateTime at, long id, LocalDateTime until, Pageable page);
+    }
+
+    private final ExerciseRepository exerciseRepository;
+    private final SubmissionRepository submissionRepository;
+    private final KnowledgeBaseRepository knowledgeBaseRepository;
+    private final IndexCheckpointRepository checkpointRepository;
+    private final KnowledgeIndexService knowledgeIndex;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long settleMs;
+    private final long pollIntervalMs;
+    private final long maxBackoffMs;
+
+    private final List<Source<?>> sources;
+    private final Map<String, IndexCheckpoint> checkpoints = new ConcurrentHashMap<>();
+    private final BlockingQueue<Long> removedSubmissions;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong indexed = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean started;
+    private volatile boolean orphansSuspected = true;
+    private volatile long backoffMs;
+    private volatile String lastError;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "knowledge-indexer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public KnowledgeIndexer(ExerciseRepository exerciseRepository,
+                            SubmissionRepository submissionRepository,
+                            KnowledgeBaseRepository knowledgeBaseRepository,
+                            IndexCheckpointRepository checkpointRepository,
+                            KnowledgeIndexService knowledgeIndex,
+                            ObjectMapper objectMapper,
+                            @Value("${embedding.indexer.enabled:true}") boolean enabled,
+                            @Value("${embedding.indexer.batch-size:32}") int batchSize,
+                            @Value("${embedding.indexer.max-batches-per-run:20}") int maxBatchesPerRun,
+                            @Value("${embedding.indexer.settle-ms:1000}") long settleMs,
+                            @Value("${embedding.indexer.poll-interval-ms:60000}") long pollIntervalMs,
+                            @Value("${embedding.indexer.max-backoff-ms:300000}") long maxBackoffMs,
+                            @Value("${embedding.indexer.removal-queue:10000}") int removalQueue) {
+        this.exerciseRepository = exerciseRepository;
+        this.submissionRepository = submissionRepository;
+        this.knowledgeBaseRepository = knowledgeBaseRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.knowledgeIndex = knowledgeIndex;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxBatchesPerRun = Math.max(1, maxBatchesPerRun);
+        this.settleMs = Math.max(0, settleMs);
+        this.pollIntervalMs = pollIntervalMs;
+        this.maxBackoffMs = Math.max(MIN_BACKOFF_MS, maxBackoffMs);
+        this.removedSubmissions = new ArrayBlockingQueue<>(Math.max(1, removalQueue));
+        this.sources = List.of(
+            new Source<>("exercise", exerciseRepository::findChangedAfter, exerciseRepository::countChangedAfter,
+                Exercise::getId, Exercise::getUpdatedAt, this::upsertExercises),
+            new Source<>("submission", submissionRepository::findChangedAfter, submissionRepository::countChangedAfter,
+                Submission::getId, Submission::getUpdatedAt, this::upsertSubmissions)
+        );
+    }
+
+    /**
+     * Loads the checkpoints and catches up with what changed while the application was down.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!isActive()) {
+            return;
+        }
+        for (Source<?> source : sources) {
+            checkpoints.put(source.name(), checkpointRepository.findById(source.name())
+                .orElseGet(() -> new IndexCheckpoint(source.name())));
+        }
+        started = true;
+        if (pollIntervalMs > 0) {
+            // Safety net for wake-ups lost with a crash between a commit and its run
+            executor.scheduleWithFixedDelay(() -> schedule(0), pollIntervalMs, pollIntervalMs, TimeUnit.MILLISECONDS);
+        }
+        schedule(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isActive() {
+        return enabled && knowledgeIndex.isEnabled();
+    }
+
+    /**
+     * Exercises or submissions were saved: index them once they have settled.
+     */
+    public void changed() {
+        schedule(settleMs);
+    }
+
+    public void submissionRemoved(Long submissionId) {
+        if (!removedSubmissions.offer(submissionId)) {
+            // Queue full: the entries are found by the orphan sweep instead
+            orphansSuspected = true;
+        }
+        schedule(settleMs);
+    }
+
+    /**
+     * Deletes the entries indexed from an exercise and its submissions; must run before the exercise
+     * itself is deleted.
+     */
+    public void forgetExercise(Long exerciseId) {
+        try {
+            for (String contentType : List.of(ExerciseRetrievalService.CONTENT_TYPE, SUBMISSION_CONTENT_TYPE)) {
+                deleteRows(knowledgeBaseRepository.findByExerciseIdAndContentType(exerciseId, contentType));
+            }
+        } catch (Exception e) {
+            logger.warn("Could not delete indexed entries of exercise {}: {}", exerciseId, e.getMessage());
+        }
+    }
+
+    public void forgetAll() {
+        for (String contentType : List.of(ExerciseRetrievalService.CONTENT_TYPE, SUBMISSION_CONTENT_TYPE)) {
+            deleteRows(knowledgeBaseRepository.findByContentType(contentType));
+        }
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("active", isActive());
+        stats.put("batchSize", batchSize);
+        stats.put("batches", batches.get());
+        stats.put("indexed", indexed.get());
+        stats.put("failures", failures.get());
+        stats.put("backoffMs", backoffMs);
+        stats.put("pendingRemovals", removedSubmissions.size());
+        stats.put("lastError", lastError);
+        for (Source<?> source : sources) {
+            IndexCheckpoint checkpoint = checkpoints.get(source.name());
+            if (checkpoint == null) {
+                continue;
+            }
+            Map<String, Object> sourceStats = new LinkedHashMap<>();
+            sourceStats.put("lastUpdatedAt", checkpoint.getLastUpdatedAt());
+            sourceStats.put("lastId", checkpoint.getLastId());
+            sourceStats.put("indexed", checkpoint.getIndexedCount());
+            sourceStats.put("pending", pending(source, checkpoint));
+            stats.put(source.name(), sourceStats);
+        }
+        return stats;
+    }
+
+    // ============================================================
+    // Runs
+    // ============================================================
+    private void schedule(long delayMs) {
+        if (!started || !scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.schedule(this::run, Math.max(delayMs, backoffMs), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+        }
+    }
+
+    private void run() {
+        scheduled.set(false);
+        boolean more = false;
+        boolean settling = false;
+        boolean failed = false;
+        try {
+            processRemovals();
+            // A failed source is retried with backoff; the others keep being indexed
+            for (Source<?> source : sources) {
+                Progress progress;
+                try {
+                    progress = drain(source);
+                } catch (Exception e) {
+                    lastError = e.getMessage();
+                    logger.warn("Knowledge indexing of {} failed: {}", source.name(), e.getMessage());
+                    progress = Progress.FAILED;
+                }
+                more |= progress == Progress.MORE;
+                settling |= progress == Progress.SETTLING;
+                failed |= progress == Progress.FAILED;
+            }
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            logger.warn("Knowledge indexing failed: {}", e.getMessage());
+            failed = true;
+        }
+        if (failed) {
+            failures.incrementAndGet();
+            backoffMs = Math.min(maxBackoffMs, Math.max(MIN_BACKOFF_MS, backoffMs * 2));
+            logger.info("Knowledge indexing paused for {} ms", backoffMs);
+            schedule(backoffMs);
+        } else {
+            backoffMs = 0;
+            if (more) {
+                schedule(0);
+            } else if (settling) {
+                schedule(settleMs);
+            }
+        }
+    }
+
+    /**
+     * Indexes up to {@code max-batches-per-run} batches of one source, moving its checkpoint
+     * after each; the remaining rows are left to the next run so removals are not held up.
+     */
+    private <T> Progress drain(Source<T> source) {
+        IndexCheckpoint checkpoint = checkpoints.get(source.name());
+        LocalDateTime until = LocalDateTime.now().minusNanos(settleMs * 1_000_000);
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            LocalDateTime at = checkpoint.getLastUpdatedAt() != null ? checkpoint.getLastUpdatedAt() : EPOCH;
+            List<T> rows = source.changedAfter().find(at, checkpoint.getLastId(), until, PageRequest.of(0, batchSize));
+            if (!rows.isEmpty()) {
+                if (!source.upsert().apply(rows)) {
+                    lastError = "Embedding provider unavailable";
+                    return Progress.FAILED;
+                }
+                T last = rows.get(rows.size() - 1);
+                checkpoint.setLastUpdatedAt(source.updatedAt().apply(last));
+                checkpoint.setLastId(source.id().apply(last));
+                checkpoint.setIndexedCount(checkpoint.getIndexedCount() + rows.size());
+                checkpoints.put(source.name(), checkpoint = checkpointRepository.save(checkpoint));
+                batches.incrementAndGet();
+                indexed.addAndGet(rows.size());
+            }
+            if (rows.size() < batchSize) {
+                // Short page: nothing older than settle-ms is left. No second page and no count,
+                // a single row past the checkpoint tells rows still settling from none
+                return hasChangesAfter(source, checkpoint) ? Progress.SETTLING : Progress.DONE;
+            }
+        }
+        return Progress.MORE;
+    }
+
+    private void processRemovals() {
+        List<Long> removed = new ArrayList<>();
+        removedSubmissions.drainTo(removed);
+        if (!removed.isEmpty()) {
+            deleteRows(knowledgeBaseRepository.findByContentTypeAndSourceIdIn(SUBMISSION_CONTENT_TYPE, removed));
+        }
+        if (orphansSuspected) {
+            orphansSuspected = false;
+            List<Long> orphaned = knowledgeBaseRepository.findOrphanedSubmissionEntries(SUBMISSION_CONTENT_TYPE);
+            if (!orphaned.isEmpty()) {
+                knowledgeBaseRepository.deleteAllById(orphaned);
+                orphaned.forEach(knowledgeIndex::remove);
+                logger.info("Deleted {} indexed submission(s) that no longer exist", orphaned.size());
+            }
+        }
+    }
+
+    // ============================================================
+    // Upserts
+    // ============================================================
+    private boolean upsertExercises(List<Exercise> exercises) {
+        Map<Long, KnowledgeBase> existing = entriesBySource(ExerciseRetrievalService.CONTENT_TYPE,
+            exercises.stream().map(Exercise::getId).toList());
+        List<KnowledgeBase> rows = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<KnowledgeBase> stale = new ArrayList<>();
+        for (Exercise exercise : exercises) {
+            KnowledgeBase row = existing.get(exercise.getId());
+            if (!ExerciseRetrievalService.isIndexable(exercise)) {
+                // No solution or tests (any more): not a useful example
+                if (row != null) {
+                    stale.add(row);
+                }
+                continue;
+            }
+            String text = ExerciseRetrievalService.embeddingText(exercise);
+            rows.add(prepare(row, ExerciseRetrievalService.CONTENT_TYPE, exercise.getId(), exercise.getId(), text, null));
+            texts.add(text);
+        }
+        if (!rows.isEmpty() && knowledgeIndex.indexAll(rows, texts) == null) {
+            return false;
+        }
+        deleteRows(stale);
+        return true;
+    }
+
+    private boolean upsertSubmissions(List<Submission> submissions) {
+        Map<Long, KnowledgeBase> existing = entriesBySource(SUBMISSION_CONTENT_TYPE,
+            submissions.stream().map(Submission::getId).toList());
+        List<KnowledgeBase> rows = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<KnowledgeBase> stale = new ArrayList<>();
+        for (Submission submission : submissions) {
+            KnowledgeBase row = existing.get(submission.getId());
+            String code = submission.getCode();
+            if (code == null || code.isBlank() || submission.getExercise() == null) {
+                if (row != null) {
+                    stale.add(row);
+                }
+                continue;
+            }
+            // Cut to the embedding model's context by KnowledgeIndexService, in tokens
+            rows.add(prepare(row, SUBMISSION_CONTENT_TYPE, submission.getId(), submission.getExercise().getId(),
+                code, submissionMetadata(submission)));
+            texts.add(code);
+        }
+        if (!rows.isEmpty() && knowledgeIndex.indexAll(rows, texts) == null) {
+            return false;
+        }
+        deleteRows(stale);
+        return true;
+    }
+
+    /**
+     * New or updated entry; its embedding is kept unless the text changed.
+     */
+    private KnowledgeBase prepare(KnowledgeBase row, String contentType, Long sourceId, Long exerciseId,
+                                  String content, String metadata) {
+        if (row == null) {
+            row = new KnowledgeBase();
+            row.setContentType(contentType);
+            row.setSourceId(sourceId);
+        }
+        if (!content.equals(row.getContent())) {
+            row.setContent(content);
+            row.setEmbeddingVector(null);
+            row.setEmbeddingNorm(null);
+        }
+        row.setMetadata(metadata);
+        row.setExercise(exerciseRepository.getReferenceById(exerciseId));
+        return row;
+    }
+
+    private String submissionMetadata(Submission submission) {
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("submissionId", submission.getId());
+        meta.put("userId", submission.getUser() != null ? submission.getUser().getId() : null);
+        meta.put("status", submission.getStatus() != null ? submission.getStatus().name() : null);
+        meta.put("testCasesPassed", submission.getTestCasesPassed());
+        meta.put("totalTestCases", submission.getTotalTestCases());
+        try {
+            return objectMapper.writeValueAsString(meta);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private Map<Long, KnowledgeBase> entriesBySource(String contentType, List<Long> sourceIds) {
+        Map<Long, KnowledgeBase> bySource = new HashMap<>();
+        List<KnowledgeBase> duplicates = new ArrayList<>();
+        for (KnowledgeBase row : knowledgeBaseRepository.findByContentTypeAndSourceIdIn(contentType, sourceIds)) {
+            if (bySource.putIfAbsent(row.getSourceId(), row) != null) {
+                duplicates.add(row);
+            }
+        }
+        deleteRows(duplicates);
+        return bySource;
+    }
+
+    private void deleteRows(List<KnowledgeBase> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        knowledgeBaseRepository.deleteAll(rows);
+        rows.forEach(row -> knowledgeIndex.remove(row.getId()));
+    }
+
+    private static <T> boolean hasChangesAfter(Source<T> source, IndexCheckpoint checkpoint) {
+        LocalDateTime at = checkpoint.getLastUpdatedAt() != null ? checkpoint.getLastUpdatedAt() : EPOCH;
+        return !source.changedAfter().find(at, checkpoint.getLastId(), FAR_FUTURE, PageRequest.of(0, 1)).isEmpty();
+    }
+
+    private static long pending(Source<?> source, IndexCheckpoint checkpoint) {
+        LocalDateTime at = checkpoint.getLastUpdatedAt() != null ? checkpoint.getLastUpdatedAt() : EPOCH;
+        try {
+            return source.countChangedAfter().apply(at, checkpoint.getLastId());
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.EntityChangedEvent;
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.entity.Submission;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Follows the {@link EntityChangedEvent}s of exercises and submissions: tells the
+ * {@link KnowledgeIndexer} that rows changed once the transaction has committed. Nothing is
+ * embedded or written here, so saving an exercise or a submission never waits for the index.
+ * Events arrive in the writing thread, before the commit. Exercises are also handed to the
+ * {@link DuplicateExerciseService} and submissions to the {@link PlagiarismService}, which
+ * fingerprint them on their own threads.
+ */
+@Component
+public class KnowledgeIndexingListener {
+
+    // Looked up on use: rows written while the context starts find whichever services exist
+    private final ObjectProvider<KnowledgeIndexer> indexer;
+    private final ObjectProvider<DuplicateExerciseService> duplicates;
+    private final ObjectProvider<PlagiarismService> plagiarism;
+
+    public KnowledgeIndexingListener(ObjectProvider<KnowledgeIndexer> indexer,
+                                     ObjectProvider<DuplicateExerciseService> duplicates,
+                                     ObjectProvider<PlagiarismService> plagiarism) {
+        this.indexer = indexer;
+        this.duplicates = duplicates;
+        this.plagiarism = plagiarism;
+    }
+
+    @EventListener
+    public void on(EntityChangedEvent event) {
+        if (event.kind() == EntityChangedEvent.Kind.REMOVED) {
+            removed(event.entity());
+        } else {
+            changed(event.entity());
+        }
+    }
+
+    private void changed(Object entity) {
+        afterCommit(() -> indexer.ifAvailable(KnowledgeIndexer::changed));
+        if (entity instanceof Exercise exercise) {
+            // Captured now: the entity may be changed again before the commit callback runs
+            Long id = exercise.getId();
+            String statement = exercise.getProblemStatement();
+            String solution = exercise.getSolution();
+            String starterCode = exercise.getStarterCode();
+            afterCommit(() -> {
+                duplicates.ifAvailable(d -> d.update(id, statement, solution));
+                plagiarism.ifAvailable(p -> p.exerciseChanged(id, starterCode));
+            });
+        } else if (entity instanceof Submission submission) {
+            Long id = submission.getId();
+            Long exerciseId = submission.getExercise() != null ? submission.getExercise().getId() : null;
+            Long userId = submission.getUser() != null ? submission.getUser().getId() : null;
+            String code = submission.getCode();
+            afterCommit(() -> plagiarism.ifAvailable(p -> p.update(id, exerciseId, userId, code)));
+        }
+    }
+
+    private void removed(Object entity) {
+        if (entity instanceof Submission submission && submission.getId() != null) {
+            Long id = submission.getId();
+            afterCommit(() -> {
+                indexer.ifAvailable(i -> i.submissionRemoved(id));
+                plagiarism.ifAvailable(p -> p.remove(id));
+            });
+        } else if (entity instanceof Exercise exercise && exercise.getId() != null) {
+            Long id = exercise.getId();
+            afterCommit(() -> {
+                duplicates.ifAvailable(d -> d.remove(id));
+                plagiarism.ifAvailable(p -> p.exerciseRemoved(id));
+            });
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,31 @@
+package com.aicodementor.service;
+
+/**
+ * Kind of inference call issued by {@link LLMService}.
+ * The call type decides which scheduling class the request is queued in and its default
+ * output token budget (see {@link TokenBudgetTracker}).
+ */
+public enum LLMCallType {
+    SOLUTION(LlamaSlotScheduler.Priority.BATCH, 1400),
+    TESTS(LlamaSlotScheduler.Priority.BATCH, 500),
+    EXAMPLES(LlamaSlotScheduler.Priority.BATCH, 300),
+    REPAIR(LlamaSlotScheduler.Priority.BATCH, 1400),
+    HINT(LlamaSlotScheduler.Priority.INTERACTIVE, 320),
+    HINT_BATCH(LlamaSlotScheduler.Priority.INTERACTIVE, 1200);
+
+    private final LlamaSlotScheduler.Priority priority;
+    private final int defaultMaxTokens;
+
+    LLMCallType(LlamaSlotScheduler.Priority priority, int defaultMaxTokens) {
+        this.priority = priority;
+        this.defaultMaxTokens = defaultMaxTokens;
+    }
+
+    public LlamaSlotScheduler.Priority getPriority() {
+        return priority;
+    }
+
+    public int getDefaultMaxTokens() {
+        return defaultMaxTokens;
+    }
+}
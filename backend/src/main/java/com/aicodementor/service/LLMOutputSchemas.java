@@ -0,0 +1,85 @@
+package com.aicodementor.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * JSON schemas sent to llama.cpp as {@code json_schema}.
+ * The server turns them into a grammar and only samples tokens that keep the output valid,
+ * so structured responses parse on the first attempt.
+ *
+ * String lengths are sized from the call's token budget: a grammar that allows longer strings
+ * than the budget can produce lets the model run out of tokens inside a string, and the JSON
+ * is cut off. The lengths below are the caps at a generous budget; smaller budgets scale them down.
+ */
+public final class LLMOutputSchemas {
+
+    private static final int HINT_PROBLEM_CHARS = 300;
+    private static final int HINT_FIX_CHARS = 300;
+    private static final int HINT_SNIPPET_CHARS = 240;
+    private static final int EXAMPLE_CHARS = 120;
+    private static final int EXAMPLE_COUNT = 3;
+
+    /** Tokens taken by the braces, keys and quotes of one hint or one example object. */
+    private static final int HINT_OVERHEAD_TOKENS = 16;
+    private static final int EXAMPLE_OVERHEAD_TOKENS = 10;
+    private static final int MIN_STRING_CHARS = 20;
+
+    private LLMOutputSchemas() {
+    }
+
+    /** {"problem":"...","fix":"...","snippet":"..."} within {@code maxTokens}. */
+    public static Map<String, Object> hint(int maxTokens) {
+        double scale = scale(maxTokens - HINT_OVERHEAD_TOKENS, HINT_PROBLEM_CHARS + HINT_FIX_CHARS + HINT_SNIPPET_CHARS);
+        return Map.of(
+            "type", "object",
+            "properties", Map.of(
+                "problem", boundedString(HINT_PROBLEM_CHARS, scale),
+                "fix", boundedString(HINT_FIX_CHARS, scale),
+                "snippet", boundedString(HINT_SNIPPET_CHARS, scale)
+            ),
+            "required", List.of("problem", "fix", "snippet"),
+            "additionalProperties", false
+        );
+    }
+
+    /** Exactly {@code count} hint objects, one per failed test, in order, sharing {@code maxTokens}. */
+    public static Map<String, Object> hintArray(int count, int maxTokens) {
+        return Map.of(
+            "type", "array",
+            "minItems", count,
+            "maxItems", count,
+            "items", hint(maxTokens / Math.max(1, count))
+        );
+    }
+
+    /** Exactly three {"input":"...","output":"..."} objects within {@code maxTokens}. */
+    public static Map<String, Object> examples(int maxTokens) {
+        double scale = scale(maxTokens - EXAMPLE_COUNT * EXAMPLE_OVERHEAD_TOKENS, EXAMPLE_COUNT * 2 * EXAMPLE_CHARS);
+        return Map.of(
+            "type", "array",
+            "minItems", EXAMPLE_COUNT,
+            "maxItems", EXAMPLE_COUNT,
+            "items", Map.of(
+                "type", "object",
+                "properties", Map.of(
+                    "input", boundedString(EXAMPLE_CHARS, scale),
+                    "output", boundedString(EXAMPLE_CHARS, scale)
+                ),
+                "required", List.of("input", "output"),
+                "additionalProperties", false
+            )
+        );
+    }
+
+    /**
+     * Share of the capped lengths that fits in {@code contentTokens}, at most 1.
+     */
+    private static double scale(int contentTokens, int cappedChars) {
+        return Math.min(1.0, Math.max(0, contentTokens) * TokenCounter.CHARS_PER_TOKEN / cappedChars);
+    }
+
+    private static Map<String, Object> boundedString(int capChars, double scale) {
+        return Map.of("type", "string", "maxLength", Math.max(MIN_STRING_CHARS, (int) (capChars * scale)));
+    }
+}
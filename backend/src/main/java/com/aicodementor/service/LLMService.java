@@ -2,22 +2,26 @@ package com.aicodementor.service;
 
 import com.aicodementor.dto.ExerciseGenerationRequest;
 import com.aicodementor.dto.ExerciseGenerationResponse;
+import com.aicodementor.dto.HintResponse;
+import com.aicodementor.entity.Exercise;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.text.Normalizer;
 import java.util.*;
 import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -25,120 +29,227 @@ import java.util.regex.Pattern;
 public class LLMService {
 
     private static final Logger logger = LoggerFactory.getLogger(LLMService.class);
-    private static final int MAX_CONCURRENT_REQUESTS = 10;
     private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern JAVA_UTIL_TYPES = Pattern.compile(
+        "\\b(List|ArrayList|LinkedList|Map|HashMap|TreeMap|LinkedHashMap|Set|HashSet|TreeSet|"
+        + "Arrays|Collections|Deque|ArrayDeque|Queue|PriorityQueue|Stack|Optional|Scanner|Iterator)\\b");
     
-    private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper;
-    private final String llamacppBaseUrl;
-    private final ExecutorService executorService;
-
-    public LLMService(RestTemplate restTemplate, ObjectMapper objectMapper, 
-                     String llamacppBaseUrl) {
-        this.restTemplate = restTemplate;
+    private final LlamaSlotScheduler scheduler;
+    private final InferenceEndpointPool endpointPool;
+    private final InferenceTelemetry telemetry;
+    private final HintCacheService hintCache;
+    private final ExerciseVerifier verifier;
+    private final ExerciseTemplateLibrary templateLibrary;
+    private final TokenBudgetTracker tokenBudgets;
+    private final TokenCounter tokenCounter;
+    private final JavaSourceAnalyzer sourceAnalyzer;
+    private final ExerciseRetrievalService retrieval;
+    private final int maxHintBatchSize;
+    private final int hintPromptTokens;
+    private final int hintBatchPromptTokens;
+    private final int solutionCandidates;
+    private final int repairMaxRounds;
+    private final long repairBudgetMs;
+    private final int maxExampleChars;
+
+    public LLMService(ObjectMapper objectMapper, LlamaSlotScheduler scheduler,
+                      InferenceEndpointPool endpointPool, InferenceTelemetry telemetry,
+                      HintCacheService hintCache, ExerciseVerifier verifier,
+                      ExerciseTemplateLibrary templateLibrary, TokenBudgetTracker tokenBudgets,
+                      TokenCounter tokenCounter, JavaSourceAnalyzer sourceAnalyzer,
+                      ExerciseRetrievalService retrieval,
+                      @Value("${llm.hints.max-batch:6}") int maxHintBatchSize,
+                      @Value("${llm.prompt-budget.hint:700}") int hintPromptTokens,
+                      @Value("${llm.prompt-budget.hint-batch:1600}") int hintBatchPromptTokens,
+                      @Value("${llm.best-of-n.candidates:3}") int solutionCandidates,
+                      @Value("${llm.repair.max-rounds:2}") int repairMaxRounds,
+                      @Value("${llm.repair.budget-ms:90000}") long repairBudgetMs,
+                      @Value("${llm.retrieval.max-example-chars:1200}") int maxExampleChars) {
         this.objectMapper = objectMapper;
-        this.llamacppBaseUrl = llamacppBaseUrl != null 
-            ? llamacppBaseUrl 
-            : "http://localhost:11435";
-        this.executorService = Executors.newFixedThreadPool(MAX_CONCURRENT_REQUESTS);
+        this.scheduler = scheduler;
+        this.endpointPool = endpointPool;
+        this.telemetry = telemetry;
+        this.hintCache = hintCache;
+        this.verifier = verifier;
+        this.templateLibrary = templateLibrary;
+        this.tokenBudgets = tokenBudgets;
+        this.tokenCounter = tokenCounter;
+        this.sourceAnalyzer = sourceAnalyzer;
+        this.retrieval = retrieval;
+        this.maxHintBatchSize = Math.max(1, maxHintBatchSize);
+        this.hintPromptTokens = Math.max(100, hintPromptTokens);
+        this.hintBatchPromptTokens = Math.max(100, hintBatchPromptTokens);
+        this.solutionCandidates = Math.max(1, solutionCandidates);
+        this.repairMaxRounds = Math.max(0, repairMaxRounds);
+        this.repairBudgetMs = Math.max(0, repairBudgetMs);
+        this.maxExampleChars = Math.max(200, maxExampleChars);
     }
 
     // ============================================================
-    // 1) Generic: Call llama.cpp /completion endpoint (ASYNC)
+    // 1) Generic: completion call through scheduler + endpoint pool (ASYNC)
     // ============================================================
-    private CompletableFuture<String> callLlamaAPIAsync(String prompt, int maxTokens) {
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                HttpHeaders headers = createHeaders();
-                Map<String, Object> requestBody = createRequestBody(prompt, maxTokens);
-                HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-                
-                String response = restTemplate.postForObject(
-                    llamacppBaseUrl + "/completion",
-                    request,
-                    String.class
-                );
-                
-                return processResponse(response);
-            } catch (Exception e) {
-                logger.error("Error calling llama.cpp API", e);
-                return "";
+    /**
+     * Every inference call goes through the slot scheduler, which queues it
+     * according to the priority of its call type, then runs it on the endpoint pool.
+     * An {@link LLMUnavailableException} (all endpoints down or circuit-open) is not swallowed:
+     * callers turn it into an explicit degraded result instead of an empty string.
+     *
+     * The output budget comes from {@link TokenBudgetTracker} for the call type and difficulty
+     * (null when there is none, e.g. hints). Every output length is recorded there; an output cut
+     * off by the budget is retried once, in the same scheduler slot, with a larger budget.
+     */
+    private CompletableFuture<String> callLlamaAPIAsync(String prompt, LLMCallType callType, String difficulty) {
+        return callLlamaAPIAsync(
+            CompletionRequest.of(callType, prompt, tokenBudgets.budgetFor(callType, difficulty)), difficulty);
+    }
+
+    private CompletableFuture<String> callLlamaAPIAsync(CompletionRequest request, String difficulty) {
+        return scheduler.submit(request.callType().getPriority(), () -> {
+            CompletionRequest attempt = request;
+            while (true) {
+                long start = System.currentTimeMillis();
+                try {
+                    CompletionResult result = endpointPool.complete(attempt);
+                    telemetry.recordSuccess(attempt.callType(), result, System.currentTimeMillis() - start);
+                    if (result.timings() != null && result.timings().promptTokens() > 0) {
+                        logger.debug("LLM {} call on {}: {} prompt tokens, {} from cache",
+                            attempt.callType(), result.endpoint(),
+                            result.timings().promptTokens(), result.timings().cachedTokens());
+                    }
+
+                    // Only a stop reported by the server feeds the budgets: a reply that merely looks
+                    // cut off (the model gave up mid-block) says nothing about the token limit
+                    boolean limitHit = result.timings() != null && result.timings().stoppedByLimit();
+                    boolean truncated = limitHit || isTruncated(attempt.callType(), result);
+                    tokenBudgets.record(attempt.callType(), difficulty, outputTokens(attempt, result, limitHit), limitHit);
+                    int retryBudget = tokenBudgets.retryBudget(attempt.callType(), attempt.maxTokens());
+                    if (truncated && attempt == request && retryBudget > attempt.maxTokens()) {
+                        logger.info("LLM {} output cut off at {} tokens, retrying with {}",
+                            attempt.callType(), attempt.maxTokens(), retryBudget);
+                        attempt = attempt.withMaxTokens(retryBudget);
+                        continue;
+                    }
+                    return processResponse(attempt.callType(), result.content());
+                } catch (LLMUnavailableException e) {
+                    telemetry.recordFailure(attempt.callType(), System.currentTimeMillis() - start);
+                    throw e;
+                } catch (CancellationException e) {
+                    throw e; // cut off by the scheduler, nobody waits for the result
+                } catch (Exception e) {
+                    telemetry.recordFailure(attempt.callType(), System.currentTimeMillis() - start);
+                    logger.error("Error calling LLM ({})", attempt.callType(), e);
+                    return "";
+                }
             }
-        }, executorService);
+        });
     }
-    
-    private String callLlamaAPI(String prompt, int maxTokens) {
-        try {
-            return callLlamaAPIAsync(prompt, maxTokens).get();
-        } catch (Exception e) {
-            logger.error("Error in synchronous LLM call", e);
-            return "";
-        }
+
+    private String callLlamaAPI(String prompt, LLMCallType callType, String difficulty) {
+        return awaitCompletion(callLlamaAPIAsync(prompt, callType, difficulty));
     }
-    
-    private HttpHeaders createHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        return headers;
+
+    /**
+     * True when the output was cut off by its budget. llama.cpp reports it; for providers that
+     * do not, code with unclosed braces or a JSON answer that does not parse counts as cut off.
+     */
+    private boolean isTruncated(LLMCallType callType, CompletionResult result) {
+        InferenceTimings timings = result.timings();
+        if (timings != null && timings.predictedTokens() > 0) {
+            return timings.stoppedByLimit();
+        }
+        String content = result.content();
+        if (content == null || content.isBlank()) {
+            return false;
+        }
+        return switch (callType) {
+            case SOLUTION, TESTS, REPAIR -> braceDepth(content) > 0;
+            case EXAMPLES, HINT, HINT_BATCH -> {
+                String trimmed = content.trim();
+                yield (trimmed.startsWith("{") || trimmed.startsWith("[")) && !isParsableJson(trimmed);
+            }
+        };
     }
-    
-    private Map<String, Object> createRequestBody(String prompt, int maxTokens) {
-        Map<String, Object> requestBody = new HashMap<>();
-        requestBody.put("prompt", prompt);
-        requestBody.put("n_predict", maxTokens);
-        requestBody.put("temperature", 0.2);
-        requestBody.put("top_p", 0.95);
-        requestBody.put("top_k", 40);
-        requestBody.put("repeat_penalty", 1.15);
-        // Only stop on code block markers or EOS token, not on comments or newlines
-        // This prevents premature truncation that breaks code generation
-        requestBody.put("stop", new String[]{"```", "</s>"});
-        return requestBody;
+
+    /**
+     * Output tokens of a call; estimated from the length when the provider does not count them.
+     * An output stopped by the limit is at least as long as the budget it hit.
+     */
+    private static int outputTokens(CompletionRequest request, CompletionResult result, boolean limitHit) {
+        InferenceTimings timings = result.timings();
+        int tokens = timings != null && timings.predictedTokens() > 0
+            ? timings.predictedTokens()
+            : TokenCounter.estimate(result.content());
+        return limitHit ? Math.max(tokens, request.maxTokens()) : tokens;
     }
-    
-    private String processResponse(String response) {
-        if (response == null) {
-            logger.warn("LLM returned null response");
-            return "";
-        }
-        
-        try {
-            JsonNode jsonNode = objectMapper.readTree(response);
-            String content = "";
-            
-            // Multi-field compatibility: try content, completion, or choices[0].text
-            if (jsonNode.hasNonNull("content")) {
-                content = jsonNode.get("content").asText();
-            } else if (jsonNode.hasNonNull("completion")) {
-                content = jsonNode.get("completion").asText();
-            } else if (jsonNode.has("choices") && jsonNode.get("choices").isArray() && jsonNode.get("choices").size() > 0) {
-                JsonNode c0 = jsonNode.get("choices").get(0);
-                if (c0.hasNonNull("text")) {
-                    content = c0.get("text").asText();
-                } else if (c0.hasNonNull("message") && c0.get("message").hasNonNull("content")) {
-                    content = c0.get("message").get("content").asText();
+
+    /**
+     * Open minus closed braces outside strings, chars and comments.
+     */
+    private static int braceDepth(String code) {
+        int depth = 0;
+        for (JavaTokenizer.Token token : JavaTokenizer.tokenize(code)) {
+            if (token.kind() == JavaTokenizer.Kind.OPERATOR) {
+                if ("{".equals(token.text())) {
+                    depth++;
+                } else if ("}".equals(token.text())) {
+                    depth--;
                 }
             }
-            
-            if (content.isEmpty()) {
-                logger.warn("LLM returned empty content. Response structure: {}", jsonNode.toPrettyString().substring(0, Math.min(500, jsonNode.toPrettyString().length())));
-                return "";
+        }
+        return depth;
+    }
+
+    /**
+     * Waits for a scheduled call; rethrows {@link LLMUnavailableException}, maps any other failure to "".
+     */
+    private String awaitCompletion(CompletableFuture<String> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof LLMUnavailableException unavailable) {
+                throw unavailable;
             }
-            
-            content = sanitize(content);
-            logger.debug("LLM response (truncated): {}",
-                content.length() > 500 ? content.substring(0, 500) + "..." : content);
-            return content;
-        } catch (Exception e) {
-            logger.error("Error processing LLM response", e);
+            logger.error("Error in synchronous LLM call", e.getCause());
+            return "";
+        } catch (InterruptedException e) {
+            // The caller gave up (a cancelled job): stop the generation too
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return "";
+        }
+    }
+    
+    /**
+     * Code (solutions, tests, repairs) is left raw for {@link JavaSnippetNormalizer}, which needs
+     * the original layout; other answers are stripped of markdown and chatter here.
+     */
+    private String processResponse(LLMCallType callType, String content) {
+        if (content == null || content.isEmpty()) {
+            logger.warn("LLM returned empty content");
             return "";
         }
+        
+        boolean code = callType == LLMCallType.SOLUTION || callType == LLMCallType.TESTS
+            || callType == LLMCallType.REPAIR;
+        content = code ? content.trim() : sanitize(content);
+        logger.debug("LLM response (truncated): {}",
+            content.length() > 500 ? content.substring(0, 500) + "..." : content);
+        return content;
     }
 
     // ============================================================
     // 2) Main entry: Generate complete exercise from natural language
     // ============================================================
     public ExerciseGenerationResponse generateExercise(ExerciseGenerationRequest request) {
+        return generateExercise(request, GenerationProgressListener.NONE);
+    }
+
+    /**
+     * Same as {@link #generateExercise(ExerciseGenerationRequest)}, reporting each stage to {@code progress}.
+     */
+    public ExerciseGenerationResponse generateExercise(ExerciseGenerationRequest request,
+                                                       GenerationProgressListener progress) {
         logger.info("Generating exercise from description: {}",
             request.naturalLanguageDescription());
 
@@ -152,7 +263,19 @@ public class LLMService {
             return createUnsupportedLanguageResponse(language);
         }
 
-        return generateJavaExercise(coreTask, title, difficulty);
+        // Classic tasks are instantiated from the template library, without any inference call
+        Optional<ExerciseTemplateLibrary.Match> template = templateLibrary.match(coreTask, difficulty);
+        if (template.isPresent()) {
+            progress.onProgress("done", 100);
+            return createTemplateExercise(template.get().template(), coreTask, title);
+        }
+
+        try {
+            return generateJavaExercise(coreTask, title, difficulty, progress);
+        } catch (LLMUnavailableException e) {
+            logger.warn("LLM unavailable, building exercise from templates: {}", e.getMessage());
+            return createDegradedJavaExercise(coreTask, title, difficulty);
+        }
     }
     
     private String extractLanguage(ExerciseGenerationRequest request) {
@@ -177,32 +300,170 @@ public class LLMService {
             "// Unsupported language",
             "// Unsupported language",
             "// Unsupported language",
-            "N/A"
+            "N/A",
+            false
         );
     }
     
     private ExerciseGenerationResponse generateJavaExercise(String coreTask, 
                                                            String title, 
-                                                           String difficulty) {
+                                                           String difficulty,
+                                                           GenerationProgressListener progress) {
         String className = generateClassNameFromTask(coreTask);
         logger.info("Generated class name: {}", className);
 
         String description = buildDescriptionFromTask(coreTask);
-        String solution = generateSolutionCode(coreTask, className);
+
+        // Similar exercises of the catalog guide the model, or answer the task outright
+        List<ExerciseRetrievalService.SimilarExercise> similar = retrieval.similar(coreTask);
+        Optional<ExerciseGenerationResponse> reused = reuseSimilarExercise(similar, coreTask, className, title,
+            difficulty, progress);
+        if (reused.isPresent()) {
+            return reused.get();
+        }
+        FewShot fewShot = fewShotFrom(similar);
+
+        progress.onProgress("solution", 5);
+        SolutionAndTests generated = generateBestOfN(coreTask, className, difficulty, fewShot, progress);
+        if (generated == null) {
+            String sequentialSolution = generateSolutionCode(coreTask, className, difficulty, fewShot);
+            progress.onProgress("tests", 50);
+            generated = new SolutionAndTests(sequentialSolution,
+                generateJUnitTests(coreTask, sequentialSolution, className, difficulty, fewShot), null);
+        }
+        progress.onProgress("verify", 65);
+        generated = repairUntilVerified(coreTask, className, difficulty, generated);
+        String solution = generated.solution();
+        String unitTests = generated.tests();
         logger.info("Generated solution length = {}", solution.length());
+        logger.info("Generated tests length = {}", unitTests.length());
 
         String starterCode = generateStarterCodeFromSolution(solution, className);
         logger.info("Generated starter length = {}", starterCode.length());
 
-        String unitTests = generateJUnitTests(coreTask, solution, className);
-        logger.info("Generated tests length = {}", unitTests.length());
-
         String concepts = detectConceptsFromTask(coreTask, difficulty);
-        String examples = generateExamplesFromTask(coreTask, className, solution);
+        progress.onProgress("examples", 80);
+        String examples = generateExamplesFromTask(coreTask, className, solution, difficulty);
+        progress.onProgress("done", 100);
 
         return new ExerciseGenerationResponse(
             title, description, difficulty, concepts,
-            starterCode, unitTests, solution, examples
+            starterCode, unitTests, solution, examples, false
+        );
+    }
+
+    // ============================================================
+    // 2b) Retrieval: similar exercises of the catalog
+    // ============================================================
+    /**
+     * Similar catalog exercises rendered as reference sections of the solution and test prompts
+     * (empty when there are none). They follow the cached instruction prefix.
+     */
+    private record FewShot(String solutions, String tests) {
+        static final FewShot NONE = new FewShot("", "");
+    }
+
+    private FewShot fewShotFrom(List<ExerciseRetrievalService.SimilarExercise> similar) {
+        if (similar.isEmpty()) {
+            return FewShot.NONE;
+        }
+        StringBuilder solutions = new StringBuilder();
+        StringBuilder tests = new StringBuilder();
+        for (ExerciseRetrievalService.SimilarExercise match : similar) {
+            Exercise exercise = match.exercise();
+            String statement = exercise.getProblemStatement() != null && !exercise.getProblemStatement().isBlank()
+                ? exercise.getProblemStatement() : exercise.getTitle();
+            solutions.append("=== EXERCICE SIMILAIRE (référence, ne pas recopier) ===\n")
+                .append(trimToMax(statement, maxExampleChars / 2)).append("\n")
+                .append(trimToMax(exercise.getSolution(), maxExampleChars)).append("\n\n");
+            tests.append("=== TESTS D'UN EXERCICE SIMILAIRE (référence, ne pas recopier) ===\n")
+                .append(trimToMax(exercise.getUnitTests(), maxExampleChars)).append("\n\n");
+        }
+        logger.info("Prompting with {} similar exercise(s), best similarity {}", similar.size(), similar.get(0).score());
+        return new FewShot(solutions.toString(), tests.toString());
+    }
+
+    /**
+     * A catalog exercise of the same difficulty asking for the same thing: its solution and tests,
+     * renamed to {@code className}, are kept if they still pass together. This skips every
+     * generation call but the examples (and those too when the exercise has some).
+     */
+    private Optional<ExerciseGenerationResponse> reuseSimilarExercise(List<ExerciseRetrievalService.SimilarExercise> similar,
+                                                                      String coreTask, String className, String title,
+                                                                      String difficulty, GenerationProgressListener progress) {
+        if (similar.isEmpty() || !retrieval.isReusable(similar.get(0))) {
+            return Optional.empty();
+        }
+        Exercise source = similar.get(0).exercise();
+        if (source.getDifficulty() == null || !source.getDifficulty().name().equalsIgnoreCase(difficulty)) {
+            return Optional.empty();
+        }
+        String sourceClass = sourceAnalyzer.analyze(source.getSolution()).className(null);
+        if (sourceClass == null) {
+            return Optional.empty();
+        }
+        String solution = JavaSnippetNormalizer.rename(source.getSolution(), sourceClass, className);
+        String tests = JavaSnippetNormalizer.rename(
+            JavaSnippetNormalizer.rename(source.getUnitTests(), sourceClass + "Test", className + "Test"),
+            sourceClass, className);
+        progress.onProgress("verify", 65);
+        if (!verifier.verify(solution, tests).passed()) {
+            logger.info("Similar exercise {} does not verify once renamed, generating", source.getId());
+            return Optional.empty();
+        }
+        retrieval.recordReuse();
+        logger.info("Reusing exercise {} (similarity {}) for task '{}'", source.getId(), similar.get(0).score(), coreTask);
+
+        String examples = source.getExamples();
+        if (examples == null || examples.isBlank()) {
+            progress.onProgress("examples", 80);
+            examples = generateExamplesFromTask(coreTask, className, solution, difficulty);
+        }
+        progress.onProgress("done", 100);
+        return Optional.of(new ExerciseGenerationResponse(
+            title, buildDescriptionFromTask(coreTask), difficulty, detectConceptsFromTask(coreTask, difficulty),
+            generateStarterCodeFromSolution(solution, className), tests, solution, examples, false
+        ));
+    }
+
+    /**
+     * The template's material, labelled with the level it is written for: a match may be up to
+     * {@code llm.templates.max-level-gap} away from the requested difficulty.
+     */
+    private ExerciseGenerationResponse createTemplateExercise(ExerciseTemplate template, String coreTask, String title) {
+        ExerciseTemplate.Instance instance = template.instantiate(null);
+        String difficulty = template.level().name();
+        return new ExerciseGenerationResponse(
+            title,
+            buildDescriptionFromTask(coreTask),
+            difficulty,
+            detectConceptsFromTask(coreTask, difficulty),
+            instance.starterCode(),
+            instance.unitTests(),
+            instance.solution(),
+            instance.examples(),
+            false
+        );
+    }
+
+    /**
+     * Degraded mode: same response shape, built only from local templates (no inference call).
+     */
+    private ExerciseGenerationResponse createDegradedJavaExercise(String coreTask,
+                                                                 String title,
+                                                                 String difficulty) {
+        String className = generateClassNameFromTask(coreTask);
+        String solution = createIntelligentFallback(className, coreTask);
+        return new ExerciseGenerationResponse(
+            title,
+            buildDescriptionFromTask(coreTask),
+            difficulty,
+            detectConceptsFromTask(coreTask, difficulty),
+            generateStarterCodeFromSolution(solution, className),
+            generateTestsFromSolution(solution, className),
+            solution,
+            createSolutionBasedDefaultExamples(solution),
+            true
         );
     }
 
@@ -287,63 +548,393 @@ public class LLMService {
     // ============================================================
     // 4) Java Solution: Generate via llama.cpp + fix braces
     // ============================================================
-    private String generateSolutionCode(String task, String className) {
+    private String generateSolutionCode(String task, String className, String difficulty, FewShot fewShot) {
         if (task == null || task.isBlank()) {
             task = "implémenter une fonction utilitaire en Java.";
         }
 
-        String prompt = buildSolutionPrompt(task, className);
-        // Increase n_predict to 1400 to prevent truncation of long solutions
-        String code = callLlamaAPI(prompt, 1400);
-        code = cleanJavaSnippet(code);
-        return validateAndFixSolution(code, className, task);
+        String prompt = buildSolutionPrompt(task, className, fewShot);
+        String code = callLlamaAPI(prompt, LLMCallType.SOLUTION, difficulty);
+        code = JavaSnippetNormalizer.solution(code, className, needsMain(task));
+        return validateAndFixSolution(code, className, task, difficulty);
+    }
+    
+    // ============================================================
+    // 4b) Best-of-N: concurrent solution candidates, selected by compiling and testing
+    // ============================================================
+    /**
+     * @param verification outcome of compiling and running the tests, null if not checked yet
+     */
+    private record SolutionAndTests(String solution, String tests, ExerciseVerifier.Verification verification) {
+    }
+
+    /**
+     * Generates the tests from the task alone, then samples up to {@code llm.best-of-n.candidates}
+     * solutions concurrently against them, each with its own temperature and seed. Candidates are
+     * compiled with the shared tests and run against them in arrival order: no candidate is judged
+     * by tests derived from its own code. The first one passing wins and the others are cancelled
+     * (queued ones never reach llama.cpp, running ones have their generation cut off). Without a
+     * passing candidate, the one passing the most tests is kept.
+     *
+     * @return null when best-of-N is disabled, the tests are unusable or no candidate compiled
+     *         (sequential path is used)
+     */
+    private SolutionAndTests generateBestOfN(String task, String className, String difficulty,
+                                             FewShot fewShot, GenerationProgressListener progress) {
+        int n = Math.min(solutionCandidates, scheduler.batchCapacity());
+        if (n < 2 || task == null || task.isBlank()) {
+            return null;
+        }
+
+        progress.onProgress("tests", 10);
+        String tests = generateTestsFromSpec(task, className, difficulty, fewShot);
+        if (tests == null) {
+            return null;
+        }
+        progress.onProgress("solution", 25);
+        String prompt = buildSolutionPrompt(task, className, fewShot, tests);
+        long baseSeed = ThreadLocalRandom.current().nextInt(1 << 30);
+        BlockingQueue<Integer> arrivals = new LinkedBlockingQueue<>();
+        List<CompletableFuture<String>> candidates = new ArrayList<>();
+        int budget = tokenBudgets.budgetFor(LLMCallType.SOLUTION, difficulty);
+        for (int i = 0; i < n; i++) {
+            CompletionRequest request = CompletionRequest.of(LLMCallType.SOLUTION, prompt, budget)
+                .withSampling(candidateTemperature(i), 0.95, 40, 1.15)
+                .withSeed(baseSeed + i);
+            int index = i;
+            CompletableFuture<String> future = callLlamaAPIAsync(request, difficulty);
+            future.whenComplete((code, error) -> arrivals.add(index));
+            candidates.add(future);
+        }
+
+        SolutionAndTests best = null;
+        int bestPassed = -1;
+        boolean unavailable = false;
+        try {
+            for (int received = 0; received < n; received++) {
+                int index = arrivals.take();
+                String code;
+                try {
+                    code = normalizeCandidate(candidates.get(index).get(), className, task);
+                } catch (ExecutionException e) {
+                    unavailable |= e.getCause() instanceof LLMUnavailableException;
+                    continue;
+                }
+                if (code == null) {
+                    continue;
+                }
+                ExerciseVerifier.Verification verification = verifier.verify(code, tests);
+                if (verification.passed()) {
+                    logger.info("Solution candidate {} of {} passes its {} test(s)", index, n, verification.totalTests());
+                    return new SolutionAndTests(code, tests, verification);
+                }
+                if (!verification.compiled()) {
+                    logger.info("Solution candidate {} does not compile with the tests, skipped", index);
+                    continue;
+                }
+                if (verification.passedTests() > bestPassed) {
+                    best = new SolutionAndTests(code, tests, verification);
+                    bestPassed = verification.passedTests();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            candidates.forEach(c -> c.cancel(true));
+        }
+
+        if (best != null) {
+            logger.warn("No solution candidate passed all tests, keeping the best one ({} passed)", bestPassed);
+            return best;
+        }
+        if (unavailable) {
+            throw new LLMUnavailableException("No inference endpoint available");
+        }
+        logger.warn("No solution candidate compiled with the tests, falling back to sequential generation");
+        return null;
+    }
+
+    /**
+     * Tests written from the exercise statement only, before any solution exists; the model picks
+     * the method they call. Null when the output is unusable (no real assertion, no call of the class).
+     */
+    private String generateTestsFromSpec(String task, String className, String difficulty, FewShot fewShot) {
+        String testClassName = className + "Test";
+        String raw = callLlamaAPI(buildSpecTestPrompt(className, testClassName, task, fewShot),
+            LLMCallType.TESTS, difficulty);
+        String tests = JavaSnippetNormalizer.tests(raw, testClassName);
+        if (tests == null || tests.isBlank() || tests.contains("TODO") || !hasRealTestAssertions(tests)
+                || !tests.contains(className + ".")) {
+            logger.warn("Tests generated from the task are unusable, falling back to sequential generation");
+            return null;
+        }
+        return addMissingImports(tests.trim());
+    }
+
+    /**
+     * First candidate at the usual low temperature, the others progressively more diverse.
+     */
+    private static double candidateTemperature(int index) {
+        return Math.min(0.9, 0.2 + 0.25 * index);
+    }
+
+    /**
+     * Same checks and fixes as {@link #validateAndFixSolution}, without retrying: a bad candidate
+     * is dropped (null) since others are already being sampled.
+     */
+    private String normalizeCandidate(String code, String className, String task) {
+        code = JavaSnippetNormalizer.solution(code, className, needsMain(task));
+        if (code.isBlank() || !code.contains("class ") || !code.contains("}")
+                || code.contains("TODO") || !hasRealImplementation(code)) {
+            return null;
+        }
+        code = fixBraces(code);
+        return addMissingImports(code.trim());
+    }
+
+    // ============================================================
+    // 4c) Repair loop: compiler and JUnit feedback sent back to the model
+    // ============================================================
+
+    /**
+     * Compiles solution and tests together and runs the tests; on failure, sends the javac or
+     * JUnit diagnostics back to the model for a targeted fix. At most {@code llm.repair.max-rounds}
+     * model calls, and none started after {@code llm.repair.budget-ms}. A fix is only kept if it
+     * verifies better than what it replaces, so the loop never makes an exercise worse.
+     */
+    private SolutionAndTests repairUntilVerified(String task, String className, String difficulty,
+                                                 SolutionAndTests generated) {
+        SolutionAndTests best = withImports(generated);
+        if (best.verification() == null || !best.solution().equals(generated.solution())
+                || !best.tests().equals(generated.tests())) {
+            best = verified(best.solution(), best.tests());
+        }
+        TestShape originalShape = TestShape.of(best.tests());
+        boolean solutionOnly = false;
+        long deadline = System.currentTimeMillis() + repairBudgetMs;
+        int round = 0;
+        while (!best.verification().passed() && round < repairMaxRounds) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                logger.warn("Repair budget of {} ms exhausted after {} round(s)", repairBudgetMs, round);
+                break;
+            }
+            round++;
+            SolutionAndTests repaired = repairOnce(task, className, difficulty, best, solutionOnly, remaining);
+            if (repaired == null) {
+                continue;
+            }
+            if (!repaired.tests().equals(best.tests())) {
+                TestShape shape = TestShape.of(repaired.tests());
+                if (!hasRealTestAssertions(repaired.tests()) || !shape.covers(originalShape)) {
+                    // Passing by deleting tests or assertions is not a fix: keep the tests, repair the solution
+                    logger.warn("Repair round {} rejected: tests went from {} test(s)/{} assertion(s) to {}/{}; "
+                            + "only the solution is repaired from now on", round,
+                        originalShape.tests(), originalShape.assertions(), shape.tests(), shape.assertions());
+                    solutionOnly = true;
+                    continue;
+                }
+            }
+            repaired = verified(repaired.solution(), repaired.tests());
+            if (isBetter(repaired.verification(), best.verification())) {
+                logger.info("Repair round {} improved the exercise: compiled={}, {}/{} test(s) passing", round,
+                    repaired.verification().compiled(),
+                    repaired.verification().passedTests(), repaired.verification().totalTests());
+                best = repaired;
+            }
+        }
+        ExerciseVerifier.Verification outcome = best.verification();
+        if (outcome.passed()) {
+            logger.info("Exercise verified: {} test(s) pass against the solution ({} repair round(s))",
+                outcome.totalTests(), round);
+        } else {
+            logger.warn("Exercise still not verified after {} repair round(s): compiled={}, {}/{} test(s) passing",
+                round, outcome.compiled(), outcome.passedTests(), outcome.totalTests());
+        }
+        return best;
+    }
+
+    /**
+     * One model call fixing the file at fault: the file javac complains about, or for failing
+     * tests whichever of solution and tests contradicts the task (the model decides; the class
+     * it returns tells which one it rewrote). With {@code solutionOnly} the tests are frozen:
+     * the model is asked for the solution and a rewritten test class is discarded.
+     */
+    private SolutionAndTests repairOnce(String task, String className, String difficulty,
+                                        SolutionAndTests current, boolean solutionOnly, long timeoutMs) {
+        ExerciseVerifier.Verification verification = current.verification();
+        String target;
+        List<String> errors = new ArrayList<>();
+        if (!verification.compiled()) {
+            boolean solutionBroken = verification.diagnostics().stream()
+                .anyMatch(d -> d.startsWith(className + ".java:"));
+            target = solutionBroken || solutionOnly ? "SOLUTION" : "TESTS";
+            errors.addAll(verification.diagnostics());
+        } else {
+            target = solutionOnly ? "SOLUTION (les tests sont corrects)" : "SOLUTION ou TESTS (celui qui contredit l'énoncé)";
+            for (HintFailure failure : verification.failures()) {
+                errors.add(failure.testName() + " : " + failure.errorMessage());
+            }
+            if (errors.isEmpty()) {
+                errors.add("Aucun test n'a été exécuté : vérifie les annotations @Test et la classe de test");
+            }
+        }
+
+        String prompt = buildRepairPrompt(task, className, current.solution(), current.tests(),
+            errors.subList(0, Math.min(errors.size(), 15)), target);
+        String raw = awaitWithin(callLlamaAPIAsync(prompt, LLMCallType.REPAIR, difficulty), timeoutMs);
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+
+        // The reply is a test class when it declares one: names in prose or comments do not count
+        String testClassName = className + "Test";
+        if (sourceAnalyzer.analyze(raw).types().stream().anyMatch(type -> type.name().equals(testClassName))) {
+            if (solutionOnly) {
+                return null;
+            }
+            String tests = JavaSnippetNormalizer.tests(raw, testClassName);
+            String methodName = extractMethodNameFromSolution(current.solution());
+            if (methodName != null && !methodName.isEmpty()) {
+                tests = fixMethodNameInTests(tests, className, methodName);
+            }
+            return hasRealTestAssertions(tests) ? new SolutionAndTests(current.solution(), addMissingImports(tests.trim()), null) : null;
+        }
+        String solution = normalizeCandidate(raw, className, task);
+        return solution != null ? new SolutionAndTests(solution, current.tests(), null) : null;
+    }
+
+    /**
+     * Number of {@code @Test} methods and {@code assert*(...)} calls in a test class, comments and
+     * string literals excluded: a repair must not lower either.
+     */
+    private record TestShape(int tests, int assertions) {
+
+        static TestShape of(String source) {
+            int tests = 0;
+            int assertions = 0;
+            List<JavaTokenizer.Token> tokens = source == null ? List.of() : JavaTokenizer.tokenize(source).stream()
+                .filter(t -> t.kind() != JavaTokenizer.Kind.COMMENT)
+                .toList();
+            for (int i = 0; i + 1 < tokens.size(); i++) {
+                JavaTokenizer.Token token = tokens.get(i);
+                JavaTokenizer.Token next = tokens.get(i + 1);
+                if (token.text().equals("@") && next.text().equals("Test")) {
+                    tests++;
+                } else if (token.kind() == JavaTokenizer.Kind.IDENTIFIER && token.text().startsWith("assert")
+                        && next.text().equals("(")) {
+                    assertions++;
+                }
+            }
+            return new TestShape(tests, assertions);
+        }
+
+        boolean covers(TestShape original) {
+            return tests >= original.tests && assertions >= original.assertions;
+        }
+    }
+
+    private String buildRepairPrompt(String task, String className, String solution, String tests,
+                                     List<String> errors, String target) {
+        return PromptLayout.assemble(LLMCallType.REPAIR, ""
+            + "=== EXERCICE ===\n" + task + "\n\n"
+            + "=== CLASSE ===\n" + className + "\n\n"
+            + "=== SOLUTION ===\n" + solution + "\n\n"
+            + "=== TESTS ===\n" + tests + "\n\n"
+            + "=== ERREURS ===\n" + String.join("\n", errors) + "\n\n"
+            + "=== FICHIER À CORRIGER ===\n" + target + "\n\n"
+            + "Code Java corrigé :");
+    }
+
+    /**
+     * Waits at most {@code timeoutMs} for a scheduled call; null on timeout or unavailability,
+     * since a repair is optional.
+     */
+    private String awaitWithin(CompletableFuture<String> future, long timeoutMs) {
+        try {
+            return future.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            logger.warn("Repair call exceeded the remaining budget ({} ms)", timeoutMs);
+            return null;
+        } catch (ExecutionException e) {
+            logger.warn("Repair call failed: {}", e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private SolutionAndTests verified(String solution, String tests) {
+        return new SolutionAndTests(solution, tests, verifier.verify(solution, tests));
+    }
+
+    private SolutionAndTests withImports(SolutionAndTests pair) {
+        return new SolutionAndTests(addMissingImports(pair.solution()), addMissingImports(pair.tests()),
+            pair.verification());
+    }
+
+    /**
+     * Compiling beats not compiling, all tests passing beats some failing, then the pass ratio.
+     */
+    private static boolean isBetter(ExerciseVerifier.Verification candidate, ExerciseVerifier.Verification current) {
+        if (candidate.compiled() != current.compiled()) {
+            return candidate.compiled();
+        }
+        if (candidate.passed() != current.passed()) {
+            return candidate.passed();
+        }
+        return passRatio(candidate) > passRatio(current);
+    }
+
+    private static double passRatio(ExerciseVerifier.Verification verification) {
+        return verification.totalTests() > 0 ? (double) verification.passedTests() / verification.totalTests() : 0;
+    }
+
+    /**
+     * Adds {@code import java.util.*;} when java.util types are used without any java.util import
+     * (the snippet cleaners cut everything before the class declaration).
+     */
+    private String addMissingImports(String code) {
+        if (code == null || code.contains("import java.util") || !JAVA_UTIL_TYPES.matcher(code).find()) {
+            return code;
+        }
+        return "import java.util.*;\n" + code;
     }
     
-    private String buildSolutionPrompt(String task, String className) {
-        return "Tu es un expert en programmation Java. Génère une solution COMPLÈTE et FONCTIONNELLE pour cet exercice.\n\n"
+    private String buildSolutionPrompt(String task, String className, FewShot fewShot) {
+        return buildSolutionPrompt(task, className, fewShot, null);
+    }
+
+    /**
+     * @param tests tests the solution must pass (their calls fix the method signature), or null
+     */
+    private String buildSolutionPrompt(String task, String className, FewShot fewShot, String tests) {
+        return PromptLayout.assemble(LLMCallType.SOLUTION, fewShot.solutions()
             + "=== EXERCICE ===\n" + task + "\n\n"
-            + "=== EXIGENCES ABSOLUES ===\n"
-            + "1. Nom de classe EXACT : " + className + "\n"
-            + "2. Méthodes : public static avec implémentation COMPLÈTE (pas de TODO, pas de code vide)\n"
-            + "3. Le code DOIT être compilable et fonctionnel immédiatement\n"
-            + "4. Gestion OBLIGATOIRE des cas limites : null, tableaux vides, chaînes vides, valeurs négatives\n"
-            + "5. Structure correcte : toutes les accolades fermées, indentation 4 espaces\n"
-            + "6. PAS de méthode main (sauf si l'exercice le demande explicitement)\n"
-            + "7. PAS de commentaires dans le code\n"
-            + "8. PAS de markdown, PAS d'explications, UNIQUEMENT du code Java brut\n\n"
-            + "=== EXEMPLE DE BONNE SOLUTION ===\n"
-            + "Si l'exercice demande de calculer la somme d'un tableau :\n"
-            + "public class ArraySum {\n"
-            + "    public static int sum(int[] array) {\n"
-            + "        if (array == null || array.length == 0) return 0;\n"
-            + "        int total = 0;\n"
-            + "        for (int num : array) {\n"
-            + "            total += num;\n"
-            + "        }\n"
-            + "        return total;\n"
-            + "    }\n"
-            + "}\n\n"
-            + "=== FORMAT DE RÉPONSE ===\n"
-            + "Commence DIRECTEMENT par 'public class " + className + " {'\n"
-            + "Réponds UNIQUEMENT avec le code Java complet et fonctionnel, rien d'autre.\n\n"
-            + "Code Java :";
+            + "=== CLASSE ===\n" + className + "\n\n"
+            + (tests != null ? "=== TESTS À FAIRE PASSER ===\n" + tests + "\n\n"
+                + "Respecte exactement la signature appelée par les tests.\n\n" : "")
+            + "Code Java :");
     }
     
-    private String validateAndFixSolution(String code, String className, String task) {
+    private String validateAndFixSolution(String code, String className, String task, String difficulty) {
         if (code == null || code.isBlank()) {
             logger.warn("Solution is null or empty, retrying...");
-            return retrySolutionGeneration(task, className);
+            return retrySolutionGeneration(task, className, difficulty);
         }
         
         if (!code.contains("class ")) {
             logger.warn("Solution has no 'class', retrying...");
-            return retrySolutionGeneration(task, className);
+            return retrySolutionGeneration(task, className, difficulty);
         }
 
         // Check for structural completeness - ensure class has closing brace
         if (!code.contains("}")) {
             logger.warn("Solution seems truncated (missing closing brace), retrying...");
-            return retrySolutionGeneration(task, className);
+            return retrySolutionGeneration(task, className, difficulty);
         }
         
         // Check if method body is complete (has opening and closing braces)
@@ -353,25 +944,20 @@ public class LLMService {
             int returnCount = countOccurrences(code, "return ");
             if (methodCount > returnCount && methodCount > 0) {
                 logger.warn("Solution seems incomplete (methods without return statements), retrying...");
-                return retrySolutionGeneration(task, className);
+                return retrySolutionGeneration(task, className, difficulty);
             }
         }
 
         if (code.contains("TODO") || code.contains("todo") || code.contains("// TODO")) {
             logger.warn("Solution contains TODO, retrying...");
-            return retrySolutionGeneration(task, className);
+            return retrySolutionGeneration(task, className, difficulty);
         }
 
         if (code.length() < 100 || !hasRealImplementation(code)) {
             logger.warn("Solution too short or no real implementation, retrying...");
-            return retrySolutionGeneration(task, className);
-        }
-
-        if (!needsMain(task)) {
-            code = removeMainMethod(code);
+            return retrySolutionGeneration(task, className, difficulty);
         }
 
-        code = ensureClassName(code, className);
         code = fixBraces(code);
 
         if (code.contains("TODO") || !hasRealImplementation(code)) {
@@ -393,12 +979,11 @@ public class LLMService {
         return count;
     }
     
-    private String retrySolutionGeneration(String task, String className) {
+    private String retrySolutionGeneration(String task, String className, String difficulty) {
         logger.info("Retrying solution generation with enhanced prompt...");
         String enhancedPrompt = buildEnhancedSolutionPrompt(task, className);
-        // Use same high n_predict as initial generation to prevent truncation
-        String code = callLlamaAPI(enhancedPrompt, 1400);
-        code = cleanJavaSnippet(code);
+        String code = callLlamaAPI(enhancedPrompt, LLMCallType.SOLUTION, difficulty);
+        code = JavaSnippetNormalizer.solution(code, className, needsMain(task));
         
         if (code != null && code.contains("class ") && !code.contains("TODO") 
             && code.length() > 100 && hasRealImplementation(code)) {
@@ -408,29 +993,17 @@ public class LLMService {
         return createIntelligentFallback(className, task);
     }
     
+    /**
+     * Same cached prefix as the first attempt; the insistence goes in the suffix.
+     */
     private String buildEnhancedSolutionPrompt(String task, String className) {
-        return "URGENT: Génère du code Java COMPLET et FONCTIONNEL. PAS de TODO, PAS de code vide.\n\n"
+        return PromptLayout.assemble(LLMCallType.SOLUTION, ""
             + "=== EXERCICE ===\n" + task + "\n\n"
-            + "=== CODE REQUIS ===\n"
-            + "1. Classe : " + className + "\n"
-            + "2. Méthode public static avec CODE COMPLET (pas de TODO)\n"
-            + "3. Le code DOIT fonctionner immédiatement\n"
-            + "4. Gère null, tableaux vides, chaînes vides\n\n"
-            + "=== EXEMPLE CONCRET ===\n"
-            + "Si exercice = 'calculer somme tableau' :\n"
-            + "public class ArraySum {\n"
-            + "    public static int sum(int[] array) {\n"
-            + "        if (array == null || array.length == 0) return 0;\n"
-            + "        int total = 0;\n"
-            + "        for (int num : array) {\n"
-            + "            total += num;\n"
-            + "        }\n"
-            + "        return total;\n"
-            + "    }\n"
-            + "}\n\n"
-            + "Génère le code COMPLET pour : " + task + "\n"
+            + "=== CLASSE ===\n" + className + "\n\n"
+            + "URGENT: la tentative précédente était incomplète. Génère du code Java COMPLET et FONCTIONNEL, "
+            + "PAS de TODO, PAS de code vide. Gère null, tableaux vides, chaînes vides.\n"
             + "Commence par 'public class " + className + " {'\n"
-            + "CODE COMPLET SANS TODO :";
+            + "CODE COMPLET SANS TODO :");
     }
     
     private boolean hasRealImplementation(String code) {
@@ -452,6 +1025,11 @@ public class LLMService {
     }
     
     private String createIntelligentFallback(String className, String task) {
+        Optional<ExerciseTemplateLibrary.Match> template = templateLibrary.match(task);
+        if (template.isPresent()) {
+            return template.get().template().instantiate(className).solution();
+        }
+
         String taskLower = task.toLowerCase();
         
         if (taskLower.contains("somme") || taskLower.contains("sum")) {
@@ -585,27 +1163,7 @@ public class LLMService {
     }
     
     private String extractFirstMethodSignature(String solution) {
-        if (solution == null || solution.isBlank()) {
-            return null;
-        }
-        
-        String[] lines = solution.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(") && trimmed.contains(")")) {
-                int openParen = trimmed.indexOf('(');
-                int closeParen = trimmed.indexOf(')');
-                if (openParen > 0 && closeParen > openParen) {
-                    String signature = trimmed.substring(0, closeParen + 1);
-                    if (!signature.endsWith("{")) {
-                        signature += " {";
-                    }
-                    return signature;
-                }
-            }
-        }
-        return null;
+        return solutionMethod(solution).map(method -> method.signature() + " {").orElse(null);
     }
     
     private String createStarterCodeFromSignature(String methodSignature, String expectedClassName) {
@@ -678,17 +1236,19 @@ public class LLMService {
     // ============================================================
     // 6) JUnit 5 test generation
     // ============================================================
-    private String generateJUnitTests(String task, String solution, String className) {
+    private String generateJUnitTests(String task, String solution, String className, String difficulty,
+                                      FewShot fewShot) {
         String tests = null;
         
         // Try to generate from solution first
         if (solution != null && !solution.isBlank() && !solution.contains("TODO")) {
             String expectedTestClassName = className + "Test";
             String methodInfo = extractMethodInfoForTests(solution);
-            String prompt = buildTestPrompt(className, methodInfo, expectedTestClassName, task);
+            String prompt = buildTestPrompt(className, methodInfo, extractMethodNameFromSolution(solution),
+                expectedTestClassName, task, fewShot);
             
-            String rawTests = callLlamaAPI(prompt, 500);
-            tests = cleanJavaTestSnippet(rawTests, expectedTestClassName);
+            String rawTests = callLlamaAPI(prompt, LLMCallType.TESTS, difficulty);
+            tests = JavaSnippetNormalizer.tests(rawTests, expectedTestClassName);
 
             // Validate generated tests
             if (tests == null || tests.isBlank() || !tests.contains("@Test") 
@@ -852,97 +1412,26 @@ public class LLMService {
         return tests;
     }
     
+    /**
+     * The static method a solution implements (its first static method other than main).
+     */
+    private Optional<JavaSourceModel.MethodInfo> solutionMethod(String solution) {
+        return sourceAnalyzer.analyze(solution).firstStaticMethod();
+    }
+    
     private String extractMethodNameFromSolution(String solution) {
-        if (solution == null || solution.isBlank()) {
-            return null;
-        }
-        
-        String[] lines = solution.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(") && trimmed.contains(")")) {
-                // Extract method name: public static int methodName(...)
-                int startIdx = trimmed.indexOf("static");
-                if (startIdx >= 0) {
-                    String afterStatic = trimmed.substring(startIdx + "static".length()).trim();
-                    // Find the method name (word before the opening parenthesis)
-                    int openParen = afterStatic.indexOf('(');
-                    if (openParen > 0) {
-                        String beforeParen = afterStatic.substring(0, openParen).trim();
-                        String[] parts = beforeParen.split("\\s+");
-                        if (parts.length > 0) {
-                            return parts[parts.length - 1]; // Last word before (
-                        }
-                    }
-                }
-            }
-        }
-        return null;
+        return solutionMethod(solution).map(JavaSourceModel.MethodInfo::name).orElse(null);
     }
     
     private String extractReturnTypeFromSolution(String solution) {
-        if (solution == null || solution.isBlank()) {
-            return "int";
-        }
-        
-        String[] lines = solution.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(")) {
-                // Extract return type: public static ReturnType methodName(...)
-                int staticIdx = trimmed.indexOf("static");
-                if (staticIdx >= 0) {
-                    String afterStatic = trimmed.substring(staticIdx + "static".length()).trim();
-                    int openParen = afterStatic.indexOf('(');
-                    if (openParen > 0) {
-                        String beforeParen = afterStatic.substring(0, openParen).trim();
-                        String[] parts = beforeParen.split("\\s+");
-                        if (parts.length >= 2) {
-                            return parts[0]; // Return type is before method name
-                        } else if (parts.length == 1) {
-                            return "void";
-                        }
-                    }
-                }
-            }
-        }
-        return "int";
+        return solutionMethod(solution).map(JavaSourceModel.MethodInfo::returnType).orElse("int");
     }
     
     private String extractParamTypeFromSolution(String solution) {
-        if (solution == null || solution.isBlank()) {
-            return "int[]";
-        }
-        
-        String[] lines = solution.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(") && trimmed.contains(")")) {
-                // Extract parameter type from method signature
-                int openParen = trimmed.indexOf('(');
-                int closeParen = trimmed.indexOf(')');
-                if (openParen > 0 && closeParen > openParen) {
-                    String params = trimmed.substring(openParen + 1, closeParen).trim();
-                    if (params.isEmpty()) {
-                        return "int[]";
-                    }
-                    // Extract first parameter type
-                    String[] paramParts = params.split("\\s+");
-                    if (paramParts.length > 0) {
-                        String paramType = paramParts[0];
-                        // Handle array types like int[]
-                        if (params.contains("[]")) {
-                            return paramType + "[]";
-                        }
-                        return paramType;
-                    }
-                }
-            }
-        }
-        return "int[]";
+        return solutionMethod(solution)
+            .filter(m -> !m.parameterTypes().isEmpty())
+            .map(m -> m.parameterTypes().get(0))
+            .orElse("int[]");
     }
     
     private String inferMethodNameFromTask(String task) {
@@ -1062,80 +1551,32 @@ public class LLMService {
         return tests.toString();
     }
     
-    private String buildTestPrompt(String className, String codeToTest, String expectedTestClassName, String task) {
-        // Extract method name from codeToTest to ensure correct usage
-        String methodName = extractMethodNameFromSignature(codeToTest);
-        String methodNameHint = methodName != null && !methodName.isEmpty() 
-            ? " (nom de méthode EXACT : " + methodName + ")" 
-            : "";
+    private String buildTestPrompt(String className, String codeToTest, String methodName, String expectedTestClassName,
+                                   String task, FewShot fewShot) {
+        boolean hasMethodName = methodName != null && !methodName.isEmpty();
         
-        return "URGENT: Génère des tests JUnit 5 COMPLETS avec des ASSERTIONS RÉELLES. PAS de TODO.\n\n"
+        return PromptLayout.assemble(LLMCallType.TESTS, fewShot.tests()
             + "=== EXERCICE ===\n" + (task != null ? task : "") + "\n\n"
             + "=== CLASSE À TESTER ===\n"
             + "Classe : " + className + "\n"
             + "Méthode(s) :\n" + codeToTest + "\n"
-            + (methodName != null && !methodName.isEmpty() 
-                ? "Nom de méthode à utiliser : " + methodName + "\n" 
-                : "") + "\n"
-            + "=== EXIGENCES ABSOLUES ===\n"
-            + "1. Nom de classe de test EXACT : " + expectedTestClassName + "\n"
-            + "2. Imports OBLIGATOIRES :\n"
-            + "   import org.junit.jupiter.api.Test;\n"
-            + "   import static org.junit.jupiter.api.Assertions.*;\n"
-            + "3. Minimum 3 tests avec ASSERTIONS RÉELLES (PAS de TODO) :\n"
-            + "   - testCasBasique() : valeurs normales avec assertEquals concret\n"
-            + "   - testCasLimite() : null, tableaux vides, chaînes vides avec assertions\n"
-            + "   - testCasComplexe() : cas multiples avec assertions\n"
-            + "4. Chaque test DOIT appeler " + className + "." 
-            + (methodName != null && !methodName.isEmpty() ? methodName : "méthode") 
-            + "(...) et vérifier avec assertEquals/assertTrue/assertFalse\n"
-            + "5. Utilise EXACTEMENT le nom de méthode de la signature ci-dessus" + methodNameHint + "\n"
-            + "6. INTERDICTION ABSOLUE : PAS de TODO, PAS de code vide\n"
-            + "7. PAS de markdown, UNIQUEMENT du code de test fonctionnel\n\n"
-            + "=== EXEMPLE CONCRET ===\n"
-            + "Si méthode = " + (methodName != null && !methodName.isEmpty() ? methodName : "sum") + "(int[] array) :\n"
-            + "@Test\n"
-            + "void testCasBasique() {\n"
-            + "    int[] array = {1, 2, 3};\n"
-            + "    assertEquals(6, " + className + "." 
-            + (methodName != null && !methodName.isEmpty() ? methodName : "sum") + "(array));\n"
-            + "}\n\n"
-            + "@Test\n"
-            + "void testCasLimite() {\n"
-            + "    assertEquals(0, " + className + "." 
-            + (methodName != null && !methodName.isEmpty() ? methodName : "sum") + "(new int[]{}));\n"
-            + "    assertEquals(0, " + className + "." 
-            + (methodName != null && !methodName.isEmpty() ? methodName : "sum") + "(null));\n"
-            + "}\n\n"
-            + "=== FORMAT ===\n"
-            + "Commence par 'import org.junit.jupiter.api.Test;'\n"
-            + "Génère des tests COMPLETS avec assertions RÉELLES pour : " + (task != null ? task : className) + "\n"
-            + "Utilise le nom de méthode EXACT de la signature fournie.\n\n"
-            + "Code des tests :";
-    }
-    
-    private String extractMethodNameFromSignature(String signature) {
-        if (signature == null || signature.isBlank()) {
-            return null;
-        }
-        
-        // Look for method name pattern: returnType methodName(...)
-        String[] lines = signature.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(") && trimmed.contains(")")) {
-                int openParen = trimmed.indexOf('(');
-                if (openParen > 0) {
-                    String beforeParen = trimmed.substring(0, openParen).trim();
-                    String[] parts = beforeParen.split("\\s+");
-                    if (parts.length >= 2) {
-                        return parts[parts.length - 1]; // Last word before (
-                    }
-                }
-            }
-        }
-        return null;
+            + (hasMethodName ? "Nom de méthode à utiliser : " + methodName + "\n" : "") + "\n"
+            + "=== CLASSE DE TEST ===\n" + expectedTestClassName + "\n\n"
+            + "Chaque test appelle " + className + "." + (hasMethodName ? methodName : "méthode") + "(...).\n"
+            + "Génère des tests COMPLETS avec assertions RÉELLES pour : " + (task != null ? task : className) + "\n\n"
+            + "Code des tests :");
+    }
+    
+    private String buildSpecTestPrompt(String className, String expectedTestClassName, String task, FewShot fewShot) {
+        return PromptLayout.assemble(LLMCallType.TESTS, fewShot.tests()
+            + "=== EXERCICE ===\n" + task + "\n\n"
+            + "=== CLASSE À TESTER ===\n"
+            + "Classe : " + className + " (pas encore écrite)\n"
+            + "Choisis UNE méthode public static adaptée à l'exercice, avec un nom explicite.\n\n"
+            + "=== CLASSE DE TEST ===\n" + expectedTestClassName + "\n\n"
+            + "Chaque test appelle " + className + ".<méthode>(...) avec la même signature.\n"
+            + "Génère des tests COMPLETS avec assertions RÉELLES pour : " + task + "\n\n"
+            + "Code des tests :");
     }
 
     // ============================================================
@@ -1146,26 +1587,82 @@ public class LLMService {
      */
     public String generateHint(String testName, String testCode,
                                String studentCode, String errorMessage) {
-        return generateHint(testName, testCode, studentCode, errorMessage, null);
+        return generateHint(null, testName, testCode, studentCode, errorMessage, null);
+    }
+
+    /**
+     * Generates a hint without exercise id: the hint cache is not consulted.
+     */
+    public String generateHint(String testName, String testCode,
+                               String studentCode, String errorMessage, String problemStatement) {
+        return generateHint(null, testName, testCode, studentCode, errorMessage, problemStatement);
     }
 
     /**
      * Main hint generator.
      * Key improvements:
+     * - Reuses the cached hint of an identical failure (same exercise, test, error and code structure).
      * - Only sends the relevant student class + (optionally) the most relevant method body.
      * - Forces the LLM to output STRICT JSON on a single line.
      * - Parses JSON and rebuilds a clean human-readable hint (keeps newlines for code snippet).
      * - Avoids collapsing whitespace (which previously made hints unreadable).
      */
-    public String generateHint(String testName, String testCode,
+    public String generateHint(Long exerciseId, String testName, String testCode,
                                String studentCode, String errorMessage, String problemStatement) {
+        try {
+            return generateHintFromLLM(exerciseId, testName, testCode, studentCode, errorMessage, problemStatement);
+        } catch (LLMUnavailableException e) {
+            logger.warn("LLM unavailable, returning default hint for {}: {}", testName, e.getMessage());
+            return getDefaultHint(errorMessage);
+        }
+    }
+
+    /**
+     * Hint for the REST endpoint, flagged as degraded when the LLM could not be reached.
+     */
+    public HintResponse generateHintResponse(Long exerciseId, String testName, String testCode,
+                                             String studentCode, String errorMessage) {
+        try {
+            return new HintResponse(generateHintFromLLM(exerciseId, testName, testCode, studentCode, errorMessage, null), false);
+        } catch (LLMUnavailableException e) {
+            logger.warn("LLM unavailable, returning default hint for {}: {}", testName, e.getMessage());
+            return new HintResponse(getDefaultHint(errorMessage), true);
+        }
+    }
+
+    private String generateHintFromLLM(Long exerciseId, String testName, String testCode,
+                                       String studentCode, String errorMessage, String problemStatement) {
+        HintLookup lookup = exerciseId != null ? hintLookup(exerciseId, testName, testCode, studentCode, errorMessage) : null;
+        if (lookup != null) {
+            Optional<String> cached = hintCache.find(lookup.key(), exerciseId, lookup.context());
+            if (cached.isPresent()) {
+                logger.info("Reusing cached hint for failed test: {}", testName);
+                return cached.get();
+            }
+        }
+
+        String hint = generateHintUncached(testName, testCode, studentCode, errorMessage, problemStatement);
+        if (hint == null) {
+            return getDefaultHint(errorMessage);
+        }
+        if (lookup != null) {
+            hintCache.put(lookup.key(), exerciseId, testName, hint, lookup.context());
+        }
+        return hint;
+    }
+
+    /**
+     * One LLM call for one failure; null when the model produced nothing usable.
+     */
+    private String generateHintUncached(String testName, String testCode,
+                                        String studentCode, String errorMessage, String problemStatement) {
         logger.info("Generating hint for failed test: {}", testName);
 
         // Build a strong context for the LLM (but keep it short)
         String exerciseContext = buildExerciseContext(problemStatement);
 
-        // Extract likely method name from the test (ClassName.methodName(...))
-        String targetMethod = extractMethodNameFromTest(testCode);
+        // Extract likely method name from the failing test (ClassName.methodName(...))
+        String targetMethod = extractMethodNameFromTest(failingTestSource(testCode, testName));
 
         // Keep only the relevant student code: first class + optionally the target method body
         String sanitizedStudentCode = sanitizeStudentCodeForHint(studentCode);
@@ -1174,80 +1671,244 @@ public class LLMService {
         // Build prompt with strict JSON output contract
         String prompt = buildHintPromptJson(
             testName,
-            testCode,
+            failingTestSource(testCode, testName),
             focusedStudentCode,
             errorMessage,
             exerciseContext,
             targetMethod
         );
 
-        // Call LLM with retry (but accept only valid JSON)
-        String raw = generateHintWithRetryJson(prompt, 2);
+        // Single schema-constrained call: the response is valid JSON by construction
+        String raw = generateHintJson(prompt);
 
         // Convert JSON -> clean hint text
         String hint = postProcessHintJson(raw);
 
-        // Fallback if JSON is missing/invalid
+        // Caller falls back if JSON is missing/invalid
         if (hint != null && hint.trim().length() >= 10) {
             return hint.trim();
         }
-        return getDefaultHint(errorMessage);
+        return null;
     }
-    
+
+    /**
+     * The failing test method when it can be found in the test class, else the whole class.
+     */
+    private String failingTestSource(String testCode, String testName) {
+        if (testCode == null || testName == null) {
+            return testCode;
+        }
+        String testMethod = extractMethodBlock(testCode, testName.replace("()", "").trim());
+        return testMethod != null ? testMethod : testCode;
+    }
+
+    /**
+     * How a failure is looked up in the hint cache: the exact key, whose fingerprint covers the
+     * student method the failing test calls, and the context similar failures are matched on.
+     */
+    private record HintLookup(String key, String context) {
+    }
+
+    private HintLookup hintLookup(Long exerciseId, String testName, String testCode,
+                                  String studentCode, String errorMessage) {
+        String targetMethod = extractMethodNameFromTest(failingTestSource(testCode, testName));
+        String focused = focusStudentCodeOnMethod(sanitizeStudentCodeForHint(studentCode), targetMethod);
+        return new HintLookup(hintCache.keyFor(exerciseId, testName, errorMessage, focused),
+            HintCacheService.semanticContext(testName, errorMessage, focused));
+    }
+
     /**
-     * Calls LLM and returns the raw response ONLY if it contains a valid JSON object.
-     * Otherwise retries up to maxRetries times.
+     * Hints for all failed tests of one submission, in the order of {@code failures}.
+     * Cached hints are reused; the remaining failures share one prompt that carries the
+     * context (exercise, student code) once plus a short section per failure, and asks for
+     * a JSON array with one hint per failure. Items that cannot be used fall back to a
+     * single-test call; an unreachable LLM yields the default hints.
      */
-    private String generateHintWithRetryJson(String prompt, int maxRetries) {
-        for (int attempt = 0; attempt < maxRetries; attempt++) {
-            String raw = callLlamaAPIForHintJson(prompt, 320); // Lower token budget keeps it short
-            if (raw != null && !raw.isBlank()) {
-                String json = extractFirstJsonObject(raw);
-                if (json != null) {
-                    logger.info("Hint JSON extracted on attempt {}: {}",
-                        attempt + 1, json.length() > 200 ? json.substring(0, 200) + "..." : json);
-                    return json;
+    public List<String> generateHints(Long exerciseId, List<HintFailure> failures, String testCode,
+                                      String studentCode, String problemStatement) {
+        if (failures.isEmpty()) {
+            return List.of();
+        }
+        if (failures.size() == 1) {
+            HintFailure only = failures.get(0);
+            return List.of(generateHint(exerciseId, only.testName(), testCode, studentCode, only.errorMessage(), problemStatement));
+        }
+
+        String[] hints = new String[failures.size()];
+        HintLookup[] lookups = new HintLookup[failures.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < failures.size(); i++) {
+            HintFailure failure = failures.get(i);
+            if (exerciseId != null) {
+                lookups[i] = hintLookup(exerciseId, failure.testName(), testCode, studentCode, failure.errorMessage());
+                Optional<String> cached = hintCache.find(lookups[i].key(), exerciseId, lookups[i].context());
+                if (cached.isPresent()) {
+                    hints[i] = cached.get();
+                    continue;
                 }
             }
-            logger.warn("Hint JSON not found on attempt {}", attempt + 1);
+            pending.add(i);
         }
-        return "";
+        if (pending.size() < failures.size()) {
+            logger.info("Reusing {} cached hint(s), {} to generate", failures.size() - pending.size(), pending.size());
+        }
+
+        for (int from = 0; from < pending.size(); from += maxHintBatchSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(pending.size(), from + maxHintBatchSize));
+            List<HintFailure> chunkFailures = chunk.stream().map(failures::get).toList();
+            List<String> generated;
+            try {
+                generated = generateHintChunk(chunkFailures, testCode, studentCode, problemStatement);
+            } catch (LLMUnavailableException e) {
+                logger.warn("LLM unavailable, returning default hints: {}", e.getMessage());
+                generated = Collections.nCopies(chunk.size(), null);
+            }
+            for (int j = 0; j < chunk.size(); j++) {
+                int i = chunk.get(j);
+                String hint = generated.get(j);
+                if (hint == null) {
+                    // Default hints are never cached: the next identical failure retries the LLM
+                    hints[i] = getDefaultHint(failures.get(i).errorMessage());
+                    continue;
+                }
+                hints[i] = hint;
+                if (lookups[i] != null) {
+                    hintCache.put(lookups[i].key(), exerciseId, failures.get(i).testName(), hint, lookups[i].context());
+                }
+            }
+        }
+        return Arrays.asList(hints);
     }
 
     /**
-     * LLM call for hint generation (JSON-only).
-     * Important changes:
-     * - Uses stop tokens that prevent long rambling.
-     * - Keeps temperature moderate.
+     * Usable hints, null where none could be produced.
+     */
+    private List<String> generateHintChunk(List<HintFailure> failures, String testCode,
+                                           String studentCode, String problemStatement) {
+        if (failures.size() == 1) {
+            HintFailure only = failures.get(0);
+            return Collections.singletonList(
+                generateHintUncached(only.testName(), testCode, studentCode, only.errorMessage(), problemStatement));
+        }
+
+        logger.info("Generating {} hints in one batched call", failures.size());
+        String prompt = buildHintBatchPrompt(failures, testCode, studentCode, problemStatement);
+        int budget = Math.min(LLMCallType.HINT_BATCH.getDefaultMaxTokens(), 120 + 200 * failures.size());
+        CompletionRequest request = CompletionRequest.of(LLMCallType.HINT_BATCH, prompt, budget)
+            .withSampling(0.25, 0.9, 40, 1.12)
+            .withJsonSchema(LLMOutputSchemas.hintArray(failures.size(), budget));
+        List<String> parsed = parseHintArray(awaitCompletion(callLlamaAPIAsync(request, null)), failures.size());
+
+        List<String> hints = new ArrayList<>(failures.size());
+        for (int i = 0; i < failures.size(); i++) {
+            String hint = parsed != null ? parsed.get(i) : null;
+            if (hint == null || hint.length() < 10) {
+                HintFailure failure = failures.get(i);
+                logger.info("Batched hint #{} unusable, falling back to a single call for {}", i + 1, failure.testName());
+                hint = generateHintUncached(failure.testName(), testCode, studentCode, failure.errorMessage(), problemStatement);
+            }
+            hints.add(hint);
+        }
+        return hints;
+    }
+
+    /**
+     * Same priorities as the single-hint prompt, within {@code llm.prompt-budget.hint-batch} tokens:
+     * test methods go first (last failure first), then the statement, then the student code.
      */
-    private String callLlamaAPIForHintJson(String prompt, int maxTokens) {
+    private String buildHintBatchPrompt(List<HintFailure> failures, String testCode,
+                                        String studentCode, String problemStatement) {
+        PromptBudget suffix = tokenCounter.budget(hintBatchPromptTokens)
+            .addTrimmable(PromptBudget.Priority.LOW, "CONTEXT (exercise):\n" + buildExerciseContext(problemStatement) + "\n\n")
+            .addTrimmable(PromptBudget.Priority.HIGH,
+                "STUDENT CODE (only relevant parts):\n" + sanitizeStudentCodeForHint(studentCode) + "\n\n")
+            .add(PromptBudget.Priority.REQUIRED, "FAILURES:\n");
+        for (int i = 0; i < failures.size(); i++) {
+            HintFailure failure = failures.get(i);
+            String err = (failure.errorMessage() == null || failure.errorMessage().isBlank())
+                ? "Test failed" : failure.errorMessage();
+            suffix.add(PromptBudget.Priority.REQUIRED, "#" + (i + 1) + " Test name: " + safeOneLine(failure.testName()) + "\n"
+                + "Error: " + safeOneLine(err) + "\n");
+            String testMethod = extractMethodBlock(testCode, failure.testName().replace("()", "").trim());
+            if (testMethod != null) {
+                suffix.addTrimmable(PromptBudget.Priority.MEDIUM, "Test:\n" + testMethod + "\n");
+            }
+            suffix.add(PromptBudget.Priority.REQUIRED, "\n");
+        }
+        suffix.add(PromptBudget.Priority.REQUIRED, "JSON array of " + failures.size() + " hints:");
+        return PromptLayout.assemble(LLMCallType.HINT_BATCH, suffix.build());
+    }
+
+    /**
+     * One cleaned hint (or null) per item, or null when the response is not an array of the expected size.
+     */
+    private List<String> parseHintArray(String raw, int expected) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("prompt", prompt);
-            requestBody.put("n_predict", maxTokens);
-            requestBody.put("temperature", 0.25);
-            requestBody.put("top_p", 0.9);
-            requestBody.put("top_k", 40);
-            requestBody.put("repeat_penalty", 1.12);
-
-            // Stop early when it starts adding separators or extra text.
-            // IMPORTANT: we do NOT stop on "===" in the prompt because we no longer need "===" in the output.
-            requestBody.put("stop", new String[]{"\n\n", "```", "</s>", "=== "});
-
-            HttpHeaders headers = createHeaders();
-            HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
-
-            String response = restTemplate.postForObject(
-                llamacppBaseUrl + "/completion",
-                request,
-                String.class
-            );
-
-            return processResponse(response);
+            JsonNode node = objectMapper.readTree(raw);
+            if (!node.isArray() || node.size() != expected) {
+                logger.warn("Batched hint response has {} items, expected {}", node.isArray() ? node.size() : 0, expected);
+                return null;
+            }
+            List<String> hints = new ArrayList<>(expected);
+            for (JsonNode item : node) {
+                String hint = postProcessHintJson(item.toString());
+                hints.add(hint != null ? hint.trim() : null);
+            }
+            return hints;
         } catch (Exception e) {
-            logger.error("Error calling LLM for hint generation (JSON)", e);
+            logger.warn("Batched hint response is not JSON: {}", trimToMax(raw, 200));
+            return null;
+        }
+    }
+
+    /**
+     * Calls the LLM once with the hint JSON schema.
+     * The brace scan only runs when the server ignored the schema (older llama.cpp builds).
+     */
+    private String generateHintJson(String prompt) {
+        String raw = callLlamaAPIForHintJson(prompt);
+        if (raw == null || raw.isBlank()) {
+            logger.warn("Hint LLM call returned no content");
             return "";
         }
+        if (isParsableJson(raw)) {
+            return raw.trim();
+        }
+        String json = extractFirstJsonObject(raw);
+        if (json == null) {
+            logger.warn("Hint response is not JSON: {}", trimToMax(raw, 200));
+            return "";
+        }
+        return json;
+    }
+
+    private boolean isParsableJson(String text) {
+        try {
+            objectMapper.readTree(text);
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * LLM call for hint generation (JSON-only).
+     * Important changes:
+     * - Keeps temperature moderate.
+     * - Constrains sampling with the hint JSON schema, which also ends the output: no text stop
+     *   tokens, they could cut the JSON inside a string or between fields.
+     * - Goes through the scheduler as interactive work, ahead of exercise generation.
+     */
+    private String callLlamaAPIForHintJson(String prompt) {
+        int budget = tokenBudgets.budgetFor(LLMCallType.HINT, null);
+        CompletionRequest request = CompletionRequest.of(LLMCallType.HINT, prompt, budget)
+            .withSampling(0.25, 0.9, 40, 1.12)
+            .withJsonSchema(LLMOutputSchemas.hint(budget));
+
+        return awaitCompletion(callLlamaAPIAsync(request, null));
     }
     
     private String extractTestExpectation(String testCode) {
@@ -1297,6 +1958,9 @@ public class LLMService {
     
     /**
      * Builds a JSON-only prompt that prevents messy "essay" outputs.
+     * The output rules are the cached HINT prefix; only the failure details vary. They are fitted
+     * into {@code llm.prompt-budget.hint} tokens: the test is cut before the student code, the
+     * exercise statement before both; the failure itself is always kept.
      */
     private String buildHintPromptJson(String testName,
                                       String testCode,
@@ -1305,38 +1969,25 @@ public class LLMService {
                                       String exerciseContext,
                                       String targetMethodName) {
 
-        String shortTest = trimToMax(testCode, 450);  // Keep it short to avoid confusion
         String err = (errorMessage == null || errorMessage.isBlank()) ? "Test failed" : errorMessage;
 
         String methodLine = (targetMethodName == null || targetMethodName.isBlank())
             ? ""
             : "Target method name: " + targetMethodName + "\n";
 
-        return ""
-            + "You are a Java programming teacher.\n"
-            + "Your job: give a short, actionable hint.\n\n"
-            + "CONTEXT (exercise):\n"
-            + exerciseContext + "\n\n"
-            + "FAILURE:\n"
-            + "Test name: " + safeOneLine(testName) + "\n"
-            + "Error: " + safeOneLine(err) + "\n"
-            + methodLine + "\n"
-            + "STUDENT CODE (only relevant parts):\n"
-            + focusedStudentCode + "\n\n"
-            + "TEST (for expected behavior, truncated):\n"
-            + shortTest + "\n\n"
-            + "STRICT OUTPUT RULES:\n"
-            + "Return ONLY ONE JSON object on ONE line. No extra text.\n"
-            + "Format exactly:\n"
-            + "{\"problem\":\"...\",\"fix\":\"...\",\"snippet\":\"...\"}\n"
-            + "Rules:\n"
-            + "- problem: 1 sentence, the precise mistake.\n"
-            + "- fix: 1 sentence, what to change.\n"
-            + "- snippet: either empty string \"\" or a tiny Java snippet (max 3 lines).\n"
-            + "- NEVER include package/import/Spring/JPA/annotations.\n"
-            + "- NEVER mention other classes/files.\n"
-            + "- Do not use markdown.\n\n"
-            + "JSON:";
+        String variablePart = tokenCounter.budget(hintPromptTokens)
+            .addTrimmable(PromptBudget.Priority.LOW, "CONTEXT (exercise):\n" + exerciseContext + "\n\n")
+            .add(PromptBudget.Priority.REQUIRED, "FAILURE:\n"
+                + "Test name: " + safeOneLine(testName) + "\n"
+                + "Error: " + safeOneLine(err) + "\n"
+                + methodLine + "\n")
+            .addTrimmable(PromptBudget.Priority.HIGH,
+                "STUDENT CODE (only relevant parts):\n" + focusedStudentCode + "\n\n")
+            .addTrimmable(PromptBudget.Priority.MEDIUM,
+                "TEST (for expected behavior):\n" + (testCode == null ? "" : testCode) + "\n\n")
+            .add(PromptBudget.Priority.REQUIRED, "JSON:")
+            .build();
+        return PromptLayout.assemble(LLMCallType.HINT, variablePart);
     }
     
     /**
@@ -1416,14 +2067,8 @@ public class LLMService {
                 studentCode = studentCode.substring(0, nextClassIdx);
             }
         }
-        
-        // Prevent extremely long context from polluting LLM
-        // If student code is too long, it's likely the entire project
-        if (studentCode.length() > 2000) {
-            logger.warn("Student code too long ({} chars), truncating to 2000 chars", studentCode.length());
-            studentCode = studentCode.substring(0, 2000) + "\n// ... (code truncated)";
-        }
-        
+
+        // Long code is cut to the prompt's token budget by PromptBudget
         return studentCode.trim();
     }
     
@@ -1545,8 +2190,9 @@ public class LLMService {
         }
 
         // Extract class declaration line
-        int classIdx = sanitizedStudentCode.indexOf("class ");
-        if (classIdx < 0) return sanitizedStudentCode;
+        JavaSourceModel.TypeInfo type = sourceAnalyzer.analyze(sanitizedStudentCode).primaryType().orElse(null);
+        if (type == null || type.start() < 0) return sanitizedStudentCode;
+        int classIdx = type.start();
 
         int classBraceIdx = sanitizedStudentCode.indexOf("{", classIdx);
         if (classBraceIdx < 0) return sanitizedStudentCode;
@@ -1558,42 +2204,12 @@ public class LLMService {
     }
 
     /**
-     * Extracts the full method block including braces for a given method name.
-     * Works for "public static", "private static", and regular methods.
+     * Source of the named method, annotations included, or null when it is not declared in {@code code}.
      */
     private String extractMethodBlock(String code, String methodName) {
         if (code == null || methodName == null) return null;
-
-        // Find the method signature line containing " methodName("
-        int sigIdx = indexOfMethodSignature(code, methodName);
-        if (sigIdx < 0) return null;
-
-        // Find the opening brace '{' of the method
-        int openBraceIdx = code.indexOf("{", sigIdx);
-        if (openBraceIdx < 0) return null;
-
-        // Walk until matching closing brace
-        int depth = 0;
-        for (int i = openBraceIdx; i < code.length(); i++) {
-            char c = code.charAt(i);
-            if (c == '{') depth++;
-            else if (c == '}') depth--;
-            if (depth == 0) {
-                return code.substring(sigIdx, i + 1);
-            }
-        }
-        return null;
-    }
-
-    /**
-     * Finds an index where a method signature likely starts.
-     */
-    private int indexOfMethodSignature(String code, String methodName) {
-        // Simple robust approach: search for " methodName(" with boundaries
-        Pattern p = Pattern.compile("(?m)^\\s*(public|private|protected)?\\s*(static\\s+)?[\\w<>\\[\\]]+\\s+"
-            + Pattern.quote(methodName) + "\\s*\\(");
-        Matcher m = p.matcher(code);
-        return m.find() ? m.start() : -1;
+        JavaSourceModel model = sourceAnalyzer.analyze(code);
+        return model.method(methodName).map(model::text).orElse(null);
     }
 
     /**
@@ -1710,7 +2326,7 @@ public class LLMService {
         }
     }
 
-    private String generateExamplesFromTask(String task, String className, String solution) {
+    private String generateExamplesFromTask(String task, String className, String solution, String difficulty) {
         // Add diagnostic logging
         logger.info("[EXAMPLES] task='{}'", task);
         
@@ -1720,136 +2336,108 @@ public class LLMService {
         }
 
         // Try to extract method signature from solution for more accurate examples
-        String methodInfo = extractMethodInfoForExamples(solution);
+        String methodInfo = solutionMethod(solution).map(JavaSourceModel.MethodInfo::signature).orElse(null);
         logger.info("[EXAMPLES] methodInfo='{}'", methodInfo != null ? methodInfo : "null");
         
-        // Build enhanced prompt with solution context
+        // Variable part only: the instructions are the cached EXAMPLES prefix
         StringBuilder promptBuilder = new StringBuilder();
-        promptBuilder.append("Génère EXACTEMENT 3 exemples CONCRETS et VARIÉS pour cet exercice.\n\n");
         promptBuilder.append("=== EXERCICE ===\n").append(task).append("\n\n");
         
         if (methodInfo != null && !methodInfo.isBlank()) {
             promptBuilder.append("=== SIGNATURE DE LA MÉTHODE ===\n");
-            promptBuilder.append(methodInfo).append("\n");
-            promptBuilder.append("(Utilise cette signature pour comprendre les types d'entrée et de sortie)\n\n");
+            promptBuilder.append(methodInfo).append("\n\n");
         }
         
-        promptBuilder.append("=== EXIGENCES ABSOLUES ===\n");
-        promptBuilder.append("1. RENVOIE UNIQUEMENT un JSON array de 3 objets, SANS texte, SANS explication, SANS markdown\n");
-        promptBuilder.append("2. Format EXACT: [{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"}]\n");
-        promptBuilder.append("3. Les exemples DOIVENT correspondre EXACTEMENT à l'exercice décrit ci-dessus\n");
-        promptBuilder.append("4. Exemples VARIÉS :\n");
-        promptBuilder.append("   - Premier exemple : cas simple avec valeurs normales\n");
-        promptBuilder.append("   - Deuxième exemple : cas avec valeurs multiples/complexes\n");
-        promptBuilder.append("   - Troisième exemple : cas limite (tableau vide, null, chaîne vide, valeur négative, etc.)\n");
-        promptBuilder.append("5. Utilise des valeurs CONCRÈTES et RÉALISTES qui illustrent bien l'exercice\n");
-        promptBuilder.append("6. Les valeurs d'entrée et de sortie doivent être cohérentes avec l'exercice\n\n");
-        promptBuilder.append("=== FORMAT ===\n");
-        promptBuilder.append("RENVOIE UNIQUEMENT:\n");
-        promptBuilder.append("[{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"}]\n\n");
         promptBuilder.append("Génère UNIQUEMENT le JSON array de 3 objets pour cet exercice :");
     
-        // Try LLM generation (with retry on failure)
-        for (int attempt = 0; attempt < 2; attempt++) {
-            try {
-                String raw = callLlamaAPI(promptBuilder.toString(), 300);
-                
-                // Log raw response for debugging
-                logger.info("[EXAMPLES] rawLLM='{}'", raw != null && raw.length() > 300 ? raw.substring(0, 300) + "..." : raw);
-                
-                // Extract JSON from response
-                String jsonStr = extractJsonFromResponse(raw);
-                logger.info("[EXAMPLES] extractedJson='{}'", jsonStr != null && jsonStr.length() > 200 ? jsonStr.substring(0, 200) + "..." : jsonStr);
-                
-                if (jsonStr == null || jsonStr.equals("[]")) {
-                    if (attempt == 0) {
-                        logger.warn("[EXAMPLES] No JSON found in response, retrying...");
-                        continue;
-                    }
-                    logger.warn("[EXAMPLES] USING FALLBACK. rawEmpty={}, jsonStr=null", raw == null || raw.isBlank());
-                    throw new IllegalArgumentException("No JSON found in response after retry");
-                }
-                
-                JsonNode node = objectMapper.readTree(jsonStr);
-                
-                if (!node.isArray() || node.size() < 3) {
-                    if (attempt == 0) {
-                        logger.warn("[EXAMPLES] Invalid JSON array size: {}, retrying...", node.size());
-                        continue;
-                    }
-                    logger.warn("[EXAMPLES] USING FALLBACK. Invalid array size: {}", node.size());
-                    throw new IllegalArgumentException("Invalid JSON array or wrong size: " + node.size());
-                }
-
-                StringBuilder sb = new StringBuilder();
-                int validExamples = 0;
-                for (int i = 0; i < node.size() && validExamples < 3; i++) {
-                    JsonNode example = node.get(i);
-                    if (!example.isObject()) continue;
-                    
-                    String input = example.has("input") ? example.get("input").asText().trim() : "";
-                    String output = example.has("output") ? example.get("output").asText().trim() : "";
-                    
-                    if (input.isEmpty() && output.isEmpty()) continue;
-                    
-                    sb.append("Entrée : ").append(input).append(" → Sortie : ").append(output);
-                    if (validExamples < 2) {
-                        sb.append("\n");
-                    }
-                    validExamples++;
-                }
-                
-                String result = sb.toString().trim();
-                if (result.isEmpty() || validExamples < 2) {
-                    if (attempt == 0) {
-                        logger.warn("[EXAMPLES] Not enough valid examples: {}, retrying...", validExamples);
-                        continue;
-                    }
-                    logger.warn("[EXAMPLES] USING FALLBACK. Not enough valid examples: {}", validExamples);
-                    throw new IllegalArgumentException("Not enough valid examples: " + validExamples);
-                }
-                
-                logger.info("[EXAMPLES] Successfully generated {} examples from LLM", validExamples);
+        // Single schema-constrained call: llama.cpp only samples a 3-element JSON array
+        try {
+            int budget = tokenBudgets.budgetFor(LLMCallType.EXAMPLES, difficulty);
+            CompletionRequest request = CompletionRequest.of(LLMCallType.EXAMPLES,
+                    PromptLayout.assemble(LLMCallType.EXAMPLES, promptBuilder.toString()), budget)
+                .withJsonSchema(LLMOutputSchemas.examples(budget));
+            String raw = callLlamaAPIAsync(request, difficulty).get();
+            logger.info("[EXAMPLES] rawLLM='{}'", raw != null && raw.length() > 300 ? raw.substring(0, 300) + "..." : raw);
+
+            String result = formatExamples(parseExamplesArray(raw));
+            if (result != null) {
                 return result;
-            } catch (Exception e) {
-                if (attempt == 0) {
-                    logger.warn("[EXAMPLES] Failed to parse examples JSON (attempt {}), retrying: {}", attempt + 1, e.getMessage());
-                    continue;
-                }
-                logger.error("[EXAMPLES] Failed to generate examples from LLM after retry: {}", e.getMessage());
             }
+        } catch (Exception e) {
+            logger.error("[EXAMPLES] Failed to generate examples from LLM: {}", e.getMessage());
         }
         
-        // If all attempts failed, return simple default based on solution (not task keywords)
-        logger.warn("[EXAMPLES] USING FALLBACK. All LLM attempts failed. solutionBlank={}", solution == null || solution.isBlank());
+        // If the call failed, return simple default based on solution (not task keywords)
+        logger.warn("[EXAMPLES] USING FALLBACK. solutionBlank={}", solution == null || solution.isBlank());
         return createSolutionBasedDefaultExamples(solution);
     }
-    
-    private String createSolutionBasedDefaultExamples(String solution) {
-        // Simple fallback - just return default examples
-        return createDefaultExamples();
+
+    /**
+     * Parses the constrained response directly; the regex extraction only handles
+     * servers that ignored the schema.
+     */
+    private JsonNode parseExamplesArray(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(raw);
+            if (node.isArray()) {
+                return node;
+            }
+        } catch (Exception e) {
+            logger.debug("[EXAMPLES] Response is not bare JSON, trying extraction");
+        }
+        String jsonStr = extractJsonFromResponse(raw);
+        if (jsonStr == null) {
+            return null;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(jsonStr);
+            return node.isArray() ? node : null;
+        } catch (Exception e) {
+            logger.warn("[EXAMPLES] Extracted JSON is invalid: {}", e.getMessage());
+            return null;
+        }
     }
-    
-    private String extractMethodInfoForExamples(String solution) {
-        if (solution == null || solution.isBlank()) {
+
+    private String formatExamples(JsonNode node) {
+        if (node == null || node.size() < 3) {
+            logger.warn("[EXAMPLES] Invalid examples array: {}", node == null ? "null" : node.size());
             return null;
         }
-        
-        // Extract first method signature for context
-        String[] lines = solution.split("\n");
-        for (String line : lines) {
-            String trimmed = line.trim();
-            if ((trimmed.startsWith("public static") || trimmed.startsWith("private static"))
-                && trimmed.contains("(") && trimmed.contains(")")) {
-                // Return a simplified version for prompt context
-                int openParen = trimmed.indexOf('(');
-                int closeParen = trimmed.indexOf(')');
-                if (openParen > 0 && closeParen > openParen) {
-                    return trimmed.substring(0, Math.min(closeParen + 1, trimmed.length()));
-                }
+
+        StringBuilder sb = new StringBuilder();
+        int validExamples = 0;
+        for (int i = 0; i < node.size() && validExamples < 3; i++) {
+            JsonNode example = node.get(i);
+            if (!example.isObject()) continue;
+            
+            String input = example.has("input") ? example.get("input").asText().trim() : "";
+            String output = example.has("output") ? example.get("output").asText().trim() : "";
+            
+            if (input.isEmpty() && output.isEmpty()) continue;
+            
+            sb.append("Entrée : ").append(input).append(" → Sortie : ").append(output);
+            if (validExamples < 2) {
+                sb.append("\n");
             }
+            validExamples++;
         }
-        return null;
+        
+        String result = sb.toString().trim();
+        if (result.isEmpty() || validExamples < 2) {
+            logger.warn("[EXAMPLES] Not enough valid examples: {}", validExamples);
+            return null;
+        }
+        
+        logger.info("[EXAMPLES] Successfully generated {} examples from LLM", validExamples);
+        return result;
+    }
+    
+    private String createSolutionBasedDefaultExamples(String solution) {
+        // Simple fallback - just return default examples
+        return createDefaultExamples();
     }
     
     private String extractJsonFromResponse(String response) {
@@ -1888,6 +2476,11 @@ public class LLMService {
         }
         String t = task.toLowerCase(Locale.ROOT);
 
+        Optional<ExerciseTemplateLibrary.Match> template = templateLibrary.match(task);
+        if (template.isPresent()) {
+            return template.get().template().className();
+        }
+
         String predefined = getPredefinedClassName(t);
         if (predefined != null) {
             return predefined;
@@ -2019,382 +2612,4 @@ public class LLMService {
         }
         return t;
     }
-
-    private String cleanJavaSnippet(String code) {
-        if (code == null) return "";
-        String cleaned = code.trim();
-        
-        // Remove markdown code block markers
-        cleaned = cleaned.replaceAll("(?i)```java", "");
-        cleaned = cleaned.replaceAll("```", "");
-        
-        // Only extract from first "public class" onwards, don't use "class " as fallback
-        // This prevents the second replaceAll from overwriting "public class" and causing class name issues
-        int idx = cleaned.toLowerCase(Locale.ROOT).indexOf("public class");
-        if (idx >= 0) {
-            cleaned = cleaned.substring(idx);
-        }
-
-        // Don't drop imports (some solutions need them)
-        return cleaned.trim();
-    }
-
-    private String cleanJavaTestSnippet(String code, String expectedTestClassName) {
-        if (code == null) return "";
-        
-        // Remove duplicate sections (common LLM issue)
-        code = removeDuplicateSections(code);
-        
-        // For test code, we need to preserve imports, so don't use cleanJavaSnippet
-        // which starts from "public class" and removes imports
-        String cleaned = code.trim();
-        
-        // Remove markdown code block markers
-        cleaned = cleaned.replaceAll("(?i)```java", "");
-        cleaned = cleaned.replaceAll("```", "");
-        
-        // Find import statements and class declaration
-        int idxImport = indexOfIgnoreCase(cleaned, "import ");
-        int idxClass = indexOfIgnoreCase(cleaned, "public class ");
-        
-        // If we have imports, start from the first import
-        // Otherwise, start from the class declaration
-        int start = 0;
-        if (idxImport >= 0 && (idxClass < 0 || idxImport < idxClass)) {
-            start = idxImport;
-        } else if (idxClass >= 0) {
-            start = idxClass;
-        }
-        
-        if (start > 0) {
-            cleaned = cleaned.substring(start);
-        }
-        
-        // Ensure we have the required JUnit imports if they're missing
-        if (!cleaned.contains("import org.junit.jupiter.api.Test")) {
-            // Add imports at the beginning
-            String imports = "import org.junit.jupiter.api.Test;\n"
-                + "import static org.junit.jupiter.api.Assertions.*;\n\n";
-            
-            // Find where the class declaration starts
-            int classIdx = indexOfIgnoreCase(cleaned, "public class ");
-            if (classIdx >= 0) {
-                cleaned = cleaned.substring(0, classIdx) + imports + cleaned.substring(classIdx);
-            } else {
-                // If no class found, prepend imports
-                cleaned = imports + cleaned;
-            }
-        } else if (!cleaned.contains("import static org.junit.jupiter.api.Assertions")) {
-            // Add static import if missing
-            int testImportIdx = cleaned.indexOf("import org.junit.jupiter.api.Test");
-            if (testImportIdx >= 0) {
-                int nextLineIdx = cleaned.indexOf("\n", testImportIdx);
-                if (nextLineIdx >= 0) {
-                    cleaned = cleaned.substring(0, nextLineIdx + 1) 
-                        + "import static org.junit.jupiter.api.Assertions.*;\n" 
-                        + cleaned.substring(nextLineIdx + 1);
-                }
-            }
-        }
-
-        // Extract the actual class name being tested (before "Test")
-        String className = expectedTestClassName != null && expectedTestClassName.endsWith("Test")
-            ? expectedTestClassName.substring(0, expectedTestClassName.length() - 4)
-            : null;
-
-        // Fix test class name
-        if (expectedTestClassName != null && !expectedTestClassName.isBlank()) {
-            cleaned = cleaned.replaceAll("class\\s+\\w+Test", "class " + expectedTestClassName);
-            cleaned = cleaned.replaceAll("class\\s+\\w+Test\\s*\\{", "class " + expectedTestClassName + " {");
-        }
-
-        // Fix incorrect class names in test assertions (e.g., "Crire" -> correct className)
-        if (className != null && !className.isEmpty()) {
-            // Remove common incorrect class names
-            cleaned = cleaned.replaceAll("\\bCrire\\b", className);
-            cleaned = cleaned.replaceAll("\\bCrireFonctionQui\\b", className);
-            cleaned = cleaned.replaceAll("\\bCrirereverse\\b", className + ".reverse");
-            // Fix any class name that doesn't match the expected pattern
-            cleaned = fixIncorrectClassNames(cleaned, className);
-        }
-
-        // Remove any remaining duplicate test methods
-        cleaned = removeDuplicateTestMethods(cleaned);
-
-        return cleaned.trim();
-    }
-    
-    private String removeDuplicateSections(String code) {
-        if (code == null || code.length() < 100) return code;
-        
-        // Split by common delimiters that indicate duplicate sections
-        String[] sections = code.split("===|---|```");
-        
-        // If we have multiple sections with similar content, keep only the first complete one
-        if (sections.length > 3) {
-            // Look for the first section that contains a complete test class
-            for (int i = 0; i < sections.length; i++) {
-                String section = sections[i];
-                if (section.contains("public class") && section.contains("@Test") 
-                    && section.contains("assertEquals")) {
-                    return section;
-                }
-            }
-        }
-        
-        // Remove repeated patterns (e.g., same test method appearing multiple times)
-        return removeRepeatedPatterns(code);
-    }
-    
-    private String removeRepeatedPatterns(String code) {
-        if (code == null) return code;
-        
-        String[] lines = code.split("\n");
-        StringBuilder result = new StringBuilder();
-        Set<String> seenMethods = new HashSet<>();
-        boolean inMethod = false;
-        StringBuilder currentMethod = new StringBuilder();
-        
-        for (String line : lines) {
-            String trimmed = line.trim();
-            
-            // Detect start of test method
-            if (trimmed.startsWith("@Test") || (trimmed.startsWith("void test") && trimmed.contains("()"))) {
-                if (inMethod && currentMethod.length() > 0) {
-                    String methodKey = currentMethod.toString().trim();
-                    if (!seenMethods.contains(methodKey)) {
-                        result.append(currentMethod);
-                        seenMethods.add(methodKey);
-                    }
-                    currentMethod.setLength(0);
-                }
-                inMethod = true;
-                currentMethod.append(line).append("\n");
-            } else if (inMethod) {
-                currentMethod.append(line).append("\n");
-                // Detect end of method
-                if (trimmed.equals("}") && currentMethod.toString().contains("{")) {
-                    String methodKey = currentMethod.toString().trim();
-                    if (!seenMethods.contains(methodKey)) {
-                        result.append(currentMethod);
-                        seenMethods.add(methodKey);
-                    }
-                    currentMethod.setLength(0);
-                    inMethod = false;
-                }
-            } else {
-                result.append(line).append("\n");
-            }
-        }
-        
-        // Add last method if any
-        if (currentMethod.length() > 0) {
-            String methodKey = currentMethod.toString().trim();
-            if (!seenMethods.contains(methodKey)) {
-                result.append(currentMethod);
-            }
-        }
-        
-        return result.toString();
-    }
-    
-    private String fixIncorrectClassNames(String code, String correctClassName) {
-        if (code == null || correctClassName == null) return code;
-        
-        // Find all class references in assertions (e.g., "ClassName.methodName(")
-        Pattern pattern = Pattern.compile("(\\w+)\\.(\\w+)\\s*\\(");
-        Matcher matcher = pattern.matcher(code);
-        StringBuffer result = new StringBuffer();
-        
-        while (matcher.find()) {
-            String foundClassName = matcher.group(1);
-            String methodName = matcher.group(2);
-            
-            // If the class name looks incorrect (too short, doesn't match pattern, etc.)
-            if (isIncorrectClassName(foundClassName, correctClassName)) {
-                matcher.appendReplacement(result, correctClassName + "." + methodName + "(");
-            } else {
-                matcher.appendReplacement(result, matcher.group(0));
-            }
-        }
-        matcher.appendTail(result);
-        
-        return result.toString();
-    }
-    
-    private boolean isIncorrectClassName(String foundName, String correctName) {
-        if (foundName == null || foundName.isEmpty()) return true;
-        if (foundName.equals(correctName)) return false;
-        
-        // Common incorrect patterns
-        if (foundName.length() < 4) return true; // Too short (e.g., "Crire")
-        if (foundName.toLowerCase().contains("crire")) return true;
-        if (foundName.toLowerCase().startsWith("cr")) return true; // Common typo pattern
-        
-        return false;
-    }
-    
-    private String removeDuplicateTestMethods(String code) {
-        if (code == null) return code;
-        
-        String[] lines = code.split("\n");
-        Map<String, Integer> methodSignatures = new LinkedHashMap<>();
-        StringBuilder result = new StringBuilder();
-        StringBuilder currentMethod = new StringBuilder();
-        String currentSignature = null;
-        boolean inMethod = false;
-        int braceCount = 0;
-        
-        for (String line : lines) {
-            String trimmed = line.trim();
-            
-            // Detect test method start
-            if (trimmed.startsWith("@Test") || (trimmed.startsWith("void test") && trimmed.contains("()"))) {
-                if (inMethod && currentSignature != null) {
-                    // Save previous method
-                    methodSignatures.put(currentSignature, methodSignatures.getOrDefault(currentSignature, 0) + 1);
-                    if (methodSignatures.get(currentSignature) == 1) {
-                        result.append(currentMethod);
-                    }
-                    currentMethod.setLength(0);
-                }
-                inMethod = true;
-                currentSignature = trimmed;
-                currentMethod.append(line).append("\n");
-                braceCount = 0;
-            } else if (inMethod) {
-                currentMethod.append(line).append("\n");
-                // Count braces to detect method end
-                for (char c : line.toCharArray()) {
-                    if (c == '{') braceCount++;
-                    if (c == '}') braceCount--;
-                }
-                if (braceCount == 0 && currentMethod.toString().contains("}")) {
-                    // Method ended
-                    if (currentSignature != null) {
-                        methodSignatures.put(currentSignature, methodSignatures.getOrDefault(currentSignature, 0) + 1);
-                        if (methodSignatures.get(currentSignature) == 1) {
-                            result.append(currentMethod);
-                        }
-                    }
-                    currentMethod.setLength(0);
-                    currentSignature = null;
-                    inMethod = false;
-                }
-            } else {
-                result.append(line).append("\n");
-            }
-        }
-        
-        // Add last method if any
-        if (currentMethod.length() > 0 && currentSignature != null) {
-            methodSignatures.put(currentSignature, methodSignatures.getOrDefault(currentSignature, 0) + 1);
-            if (methodSignatures.get(currentSignature) == 1) {
-                result.append(currentMethod);
-            }
-        }
-        
-        return result.toString();
-    }
-    
-    private int indexOfIgnoreCase(String text, String token) {
-        if (text == null || token == null) return -1;
-        return text.toLowerCase(Locale.ROOT).indexOf(token.toLowerCase(Locale.ROOT));
-    }
-
-    private String extractClassName(String code) {
-        if (code == null || code.isEmpty()) {
-            return "Solution";
-        }
-
-        int idx = code.indexOf("public class ");
-        if (idx >= 0) {
-            return extractClassNameFromIndex(code, idx + "public class ".length());
-        }
-
-        idx = code.indexOf("class ");
-        if (idx >= 0) {
-            return extractClassNameFromIndex(code, idx + "class ".length());
-        }
-
-        return "Solution";
-    }
-    
-    private String extractClassNameFromIndex(String code, int start) {
-        int end = start;
-        while (end < code.length() &&
-               (Character.isLetterOrDigit(code.charAt(end)) || code.charAt(end) == '_')) {
-            end++;
-        }
-        if (end > start) {
-            return code.substring(start, end);
-        }
-        return "Solution";
-    }
-
-    private String ensureClassName(String code, String expectedClassName) {
-        if (code == null || code.isEmpty() || expectedClassName == null) {
-            return code;
-        }
-
-        String current = extractClassName(code);
-        if (current.equals(expectedClassName)) {
-            return code;
-        }
-
-        // Use more precise regex to only replace the class declaration line
-        // This prevents accidental replacements in other parts of the code
-        // Match: whitespace + public + whitespace + class + whitespace + classname + whitespace + {
-        code = code.replaceFirst("(?m)^\\s*public\\s+class\\s+\\w+\\s*\\{",
-                                 "public class " + expectedClassName + " {");
-        
-        // Also handle non-public class declarations
-        code = code.replaceFirst("(?m)^\\s*class\\s+\\w+\\s*\\{",
-                                 "class " + expectedClassName + " {");
-
-        return code;
-    }
-
-    private String removeMainMethod(String code) {
-        if (code == null || code.isEmpty()) return code;
-
-        String[] lines = code.split("\n");
-        StringBuilder result = new StringBuilder();
-        boolean inMain = false;
-        int braceDepth = 0;
-        boolean foundSignature = false;
-
-        for (String line : lines) {
-            String trimmed = line.trim();
-
-            if (trimmed.contains("public static void main") && trimmed.contains("String[]")) {
-                inMain = true;
-                foundSignature = true;
-                braceDepth = trimmed.contains("{") ? 1 : 0;
-                continue;
-            }
-
-            if (inMain) {
-                braceDepth = updateBraceDepth(line, braceDepth);
-                if (braceDepth <= 0 && foundSignature) {
-                    inMain = false;
-                    foundSignature = false;
-                    braceDepth = 0;
-                }
-                continue;
-            }
-
-            result.append(line).append("\n");
-        }
-
-        return result.toString().trim();
-    }
-    
-    private int updateBraceDepth(String line, int braceDepth) {
-        for (char c : line.toCharArray()) {
-            if (c == '{') braceDepth++;
-            if (c == '}') braceDepth--;
-        }
-        return braceDepth;
-    }
 }
@@ -0,0 +1,15 @@
+package com.aicodementor.service;
+
+/**
+ * Thrown when no inference endpoint can serve a request.
+ */
+public class LLMUnavailableException extends RuntimeException {
+
+    public LLMUnavailableException(String message) {
+        super(message);
+    }
+
+    public LLMUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
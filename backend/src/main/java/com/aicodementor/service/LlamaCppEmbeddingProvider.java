@@ -0,0 +1,154 @@
+package com.aicodementor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Embeddings from a llama.cpp server started with {@code --embeddings} ({@code /embedding}).
+ * Usually a separate process with a small embedding model, next to the completion servers.
+ * Long texts are cut with the model's own tokenizer ({@code /tokenize}, {@code /detokenize}).
+ */
+@Component
+public class LlamaCppEmbeddingProvider implements EmbeddingProvider {
+
+    // Used when the server cannot tokenize: code averages well above 2 characters per token
+    private static final int MIN_CHARS_PER_TOKEN = 2;
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+    private volatile int dimension;
+
+    public LlamaCppEmbeddingProvider(RestTemplate restTemplate, ObjectMapper objectMapper,
+                                     @Value("${embedding.llamacpp.base-url:http://localhost:11436}") String baseUrl) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    @Override
+    public String name() {
+        return "llamacpp";
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return embedAll(List.of(text)).get(0);
+    }
+
+    /**
+     * A token never covers less than one character, so texts up to {@code maxTokens} characters
+     * are returned without asking the server.
+     */
+    @Override
+    public String truncate(String text, int maxTokens) {
+        if (text == null || text.length() <= maxTokens) {
+            return text;
+        }
+        try {
+            JsonNode tokens = post("/tokenize", Map.of("content", text, "add_special", false)).path("tokens");
+            if (!tokens.isArray()) {
+                throw new IllegalStateException("llama.cpp /tokenize response has no tokens");
+            }
+            if (tokens.size() <= maxTokens) {
+                return text;
+            }
+            List<Integer> kept = new ArrayList<>(maxTokens);
+            for (int i = 0; i < maxTokens; i++) {
+                kept.add(tokens.get(i).asInt());
+            }
+            return post("/detokenize", Map.of("tokens", kept)).path("content").asText(text);
+        } catch (RuntimeException e) {
+            int chars = maxTokens * MIN_CHARS_PER_TOKEN;
+            return text.length() > chars ? text.substring(0, chars) : text;
+        }
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        Object content = texts.size() == 1 ? texts.get(0) : texts;
+        String response = restTemplate.postForObject(
+            baseUrl + "/embedding",
+            new HttpEntity<>(Map.of("content", content), headers),
+            String.class
+        );
+        if (response == null) {
+            throw new IllegalStateException("Empty llama.cpp /embedding response");
+        }
+        List<float[]> vectors = parse(response);
+        if (vectors.size() != texts.size()) {
+            throw new IllegalStateException("llama.cpp returned " + vectors.size()
+                + " embeddings for " + texts.size() + " texts");
+        }
+        dimension = vectors.get(0).length;
+        return vectors;
+    }
+
+    private JsonNode post(String path, Map<String, Object> body) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String response = restTemplate.postForObject(baseUrl + path, new HttpEntity<>(body, headers), String.class);
+        if (response == null) {
+            throw new IllegalStateException("Empty llama.cpp " + path + " response");
+        }
+        try {
+            return objectMapper.readTree(response);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed llama.cpp " + path + " response", e);
+        }
+    }
+
+    /**
+     * Accepts the shapes llama.cpp versions answer with: {@code {"embedding":[...]}} and
+     * {@code [{"index":0,"embedding":[[...]]}, ...]} (pooled vector nested one level).
+     */
+    private List<float[]> parse(String response) {
+        try {
+            JsonNode root = objectMapper.readTree(response);
+            List<float[]> vectors = new ArrayList<>();
+            if (root.isArray()) {
+                for (JsonNode item : root) {
+                    vectors.add(toVector(item.path("embedding")));
+                }
+            } else {
+                vectors.add(toVector(root.path("embedding")));
+            }
+            return vectors;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed llama.cpp /embedding response", e);
+        }
+    }
+
+    private static float[] toVector(JsonNode node) {
+        if (node.isArray() && !node.isEmpty() && node.get(0).isArray()) {
+            node = node.get(0);
+        }
+        if (!node.isArray() || node.isEmpty()) {
+            throw new IllegalStateException("llama.cpp /embedding response has no vector");
+        }
+        float[] vector = new float[node.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = (float) node.get(i).asDouble();
+        }
+        return vector;
+    }
+}
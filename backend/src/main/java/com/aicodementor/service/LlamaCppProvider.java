@@ -0,0 +1,181 @@
+package com.aicodementor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * llama.cpp server: {@code /completion}, {@code /tokenize}, {@code /health} and {@code /props}.
+ */
+@Component
+public class LlamaCppProvider implements InferenceProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlamaCppProvider.class);
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+
+    public LlamaCppProvider(RestTemplate restTemplate, ObjectMapper objectMapper) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String name() {
+        return "llamacpp";
+    }
+
+    @Override
+    public CompletionResult complete(InferenceEndpoint endpoint, CompletionRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("prompt", request.prompt());
+        body.put("n_predict", request.maxTokens());
+        body.put("temperature", request.temperature());
+        body.put("top_p", request.topP());
+        body.put("top_k", request.topK());
+        body.put("repeat_penalty", request.repeatPenalty());
+        body.put("stop", request.stop());
+        if (request.seed() != CompletionRequest.RANDOM_SEED) {
+            body.put("seed", request.seed());
+        }
+        if (request.jsonSchema() != null) {
+            body.put("json_schema", request.jsonSchema());
+        }
+        // Reuse the slot's KV cache for the common prompt prefix
+        body.put("cache_prompt", true);
+        if (request.slotId() != CompletionRequest.ANY_SLOT) {
+            body.put("id_slot", request.slotId());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String response = restTemplate.postForObject(
+            endpoint.getUrl() + "/completion",
+            new HttpEntity<>(body, headers),
+            String.class
+        );
+        if (response == null) {
+            logger.warn("LLM returned null response");
+            return new CompletionResult("", endpoint.getUrl(), InferenceTimings.NONE);
+        }
+        try {
+            JsonNode jsonNode = objectMapper.readTree(response);
+            return new CompletionResult(extractContent(jsonNode, response), endpoint.getUrl(), extractTimings(jsonNode));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed llama.cpp response", e);
+        }
+    }
+
+    /**
+     * Multi-field compatibility: content, completion, or choices[0].text / message.content.
+     */
+    private String extractContent(JsonNode jsonNode, String response) {
+        if (jsonNode.hasNonNull("content")) {
+            return jsonNode.get("content").asText();
+        }
+        if (jsonNode.hasNonNull("completion")) {
+            return jsonNode.get("completion").asText();
+        }
+        if (jsonNode.has("choices") && jsonNode.get("choices").isArray() && jsonNode.get("choices").size() > 0) {
+            JsonNode c0 = jsonNode.get("choices").get(0);
+            if (c0.hasNonNull("text")) {
+                return c0.get("text").asText();
+            }
+            if (c0.hasNonNull("message") && c0.get("message").hasNonNull("content")) {
+                return c0.get("message").get("content").asText();
+            }
+        }
+        logger.warn("LLM returned empty content. Response structure: {}",
+            response.substring(0, Math.min(500, response.length())));
+        return "";
+    }
+
+    /**
+     * {@code timings} block plus the top-level token counters of {@code /completion}.
+     */
+    private InferenceTimings extractTimings(JsonNode jsonNode) {
+        JsonNode timings = jsonNode.path("timings");
+        int promptProcessed = timings.path("prompt_n").asInt(0);
+        return new InferenceTimings(
+            jsonNode.path("tokens_evaluated").asInt(promptProcessed),
+            promptProcessed,
+            timings.path("predicted_n").asInt(jsonNode.path("tokens_predicted").asInt(0)),
+            timings.path("prompt_ms").asDouble(0),
+            timings.path("predicted_ms").asDouble(0),
+            timings.path("predicted_per_second").asDouble(0),
+            // "truncated" is about the prompt (cut to fit the context), not the output
+            "limit".equals(jsonNode.path("stop_type").asText()) || jsonNode.path("stopped_limit").asBoolean(false)
+        );
+    }
+
+    @Override
+    public int countTokens(InferenceEndpoint endpoint, String text) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String response = restTemplate.postForObject(
+            endpoint.getUrl() + "/tokenize",
+            new HttpEntity<>(Map.of("content", text), headers),
+            String.class
+        );
+        if (response == null) {
+            return -1;
+        }
+        try {
+            JsonNode tokens = objectMapper.readTree(response).path("tokens");
+            return tokens.isArray() ? tokens.size() : -1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed llama.cpp /tokenize response", e);
+        }
+    }
+
+    @Override
+    public boolean isHealthy(InferenceEndpoint endpoint) {
+        try {
+            // /health answers 503 while the model is loading, which RestTemplate raises
+            restTemplate.getForObject(endpoint.getUrl() + "/health", String.class);
+            return true;
+        } catch (Exception e) {
+            logger.debug("llama.cpp health check failed for {}: {}", endpoint.getUrl(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int discoverSlots(InferenceEndpoint endpoint) {
+        try {
+            String props = restTemplate.getForObject(endpoint.getUrl() + "/props", String.class);
+            if (props != null) {
+                JsonNode node = objectMapper.readTree(props);
+                if (node.hasNonNull("total_slots")) {
+                    return node.get("total_slots").asInt();
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("llama.cpp /props unavailable on {}: {}", endpoint.getUrl(), e.getMessage());
+        }
+        try {
+            // Older servers only expose the slot array
+            String slotsJson = restTemplate.getForObject(endpoint.getUrl() + "/slots", String.class);
+            if (slotsJson != null) {
+                JsonNode node = objectMapper.readTree(slotsJson);
+                if (node.isArray()) {
+                    return node.size();
+                }
+            }
+        } catch (Exception e) {
+            logger.debug("llama.cpp /slots unavailable on {}: {}", endpoint.getUrl(), e.getMessage());
+        }
+        return 0;
+    }
+}
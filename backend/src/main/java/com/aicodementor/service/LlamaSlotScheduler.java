@@ -0,0 +1,330 @@
+package com.aicodementor.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Single owner of all llama.cpp inference traffic.
+ *
+ * - Never runs more requests than the endpoint pool has parallel slots.
+ * - Interactive work (student hints) is ranked ahead of batch work (exercise generation).
+ * - Aging: a batch request is ranked as if it had been submitted {@code batchAgingMs} later,
+ *   so it only loses against hints that arrived less than that long after it (no starvation).
+ * - Per-class caps: batch work never occupies the last reserved slot(s). With a single slot
+ *   nothing can be reserved (generation would never run): batch work takes the slot when no
+ *   hint is queued, and a hint arriving meanwhile waits for that call to end. This is logged
+ *   and reported in {@link #snapshot()}; give the server a second slot to keep hints responsive.
+ * - Fast fail: while no endpoint is available, submissions fail immediately instead of queueing.
+ * - Cancellation: a cancelled task leaves the queue; a running one has its HTTP exchange cut off,
+ *   so the server stops generating and frees the slot.
+ */
+@Service
+public class LlamaSlotScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlamaSlotScheduler.class);
+
+    public enum Priority {
+        INTERACTIVE,
+        BATCH
+    }
+
+    private final InferenceEndpointPool endpointPool;
+    private final InferenceCallAborter callAborter;
+    private final int configuredSlots;
+    private final int fallbackSlots;
+    private final int batchReservedSlots;
+    private final int interactiveMaxSlots;
+    private final long batchAgingNanos;
+    private final ExecutorService workers;
+
+    private final Object lock = new Object();
+    private final Map<Priority, ArrayDeque<Task<?>>> queues = new EnumMap<>(Priority.class);
+    private final Map<Priority, ClassStats> stats = new EnumMap<>(Priority.class);
+    private int slots;
+    private int inFlightTotal;
+
+    public LlamaSlotScheduler(InferenceEndpointPool endpointPool,
+                              InferenceCallAborter callAborter,
+                              @Value("${llm.scheduler.slots:0}") int configuredSlots,
+                              @Value("${llm.scheduler.fallback-slots:2}") int fallbackSlots,
+                              @Value("${llm.scheduler.batch-reserved-slots:1}") int batchReservedSlots,
+                              @Value("${llm.scheduler.interactive-max-slots:0}") int interactiveMaxSlots,
+                              @Value("${llm.scheduler.batch-aging-ms:20000}") long batchAgingMs) {
+        this.endpointPool = endpointPool;
+        this.callAborter = callAborter;
+        this.configuredSlots = configuredSlots;
+        this.fallbackSlots = Math.max(1, fallbackSlots);
+        this.batchReservedSlots = Math.max(0, batchReservedSlots);
+        this.interactiveMaxSlots = Math.max(0, interactiveMaxSlots);
+        this.batchAgingNanos = Math.max(0, batchAgingMs) * 1_000_000L;
+        this.workers = Executors.newCachedThreadPool(new WorkerThreadFactory());
+
+        for (Priority p : Priority.values()) {
+            queues.put(p, new ArrayDeque<>());
+            stats.put(p, new ClassStats());
+        }
+
+        if (configuredSlots > 0) {
+            this.slots = configuredSlots;
+            logger.info("LLM scheduler using {} configured slot(s)", configuredSlots);
+            warnIfSharedSlot(configuredSlots);
+        } else {
+            this.slots = endpointPool.totalSlots(this.fallbackSlots);
+            // Endpoints discover their slots asynchronously: follow health and slot changes
+            endpointPool.addTopologyListener(this::refreshSlots);
+        }
+    }
+
+    /**
+     * Queues a unit of inference work. The supplier runs on a scheduler worker once a slot is free.
+     * Cancelling the returned future before dispatch removes the task from the queue; after
+     * dispatch, it interrupts the worker and closes the connection of the call in progress.
+     * Fails with {@link LLMUnavailableException} right away when every endpoint is down or circuit-open.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> work) {
+        if (!endpointPool.isAvailable()) {
+            synchronized (lock) {
+                stats.get(priority).rejected++;
+            }
+            return CompletableFuture.failedFuture(new LLMUnavailableException("No inference endpoint available"));
+        }
+        Task<T> task = new Task<>(priority, work, rankFor(priority));
+        synchronized (lock) {
+            queues.get(priority).addLast(task);
+            stats.get(priority).submitted++;
+        }
+        // Completed by the caller (cancel, timeout) while still queued: leave the queue now, wherever it sits
+        task.future.whenComplete((result, error) -> {
+            if (!unqueue(task) && task.future.isCancelled()) {
+                abort(task);
+            }
+        });
+        dispatch();
+        return task.future;
+    }
+
+    /**
+     * Re-reads the total slot count from the endpoint pool.
+     * Does nothing when slots are configured explicitly.
+     */
+    public void refreshSlots() {
+        if (configuredSlots > 0) {
+            return;
+        }
+        int total = endpointPool.totalSlots(fallbackSlots);
+        synchronized (lock) {
+            if (total != slots) {
+                logger.info("LLM scheduler capacity changed: {} -> {} slot(s)", slots, total);
+                slots = total;
+                warnIfSharedSlot(total);
+            }
+        }
+        dispatch();
+    }
+
+    /**
+     * Slots BATCH work may occupy at once: the useful number of concurrent generations.
+     */
+    public int batchCapacity() {
+        synchronized (lock) {
+            return capFor(Priority.BATCH);
+        }
+    }
+
+    private void warnIfSharedSlot(int total) {
+        if (total == 1 && batchReservedSlots > 0) {
+            logger.warn("LLM scheduler has a single slot: no slot can be reserved for hints, "
+                + "they wait behind a running exercise generation");
+        }
+    }
+
+    private long rankFor(Priority priority) {
+        long now = System.nanoTime();
+        return priority == Priority.BATCH ? now + batchAgingNanos : now;
+    }
+
+    private int capFor(Priority priority) {
+        if (priority == Priority.BATCH) {
+            return Math.max(1, slots - batchReservedSlots);
+        }
+        return interactiveMaxSlots > 0 ? Math.min(interactiveMaxSlots, slots) : slots;
+    }
+
+    private void dispatch() {
+        List<Task<?>> ready = new ArrayList<>();
+        synchronized (lock) {
+            while (inFlightTotal < slots) {
+                Task<?> next = null;
+                for (Priority p : Priority.values()) {
+                    ArrayDeque<Task<?>> queue = queues.get(p);
+                    if (queue.isEmpty() || stats.get(p).inFlight >= capFor(p)) {
+                        continue;
+                    }
+                    Task<?> head = queue.peekFirst();
+                    if (next == null || head.rank - next.rank < 0) {
+                        next = head;
+                    }
+                }
+                if (next == null) {
+                    break;
+                }
+                queues.get(next.priority).pollFirst();
+                ClassStats s = stats.get(next.priority);
+                long waitMs = (System.nanoTime() - next.enqueuedAt) / 1_000_000L;
+                s.inFlight++;
+                s.totalWaitMs += waitMs;
+                s.maxWaitMs = Math.max(s.maxWaitMs, waitMs);
+                s.dispatched++;
+                inFlightTotal++;
+                ready.add(next);
+            }
+        }
+        for (Task<?> task : ready) {
+            workers.execute(() -> run(task));
+        }
+    }
+
+    private boolean unqueue(Task<?> task) {
+        synchronized (lock) {
+            // Already dispatched tasks are no longer queued: only a pending one counts as cancelled
+            if (queues.get(task.priority).remove(task)) {
+                stats.get(task.priority).cancelled++;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Stops a running task: the interrupt keeps the pool from trying another endpoint, closing the
+     * connection ends the generation the server is busy with.
+     */
+    private void abort(Task<?> task) {
+        synchronized (task) {
+            if (task.runner == null) {
+                return;
+            }
+            task.runner.interrupt();
+            callAborter.abort(task.runner);
+        }
+        synchronized (lock) {
+            stats.get(task.priority).aborted++;
+        }
+    }
+
+    private <T> void run(Task<T> task) {
+        boolean failed = false;
+        synchronized (task) {
+            task.runner = Thread.currentThread();
+        }
+        callAborter.begin();
+        try {
+            if (!task.future.isDone()) {
+                task.future.complete(task.work.get());
+            }
+        } catch (Throwable t) {
+            failed = true;
+            task.future.completeExceptionally(t);
+        } finally {
+            synchronized (task) {
+                task.runner = null;
+            }
+            callAborter.end();
+            Thread.interrupted(); // an abort must not leak into the worker's next task
+            synchronized (lock) {
+                ClassStats s = stats.get(task.priority);
+                s.inFlight--;
+                s.completed++;
+                if (failed) {
+                    s.failed++;
+                }
+                inFlightTotal--;
+            }
+            dispatch();
+        }
+    }
+
+    /**
+     * Queue metrics per scheduling class, for the stats endpoint.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        synchronized (lock) {
+            result.put("slots", slots);
+            result.put("slotsConfigured", configuredSlots > 0);
+            result.put("reservedSlots", slots - capFor(Priority.BATCH)); // 0 with a single slot
+            result.put("inFlight", inFlightTotal);
+            for (Priority p : Priority.values()) {
+                ClassStats s = stats.get(p);
+                Map<String, Object> cls = new LinkedHashMap<>();
+                cls.put("queued", queues.get(p).size());
+                cls.put("inFlight", s.inFlight);
+                cls.put("cap", capFor(p));
+                cls.put("submitted", s.submitted);
+                cls.put("completed", s.completed);
+                cls.put("failed", s.failed);
+                cls.put("cancelled", s.cancelled);
+                cls.put("aborted", s.aborted);
+                cls.put("rejected", s.rejected);
+                cls.put("avgWaitMs", s.dispatched > 0 ? s.totalWaitMs / s.dispatched : 0);
+                cls.put("maxWaitMs", s.maxWaitMs);
+                result.put(p.name().toLowerCase(Locale.ROOT), cls);
+            }
+        }
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+
+    private static final class Task<T> {
+        private final Priority priority;
+        private final Supplier<T> work;
+        private final long rank;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private Thread runner; // guarded by the task itself
+
+        Task(Priority priority, Supplier<T> work, long rank) {
+            this.priority = priority;
+            this.work = work;
+            this.rank = rank;
+        }
+    }
+
+    private static final class ClassStats {
+        private int inFlight;
+        private long submitted;
+        private long dispatched;
+        private long completed;
+        private long failed;
+        private long cancelled;
+        private long aborted;
+        private long rejected;
+        private long totalWaitMs;
+        private long maxWaitMs;
+    }
+
+    private static final class WorkerThreadFactory implements java.util.concurrent.ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "llm-slot-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+}
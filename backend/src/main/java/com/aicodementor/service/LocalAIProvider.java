@@ -0,0 +1,110 @@
+package com.aicodementor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * LocalAI (OpenAI-compatible) server: {@code /v1/completions}.
+ */
+@Component
+public class LocalAIProvider implements InferenceProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalAIProvider.class);
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String model;
+
+    public LocalAIProvider(RestTemplate restTemplate, ObjectMapper objectMapper,
+                           @Value("${llm.localai.model:deepseek-coder-6.7b-instruct}") String model) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.model = model;
+    }
+
+    @Override
+    public String name() {
+        return "localai";
+    }
+
+    @Override
+    public CompletionResult complete(InferenceEndpoint endpoint, CompletionRequest request) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("prompt", request.prompt());
+        body.put("max_tokens", request.maxTokens());
+        body.put("temperature", request.temperature());
+        body.put("top_p", request.topP());
+        body.put("top_k", request.topK());
+        body.put("repeat_penalty", request.repeatPenalty());
+        body.put("stop", request.stop());
+        if (request.seed() != CompletionRequest.RANDOM_SEED) {
+            body.put("seed", request.seed());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String response = restTemplate.postForObject(
+            endpoint.getUrl() + "/v1/completions",
+            new HttpEntity<>(body, headers),
+            String.class
+        );
+        try {
+            JsonNode node = response == null ? null : objectMapper.readTree(response);
+            String content = "";
+            if (node != null && node.has("choices") && node.get("choices").size() > 0
+                && node.get("choices").get(0).hasNonNull("text")) {
+                content = node.get("choices").get(0).get("text").asText();
+            }
+            return new CompletionResult(content, endpoint.getUrl(), node == null ? InferenceTimings.NONE : extractTimings(node));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed LocalAI response", e);
+        }
+    }
+
+    /**
+     * OpenAI-style {@code usage} only carries token counts, no durations.
+     */
+    private InferenceTimings extractTimings(JsonNode node) {
+        JsonNode usage = node.path("usage");
+        int promptTokens = usage.path("prompt_tokens").asInt(0);
+        return new InferenceTimings(
+            promptTokens,
+            promptTokens,
+            usage.path("completion_tokens").asInt(0),
+            0,
+            0,
+            0,
+            "length".equals(node.path("choices").path(0).path("finish_reason").asText())
+        );
+    }
+
+    @Override
+    public boolean isHealthy(InferenceEndpoint endpoint) {
+        try {
+            restTemplate.getForObject(endpoint.getUrl() + "/readyz", String.class);
+            return true;
+        } catch (Exception e) {
+            logger.debug("LocalAI health check failed for {}: {}", endpoint.getUrl(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int discoverSlots(InferenceEndpoint endpoint) {
+        return 0;
+    }
+}
@@ -0,0 +1,160 @@
+package com.aicodementor.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Vectors off the Java heap, in append-only segment files of {@code vectorsPerSegment} float32
+ * vectors each, memory-mapped as {@link MemorySegment}s. Dot products read the mapped memory
+ * directly; the heap only holds the segment handles, and the OS pages vectors in and out.
+ *
+ * The files are a working copy of the database (the index is rebuilt from
+ * {@code knowledge_base} at startup) and are deleted on {@link #close()}.
+ */
+public final class MappedVectorStorage implements VectorStorage {
+
+    private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+    private final Path directory;
+    private final int dimension;
+    private final int vectorsPerSegment;
+    private final long vectorBytes;
+    private final Arena arena = Arena.ofShared();
+    private MemorySegment[] segments = new MemorySegment[0];
+    private volatile int size;
+
+    public MappedVectorStorage(Path directory, int dimension, int vectorsPerSegment) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        this.directory = directory;
+        this.dimension = dimension;
+        this.vectorsPerSegment = Math.max(1, vectorsPerSegment);
+        this.vectorBytes = (long) dimension * Float.BYTES;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create vector segment directory " + directory, e);
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public synchronized int add(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + vector.length);
+        }
+        int slot = size;
+        int segment = slot / vectorsPerSegment;
+        if (segment == segments.length) {
+            MemorySegment[] grown = Arrays.copyOf(segments, segment + 1);
+            grown[segment] = map(segment);
+            segments = grown;
+        }
+        MemorySegment.copy(vector, 0, segments[segment], FLOAT, offset(slot), dimension);
+        size = slot + 1;
+        return slot;
+    }
+
+    @Override
+    public float dot(int slot, float[] query) {
+        MemorySegment segment = segments[slot / vectorsPerSegment];
+        long base = offset(slot);
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        for (; i + 3 < dimension; i += 4) {
+            long at = base + (long) i * Float.BYTES;
+            s0 += segment.get(FLOAT, at) * query[i];
+            s1 += segment.get(FLOAT, at + 4) * query[i + 1];
+            s2 += segment.get(FLOAT, at + 8) * query[i + 2];
+            s3 += segment.get(FLOAT, at + 12) * query[i + 3];
+        }
+        for (; i < dimension; i++) {
+            s0 += segment.get(FLOAT, base + (long) i * Float.BYTES) * query[i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    @Override
+    public float dot(int a, int b) {
+        MemorySegment segmentA = segments[a / vectorsPerSegment];
+        MemorySegment segmentB = segments[b / vectorsPerSegment];
+        long baseA = offset(a);
+        long baseB = offset(b);
+        float s0 = 0, s1 = 0;
+        int i = 0;
+        for (; i + 1 < dimension; i += 2) {
+            long at = (long) i * Float.BYTES;
+            s0 += segmentA.get(FLOAT, baseA + at) * segmentB.get(FLOAT, baseB + at);
+            s1 += segmentA.get(FLOAT, baseA + at + 4) * segmentB.get(FLOAT, baseB + at + 4);
+        }
+        for (; i < dimension; i++) {
+            long at = (long) i * Float.BYTES;
+            s0 += segmentA.get(FLOAT, baseA + at) * segmentB.get(FLOAT, baseB + at);
+        }
+        return s0 + s1;
+    }
+
+    @Override
+    public float[] get(int slot) {
+        float[] vector = new float[dimension];
+        MemorySegment.copy(segments[slot / vectorsPerSegment], FLOAT, offset(slot), vector, 0, dimension);
+        return vector;
+    }
+
+    /**
+     * Unmaps the segments and deletes their files. The storage is unusable afterwards.
+     */
+    @Override
+    public synchronized void close() {
+        arena.close();
+        for (int i = 0; i < segments.length; i++) {
+            try {
+                Files.deleteIfExists(segmentFile(i));
+            } catch (IOException e) {
+                // Left behind; the directory is cleared at the next startup
+            }
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            // Not empty or already gone
+        }
+    }
+
+    private long offset(int slot) {
+        return (slot % vectorsPerSegment) * vectorBytes;
+    }
+
+    private MemorySegment map(int segment) {
+        try (FileChannel channel = FileChannel.open(segmentFile(segment), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping outlives the channel; it is released when the arena closes
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, vectorsPerSegment * vectorBytes, arena);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot map vector segment " + segment + " in " + directory, e);
+        }
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("segment-%05d.vec", segment));
+    }
+}
@@ -0,0 +1,242 @@
+package com.aicodementor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Near-duplicate lookup by Jaccard similarity of shingle sets: MinHash signatures (Broder)
+ * bucketed by locality-sensitive hashing (bands of {@code rows} consecutive min-hashes).
+ *
+ * Two sets with Jaccard similarity s share at least one bucket with probability
+ * 1 - (1 - s^rows)^bands, so a query only verifies the few ids it collides with and costs the
+ * same with 100 or 100k entries. Verification compares the low 16 bits of each min-hash
+ * (b-bit MinHash), which keeps a signature at 2 bytes per hash.
+ * Save-time checks only read the buckets and run side by side under the read lock; put and
+ * remove move bucket entries and recycle slots, so they take the write lock.
+ */
+public final class MinHashIndex {
+
+    public record Match(long id, double similarity) {
+    }
+
+    private static final int MIN_CAPACITY = 1024;
+
+    private final int numHashes;
+    private final int bands;
+    private final int rows;
+    private final int maxCandidates;
+    private final long[] seeds;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Dense entries: ids[slot], signatures[slot * numHashes ..], bandKeys[slot * bands ..]
+    private long[] ids = new long[MIN_CAPACITY];
+    private char[] signatures;
+    private int[] bandKeys;
+    private final Map<Long, Integer> slotOf = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    // Buckets: one (band key, slot) pair per entry and band
+    private final IntMultimap buckets = new IntMultimap();
+
+    public MinHashIndex(int numHashes, int bands, int maxCandidates) {
+        this.bands = Math.max(1, bands);
+        this.rows = Math.max(1, numHashes / this.bands);
+        this.numHashes = this.bands * this.rows;
+        this.maxCandidates = Math.max(1, maxCandidates);
+        this.seeds = new SplittableRandom(42).longs(this.numHashes).map(seed -> seed | 1).toArray();
+        this.signatures = new char[MIN_CAPACITY * this.numHashes];
+        this.bandKeys = new int[MIN_CAPACITY * this.bands];
+    }
+
+    public int numHashes() {
+        return numHashes;
+    }
+
+    public int bands() {
+        return bands;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * Similarity at which a pair becomes more likely than not to be verified: (1 / bands)^(1 / rows).
+     */
+    public double lshThreshold() {
+        return Math.pow(1.0 / bands, 1.0 / rows);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * MinHash signature of a set of 64-bit shingle hashes (duplicates allowed), or null when it is empty.
+     */
+    public int[] signature(long[] shingles) {
+        if (shingles == null || shingles.length == 0) {
+            return null;
+        }
+        int[] signature = new int[numHashes];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (long shingle : shingles) {
+            // One full mix per shingle, then a multiply-shift hash (odd multiplier) per min-hash.
+            // Offset first: mix(0) is 0, which would be the minimum of every hash
+            long mixed = mix(shingle + 0x9E3779B97F4A7C15L);
+            for (int i = 0; i < numHashes; i++) {
+                int value = (int) ((mixed * seeds[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Adds or replaces the signature of {@code id}.
+     */
+    public void put(long id, int[] signature) {
+        checkSignature(signature);
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int slot = allocateSlot();
+            ids[slot] = id;
+            int base = slot * numHashes;
+            for (int i = 0; i < numHashes; i++) {
+                signatures[base + i] = (char) signature[i];
+            }
+            for (int band = 0; band < bands; band++) {
+                int key = bandKey(signature, band);
+                bandKeys[slot * bands + band] = key;
+                buckets.put(key, slot);
+            }
+            slotOf.put(id, slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids whose estimated similarity to {@code signature} is at least {@code minSimilarity},
+     * most similar first. {@code excludeId} (may be null) is never returned.
+     */
+    public List<Match> query(int[] signature, double minSimilarity, int limit, Long excludeId) {
+        checkSignature(signature);
+        int[] keys = new int[bands];
+        for (int band = 0; band < bands; band++) {
+            keys[band] = bandKey(signature, band);
+        }
+        int minEqual = (int) Math.ceil(minSimilarity * numHashes);
+        List<Match> matches = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Integer> candidates = new HashSet<>();
+            for (int band = 0; band < bands && candidates.size() < maxCandidates; band++) {
+                buckets.forEach(keys[band], slot -> {
+                    candidates.add(slot);
+                    return candidates.size() < maxCandidates;
+                });
+            }
+            for (int slot : candidates) {
+                long id = ids[slot];
+                if (excludeId != null && excludeId == id) {
+                    continue;
+                }
+                int equal = 0;
+                int base = slot * numHashes;
+                for (int i = 0; i < numHashes; i++) {
+                    if (signatures[base + i] == (char) signature[i]) {
+                        equal++;
+                    }
+                }
+                if (equal >= minEqual) {
+                    matches.add(new Match(id, (double) equal / numHashes));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        matches.sort(Comparator.comparingDouble(Match::similarity).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    // ==================== Internals (write lock held) ====================
+
+    private boolean removeLocked(long id) {
+        Integer slot = slotOf.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        for (int band = 0; band < bands; band++) {
+            buckets.remove(bandKeys[slot * bands + band], slot);
+        }
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            signatures = Arrays.copyOf(signatures, capacity * numHashes);
+            bandKeys = Arrays.copyOf(bandKeys, capacity * bands);
+        }
+        return nextSlot++;
+    }
+
+    private int bandKey(int[] signature, int band) {
+        long hash = (band + 1) * 0x9E3779B97F4A7C15L;
+        for (int i = band * rows, end = i + rows; i < end; i++) {
+            hash = (hash ^ signature[i]) * 0x100000001B3L;
+        }
+        return (int) mix(hash);
+    }
+
+    private void checkSignature(int[] signature) {
+        if (signature == null || signature.length != numHashes) {
+            throw new IllegalArgumentException("Expected a signature of " + numHashes + " hashes");
+        }
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,115 @@
+package com.aicodementor.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ollama server: {@code /api/generate} without streaming.
+ * Ollama does not report its parallelism, so slots come from the scheduler fallback.
+ */
+@Component
+public class OllamaProvider implements InferenceProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(OllamaProvider.class);
+
+    private final RestTemplate restTemplate;
+    private final ObjectMapper objectMapper;
+    private final String model;
+
+    public OllamaProvider(RestTemplate restTemplate, ObjectMapper objectMapper,
+                          @Value("${llm.ollama.model:codellama:7b-instruct}") String model) {
+        this.restTemplate = restTemplate;
+        this.objectMapper = objectMapper;
+        this.model = model;
+    }
+
+    @Override
+    public String name() {
+        return "ollama";
+    }
+
+    @Override
+    public CompletionResult complete(InferenceEndpoint endpoint, CompletionRequest request) {
+        Map<String, Object> options = new HashMap<>();
+        options.put("num_predict", request.maxTokens());
+        options.put("temperature", request.temperature());
+        options.put("top_p", request.topP());
+        options.put("top_k", request.topK());
+        options.put("repeat_penalty", request.repeatPenalty());
+        options.put("stop", request.stop());
+        if (request.seed() != CompletionRequest.RANDOM_SEED) {
+            options.put("seed", request.seed());
+        }
+
+        Map<String, Object> body = new HashMap<>();
+        body.put("model", model);
+        body.put("prompt", request.prompt());
+        body.put("stream", false);
+        body.put("options", options);
+        if (request.jsonSchema() != null) {
+            body.put("format", request.jsonSchema());
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        String response = restTemplate.postForObject(
+            endpoint.getUrl() + "/api/generate",
+            new HttpEntity<>(body, headers),
+            String.class
+        );
+        try {
+            JsonNode node = response == null ? null : objectMapper.readTree(response);
+            String content = node != null && node.hasNonNull("response") ? node.get("response").asText() : "";
+            return new CompletionResult(content, endpoint.getUrl(), node == null ? InferenceTimings.NONE : extractTimings(node));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed Ollama response", e);
+        }
+    }
+
+    /**
+     * Ollama reports counts and nanosecond durations; it does not say how much of the prompt was cached.
+     */
+    private InferenceTimings extractTimings(JsonNode node) {
+        int promptTokens = node.path("prompt_eval_count").asInt(0);
+        int predicted = node.path("eval_count").asInt(0);
+        double predictedMs = node.path("eval_duration").asLong(0) / 1_000_000.0;
+        return new InferenceTimings(
+            promptTokens,
+            promptTokens,
+            predicted,
+            node.path("prompt_eval_duration").asLong(0) / 1_000_000.0,
+            predictedMs,
+            predictedMs > 0 ? predicted * 1000.0 / predictedMs : 0,
+            "length".equals(node.path("done_reason").asText())
+        );
+    }
+
+    @Override
+    public boolean isHealthy(InferenceEndpoint endpoint) {
+        try {
+            restTemplate.getForObject(endpoint.getUrl() + "/api/version", String.class);
+            return true;
+        } catch (Exception e) {
+            logger.debug("Ollama health check failed for {}: {}", endpoint.getUrl(), e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public int discoverSlots(InferenceEndpoint endpoint) {
+        return 0;
+    }
+}
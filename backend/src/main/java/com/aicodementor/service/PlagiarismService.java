@@ -0,0 +1,357 @@
+package com.aicodementor.service;
+
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.SubmissionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copied-solution detection across submissions, without comparing every pair.
+ *
+ * A submission's code is tokenized with comments, package and imports dropped, identifiers and
+ * literals abstracted (renaming a variable changes nothing), then fingerprinted by winnowing.
+ * Each exercise has its own {@link WinnowingIndex}, whose base is the exercise's starter code, so
+ * the lines every student was given never count as copied. Indexes are built in the background
+ * at startup and kept current by {@link KnowledgeIndexingListener} after each commit.
+ *
+ * "Similar" queries read the postings of one submission's fingerprints; the batch report runs
+ * that query for every submission on a dedicated pool of {@code report-parallelism} threads.
+ */
+@Service
+public class PlagiarismService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PlagiarismService.class);
+
+    private static final int LOAD_PAGE_SIZE = 500;
+
+    public record SimilarSubmission(Long submissionId, Long userId, int sharedFingerprints, double similarity) {
+    }
+
+    public record SimilarPair(Long exerciseId, Long submissionId, Long userId,
+                              Long otherSubmissionId, Long otherUserId, int sharedFingerprints, double similarity) {
+    }
+
+    /**
+     * One submission of the report, queried against its exercise's index.
+     */
+    private record PairQuery(Long exerciseId, WinnowingIndex index, long submissionId, long userId) {
+    }
+
+    private final ExerciseRepository exerciseRepository;
+    private final SubmissionRepository submissionRepository;
+    private final boolean enabled;
+    private final int kgram;
+    private final int window;
+    private final int minShared;
+    private final double minSimilarity;
+    private final int maxPostings;
+    private final ForkJoinPool reportPool;
+
+    private final Map<Long, WinnowingIndex> indexes = new ConcurrentHashMap<>();
+    private final Map<Long, Long> exerciseOf = new ConcurrentHashMap<>();
+
+    // Initial load, then the listener's changes, in commit order: a starter code change finds the
+    // index it rebases, and a submission moved to another exercise leaves the old index first
+    private final SerialTaskRunner updates =
+        new SerialTaskRunner("plagiarism-index", logger, "Plagiarism index update");
+
+    private volatile boolean ready;
+    private volatile long lastReportMs = -1;
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong reports = new AtomicLong();
+
+    public PlagiarismService(ExerciseRepository exerciseRepository,
+                             SubmissionRepository submissionRepository,
+                             @Value("${plagiarism.enabled:true}") boolean enabled,
+                             @Value("${plagiarism.kgram:8}") int kgram,
+                             @Value("${plagiarism.window:6}") int window,
+                             @Value("${plagiarism.min-shared:5}") int minShared,
+                             @Value("${plagiarism.min-similarity:0.5}") double minSimilarity,
+                             @Value("${plagiarism.max-postings:100}") int maxPostings,
+                             @Value("${plagiarism.report-parallelism:0}") int reportParallelism) {
+        this.exerciseRepository = exerciseRepository;
+        this.submissionRepository = submissionRepository;
+        this.enabled = enabled;
+        this.kgram = Math.max(2, kgram);
+        this.window = Math.max(1, window);
+        this.minShared = Math.max(1, minShared);
+        this.minSimilarity = Math.min(1.0, Math.max(0.0, minSimilarity));
+        this.maxPostings = maxPostings;
+        this.reportPool = new ForkJoinPool(reportParallelism > 0 ? reportParallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (enabled) {
+            updates.submit(this::load);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        updates.shutdown();
+        reportPool.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public double defaultMinSimilarity() {
+        return minSimilarity;
+    }
+
+    // ==================== Queries ====================
+
+    /**
+     * Closest submission of each other student to {@code submissionId}, most similar first.
+     */
+    public List<SimilarSubmission> similarToSubmission(Long submissionId, double minSimilarity, int limit) {
+        queries.incrementAndGet();
+        Long exerciseId = exerciseOf.get(submissionId);
+        WinnowingIndex index = exerciseId != null ? indexes.get(exerciseId) : null;
+        if (index == null) {
+            return List.of();
+        }
+        return index.similarTo(submissionId, minShared, minSimilarity, limit).stream()
+            .map(match -> new SimilarSubmission(match.id(), match.owner(), match.shared(), round(match.similarity())))
+            .toList();
+    }
+
+    /**
+     * Most similar pairs of submissions of different students within one exercise.
+     */
+    public List<SimilarPair> similarInExercise(Long exerciseId, double minSimilarity, int limit) {
+        queries.incrementAndGet();
+        return pairs(List.of(exerciseId), minSimilarity, limit);
+    }
+
+    /**
+     * Most similar pairs across every exercise, computed in parallel.
+     */
+    public Map<String, Object> report(double minSimilarity, int limit) {
+        long start = System.currentTimeMillis();
+        List<Long> exerciseIds = new ArrayList<>(indexes.keySet());
+        List<SimilarPair> pairs = pairs(exerciseIds, minSimilarity, limit);
+        lastReportMs = System.currentTimeMillis() - start;
+        reports.incrementAndGet();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("exercises", exerciseIds.size());
+        report.put("submissions", exerciseOf.size());
+        report.put("minSimilarity", minSimilarity);
+        report.put("parallelism", reportPool.getParallelism());
+        report.put("elapsedMs", lastReportMs);
+        report.put("pairs", pairs);
+        return report;
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("exercises", indexes.size());
+        stats.put("submissions", exerciseOf.size());
+        stats.put("kgram", kgram);
+        stats.put("window", window);
+        stats.put("guaranteedMatchTokens", kgram + window - 1);
+        stats.put("minShared", minShared);
+        stats.put("minSimilarity", minSimilarity);
+        stats.put("maxPostings", maxPostings);
+        stats.put("reportParallelism", reportPool.getParallelism());
+        stats.put("queries", queries.get());
+        stats.put("reports", reports.get());
+        stats.put("lastReportMs", lastReportMs);
+        return stats;
+    }
+
+    // ==================== Updates ====================
+
+    /**
+     * Re-fingerprints a submission after a committed insert or update.
+     */
+    public void update(Long submissionId, Long exerciseId, Long userId, String code) {
+        if (!enabled || submissionId == null || exerciseId == null || userId == null) {
+            return;
+        }
+        updates.submit(() -> index(submissionId, exerciseId, userId, code));
+    }
+
+    /**
+     * Drops a submission after a committed delete.
+     */
+    public void remove(Long submissionId) {
+        if (enabled && submissionId != null) {
+            updates.submit(() -> unindex(submissionId));
+        }
+    }
+
+    /**
+     * Starter code of an exercise changed: its fingerprints become the new base of the exercise's index.
+     */
+    public void exerciseChanged(Long exerciseId, String starterCode) {
+        if (enabled && exerciseId != null) {
+            updates.submit(() -> {
+                WinnowingIndex index = indexes.get(exerciseId);
+                if (index != null) {
+                    index.setBase(fingerprints(starterCode));
+                }
+            });
+        }
+    }
+
+    public void exerciseRemoved(Long exerciseId) {
+        if (enabled && exerciseId != null) {
+            updates.submit(() -> {
+                indexes.remove(exerciseId);
+                exerciseOf.values().removeIf(exerciseId::equals);
+            });
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private void load() {
+        long start = System.currentTimeMillis();
+        int loaded = 0;
+        try {
+            long lastId = 0;
+            List<Object[]> page;
+            while (!(page = submissionRepository.findFingerprintSourcesAfter(lastId, PageRequest.of(0, LOAD_PAGE_SIZE))).isEmpty()) {
+                for (Object[] row : page) {
+                    lastId = (Long) row[0];
+                    if (index(lastId, (Long) row[1], (Long) row[2], (String) row[3])) {
+                        loaded++;
+                    }
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Could not load the plagiarism index: {}", e.getMessage());
+        }
+        ready = true;
+        logger.info("Plagiarism index loaded {} submission(s) of {} exercise(s) in {} ms",
+            loaded, indexes.size(), System.currentTimeMillis() - start);
+    }
+
+    private boolean index(Long submissionId, Long exerciseId, Long userId, String code) {
+        int[] prints = fingerprints(code);
+        if (prints.length == 0) {
+            unindex(submissionId);
+            return false;
+        }
+        Long previous = exerciseOf.put(submissionId, exerciseId);
+        if (previous != null && !previous.equals(exerciseId)) {
+            WinnowingIndex old = indexes.get(previous);
+            if (old != null) {
+                old.remove(submissionId);
+            }
+        }
+        WinnowingIndex index = indexes.get(exerciseId);
+        if (index == null) {
+            // Starter code read before the map is touched: no repository call under its bin lock
+            WinnowingIndex created = newIndex(exerciseId);
+            index = indexes.putIfAbsent(exerciseId, created);
+            if (index == null) {
+                index = created;
+            }
+        }
+        index.put(submissionId, userId, prints);
+        return true;
+    }
+
+    private void unindex(Long submissionId) {
+        Long exerciseId = exerciseOf.remove(submissionId);
+        WinnowingIndex index = exerciseId != null ? indexes.get(exerciseId) : null;
+        if (index != null) {
+            index.remove(submissionId);
+        }
+    }
+
+    private WinnowingIndex newIndex(Long exerciseId) {
+        WinnowingIndex index = new WinnowingIndex(maxPostings);
+        index.setBase(fingerprints(exerciseRepository.findStarterCodeById(exerciseId).orElse(null)));
+        return index;
+    }
+
+    private List<SimilarPair> pairs(List<Long> exerciseIds, double minSimilarity, int limit) {
+        List<PairQuery> work = new ArrayList<>();
+        for (Long exerciseId : exerciseIds) {
+            WinnowingIndex index = indexes.get(exerciseId);
+            if (index == null) {
+                continue;
+            }
+            for (long submissionId : index.ids()) {
+                Long userId = index.ownerOf(submissionId);
+                if (userId != null) {
+                    work.add(new PairQuery(exerciseId, index, submissionId, userId));
+                }
+            }
+        }
+        List<SimilarPair> found = reportPool.submit(() -> work.parallelStream()
+            .flatMap(query -> query.index().similarTo(query.submissionId(), minShared, minSimilarity, Integer.MAX_VALUE).stream()
+                .map(match -> new SimilarPair(query.exerciseId(), query.submissionId(), query.userId(),
+                    match.id(), match.owner(), match.shared(), round(match.similarity()))))
+            .toList()).join();
+        // Each pair is found from both sides; keep the closer of the two
+        Map<String, SimilarPair> unique = new HashMap<>();
+        for (SimilarPair pair : found) {
+            String key = Math.min(pair.submissionId(), pair.otherSubmissionId()) + ":"
+                + Math.max(pair.submissionId(), pair.otherSubmissionId());
+            unique.merge(key, pair, (a, b) -> a.similarity() >= b.similarity() ? a : b);
+        }
+        return unique.values().stream()
+            .sorted(Comparator.comparingDouble(SimilarPair::similarity).reversed()
+                .thenComparing(Comparator.comparingInt(SimilarPair::sharedFingerprints).reversed()))
+            .limit(limit)
+            .toList();
+    }
+
+    /**
+     * Winnowed fingerprints of Java code, insensitive to layout, comments, naming and literal values.
+     */
+    int[] fingerprints(String code) {
+        List<JavaTokenizer.Token> tokens = JavaTokenizer.tokenize(code);
+        int[] hashes = new int[tokens.size()];
+        int n = 0;
+        boolean skipToSemicolon = false;
+        for (JavaTokenizer.Token token : tokens) {
+            if (skipToSemicolon) {
+                skipToSemicolon = !token.text().equals(";");
+                continue;
+            }
+            String normalized = switch (token.kind()) {
+                case COMMENT -> null;
+                case IDENTIFIER -> "$I";
+                case STRING -> "$S";
+                case CHAR -> "$C";
+                case NUMBER -> "$N";
+                case KEYWORD -> {
+                    if (token.text().equals("package") || token.text().equals("import")) {
+                        skipToSemicolon = true;
+                        yield null;
+                    }
+                    yield token.text();
+                }
+                default -> token.text();
+            };
+            if (normalized != null) {
+                hashes[n++] = normalized.hashCode();
+            }
+        }
+        return WinnowingIndex.fingerprints(Arrays.copyOf(hashes, n), kgram, window);
+    }
+
+    private static double round(double similarity) {
+        return Math.round(similarity * 1000) / 1000.0;
+    }
+}
@@ -0,0 +1,124 @@
+package com.aicodementor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits the variable part of a prompt into a token budget.
+ *
+ * Sections are added in prompt order with a priority. When the total exceeds the budget,
+ * sections are given up from the lowest priority upwards, last added first: a trimmable section
+ * is first cut at a line boundary to what still fits, any other section is dropped whole.
+ * {@link Priority#REQUIRED} sections are always kept. Counts are per section, so the result can
+ * differ from the joined prompt's count by a token per boundary.
+ */
+public final class PromptBudget {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptBudget.class);
+
+    private static final String TRUNCATION_MARK = "\n...\n";
+    private static final int MAX_TRIM_ATTEMPTS = 4;
+
+    public enum Priority {
+        REQUIRED,
+        HIGH,
+        MEDIUM,
+        LOW
+    }
+
+    private record Section(Priority priority, String text, boolean trimmable) {
+    }
+
+    private final TokenCounter counter;
+    private final int maxTokens;
+    private final List<Section> sections = new ArrayList<>();
+
+    PromptBudget(TokenCounter counter, int maxTokens) {
+        this.counter = counter;
+        this.maxTokens = maxTokens;
+    }
+
+    /**
+     * Section kept whole or dropped.
+     */
+    public PromptBudget add(Priority priority, String text) {
+        if (text != null && !text.isEmpty()) {
+            sections.add(new Section(priority, text, false));
+        }
+        return this;
+    }
+
+    /**
+     * Section that may be cut at a line boundary (code, long statements).
+     */
+    public PromptBudget addTrimmable(Priority priority, String text) {
+        if (text != null && !text.isEmpty()) {
+            sections.add(new Section(priority, text, true));
+        }
+        return this;
+    }
+
+    public String build() {
+        int n = sections.size();
+        String[] texts = new String[n];
+        int[] tokens = new int[n];
+        int total = 0;
+        for (int i = 0; i < n; i++) {
+            texts[i] = sections.get(i).text();
+            tokens[i] = counter.count(texts[i]);
+            total += tokens[i];
+        }
+        int before = total;
+
+        Priority[] priorities = Priority.values();
+        for (int p = priorities.length - 1; p > 0 && total > maxTokens; p--) {
+            for (int i = n - 1; i >= 0 && total > maxTokens; i--) {
+                Section section = sections.get(i);
+                if (section.priority() != priorities[p] || texts[i] == null) {
+                    continue;
+                }
+                int overflow = total - maxTokens;
+                String cut = section.trimmable() && tokens[i] > overflow
+                    ? trimToTokens(texts[i], tokens[i], tokens[i] - overflow) : null;
+                total -= tokens[i];
+                texts[i] = cut;
+                tokens[i] = cut != null ? counter.count(cut) : 0;
+                total += tokens[i];
+            }
+        }
+        if (total != before) {
+            logger.debug("Prompt fitted from {} to {} tokens (budget {})", before, total, maxTokens);
+        }
+
+        StringBuilder prompt = new StringBuilder();
+        for (String text : texts) {
+            if (text != null) {
+                prompt.append(text);
+            }
+        }
+        return prompt.toString();
+    }
+
+    /**
+     * Longest line-aligned prefix of {@code text} within {@code target} tokens, or null.
+     */
+    private String trimToTokens(String text, int tokens, int target) {
+        if (target <= 0) {
+            return null;
+        }
+        int keepChars = (int) ((long) text.length() * target / tokens);
+        for (int attempt = 0; attempt < MAX_TRIM_ATTEMPTS && keepChars > 0; attempt++) {
+            int end = text.lastIndexOf('\n', keepChars);
+            String cut = text.substring(0, end > 0 ? end : keepChars) + TRUNCATION_MARK;
+            int count = counter.count(cut);
+            if (count <= target) {
+                return cut;
+            }
+            keepChars = (int) (keepChars * 0.9 * target / count);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,149 @@
+package com.aicodementor.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Prompt assembly for llama.cpp prompt caching.
+ *
+ * Every prompt is a constant instruction prefix for its call type followed by the variable data
+ * (task, code, error). The server keeps the KV cache of the previous prompt in each slot and only
+ * evaluates the tokens after the longest common prefix, so with the instructions first a call
+ * routed to a slot that last served the same call type skips the whole prefix.
+ *
+ * Nothing request-specific may appear in a prefix: a single interpolated character invalidates
+ * every cached token after it.
+ */
+public final class PromptLayout {
+
+    static final String SOLUTION_PREFIX = ""
+        + "Tu es un expert en programmation Java. Génère une solution COMPLÈTE et FONCTIONNELLE pour l'exercice donné à la fin.\n\n"
+        + "=== EXIGENCES ABSOLUES ===\n"
+        + "1. Nom de classe EXACT : celui indiqué dans la section CLASSE\n"
+        + "2. Méthodes : public static avec implémentation COMPLÈTE (pas de TODO, pas de code vide)\n"
+        + "3. Le code DOIT être compilable et fonctionnel immédiatement\n"
+        + "4. Gestion OBLIGATOIRE des cas limites : null, tableaux vides, chaînes vides, valeurs négatives\n"
+        + "5. Structure correcte : toutes les accolades fermées, indentation 4 espaces\n"
+        + "6. PAS de méthode main (sauf si l'exercice le demande explicitement)\n"
+        + "7. PAS de commentaires dans le code\n"
+        + "8. PAS de markdown, PAS d'explications, UNIQUEMENT du code Java brut\n\n"
+        + "=== EXEMPLE DE BONNE SOLUTION ===\n"
+        + "Si l'exercice demande de calculer la somme d'un tableau :\n"
+        + "public class ArraySum {\n"
+        + "    public static int sum(int[] array) {\n"
+        + "        if (array == null || array.length == 0) return 0;\n"
+        + "        int total = 0;\n"
+        + "        for (int num : array) {\n"
+        + "            total += num;\n"
+        + "        }\n"
+        + "        return total;\n"
+        + "    }\n"
+        + "}\n\n"
+        + "=== FORMAT DE RÉPONSE ===\n"
+        + "Commence DIRECTEMENT par 'public class' suivi du nom de la section CLASSE et de '{'\n"
+        + "Réponds UNIQUEMENT avec le code Java complet et fonctionnel, rien d'autre.\n\n";
+
+    static final String TESTS_PREFIX = ""
+        + "Génère des tests JUnit 5 COMPLETS avec des ASSERTIONS RÉELLES pour la classe décrite à la fin. PAS de TODO.\n\n"
+        + "=== EXIGENCES ABSOLUES ===\n"
+        + "1. Nom de classe de test EXACT : celui indiqué dans la section CLASSE DE TEST\n"
+        + "2. Imports OBLIGATOIRES :\n"
+        + "   import org.junit.jupiter.api.Test;\n"
+        + "   import static org.junit.jupiter.api.Assertions.*;\n"
+        + "3. Minimum 3 tests avec ASSERTIONS RÉELLES (PAS de TODO) :\n"
+        + "   - testCasBasique() : valeurs normales avec assertEquals concret\n"
+        + "   - testCasLimite() : null, tableaux vides, chaînes vides avec assertions\n"
+        + "   - testCasComplexe() : cas multiples avec assertions\n"
+        + "4. Chaque test DOIT appeler Classe.methode(...) et vérifier avec assertEquals/assertTrue/assertFalse\n"
+        + "5. Utilise EXACTEMENT le nom de méthode de la signature fournie\n"
+        + "6. INTERDICTION ABSOLUE : PAS de TODO, PAS de code vide\n"
+        + "7. PAS de markdown, UNIQUEMENT du code de test fonctionnel\n\n"
+        + "=== EXEMPLE CONCRET ===\n"
+        + "Si classe = ArraySum et méthode = sum(int[] array) :\n"
+        + "@Test\n"
+        + "void testCasBasique() {\n"
+        + "    int[] array = {1, 2, 3};\n"
+        + "    assertEquals(6, ArraySum.sum(array));\n"
+        + "}\n\n"
+        + "@Test\n"
+        + "void testCasLimite() {\n"
+        + "    assertEquals(0, ArraySum.sum(new int[]{}));\n"
+        + "    assertEquals(0, ArraySum.sum(null));\n"
+        + "}\n\n"
+        + "=== FORMAT ===\n"
+        + "Commence par 'import org.junit.jupiter.api.Test;'\n\n";
+
+    static final String EXAMPLES_PREFIX = ""
+        + "Génère EXACTEMENT 3 exemples CONCRETS et VARIÉS pour l'exercice donné à la fin.\n\n"
+        + "=== EXIGENCES ABSOLUES ===\n"
+        + "1. RENVOIE UNIQUEMENT un JSON array de 3 objets, SANS texte, SANS explication, SANS markdown\n"
+        + "2. Format EXACT: [{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"},{\"input\":\"...\",\"output\":\"...\"}]\n"
+        + "3. Les exemples DOIVENT correspondre EXACTEMENT à l'exercice décrit\n"
+        + "4. Exemples VARIÉS :\n"
+        + "   - Premier exemple : cas simple avec valeurs normales\n"
+        + "   - Deuxième exemple : cas avec valeurs multiples/complexes\n"
+        + "   - Troisième exemple : cas limite (tableau vide, null, chaîne vide, valeur négative, etc.)\n"
+        + "5. Utilise des valeurs CONCRÈTES et RÉALISTES qui illustrent bien l'exercice\n"
+        + "6. Les valeurs d'entrée et de sortie doivent être cohérentes avec l'exercice\n"
+        + "7. Si une signature de méthode est fournie, utilise-la pour les types d'entrée et de sortie\n\n";
+
+    static final String REPAIR_PREFIX = ""
+        + "Tu es un expert en programmation Java. Une solution et ses tests JUnit 5, donnés à la fin, ne fonctionnent pas ensemble.\n"
+        + "Corrige le fichier indiqué dans la section FICHIER À CORRIGER à l'aide des erreurs du compilateur ou de JUnit.\n\n"
+        + "=== EXIGENCES ABSOLUES ===\n"
+        + "1. Renvoie la classe COMPLÈTE corrigée (avec ses imports), rien d'autre\n"
+        + "2. Garde le nom de classe et les signatures des méthodes de la solution\n"
+        + "3. Si un test attend une valeur contraire à l'énoncé, corrige l'assertion du test ; si la solution ne respecte pas l'énoncé, corrige la solution\n"
+        + "4. Modifications minimales : ne réécris pas ce qui fonctionne déjà\n"
+        + "5. PAS de TODO, PAS de markdown, PAS d'explications, UNIQUEMENT du code Java brut\n\n";
+
+    static final String HINT_PREFIX = ""
+        + "You are a Java programming teacher.\n"
+        + "Your job: give a short, actionable hint for the failing test described at the end.\n\n"
+        + "STRICT OUTPUT RULES:\n"
+        + "Return ONLY ONE JSON object on ONE line. No extra text.\n"
+        + "Format exactly:\n"
+        + "{\"problem\":\"...\",\"fix\":\"...\",\"snippet\":\"...\"}\n"
+        + "Rules:\n"
+        + "- problem: 1 sentence, the precise mistake.\n"
+        + "- fix: 1 sentence, what to change.\n"
+        + "- snippet: either empty string \"\" or a tiny Java snippet (max 3 lines).\n"
+        + "- NEVER include package/import/Spring/JPA/annotations.\n"
+        + "- NEVER mention other classes/files.\n"
+        + "- Do not use markdown.\n\n";
+
+    static final String HINT_BATCH_PREFIX = ""
+        + "You are a Java programming teacher.\n"
+        + "Your job: give a short, actionable hint for EACH failing test listed at the end.\n"
+        + "All failures come from the same student code.\n\n"
+        + "STRICT OUTPUT RULES:\n"
+        + "Return ONLY ONE JSON array on ONE line. No extra text.\n"
+        + "One object per failure, in the same order as the FAILURES list:\n"
+        + "[{\"problem\":\"...\",\"fix\":\"...\",\"snippet\":\"...\"}, ...]\n"
+        + "Rules:\n"
+        + "- problem: 1 sentence, the precise mistake for that test.\n"
+        + "- fix: 1 sentence, what to change.\n"
+        + "- snippet: either empty string \"\" or a tiny Java snippet (max 3 lines).\n"
+        + "- NEVER include package/import/Spring/JPA/annotations.\n"
+        + "- NEVER mention other classes/files.\n"
+        + "- Do not use markdown.\n\n";
+
+    private static final Map<LLMCallType, String> PREFIXES = new EnumMap<>(Map.of(
+        LLMCallType.SOLUTION, SOLUTION_PREFIX,
+        LLMCallType.TESTS, TESTS_PREFIX,
+        LLMCallType.EXAMPLES, EXAMPLES_PREFIX,
+        LLMCallType.REPAIR, REPAIR_PREFIX,
+        LLMCallType.HINT, HINT_PREFIX,
+        LLMCallType.HINT_BATCH, HINT_BATCH_PREFIX
+    ));
+
+    private PromptLayout() {
+    }
+
+    /**
+     * Constant prefix of the call type followed by the request-specific suffix.
+     */
+    public static String assemble(LLMCallType callType, String variableSuffix) {
+        return PREFIXES.get(callType) + variableSuffix;
+    }
+}
@@ -0,0 +1,49 @@
+package com.aicodementor.service;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * One daemon thread running tasks in the order they were submitted. A failing task is logged and
+ * the next one still runs; tasks submitted after {@link #shutdown()} are dropped.
+ */
+final class SerialTaskRunner {
+
+    private final Logger logger;
+    private final String description;
+    private final ExecutorService executor;
+
+    /**
+     * @param description what the tasks do, for the failure log ("Plagiarism index update")
+     */
+    SerialTaskRunner(String threadName, Logger logger, String description) {
+        this.logger = logger;
+        this.description = description;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    void submit(Runnable task) {
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    logger.warn("{} failed: {}", description, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Shutting down
+        }
+    }
+
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
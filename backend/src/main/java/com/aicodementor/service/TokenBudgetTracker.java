@@ -0,0 +1,173 @@
+package com.aicodementor.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+/**
+ * Output token budgets ({@code n_predict}) learned from real output lengths.
+ *
+ * For each call type and difficulty the last {@code window} output lengths are kept; once
+ * {@code min-samples} are known, the budget is their p95 plus {@code margin}, clamped between a
+ * floor and a ceiling derived from the call type's default. Before that, the per-call-type
+ * statistics (all difficulties) are used, and the static default before those.
+ * Outputs the server stopped at the limit (llama.cpp {@code stop_type == limit}, OpenAI-style
+ * {@code finish_reason == length}) are recorded at the budget they hit, which pushes the
+ * percentile up; outputs that only look unfinished are recorded at their real length.
+ */
+@Service
+public class TokenBudgetTracker {
+
+    private static final String ANY_DIFFICULTY = "*";
+
+    private final boolean enabled;
+    private final double margin;
+    private final int minSamples;
+    private final int windowSize;
+    private final double floorFactor;
+    private final double ceilingFactor;
+    private final double retryFactor;
+
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    public TokenBudgetTracker(@Value("${llm.token-budget.enabled:true}") boolean enabled,
+                              @Value("${llm.token-budget.margin:0.15}") double margin,
+                              @Value("${llm.token-budget.min-samples:20}") int minSamples,
+                              @Value("${llm.token-budget.window:200}") int windowSize,
+                              @Value("${llm.token-budget.floor-factor:0.3}") double floorFactor,
+                              @Value("${llm.token-budget.ceiling-factor:2.0}") double ceilingFactor,
+                              @Value("${llm.token-budget.retry-factor:1.6}") double retryFactor) {
+        this.enabled = enabled;
+        this.margin = Math.max(0, margin);
+        this.minSamples = Math.max(1, minSamples);
+        this.windowSize = Math.max(this.minSamples, windowSize);
+        this.floorFactor = Math.max(0.05, floorFactor);
+        this.ceilingFactor = Math.max(1.0, ceilingFactor);
+        this.retryFactor = Math.max(1.1, retryFactor);
+    }
+
+    /**
+     * Budget for the next call of {@code callType}; {@code difficulty} may be null (hints).
+     */
+    public int budgetFor(LLMCallType callType, String difficulty) {
+        synchronized (stats) {
+            return budgetForLocked(callType, difficulty);
+        }
+    }
+
+    /**
+     * Budget for retrying a truncated call, or {@code previous} if it is already at the ceiling.
+     */
+    public int retryBudget(LLMCallType callType, int previous) {
+        return Math.max(previous, Math.min(ceiling(callType), (int) Math.ceil(previous * retryFactor)));
+    }
+
+    /**
+     * @param truncated the server reported that generation stopped at the token limit
+     */
+    public void record(LLMCallType callType, String difficulty, int outputTokens, boolean truncated) {
+        if (outputTokens <= 0 && !truncated) {
+            return;
+        }
+        synchronized (stats) {
+            stats.computeIfAbsent(key(callType, difficulty), k -> new Stats(windowSize)).add(outputTokens, truncated);
+            if (difficulty != null) {
+                stats.computeIfAbsent(key(callType, ANY_DIFFICULTY), k -> new Stats(windowSize)).add(outputTokens, truncated);
+            }
+        }
+    }
+
+    /**
+     * Per call type and difficulty: current budget, observed p50/p95, truncation rate.
+     */
+    public Map<String, Object> snapshot() {
+        Map<String, Object> result = new TreeMap<>();
+        synchronized (stats) {
+            for (Map.Entry<String, Stats> entry : stats.entrySet()) {
+                Stats s = entry.getValue();
+                String[] parts = entry.getKey().split("/", 2);
+                LLMCallType callType = LLMCallType.valueOf(parts[0]);
+                String difficulty = ANY_DIFFICULTY.equals(parts[1]) ? null : parts[1];
+
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("samples", s.size);
+                item.put("p50", s.percentile(0.50));
+                item.put("p95", s.percentile(0.95));
+                item.put("calls", s.calls);
+                item.put("truncated", s.truncated);
+                item.put("truncationRate", s.calls > 0 ? Math.round(s.truncated * 1000.0 / s.calls) / 1000.0 : 0);
+                item.put("defaultBudget", callType.getDefaultMaxTokens());
+                item.put("budget", budgetForLocked(callType, difficulty));
+                result.put(entry.getKey().toLowerCase(Locale.ROOT), item);
+            }
+        }
+        return result;
+    }
+
+    private int budgetForLocked(LLMCallType callType, String difficulty) {
+        if (!enabled) {
+            return callType.getDefaultMaxTokens();
+        }
+        Integer p95 = percentile(key(callType, difficulty));
+        if (p95 == null) {
+            p95 = percentile(key(callType, ANY_DIFFICULTY));
+        }
+        if (p95 == null) {
+            return callType.getDefaultMaxTokens();
+        }
+        return Math.max(floor(callType), Math.min(ceiling(callType), (int) Math.ceil(p95 * (1 + margin))));
+    }
+
+    /**
+     * p95 of the window, or null with fewer than {@code minSamples} samples. Caller holds the lock.
+     */
+    private Integer percentile(String key) {
+        Stats s = stats.get(key);
+        return s == null || s.size < minSamples ? null : s.percentile(0.95);
+    }
+
+    private int floor(LLMCallType callType) {
+        return (int) Math.ceil(callType.getDefaultMaxTokens() * floorFactor);
+    }
+
+    private int ceiling(LLMCallType callType) {
+        return (int) Math.ceil(callType.getDefaultMaxTokens() * ceilingFactor);
+    }
+
+    private static String key(LLMCallType callType, String difficulty) {
+        return callType.name() + "/" + (difficulty == null || difficulty.isBlank()
+            ? ANY_DIFFICULTY : difficulty.trim().toUpperCase(Locale.ROOT));
+    }
+
+    private static final class Stats {
+        private final int[] lengths;
+        private int next;
+        private int size;
+        private long calls;
+        private long truncated;
+
+        Stats(int capacity) {
+            this.lengths = new int[capacity];
+        }
+
+        void add(int outputTokens, boolean wasTruncated) {
+            lengths[next] = outputTokens;
+            next = (next + 1) % lengths.length;
+            size = Math.min(size + 1, lengths.length);
+            calls++;
+            if (wasTruncated) {
+                truncated++;
+            }
+        }
+
+        int percentile(double p) {
+            if (size == 0) {
+                return 0;
+            }
+            int[] sorted = Arrays.copyOf(lengths, size);
+            Arrays.sort(sorted);
+            return sorted[Math.min(size - 1, (int) Math.ceil(p * size) - 1)];
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.aicodementor.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token counts by the model's own tokenizer (llama.cpp {@code /tokenize}).
+ *
+ * Counts are cached by text hash, since the same exercise statements and test classes are
+ * counted for every student. When no tokenizer is reachable, the count is estimated from the
+ * length and the tokenizer is not asked again for {@code retry-ms}.
+ */
+@Service
+public class TokenCounter {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenCounter.class);
+
+    /** Average characters per token of code and French text on the deepseek-coder tokenizer. */
+    static final double CHARS_PER_TOKEN = 3.5;
+
+    private final InferenceEndpointPool endpointPool;
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long retryMs;
+
+    private final Map<String, Integer> counts;
+    private volatile long remoteDisabledUntil;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong tokenized = new AtomicLong();
+    private final AtomicLong estimated = new AtomicLong();
+
+    public TokenCounter(InferenceEndpointPool endpointPool,
+                        @Value("${llm.tokenizer.enabled:true}") boolean enabled,
+                        @Value("${llm.tokenizer.cache-entries:10000}") int maxEntries,
+                        @Value("${llm.tokenizer.retry-ms:60000}") long retryMs) {
+        this.endpointPool = endpointPool;
+        this.enabled = enabled;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.retryMs = Math.max(0, retryMs);
+        this.counts = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Integer> eldest) {
+                return size() > TokenCounter.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Tokens of {@code text}; exact when the tokenizer answers, estimated otherwise.
+     */
+    public int count(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        if (!enabled || System.currentTimeMillis() < remoteDisabledUntil) {
+            estimated.incrementAndGet();
+            return estimate(text);
+        }
+
+        String key = ContentHash.sha256(text);
+        synchronized (counts) {
+            Integer cached = counts.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+
+        int tokens = endpointPool.countTokens(text);
+        if (tokens < 0) {
+            logger.info("Tokenizer unavailable, estimating token counts for {} ms", retryMs);
+            remoteDisabledUntil = System.currentTimeMillis() + retryMs;
+            estimated.incrementAndGet();
+            return estimate(text);
+        }
+        tokenized.incrementAndGet();
+        synchronized (counts) {
+            counts.put(key, tokens);
+        }
+        return tokens;
+    }
+
+    /**
+     * Prompt builder that fits prioritized sections into {@code maxTokens}.
+     */
+    public PromptBudget budget(int maxTokens) {
+        return new PromptBudget(this, maxTokens);
+    }
+
+    /**
+     * Length-based estimate, for providers without a tokenizer.
+     */
+    public static int estimate(String text) {
+        return text == null ? 0 : (int) Math.ceil(text.length() / CHARS_PER_TOKEN);
+    }
+
+    public Map<String, Object> snapshot() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (counts) {
+            stats.put("size", counts.size());
+        }
+        stats.put("maxEntries", maxEntries);
+        stats.put("hits", hits.get());
+        stats.put("tokenized", tokenized.get());
+        stats.put("estimated", estimated.get());
+        stats.put("remoteAvailable", enabled && System.currentTimeMillis() >= remoteDisabledUntil);
+        return stats;
+    }
+}
@@ -0,0 +1,109 @@
+package com.aicodementor.service;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary form of an embedding, as stored in {@code knowledge_base.embedding_vector}.
+ *
+ * One format byte, then little-endian data:
+ * - {@link Format#FLOAT32}: the components as float32 (4 bytes each);
+ * - {@link Format#INT8}: a float32 scale, then each component as a signed byte
+ *   ({@code value ≈ byte * scale}, scale = max |component| / 127).
+ * The dimension follows from the length, so a blob decodes without any other column.
+ */
+public final class VectorCodec {
+
+    public enum Format {
+        FLOAT32((byte) 1),
+        INT8((byte) 2);
+
+        private final byte code;
+
+        Format(byte code) {
+            this.code = code;
+        }
+
+        static Format of(byte code) {
+            for (Format format : values()) {
+                if (format.code == code) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown vector format " + code);
+        }
+    }
+
+    private static final int HEADER = 1;
+
+    private VectorCodec() {
+    }
+
+    public static byte[] encode(float[] vector, Format format) {
+        return switch (format) {
+            case FLOAT32 -> {
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER + vector.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.put(format.code);
+                buffer.asFloatBuffer().put(vector);
+                yield buffer.array();
+            }
+            case INT8 -> {
+                float max = 0;
+                for (float v : vector) {
+                    max = Math.max(max, Math.abs(v));
+                }
+                float scale = max > 0 ? max / 127f : 1f;
+                ByteBuffer buffer = ByteBuffer.allocate(HEADER + Float.BYTES + vector.length).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.put(format.code);
+                buffer.putFloat(scale);
+                for (float v : vector) {
+                    buffer.put((byte) Math.max(-127, Math.min(127, Math.round(v / scale))));
+                }
+                yield buffer.array();
+            }
+        };
+    }
+
+    public static Format format(byte[] blob) {
+        return Format.of(blob[0]);
+    }
+
+    public static int dimension(byte[] blob) {
+        return switch (format(blob)) {
+            case FLOAT32 -> (blob.length - HEADER) / Float.BYTES;
+            case INT8 -> blob.length - HEADER - Float.BYTES;
+        };
+    }
+
+    public static float[] decode(byte[] blob) {
+        float[] vector = new float[dimension(blob)];
+        decode(blob, vector);
+        return vector;
+    }
+
+    /**
+     * Decodes into {@code out}, which must be {@link #dimension(byte[])} long: loaders reuse one array.
+     */
+    public static void decode(byte[] blob, float[] out) {
+        ByteBuffer buffer = ByteBuffer.wrap(blob).order(ByteOrder.LITTLE_ENDIAN);
+        Format format = Format.of(buffer.get());
+        switch (format) {
+            case FLOAT32 -> buffer.asFloatBuffer().get(out);
+            case INT8 -> {
+                float scale = buffer.getFloat();
+                int offset = buffer.position();
+                for (int i = 0; i < out.length; i++) {
+                    out[i] = blob[offset + i] * scale;
+                }
+            }
+        }
+    }
+
+    public static float norm(float[] vector) {
+        double sum = 0;
+        for (float v : vector) {
+            sum += v * v;
+        }
+        return (float) Math.sqrt(sum);
+    }
+}
@@ -0,0 +1,38 @@
+package com.aicodementor.service;
+
+/**
+ * Append-only store of fixed-length vectors addressed by slot (0, 1, 2...).
+ * Similarity is computed in place, so an implementation never has to hand out its arrays.
+ */
+public interface VectorStorage {
+
+    int dimension();
+
+    int size();
+
+    /**
+     * Appends a copy of {@code vector} and returns its slot.
+     */
+    int add(float[] vector);
+
+    /**
+     * Dot product of the vector in {@code slot} with {@code query}.
+     */
+    float dot(int slot, float[] query);
+
+    /**
+     * Dot product of two stored vectors.
+     */
+    float dot(int a, int b);
+
+    /**
+     * Copy of the vector in {@code slot}.
+     */
+    float[] get(int slot);
+
+    /**
+     * Releases memory or files held outside the heap.
+     */
+    default void close() {
+    }
+}
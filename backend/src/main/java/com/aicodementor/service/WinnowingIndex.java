@@ -0,0 +1,311 @@
+package com.aicodementor.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Document fingerprints by winnowing (Schleimer, Wilkerson and Aiken): the minimum k-gram hash of
+ * every window of {@code window} consecutive k-grams. Any common run of at least k + window - 1
+ * tokens yields a shared fingerprint; runs shorter than k never do.
+ *
+ * An inverted index maps each fingerprint to the documents holding it, so the documents close to
+ * one are found from its postings instead of by comparing it with every other. Each document has
+ * an owner and matches between documents of the same owner are not reported. Fingerprints of the
+ * base document (the code every document starts from) and fingerprints held by more than
+ * {@code maxPostings} documents (boilerplate) are ignored.
+ * {@link #similarTo} counts shared fingerprints in a per-thread tally, so the report's parallel
+ * queries hold the read lock together; put, remove and setBase take the write lock.
+ */
+public final class WinnowingIndex {
+
+    public record Match(long id, long owner, int shared, double similarity) {
+    }
+
+    private static final int[] NONE = new int[0];
+    private static final int MIN_CAPACITY = 64;
+    private static final Comparator<Match> BY_SIMILARITY =
+        Comparator.comparingDouble(Match::similarity).reversed().thenComparing(Comparator.comparingInt(Match::shared).reversed());
+
+    private final int maxPostings;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ThreadLocal<Tally> tallies = ThreadLocal.withInitial(Tally::new);
+
+    // Dense documents: ids[slot], owners[slot], prints[slot], sizes[slot] (prints outside the base)
+    private long[] ids = new long[MIN_CAPACITY];
+    private long[] owners = new long[MIN_CAPACITY];
+    private int[][] prints = new int[MIN_CAPACITY][];
+    private int[] sizes = new int[MIN_CAPACITY];
+    private final Map<Long, Integer> slotOf = new HashMap<>();
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int nextSlot;
+
+    // Postings: one (fingerprint, slot) pair per distinct fingerprint of a document
+    private final IntMultimap postings = new IntMultimap();
+    private int[] base = NONE;
+
+    public WinnowingIndex(int maxPostings) {
+        this.maxPostings = Math.max(2, maxPostings);
+    }
+
+    /**
+     * Winnowed fingerprints of a sequence of token hashes, sorted and distinct; empty when the
+     * sequence is shorter than one k-gram.
+     */
+    public static int[] fingerprints(int[] tokenHashes, int k, int window) {
+        int grams = tokenHashes.length - k + 1;
+        if (k < 1 || grams <= 0) {
+            return NONE;
+        }
+        int[] gramHashes = new int[grams];
+        for (int i = 0; i < grams; i++) {
+            long hash = 0;
+            for (int j = i; j < i + k; j++) {
+                hash = hash * 31 + tokenHashes[j];
+            }
+            gramHashes[i] = (int) MinHashIndex.mix(hash);
+        }
+        int[] positions = winnow(gramHashes, window);
+        int[] result = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            result[i] = gramHashes[positions[i]];
+        }
+        Arrays.sort(result);
+        int distinct = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (i == 0 || result[i] != result[i - 1]) {
+                result[distinct++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, distinct);
+    }
+
+    /**
+     * Positions of the k-grams winnowing selects, in order: the minimum of every window of
+     * {@code window} hashes, each position once.
+     */
+    static int[] winnow(int[] gramHashes, int window) {
+        int grams = gramHashes.length;
+        int w = Math.max(1, Math.min(window, grams));
+        int[] selected = new int[grams];
+        int count = 0;
+        int lastSelected = -1;
+        for (int start = 0; start + w <= grams; start++) {
+            // Rightmost minimum on ties, as in the paper: the selection never moves backwards
+            int best = start + w - 1;
+            for (int i = best - 1; i >= start; i--) {
+                if (gramHashes[i] < gramHashes[best]) {
+                    best = i;
+                }
+            }
+            if (best != lastSelected) {
+                selected[count++] = best;
+                lastSelected = best;
+            }
+        }
+        return Arrays.copyOf(selected, count);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return slotOf.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the indexed documents.
+     */
+    public long[] ids() {
+        lock.readLock().lock();
+        try {
+            return slotOf.keySet().stream().mapToLong(Long::longValue).toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Owner of a document, or null when it is not indexed.
+     */
+    public Long ownerOf(long id) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotOf.get(id);
+            return slot != null ? owners[slot] : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sets the fingerprints of the base document (sorted and distinct, as returned by {@link #fingerprints}).
+     */
+    public void setBase(int[] baseFingerprints) {
+        lock.writeLock().lock();
+        try {
+            base = baseFingerprints == null ? NONE : baseFingerprints;
+            for (int slot : slotOf.values()) {
+                sizes[slot] = outsideBase(prints[slot]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds or replaces a document (fingerprints sorted and distinct, as returned by {@link #fingerprints}).
+     */
+    public void put(long id, long owner, int[] fingerprints) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(id);
+            int slot = allocateSlot();
+            ids[slot] = id;
+            owners[slot] = owner;
+            prints[slot] = fingerprints;
+            sizes[slot] = outsideBase(fingerprints);
+            for (int print : fingerprints) {
+                postings.put(print, slot);
+            }
+            slotOf.put(id, slot);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean remove(long id) {
+        lock.writeLock().lock();
+        try {
+            return removeLocked(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Documents of other owners sharing at least {@code minShared} fingerprints with {@code id} and
+     * at least {@code minSimilarity} of the smaller document's fingerprints; the closest document
+     * per owner, most similar first.
+     */
+    public List<Match> similarTo(long id, int minShared, double minSimilarity, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slotOf.get(id);
+            if (slot == null) {
+                return List.of();
+            }
+            long owner = owners[slot];
+            Tally tally = tallies.get().reset(nextSlot);
+            for (int print : prints[slot]) {
+                if (isBase(print) || postings.count(print, maxPostings + 1) > maxPostings) {
+                    continue;
+                }
+                postings.forEach(print, other -> {
+                    if (owners[other] != owner) {
+                        tally.add(other);
+                    }
+                    return true;
+                });
+            }
+            Map<Long, Match> bestPerOwner = new HashMap<>();
+            for (int i = 0; i < tally.size; i++) {
+                int other = tally.touched[i];
+                int shared = tally.counts[other];
+                int smaller = Math.min(sizes[slot], sizes[other]);
+                double similarity = smaller > 0 ? Math.min(1.0, (double) shared / smaller) : 0;
+                if (shared < minShared || similarity < minSimilarity) {
+                    continue;
+                }
+                Match match = new Match(ids[other], owners[other], shared, similarity);
+                bestPerOwner.merge(match.owner(), match, (a, b) -> BY_SIMILARITY.compare(a, b) <= 0 ? a : b);
+            }
+            List<Match> matches = new ArrayList<>(bestPerOwner.values());
+            matches.sort(BY_SIMILARITY);
+            return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== Internals ====================
+
+    /**
+     * Shared fingerprint counts of one query, reused by the thread: only the touched slots are cleared.
+     */
+    private static final class Tally {
+        int[] counts = new int[MIN_CAPACITY];
+        int[] touched = new int[MIN_CAPACITY];
+        int size;
+
+        Tally reset(int slots) {
+            if (counts.length < slots) {
+                counts = new int[slots];
+                touched = new int[slots];
+            } else {
+                for (int i = 0; i < size; i++) {
+                    counts[touched[i]] = 0;
+                }
+            }
+            size = 0;
+            return this;
+        }
+
+        void add(int slot) {
+            if (counts[slot]++ == 0) {
+                touched[size++] = slot;
+            }
+        }
+    }
+
+    private boolean isBase(int print) {
+        return base.length > 0 && Arrays.binarySearch(base, print) >= 0;
+    }
+
+    private int outsideBase(int[] fingerprints) {
+        int count = 0;
+        for (int print : fingerprints) {
+            if (!isBase(print)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean removeLocked(long id) {
+        Integer slot = slotOf.remove(id);
+        if (slot == null) {
+            return false;
+        }
+        for (int print : prints[slot]) {
+            postings.remove(print, slot);
+        }
+        prints[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (nextSlot == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            owners = Arrays.copyOf(owners, capacity);
+            prints = Arrays.copyOf(prints, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        return nextSlot++;
+    }
+}
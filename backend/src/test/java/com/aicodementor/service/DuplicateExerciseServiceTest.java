@@ -0,0 +1,178 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import com.aicodementor.repository.ExerciseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link DuplicateExerciseService} over an in-memory exercise table: shingling, the initial load
+ * and the update and remove paths fed by the commit listener.
+ */
+class DuplicateExerciseServiceTest {
+
+    private static final String STATEMENT = "Écrire une méthode qui calcule la somme des éléments pairs d'un tableau "
+        + "d'entiers. Le tableau peut être vide, dans ce cas la méthode renvoie zéro.";
+    private static final String SOLUTION = """
+        public class SommePairs {
+            public static int sommePairs(int[] tableau) {
+                int somme = 0;
+                for (int valeur : tableau) {
+                    if (valeur % 2 == 0) {
+                        somme += valeur;
+                    }
+                }
+                return somme;
+            }
+        }
+        """;
+    private static final String OTHER_STATEMENT = "Inverser une chaîne de caractères sans utiliser StringBuilder, "
+        + "en parcourant les caractères du dernier au premier et en les ajoutant à un tableau.";
+    private static final String OTHER_SOLUTION = """
+        public class Inverse {
+            public static String inverse(String s) {
+                char[] c = new char[s.length()];
+                for (int i = 0; i < s.length(); i++) {
+                    c[i] = s.charAt(s.length() - 1 - i);
+                }
+                return new String(c);
+            }
+        }
+        """;
+
+    private final ConcurrentSkipListMap<Long, Exercise> table = new ConcurrentSkipListMap<>();
+    private DuplicateExerciseService service;
+
+    @AfterEach
+    void stop() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void renamedClassAndCommentsDoNotChangeShingles() {
+        String renamed = SOLUTION.replace("SommePairs", "Exercice42")
+            .replace("int somme = 0;", "int somme = 0; // accumulateur");
+
+        assertArrayEquals(DuplicateExerciseService.shingles(STATEMENT, SOLUTION),
+            DuplicateExerciseService.shingles(STATEMENT, renamed));
+    }
+
+    @Test
+    void accentsAndCaseDoNotChangeStatementShingles() {
+        String plain = "ecrire une METHODE qui calcule la somme des elements pairs d'un tableau "
+            + "d'entiers. le tableau peut etre vide, dans ce cas la methode renvoie zero.";
+
+        assertArrayEquals(DuplicateExerciseService.shingles(STATEMENT, null),
+            DuplicateExerciseService.shingles(plain, null));
+        assertEquals(0, DuplicateExerciseService.shingles(null, null).length);
+    }
+
+    @Test
+    void loadedExercisesAreFoundAndTheExerciseItselfIsExcluded() {
+        store(1L, "Somme des pairs", STATEMENT, SOLUTION);
+        store(2L, "Inverser une chaîne", OTHER_STATEMENT, OTHER_SOLUTION);
+        start();
+
+        List<DuplicateExerciseService.DuplicateCandidate> duplicates =
+            service.findDuplicates(STATEMENT, SOLUTION.replace("SommePairs", "Copie"), null);
+
+        assertEquals(1, duplicates.size());
+        assertEquals(1L, (long) duplicates.get(0).exerciseId());
+        assertEquals("Somme des pairs", duplicates.get(0).title());
+        assertTrue(duplicates.get(0).similarity() >= 0.8);
+        assertTrue(service.findDuplicates(STATEMENT, SOLUTION, 1L).isEmpty());
+    }
+
+    @Test
+    void updateMovesAnExerciseAndRemoveForgetsIt() {
+        store(1L, "Somme des pairs", STATEMENT, SOLUTION);
+        start();
+
+        // The teacher rewrote exercise 1 into another one
+        store(1L, "Inverser une chaîne", OTHER_STATEMENT, OTHER_SOLUTION);
+        service.update(1L, OTHER_STATEMENT, OTHER_SOLUTION);
+        awaitTrue(() -> !service.findDuplicates(OTHER_STATEMENT, OTHER_SOLUTION, null).isEmpty());
+        assertTrue(service.findDuplicates(STATEMENT, SOLUTION, null).isEmpty());
+
+        service.remove(1L);
+        awaitTrue(() -> service.findDuplicates(OTHER_STATEMENT, OTHER_SOLUTION, null).isEmpty());
+        assertEquals(0, service.snapshot().get("exercises"));
+    }
+
+    @Test
+    void nothingIsFoundBeforeTheInitialLoad() {
+        store(1L, "Somme des pairs", STATEMENT, SOLUTION);
+        service = new DuplicateExerciseService(repository(), true, 0.8, 128, 16, 500, 5);
+
+        assertTrue(service.findDuplicates(STATEMENT, SOLUTION, null).isEmpty());
+        assertEquals(false, service.snapshot().get("ready"));
+    }
+
+    // ==================== Fixtures ====================
+
+    private void start() {
+        service = new DuplicateExerciseService(repository(), true, 0.8, 128, 16, 500, 5);
+        service.start();
+        awaitTrue(() -> Boolean.TRUE.equals(service.snapshot().get("ready")));
+    }
+
+    private void store(Long id, String title, String statement, String solution) {
+        Exercise exercise = new Exercise();
+        exercise.setId(id);
+        exercise.setTitle(title);
+        exercise.setProblemStatement(statement);
+        exercise.setSolution(solution);
+        table.put(id, exercise);
+    }
+
+    /**
+     * The two queries the service runs; any other repository call fails the test.
+     */
+    private ExerciseRepository repository() {
+        return (ExerciseRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ExerciseRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findDuplicateSourcesAfter" -> {
+                    long afterId = (Long) args[0];
+                    List<Object[]> rows = new ArrayList<>();
+                    table.tailMap(afterId, false).forEach((id, e) ->
+                        rows.add(new Object[]{id, e.getProblemStatement(), e.getSolution()}));
+                    yield rows;
+                }
+                case "findAllById" -> {
+                    List<Exercise> found = new ArrayList<>();
+                    for (Object id : (Iterable<?>) args[0]) {
+                        Exercise exercise = table.get((Long) id);
+                        if (exercise != null) {
+                            found.add(exercise);
+                        }
+                    }
+                    yield found;
+                }
+                case "toString" -> "ExerciseRepository(test)";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached in 5 s");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+}
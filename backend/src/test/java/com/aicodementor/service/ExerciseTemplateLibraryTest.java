@@ -0,0 +1,61 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.Exercise;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The built-in templates are served without any check: each reference solution must compile
+ * and pass its own tests, under the template's class name and under another one.
+ */
+class ExerciseTemplateLibraryTest {
+
+    private final ExerciseTemplateLibrary library = new ExerciseTemplateLibrary(true, 2, 1);
+    private final ExerciseVerifier verifier = new ExerciseVerifier(new JavaSourceAnalyzer(100), 10, 2, 4);
+
+    @AfterEach
+    void stop() {
+        verifier.shutdown();
+    }
+
+    @Test
+    void everySolutionPassesItsTests() {
+        List<ExerciseTemplate> templates = library.getTemplates();
+        assertFalse(templates.isEmpty());
+
+        for (ExerciseTemplate template : templates) {
+            for (String className : new String[]{null, "Exercice" + template.className()}) {
+                ExerciseTemplate.Instance instance = template.instantiate(className);
+
+                ExerciseVerifier.Verification verification = verifier.verify(instance.solution(), instance.unitTests());
+
+                assertTrue(verification.passed(), template.id() + " as " + instance.className() + ": "
+                    + verification.diagnostics() + " " + verification.failures());
+            }
+        }
+    }
+
+    @Test
+    void everyStarterCodeCompiles() {
+        for (ExerciseTemplate template : library.getTemplates()) {
+            ExerciseVerifier.Verification verification = verifier.compileOnly(template.instantiate(null).starterCode());
+
+            assertTrue(verification.compiled(), template.id() + ": " + verification.diagnostics());
+        }
+    }
+
+    @Test
+    void aMatchMayBeOneLevelAway() {
+        // The response must then carry the template's level, not the requested one
+        ExerciseTemplateLibrary.Match match = library.match("Calculer la somme des éléments d'un tableau", "L2").orElseThrow();
+
+        assertEquals("array-sum", match.template().id());
+        assertEquals(Exercise.DifficultyLevel.L1, match.template().level());
+        assertEquals(1, match.levelGap());
+        assertTrue(library.match("Calculer la somme des éléments d'un tableau", "L3").isEmpty());
+    }
+}
@@ -0,0 +1,305 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link HnswIndex} against an exact scan, on seeded clustered unit vectors (embeddings cluster
+ * by topic, uniform random vectors would make the graph look worse than it is).
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 48;
+    private static final int M = 16;
+    private static final int EF_CONSTRUCTION = 100;
+    private static final int EF_SEARCH = 64;
+
+    @Test
+    void recallAt10MatchesExactScan() {
+        SplittableRandom random = new SplittableRandom(7);
+        float[][] vectors = clustered(random, 5_000, 50);
+        HnswIndex index = build(vectors);
+
+        int queries = 200;
+        int hits = 0;
+        for (int q = 0; q < queries; q++) {
+            float[] query = near(random, vectors[random.nextInt(vectors.length)], 0.3f);
+            Set<Long> expected = ids(exactTop(vectors, query, 10, Set.of()));
+            for (HnswIndex.Match match : index.search(query, 10, EF_SEARCH, null)) {
+                if (expected.contains(match.id())) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (queries * 10);
+        assertTrue(recall >= 0.95, "recall@10 = " + recall);
+    }
+
+    @Test
+    void searchReturnsScoresBestFirst() {
+        SplittableRandom random = new SplittableRandom(11);
+        float[][] vectors = clustered(random, 1_000, 10);
+        HnswIndex index = build(vectors);
+
+        List<HnswIndex.Match> matches = index.search(vectors[42], 10, EF_SEARCH, null);
+
+        assertEquals(42L, matches.get(0).id());
+        assertEquals(1.0f, matches.get(0).score(), 1e-4f);
+        for (int i = 1; i < matches.size(); i++) {
+            assertTrue(matches.get(i - 1).score() >= matches.get(i).score());
+        }
+    }
+
+    @Test
+    void removedIdsAreNeverReturned() {
+        SplittableRandom random = new SplittableRandom(13);
+        float[][] vectors = clustered(random, 2_000, 20);
+        HnswIndex index = build(vectors);
+
+        Set<Long> removed = new HashSet<>();
+        for (long id = 0; id < vectors.length; id += 3) {
+            assertTrue(index.remove(id));
+            removed.add(id);
+        }
+        assertFalse(index.remove(0), "already removed");
+        assertEquals(vectors.length - removed.size(), index.size());
+        assertEquals(vectors.length, index.nodes(), "tombstones stay in the graph");
+
+        for (int q = 0; q < 100; q++) {
+            float[] query = vectors[random.nextInt(vectors.length)];
+            List<HnswIndex.Match> matches = index.search(query, 10, EF_SEARCH, null);
+            assertEquals(10, matches.size());
+            for (HnswIndex.Match match : matches) {
+                assertFalse(removed.contains(match.id()), "removed id " + match.id() + " returned");
+            }
+        }
+        assertFalse(index.contains(0));
+        assertNull(index.vector(0));
+        assertTrue(Float.isNaN(index.score(0, vectors[0])));
+    }
+
+    @Test
+    void updatedVectorIsFoundAtItsNewPosition() {
+        SplittableRandom random = new SplittableRandom(17);
+        float[][] vectors = clustered(random, 2_000, 20);
+        HnswIndex index = build(vectors);
+
+        // Move id 5 next to id 1500, which lies in another cluster
+        float[] moved = near(random, vectors[1500], 0.01f);
+        index.add(5, moved);
+
+        assertEquals(vectors.length, index.size());
+        assertEquals(vectors.length + 1, index.nodes(), "the old node is tombstoned, not reused");
+        assertArrayEquals(moved, index.vector(5), 0f);
+
+        List<HnswIndex.Match> nearNew = index.search(moved, 2, EF_SEARCH, null);
+        assertTrue(ids(nearNew).contains(5L), "id 5 must be found at its new position");
+
+        List<HnswIndex.Match> nearOld = index.search(vectors[5], 10, EF_SEARCH, null);
+        for (HnswIndex.Match match : nearOld) {
+            if (match.id() == 5) {
+                assertEquals(dot(moved, vectors[5]), match.score(), 1e-4f, "stale vector returned for id 5");
+            }
+        }
+    }
+
+    @Test
+    void filterRestrictsResults() {
+        SplittableRandom random = new SplittableRandom(19);
+        float[][] vectors = clustered(random, 2_000, 20);
+        HnswIndex index = build(vectors);
+
+        for (HnswIndex.Match match : index.search(vectors[10], 10, EF_SEARCH, id -> id % 2 == 0)) {
+            assertEquals(0, match.id() % 2);
+        }
+        List<HnswIndex.Match> exact = index.exact(vectors[10], 3, List.of(10L, 11L, 12L, 99_999L));
+        assertEquals(3, exact.size());
+        assertEquals(10L, exact.get(0).id());
+    }
+
+    @Test
+    void searchesRunWhileVectorsAreInserted() throws Exception {
+        SplittableRandom random = new SplittableRandom(23);
+        float[][] vectors = clustered(random, 6_000, 30);
+        HnswIndex index = new HnswIndex(new HeapVectorStorage(DIMENSION), M, EF_CONSTRUCTION);
+        for (int i = 0; i < 500; i++) {
+            index.add(i, vectors[i]);
+        }
+
+        Set<Long> inserted = ConcurrentHashMap.newKeySet();
+        for (long id = 0; id < 500; id++) {
+            inserted.add(id);
+        }
+        AtomicBoolean writing = new AtomicBoolean(true);
+        AtomicInteger searches = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(4);
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        List<Future<?>> results = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            long seed = r;
+            results.add(readers.submit(() -> {
+                SplittableRandom local = new SplittableRandom(seed);
+                started.countDown();
+                while (writing.get()) {
+                    float[] query = vectors[local.nextInt(vectors.length)];
+                    List<HnswIndex.Match> matches = index.search(query, 10, EF_SEARCH, null);
+                    assertEquals(10, matches.size());
+                    for (HnswIndex.Match match : matches) {
+                        assertTrue(inserted.contains(match.id()), "id " + match.id() + " returned before its insert");
+                    }
+                    searches.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 500; i < vectors.length; i++) {
+            inserted.add((long) i); // published before the insert: a search may see it right after
+            index.add(i, vectors[i]);
+        }
+        writing.set(false);
+        readers.shutdown();
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+
+        assertTrue(searches.get() > 0);
+        assertEquals(vectors.length, index.size());
+        for (int i = 0; i < vectors.length; i += 97) {
+            assertEquals(i, index.search(vectors[i], 1, EF_SEARCH, null).get(0).id());
+        }
+    }
+
+    /**
+     * Rough timing on 20k vectors: prints the mean latency of both searches and checks the graph
+     * beats the scan it replaces. Not a precise benchmark, just a guard against a lost speed-up.
+     */
+    @Test
+    void searchIsFasterThanExactScan() {
+        SplittableRandom random = new SplittableRandom(29);
+        float[][] vectors = clustered(random, 20_000, 100);
+        HnswIndex index = build(vectors);
+        List<Long> allIds = new ArrayList<>();
+        for (long id = 0; id < vectors.length; id++) {
+            allIds.add(id);
+        }
+        float[][] queries = new float[500][];
+        for (int q = 0; q < queries.length; q++) {
+            queries[q] = near(random, vectors[random.nextInt(vectors.length)], 0.3f);
+        }
+
+        // Warm-up, so both paths are compiled before they are timed
+        for (float[] query : queries) {
+            index.search(query, 10, EF_SEARCH, null);
+            index.exact(query, 10, allIds);
+        }
+        long graphNanos = time(() -> {
+            for (float[] query : queries) {
+                index.search(query, 10, EF_SEARCH, null);
+            }
+        });
+        long scanNanos = time(() -> {
+            for (float[] query : queries) {
+                index.exact(query, 10, allIds);
+            }
+        });
+
+        double graphMs = graphNanos / 1e6 / queries.length;
+        double scanMs = scanNanos / 1e6 / queries.length;
+        System.out.printf("HNSW search on %d vectors: %.3f ms, exact scan: %.3f ms%n", vectors.length, graphMs, scanMs);
+        assertTrue(graphNanos < scanNanos, "graph search (" + graphMs + " ms) is not faster than a scan (" + scanMs + " ms)");
+    }
+
+    // ==================== Fixtures ====================
+
+    private static HnswIndex build(float[][] vectors) {
+        HnswIndex index = new HnswIndex(new HeapVectorStorage(DIMENSION), M, EF_CONSTRUCTION);
+        for (int i = 0; i < vectors.length; i++) {
+            index.add(i, vectors[i]);
+        }
+        return index;
+    }
+
+    /**
+     * Unit vectors spread around {@code clusters} random centres.
+     */
+    private static float[][] clustered(SplittableRandom random, int count, int clusters) {
+        float[][] centres = new float[clusters][];
+        for (int c = 0; c < clusters; c++) {
+            centres[c] = near(random, new float[DIMENSION], 1f);
+        }
+        float[][] vectors = new float[count][];
+        for (int i = 0; i < count; i++) {
+            vectors[i] = near(random, centres[random.nextInt(clusters)], 0.5f);
+        }
+        return vectors;
+    }
+
+    private static float[] near(SplittableRandom random, float[] centre, float spread) {
+        float[] v = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            v[d] = centre[d] + spread * (float) gaussian(random);
+        }
+        return normalize(v);
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static float[] normalize(float[] v) {
+        float norm = (float) Math.sqrt(dot(v, v));
+        for (int d = 0; d < v.length; d++) {
+            v[d] /= norm;
+        }
+        return v;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s = 0;
+        for (int d = 0; d < a.length; d++) {
+            s += a[d] * b[d];
+        }
+        return s;
+    }
+
+    private static List<HnswIndex.Match> exactTop(float[][] vectors, float[] query, int k, Set<Long> excluded) {
+        List<HnswIndex.Match> all = new ArrayList<>();
+        for (int i = 0; i < vectors.length; i++) {
+            if (!excluded.contains((long) i)) {
+                all.add(new HnswIndex.Match(i, dot(vectors[i], query)));
+            }
+        }
+        all.sort((a, b) -> Float.compare(b.score(), a.score()));
+        return all.subList(0, Math.min(k, all.size()));
+    }
+
+    private static Set<Long> ids(List<HnswIndex.Match> matches) {
+        Set<Long> ids = new HashSet<>();
+        matches.forEach(m -> ids.add(m.id()));
+        return ids;
+    }
+
+    private static long time(Runnable work) {
+        long start = System.nanoTime();
+        work.run();
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,117 @@
+package com.aicodementor.service;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link InferenceCallAborter} against a stub server that takes far longer to answer than the test waits.
+ */
+class InferenceCallAborterTest {
+
+    private static final long ANSWER_DELAY_MS = 10_000;
+
+    private final InferenceCallAborter aborter = new InferenceCallAborter();
+    private final CountDownLatch requestReceived = new CountDownLatch(1);
+    private HttpServer server;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/completion", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            requestReceived.countDown();
+            try {
+                Thread.sleep(ANSWER_DELAY_MS);
+                byte[] body = "{\"content\":\"late\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } catch (InterruptedException | IOException e) {
+                // Stopped, or the client went away
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "stub-llama");
+            t.setDaemon(true);
+            return t;
+        }));
+        server.start();
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void abortCutsOffACallWaitingForTheServer() throws Exception {
+        CompletableFuture<Thread> caller = new CompletableFuture<>();
+        CompletableFuture<Long> failedAfterMs = CompletableFuture.supplyAsync(() -> {
+            caller.complete(Thread.currentThread());
+            aborter.begin();
+            long start = System.nanoTime();
+            try {
+                post();
+                return -1L;
+            } catch (IOException e) {
+                return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            } finally {
+                aborter.end();
+            }
+        });
+
+        assertTrue(requestReceived.await(5, TimeUnit.SECONDS));
+        assertTrue(aborter.abort(caller.get()));
+
+        long elapsed = failedAfterMs.get(5, TimeUnit.SECONDS);
+        assertTrue(elapsed >= 0 && elapsed < ANSWER_DELAY_MS, "the call must fail long before the answer");
+    }
+
+    @Test
+    void abortedCallOpensNoNewConnection() throws Exception {
+        aborter.begin();
+        try {
+            assertTrue(aborter.abort(Thread.currentThread()));
+            assertThrows(IOException.class, this::post);
+        } finally {
+            aborter.end();
+        }
+        assertEquals(1, requestReceived.getCount(), "nothing may reach the server");
+    }
+
+    @Test
+    void untrackedThreadsAreLeftAlone() {
+        assertFalse(aborter.abort(Thread.currentThread()));
+    }
+
+    private void post() throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create(
+            "http://127.0.0.1:" + server.getAddress().getPort() + "/completion").toURL().openConnection();
+        // What the RestTemplate's request factory does before opening each connection
+        aborter.register(connection);
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write("{}".getBytes(StandardCharsets.UTF_8));
+        }
+        connection.getResponseCode();
+    }
+}
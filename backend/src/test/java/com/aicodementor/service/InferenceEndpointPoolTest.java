@@ -0,0 +1,266 @@
+package com.aicodementor.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Failover and circuit breaking of {@link InferenceEndpointPool} against stub llama.cpp servers.
+ */
+class InferenceEndpointPoolTest {
+
+    private static final int READ_TIMEOUT_MS = 300;
+    private static final int SHORT_CALL = 100;
+    private static final int LONG_CALL = 2000;
+
+    private final List<StubServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(StubServer::close);
+    }
+
+    @Test
+    void failsOverToNextEndpointOnServerError() throws IOException {
+        StubServer failing = server(Behaviour.ERROR);
+        StubServer healthy = server(Behaviour.OK);
+        InferenceEndpointPool pool = pool(3, 30_000, failing.url(), healthy.url());
+
+        CompletionResult result = pool.complete(request(SHORT_CALL));
+
+        assertEquals("ok from " + healthy.url(), result.content());
+        assertEquals(1, failing.hits());
+        assertEquals(1, healthy.hits());
+    }
+
+    @Test
+    void doesNotRetryClientError() throws IOException {
+        StubServer rejecting = server(Behaviour.BAD_REQUEST);
+        StubServer healthy = server(Behaviour.OK);
+        InferenceEndpointPool pool = pool(3, 30_000, rejecting.url(), healthy.url());
+
+        assertThrows(HttpClientErrorException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(0, healthy.hits());
+        assertTrue(pool.isAvailable(), "a rejected request says nothing about the endpoint");
+    }
+
+    @Test
+    void failsWhenEveryEndpointFails() throws IOException {
+        StubServer first = server(Behaviour.ERROR);
+        StubServer second = server(Behaviour.ERROR);
+        InferenceEndpointPool pool = pool(3, 30_000, first.url(), second.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(1, first.hits());
+        assertEquals(1, second.hits());
+    }
+
+    @Test
+    void failsOverLongGenerationWhenConnectionIsRefused() throws IOException {
+        StubServer healthy = server(Behaviour.OK);
+        InferenceEndpointPool pool = pool(3, 30_000, deadUrl(), healthy.url());
+
+        CompletionResult result = pool.complete(request(LONG_CALL));
+
+        assertEquals("ok from " + healthy.url(), result.content());
+    }
+
+    @Test
+    void doesNotRetryLongGenerationAfterServerError() throws IOException {
+        StubServer failing = server(Behaviour.ERROR);
+        StubServer healthy = server(Behaviour.OK);
+        InferenceEndpointPool pool = pool(3, 30_000, failing.url(), healthy.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(LONG_CALL)));
+        assertEquals(1, failing.hits());
+        assertEquals(0, healthy.hits());
+    }
+
+    @Test
+    void readTimeoutNeitherOpensCircuitNorFailsOver() throws IOException {
+        StubServer slow = server(Behaviour.SLOW);
+        StubServer healthy = server(Behaviour.OK);
+        InferenceEndpointPool pool = pool(1, 30_000, slow.url(), healthy.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+
+        assertEquals(0, healthy.hits());
+        assertEquals(CircuitBreaker.State.CLOSED, breakerOf(pool, 0).getState());
+    }
+
+    @Test
+    void opensCircuitAfterThresholdAndFailsFast() throws IOException {
+        StubServer failing = server(Behaviour.ERROR);
+        InferenceEndpointPool pool = pool(2, 30_000, failing.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(CircuitBreaker.State.CLOSED, breakerOf(pool, 0).getState());
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(CircuitBreaker.State.OPEN, breakerOf(pool, 0).getState());
+        assertFalse(pool.isAvailable());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(2, failing.hits(), "an open circuit must not reach the server");
+    }
+
+    @Test
+    void halfOpenProbeClosesCircuitOnSuccess() throws Exception {
+        StubServer server = server(Behaviour.ERROR);
+        InferenceEndpointPool pool = pool(1, 200, server.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(CircuitBreaker.State.OPEN, breakerOf(pool, 0).getState());
+
+        server.behaviour = Behaviour.OK;
+        Thread.sleep(250);
+        assertTrue(pool.isAvailable(), "the open period is over, a probe may go through");
+
+        assertEquals("ok from " + server.url(), pool.complete(request(SHORT_CALL)).content());
+        assertEquals(CircuitBreaker.State.CLOSED, breakerOf(pool, 0).getState());
+    }
+
+    @Test
+    void failedHalfOpenProbeReopensCircuit() throws Exception {
+        StubServer server = server(Behaviour.ERROR);
+        InferenceEndpointPool pool = pool(1, 200, server.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        Thread.sleep(250);
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+
+        CircuitBreaker breaker = breakerOf(pool, 0);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getTimesOpened());
+        assertEquals(2, server.hits());
+    }
+
+    @Test
+    void timedOutHalfOpenProbeLetsTheNextProbeThrough() throws Exception {
+        StubServer server = server(Behaviour.ERROR);
+        InferenceEndpointPool pool = pool(1, 200, server.url());
+
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        Thread.sleep(250);
+        server.behaviour = Behaviour.SLOW;
+        assertThrows(LLMUnavailableException.class, () -> pool.complete(request(SHORT_CALL)));
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breakerOf(pool, 0).getState());
+
+        server.behaviour = Behaviour.OK;
+        assertEquals("ok from " + server.url(), pool.complete(request(SHORT_CALL)).content());
+        assertEquals(CircuitBreaker.State.CLOSED, breakerOf(pool, 0).getState());
+    }
+
+    // ==================== Fixtures ====================
+
+    private enum Behaviour {
+        OK,
+        ERROR,
+        BAD_REQUEST,
+        SLOW
+    }
+
+    /**
+     * Minimal llama.cpp {@code /completion} answering according to its current behaviour.
+     */
+    private static final class StubServer implements AutoCloseable {
+        private final HttpServer server;
+        private final AtomicInteger hits = new AtomicInteger();
+        volatile Behaviour behaviour;
+
+        StubServer(Behaviour behaviour) throws IOException {
+            this.behaviour = behaviour;
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/completion", exchange -> {
+                hits.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                Behaviour current = this.behaviour;
+                if (current == Behaviour.SLOW) {
+                    try {
+                        Thread.sleep(READ_TIMEOUT_MS * 3L);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                int status = switch (current) {
+                    case ERROR -> 500;
+                    case BAD_REQUEST -> 400;
+                    default -> 200;
+                };
+                byte[] body = (status == 200 ? "{\"content\":\"ok from " + url() + "\"}" : "{\"error\":\"boom\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                try {
+                    exchange.sendResponseHeaders(status, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                } catch (IOException e) {
+                    // The client gave up (read timeout)
+                } finally {
+                    exchange.close();
+                }
+            });
+            server.setExecutor(Executors.newCachedThreadPool());
+            server.start();
+        }
+
+        String url() {
+            return "http://127.0.0.1:" + server.getAddress().getPort();
+        }
+
+        int hits() {
+            return hits.get();
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    private StubServer server(Behaviour behaviour) throws IOException {
+        StubServer server = new StubServer(behaviour);
+        servers.add(server);
+        return server;
+    }
+
+    private static String deadUrl() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return "http://127.0.0.1:" + socket.getLocalPort();
+        }
+    }
+
+    private static InferenceEndpointPool pool(int failureThreshold, long openMs, String... urls) {
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(1000);
+        requestFactory.setReadTimeout(READ_TIMEOUT_MS);
+        LlamaCppProvider provider = new LlamaCppProvider(new RestTemplate(requestFactory), new ObjectMapper());
+        // No health checks: endpoints start healthy and only the breakers change their availability
+        return new InferenceEndpointPool(List.of(provider), urls[0], "llamacpp", "", "",
+            String.join(",", urls), 60_000, failureThreshold, openMs, false, 512);
+    }
+
+    private static CompletionRequest request(int maxTokens) {
+        return CompletionRequest.of(LLMCallType.HINT, "prompt", maxTokens);
+    }
+
+    private static CircuitBreaker breakerOf(InferenceEndpointPool pool, int index) {
+        return pool.endpoints().get(index).getCircuitBreaker();
+    }
+}
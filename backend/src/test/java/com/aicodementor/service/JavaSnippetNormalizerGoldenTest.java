@@ -0,0 +1,83 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Golden files for {@link JavaSnippetNormalizer}: captured model outputs ({@code <case>.txt}) with
+ * what the regex chain it replaced made of them ({@code <case>.legacy.java}). The normalizer must
+ * produce the legacy output, except for the cases listed in {@code deliberate-changes.properties},
+ * which have their own {@code <case>.expected.java}.
+ */
+class JavaSnippetNormalizerGoldenTest {
+
+    private static final String CLASS_NAME = "Expected";
+    private static final String TEST_CLASS_NAME = "ExpectedTest";
+
+    static Stream<String> cases() throws IOException, URISyntaxException {
+        try (Stream<Path> files = Files.list(goldenDir())) {
+            List<String> names = files.map(p -> p.getFileName().toString())
+                .filter(name -> name.endsWith(".txt"))
+                .map(name -> name.substring(0, name.length() - ".txt".length()))
+                .sorted()
+                .toList();
+            return names.stream();
+        }
+    }
+
+    @ParameterizedTest
+    @MethodSource("cases")
+    void normalizesLikeTheLegacyChainOrAsDeliberatelyChanged(String name) throws Exception {
+        Path dir = goldenDir();
+        String raw = Files.readString(dir.resolve(name + ".txt"));
+        String legacy = Files.readString(dir.resolve(name + ".legacy.java"));
+        Path expectedFile = dir.resolve(name + ".expected.java");
+        boolean changed = Files.exists(expectedFile);
+        String expected = changed ? Files.readString(expectedFile) : legacy;
+
+        String actual = name.startsWith("solution")
+            ? JavaSnippetNormalizer.solution(raw, CLASS_NAME, false)
+            : JavaSnippetNormalizer.tests(raw, TEST_CLASS_NAME);
+
+        assertEquals(expected.stripTrailing(), actual.stripTrailing(), name);
+        assertEquals(changed, deliberateChanges().containsKey(name),
+            name + ": a difference from the legacy chain must be listed with its reason");
+        if (changed) {
+            assertNotEquals(legacy.stripTrailing(), expected.stripTrailing(), name + ": expected file is redundant");
+        }
+    }
+
+    @Test
+    void everyDeliberateChangeHasItsExpectedFile() throws Exception {
+        Path dir = goldenDir();
+        for (String name : deliberateChanges().stringPropertyNames()) {
+            assertTrue(Files.exists(dir.resolve(name + ".txt")), name + ": unknown case");
+            assertTrue(Files.exists(dir.resolve(name + ".expected.java")), name + ": missing expected file");
+        }
+    }
+
+    private static Properties deliberateChanges() throws IOException, URISyntaxException {
+        Properties reasons = new Properties();
+        try (Reader reader = Files.newBufferedReader(goldenDir().resolve("deliberate-changes.properties"), StandardCharsets.UTF_8)) {
+            reasons.load(reader);
+        }
+        return reasons;
+    }
+
+    private static Path goldenDir() throws URISyntaxException {
+        return Path.of(JavaSnippetNormalizerGoldenTest.class.getResource("/normalizer").toURI());
+    }
+}
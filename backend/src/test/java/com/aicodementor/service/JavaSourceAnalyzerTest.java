@@ -0,0 +1,58 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link JavaSourceAnalyzer}: the method declarations the prompts and starter code are built from.
+ */
+class JavaSourceAnalyzerTest {
+
+    private final JavaSourceAnalyzer analyzer = new JavaSourceAnalyzer(10);
+
+    @Test
+    void signatureIsTheDeclarationWithoutAnnotationsOrBody() {
+        JavaSourceModel model = analyzer.analyze("""
+            import java.util.List;
+
+            public class Notes {
+                public static void main(String[] args) {
+                    System.out.println(moyenne(List.of(12, 15)));
+                }
+
+                /** La moyenne, 0 si vide. */
+                @SuppressWarnings({"unchecked"})
+                public static double moyenne(List<Integer> notes,
+                                             int   arrondi) throws IllegalArgumentException {
+                    String brace = "{";
+                    return 0;
+                }
+            }
+            """);
+
+        JavaSourceModel.MethodInfo method = model.firstStaticMethod().orElseThrow();
+
+        assertEquals("moyenne", method.name());
+        assertEquals("public static double moyenne(List<Integer> notes, int arrondi) throws IllegalArgumentException",
+            method.signature());
+        assertEquals("public static void main(String[] args)", model.method("main").orElseThrow().signature());
+    }
+
+    @Test
+    void abstractMethodsLoseTheirSemicolon() {
+        JavaSourceModel model = analyzer.analyze("""
+            interface Forme {
+                double aire();
+            }
+            """);
+
+        assertEquals("double aire()", model.method("aire").orElseThrow().signature());
+    }
+
+    @Test
+    void missingSourceHasNoMethod() {
+        assertTrue(analyzer.analyze(null).firstStaticMethod().isEmpty());
+        assertTrue(analyzer.analyze("  ").firstStaticMethod().isEmpty());
+    }
+}
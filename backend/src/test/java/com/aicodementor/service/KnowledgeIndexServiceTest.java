@@ -0,0 +1,225 @@
+package com.aicodementor.service;
+
+import com.aicodementor.entity.KnowledgeBase;
+import com.aicodementor.repository.KnowledgeBaseRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link KnowledgeIndexService}: the JSON to binary migration, and compaction with the writes
+ * made while it rebuilds replayed onto the new index.
+ */
+class KnowledgeIndexServiceTest {
+
+    private static final int DIMENSION = 16;
+    private static final String TYPE = "HINT";
+    private static final long EXERCISE = 1L;
+
+    private final List<KnowledgeBase> rows = new ArrayList<>();
+    private final List<List<KnowledgeBase>> savedBatches = new ArrayList<>();
+    private KnowledgeIndexService service;
+
+    @AfterEach
+    void stop() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    // ==================== Migration ====================
+
+    @Test
+    void jsonEmbeddingsAreMigratedToUnitBlobs() {
+        rows.add(row(1L, "[3.0, 4.0]"));
+        rows.add(row(2L, "[0.0, -2.0]"));
+        rows.add(row(3L, "pas du json"));
+        rows.add(row(4L, "[]"));
+        rows.add(row(5L, null));
+        service = newService("float32", 2, 2);
+
+        service.migrateJsonEmbeddings();
+
+        assertEquals(2, savedBatches.size(), "batches of 2 until no JSON is left");
+        assertTrue(rows.stream().allMatch(row -> row.getEmbeddingJson() == null));
+        assertArrayEquals(new float[]{0.6f, 0.8f}, VectorCodec.decode(rows.get(0).getEmbeddingVector()), 1e-6f);
+        assertEquals(5f, rows.get(0).getEmbeddingNorm(), 1e-6f);
+        assertArrayEquals(new float[]{0f, -1f}, VectorCodec.decode(rows.get(1).getEmbeddingVector()), 1e-6f);
+        assertEquals(2f, rows.get(1).getEmbeddingNorm(), 1e-6f);
+        // Unreadable JSON is dropped, to be embedded again when the row is next indexed
+        assertNull(rows.get(2).getEmbeddingVector());
+        assertNull(rows.get(3).getEmbeddingVector());
+        assertNull(rows.get(4).getEmbeddingVector());
+    }
+
+    @Test
+    void int8MigrationKeepsTheDirection() {
+        rows.add(row(1L, "[1.0, 2.0, -3.0, 0.5]"));
+        service = newService("int8", 4, 10);
+
+        service.migrateJsonEmbeddings();
+
+        byte[] blob = rows.get(0).getEmbeddingVector();
+        assertEquals(VectorCodec.Format.INT8, VectorCodec.format(blob));
+        float[] expected = KnowledgeIndexService.normalize(new float[]{1f, 2f, -3f, 0.5f});
+        assertArrayEquals(expected, KnowledgeIndexService.normalize(VectorCodec.decode(blob)), 0.01f);
+    }
+
+    // ==================== Compaction ====================
+
+    @Test
+    void compactionDropsDeletedNodesAndKeepsResults() {
+        service = newService("float32", DIMENSION, 100);
+        SplittableRandom random = new SplittableRandom(1);
+        Map<Long, float[]> live = new HashMap<>();
+        for (long id = 1; id <= 2000; id++) {
+            put(live, id, unit(random));
+        }
+        for (long id = 1; id <= 2000; id += 2) {
+            remove(live, id);
+        }
+
+        service.compactAll();
+
+        assertEquals(1L, service.snapshot().get("compactions"));
+        assertEquals(Map.of("size", 1000, "deleted", 0), indexStats());
+        assertSameAsFreshBuild(live, random);
+    }
+
+    @Test
+    void writesDuringCompactionAreReplayedOntoTheNewIndex() throws Exception {
+        service = newService("float32", DIMENSION, 100);
+        SplittableRandom random = new SplittableRandom(2);
+        Map<Long, float[]> live = new HashMap<>();
+        long nextId = 1;
+        for (; nextId <= 3000; nextId++) {
+            put(live, nextId, unit(random));
+        }
+        for (long id = 1; id <= 3000; id += 3) {
+            remove(live, id);
+        }
+
+        for (int round = 1; round <= 3; round++) {
+            remove(live, live.keySet().iterator().next()); // at least one deleted node to compact away
+            Thread compaction = new Thread(service::compactAll, "compaction-test");
+            compaction.start();
+            int writes = 0;
+            // Adds, updates and removes racing with the rebuild: each lands either before the
+            // live ids are copied, or in the replay log
+            while (compaction.isAlive() || writes < 10) {
+                long id = 1 + random.nextLong(nextId);
+                switch (random.nextInt(3)) {
+                    case 0 -> put(live, nextId++, unit(random));
+                    case 1 -> put(live, id, unit(random));
+                    default -> remove(live, id);
+                }
+                writes++;
+            }
+            compaction.join();
+
+            assertEquals((long) round, service.snapshot().get("compactions"));
+            assertEquals(live.size(), indexStats().get("size"));
+            assertSameAsFreshBuild(live, random);
+        }
+    }
+
+    private void assertSameAsFreshBuild(Map<Long, float[]> live, SplittableRandom random) {
+        HnswIndex fresh = new HnswIndex(new HeapVectorStorage(DIMENSION), 16, 100);
+        live.forEach(fresh::add);
+        for (int q = 0; q < 50; q++) {
+            float[] query = unit(random);
+
+            List<HnswIndex.Match> expected = fresh.exact(query, 10, live.keySet());
+            List<KnowledgeIndexService.KnowledgeMatch> actual = service.search(TYPE, query, 10, EXERCISE);
+
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).id(), actual.get(i).id(), "rank " + i);
+                assertEquals(expected.get(i).score(), actual.get(i).score(), 1e-6f);
+            }
+        }
+        // The graph answers too: every live vector finds itself
+        live.entrySet().stream().limit(200).forEach(entry ->
+            assertEquals((long) entry.getKey(), service.search(TYPE, entry.getValue(), 1, null).get(0).id()));
+    }
+
+    // ==================== Fixtures ====================
+
+    private void put(Map<Long, float[]> live, long id, float[] vector) {
+        service.add(id, TYPE, EXERCISE, vector);
+        live.put(id, vector);
+    }
+
+    private void remove(Map<Long, float[]> live, long id) {
+        service.remove(id);
+        live.remove(id);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> indexStats() {
+        return (Map<String, Object>) ((Map<String, Object>) service.snapshot().get("indexes")).get(TYPE);
+    }
+
+    private KnowledgeIndexService newService(String format, int dimension, int migrationBatch) {
+        KnowledgeBaseRepository repository = (KnowledgeBaseRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{KnowledgeBaseRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findByEmbeddingJsonIsNotNull" -> rows.stream()
+                    .filter(row -> row.getEmbeddingJson() != null)
+                    .limit(((Pageable) args[0]).getPageSize())
+                    .toList();
+                case "saveAll" -> {
+                    List<KnowledgeBase> batch = new ArrayList<>();
+                    ((Iterable<KnowledgeBase>) args[0]).forEach(batch::add);
+                    savedBatches.add(batch);
+                    yield batch;
+                }
+                case "toString" -> "KnowledgeBaseRepository(test)";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        EmbeddingProvider provider = new EmbeddingProvider() {
+            @Override
+            public String name() {
+                return "test";
+            }
+
+            @Override
+            public int dimension() {
+                return dimension;
+            }
+
+            @Override
+            public float[] embed(String text) {
+                throw new UnsupportedOperationException("the tests index precomputed vectors");
+            }
+        };
+        return new KnowledgeIndexService(repository, new ObjectMapper(), List.of(provider), "test", true,
+            dimension, 510, 16, 100, 64, Integer.MAX_VALUE, format, migrationBatch, "heap", "unused", 1024,
+            0, 1, 0.0);
+    }
+
+    private static KnowledgeBase row(Long id, String json) {
+        KnowledgeBase row = new KnowledgeBase();
+        row.setId(id);
+        row.setContentType(TYPE);
+        row.setEmbeddingJson(json);
+        return row;
+    }
+
+    private static float[] unit(SplittableRandom random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) random.nextGaussian();
+        }
+        return KnowledgeIndexService.normalize(v);
+    }
+}
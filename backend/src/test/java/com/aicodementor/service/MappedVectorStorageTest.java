@@ -0,0 +1,131 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link MappedVectorStorage} against {@link HeapVectorStorage}, with segments small enough that
+ * vectors spread over several files.
+ */
+class MappedVectorStorageTest {
+
+    private static final int DIMENSION = 13; // not a multiple of the unrolled loops
+    private static final int PER_SEGMENT = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsBackWhatWasWrittenAcrossSegments() throws Exception {
+        SplittableRandom random = new SplittableRandom(1);
+        MappedVectorStorage mapped = new MappedVectorStorage(directory.resolve("hint-1"), DIMENSION, PER_SEGMENT);
+        HeapVectorStorage heap = new HeapVectorStorage(DIMENSION);
+        try {
+            for (int i = 0; i < 35; i++) {
+                float[] vector = random(random);
+                assertEquals(heap.add(vector), mapped.add(vector));
+            }
+
+            assertEquals(35, mapped.size());
+            assertEquals(4, segmentFiles(directory.resolve("hint-1")).size());
+            float[] query = random(random);
+            for (int slot = 0; slot < 35; slot++) {
+                assertArrayEquals(heap.get(slot), mapped.get(slot), 0f);
+                assertEquals(heap.dot(slot, query), mapped.dot(slot, query), 1e-5f);
+                assertEquals(heap.dot(slot, 34 - slot), mapped.dot(slot, 34 - slot), 1e-5f);
+            }
+        } finally {
+            mapped.close();
+        }
+    }
+
+    @Test
+    void closeUnmapsAndDeletesTheFiles() {
+        Path storageDirectory = directory.resolve("hint-2");
+        MappedVectorStorage mapped = new MappedVectorStorage(storageDirectory, DIMENSION, PER_SEGMENT);
+        for (int i = 0; i < 25; i++) {
+            mapped.add(random(new SplittableRandom(i)));
+        }
+
+        mapped.close();
+
+        assertFalse(Files.exists(storageDirectory));
+        // The arena is closed: reads fail instead of touching unmapped memory
+        assertThrows(IllegalStateException.class, () -> mapped.get(0));
+        assertThrows(IllegalStateException.class, () -> mapped.dot(0, new float[DIMENSION]));
+        assertThrows(IllegalStateException.class, () -> mapped.add(new float[DIMENSION]));
+    }
+
+    @Test
+    void reopeningADirectoryStartsFromAnEmptyStorage() throws Exception {
+        Path storageDirectory = directory.resolve("hint-3");
+        MappedVectorStorage first = new MappedVectorStorage(storageDirectory, DIMENSION, PER_SEGMENT);
+        first.add(random(new SplittableRandom(7)));
+        first.close();
+        // A segment left behind by a crash: overwritten, never read back
+        Files.createDirectories(storageDirectory);
+        Files.write(storageDirectory.resolve("segment-00000.vec"), new byte[3 * PER_SEGMENT * DIMENSION * Float.BYTES]);
+
+        MappedVectorStorage second = new MappedVectorStorage(storageDirectory, DIMENSION, PER_SEGMENT);
+        try {
+            assertEquals(0, second.size());
+            float[] other = random(new SplittableRandom(8));
+            assertEquals(0, second.add(other));
+            assertArrayEquals(other, second.get(0), 0f);
+            assertEquals((long) PER_SEGMENT * DIMENSION * Float.BYTES,
+                Files.size(storageDirectory.resolve("segment-00000.vec")), "truncated to one segment");
+        } finally {
+            second.close();
+        }
+    }
+
+    @Test
+    void indexSearchesOverMappedVectors() {
+        SplittableRandom random = new SplittableRandom(9);
+        HnswIndex index = new HnswIndex(new MappedVectorStorage(directory.resolve("hint-4"), DIMENSION, 64), 16, 100);
+        float[][] vectors = new float[300][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = KnowledgeIndexService.normalize(random(random));
+            index.add(i, vectors[i]);
+        }
+
+        for (int i = 0; i < vectors.length; i += 29) {
+            assertEquals(i, index.search(vectors[i], 1, 64, null).get(0).id());
+        }
+        index.close();
+        assertTrue(index.search(vectors[0], 1, 64, null).isEmpty(), "a closed index answers nothing");
+    }
+
+    @Test
+    void wrongDimensionIsRejected() {
+        MappedVectorStorage mapped = new MappedVectorStorage(directory.resolve("hint-5"), DIMENSION, PER_SEGMENT);
+        try {
+            assertThrows(IllegalArgumentException.class, () -> mapped.add(new float[DIMENSION + 1]));
+            assertThrows(IllegalArgumentException.class, () -> new MappedVectorStorage(directory.resolve("x"), 0, PER_SEGMENT));
+        } finally {
+            mapped.close();
+        }
+    }
+
+    private static List<Path> segmentFiles(Path storageDirectory) throws Exception {
+        try (Stream<Path> files = Files.list(storageDirectory)) {
+            return files.toList();
+        }
+    }
+
+    private static float[] random(SplittableRandom random) {
+        float[] v = new float[DIMENSION];
+        for (int i = 0; i < DIMENSION; i++) {
+            v[i] = (float) (random.nextDouble() * 2 - 1);
+        }
+        return v;
+    }
+}
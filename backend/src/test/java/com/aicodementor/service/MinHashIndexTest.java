@@ -0,0 +1,169 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link MinHashIndex} on shingle sets whose Jaccard similarity is known exactly: {@code [0, n)}
+ * and {@code [s, s + n)} share n - s of their n + s distinct shingles.
+ */
+class MinHashIndexTest {
+
+    private static final int NUM_HASHES = 128;
+    private static final int BANDS = 16;
+
+    private final MinHashIndex index = new MinHashIndex(NUM_HASHES, BANDS, 500);
+
+    @Test
+    void signatureAgreementEstimatesJaccard() {
+        int n = 1_000;
+        for (int shift : new int[]{0, 111, 333, 667, 1_000}) {
+            double jaccard = (double) (n - shift) / (n + shift);
+            int[] a = index.signature(range(0, n));
+            int[] b = index.signature(range(shift, n));
+            int equal = 0;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                if (a[i] == b[i]) {
+                    equal++;
+                }
+            }
+            // Standard error sqrt(J(1-J)/128) is at most 0.045
+            assertEquals(jaccard, (double) equal / NUM_HASHES, 0.12, "shift " + shift);
+        }
+    }
+
+    @Test
+    void signatureIgnoresDuplicateShinglesAndOrder() {
+        long[] shingles = range(0, 200);
+        long[] shuffledWithRepeats = LongStream.concat(LongStream.rangeClosed(1, 199).map(i -> 200 - i), LongStream.of(0, 5, 5, 7))
+            .toArray();
+
+        assertArrayEquals(index.signature(shingles), index.signature(shuffledWithRepeats));
+        assertNull(index.signature(new long[0]));
+        assertNull(index.signature(null));
+    }
+
+    @Test
+    void bBitVerificationMatchesFullSignatureEstimate() {
+        int n = 1_000;
+        index.put(1, index.signature(range(0, n)));
+        for (int shift : new int[]{0, 53, 111}) { // Jaccard 1, 0.9, 0.8: above the banding threshold
+            double jaccard = (double) (n - shift) / (n + shift);
+            int[] query = index.signature(range(shift, n));
+
+            List<MinHashIndex.Match> matches = index.query(query, 0.0, 10, null);
+
+            assertEquals(1, matches.size(), "shift " + shift);
+            assertEquals(jaccard, matches.get(0).similarity(), 0.12, "shift " + shift);
+            // 16-bit collisions of different min-hashes are rare enough not to inflate the estimate
+            int[] stored = index.signature(range(0, n));
+            int fullEqual = 0;
+            for (int i = 0; i < NUM_HASHES; i++) {
+                if (stored[i] == query[i]) {
+                    fullEqual++;
+                }
+            }
+            assertTrue(matches.get(0).similarity() * NUM_HASHES - fullEqual <= 1, "shift " + shift);
+        }
+    }
+
+    @Test
+    void thresholdFiltersVerifiedMatches() {
+        int n = 1_000;
+        index.put(1, index.signature(range(0, n)));
+        int[] query = index.signature(range(53, n)); // Jaccard 0.9
+
+        assertEquals(1, index.query(query, 0.8, 10, null).size());
+        assertTrue(index.query(query, 0.99, 10, null).isEmpty());
+    }
+
+    @Test
+    void bandingFindsCloseSetsAndSkipsDistantOnes() {
+        int n = 400;
+        int sets = 300;
+        for (int s = 0; s < sets; s++) {
+            index.put(s, index.signature(range(s * 1_000_000L, n)));
+        }
+        // (1/16)^(1/8) = 0.71: similarity 0.9 collides in a band with probability ~1, 0.3 with ~0.001
+        assertEquals(0.707, index.lshThreshold(), 0.001);
+
+        int close = 0;
+        int distant = 0;
+        for (int s = 0; s < sets; s++) {
+            int[] near = index.signature(range(s * 1_000_000L + 21, n));    // Jaccard 0.9
+            int[] far = index.signature(range(s * 1_000_000L + 215, n));    // Jaccard 0.3
+            if (ids(index.query(near, 0.0, 10, null)).contains((long) s)) {
+                close++;
+            }
+            if (ids(index.query(far, 0.0, 10, null)).contains((long) s)) {
+                distant++;
+            }
+        }
+        assertTrue(close >= sets * 0.98, "recall of close sets: " + close + "/" + sets);
+        assertTrue(distant <= sets * 0.05, "distant sets verified: " + distant + "/" + sets);
+    }
+
+    @Test
+    void putReplacesAndRemoveForgets() {
+        int[] first = index.signature(range(0, 500));
+        int[] second = index.signature(range(10_000, 500));
+        index.put(7, first);
+        index.put(7, second);
+
+        assertEquals(1, index.size());
+        assertTrue(index.query(first, 0.5, 10, null).isEmpty(), "the old signature must be gone");
+        assertEquals(List.of(7L), ids(index.query(second, 0.5, 10, null)));
+
+        assertTrue(index.remove(7));
+        assertFalse(index.remove(7));
+        assertEquals(0, index.size());
+        assertTrue(index.query(second, 0.0, 10, null).isEmpty());
+    }
+
+    @Test
+    void slotsAreReusedAndGrowBeyondInitialCapacity() {
+        int count = 3_000;
+        for (int id = 0; id < count; id++) {
+            index.put(id, index.signature(range(id * 1_000L, 50)));
+        }
+        for (int id = 0; id < count; id += 2) {
+            index.remove(id);
+        }
+        for (int id = count; id < count + 500; id++) {
+            index.put(id, index.signature(range(id * 1_000L, 50)));
+        }
+
+        assertEquals(count / 2 + 500, index.size());
+        for (int id = 0; id < count + 500; id += 37) {
+            List<Long> found = ids(index.query(index.signature(range(id * 1_000L, 50)), 0.9, 10, null));
+            boolean live = id >= count || id % 2 == 1;
+            assertEquals(live ? List.of((long) id) : List.of(), found, "id " + id);
+        }
+    }
+
+    @Test
+    void queryHonoursExcludeIdAndLimit() {
+        int[] signature = index.signature(range(0, 300));
+        for (long id = 1; id <= 5; id++) {
+            index.put(id, signature);
+        }
+
+        List<MinHashIndex.Match> matches = index.query(signature, 0.9, 3, 2L);
+
+        assertEquals(3, matches.size());
+        assertFalse(ids(matches).contains(2L));
+        assertThrows(IllegalArgumentException.class, () -> index.query(new int[3], 0.5, 3, null));
+    }
+
+    private static long[] range(long from, int count) {
+        return LongStream.range(from, from + count).toArray();
+    }
+
+    private static List<Long> ids(List<MinHashIndex.Match> matches) {
+        return matches.stream().map(MinHashIndex.Match::id).toList();
+    }
+}
@@ -0,0 +1,190 @@
+package com.aicodementor.service;
+
+import com.aicodementor.repository.ExerciseRepository;
+import com.aicodementor.repository.SubmissionRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link PlagiarismService}: code normalization before winnowing, and submissions compared within
+ * their exercise with the starter code as the base.
+ */
+class PlagiarismServiceTest {
+
+    private static final long EXERCISE = 10L;
+
+    private static final String STARTER = """
+        import java.util.List;
+
+        public class Moyenne {
+            /** Renvoie la moyenne des notes, 0 si la liste est vide. */
+            public static double moyenne(List<Integer> notes) {
+                // TODO
+                return 0;
+            }
+        }
+        """;
+    private static final String SOLUTION = """
+        import java.util.List;
+
+        public class Moyenne {
+            public static double moyenne(List<Integer> notes) {
+                if (notes == null || notes.isEmpty()) {
+                    return 0;
+                }
+                int total = 0;
+                for (int note : notes) {
+                    total += note;
+                }
+                return (double) total / notes.size();
+            }
+        }
+        """;
+    private static final String RENAMED_AND_REFORMATTED = """
+        package tp.eleve;
+        import java.util.*;
+        public class Moyenne
+        {
+          // ma version
+          public static double moyenne(List<Integer> valeurs)
+          {
+            if (valeurs == null || valeurs.isEmpty()) { return 1; }
+            int somme = 42;
+            for (int v : valeurs) { somme += v; }   /* boucle */
+            return (double) somme / valeurs.size();
+          }
+        }
+        """;
+    private static final String OTHER_SOLUTION = """
+        import java.util.List;
+
+        public class Moyenne {
+            public static double moyenne(List<Integer> notes) {
+                return notes == null ? 0 : notes.stream().mapToInt(Integer::intValue).average().orElse(0);
+            }
+        }
+        """;
+
+    private final Map<Long, String> starterCode = new ConcurrentHashMap<>();
+    private PlagiarismService service;
+
+    @AfterEach
+    void stop() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void renamedIdentifiersLiteralsAndLayoutDoNotChangeFingerprints() {
+        service = newService();
+
+        int[] original = service.fingerprints(SOLUTION);
+
+        assertTrue(original.length > 0);
+        assertArrayEquals(original, service.fingerprints(RENAMED_AND_REFORMATTED));
+    }
+
+    @Test
+    void differentCodeSharesFewFingerprints() {
+        service = newService();
+
+        int[] original = service.fingerprints(SOLUTION);
+        int[] other = service.fingerprints(OTHER_SOLUTION);
+
+        long shared = Arrays.stream(other).filter(print -> Arrays.binarySearch(original, print) >= 0).count();
+        assertTrue(shared < original.length / 2.0, shared + " of " + original.length + " shared");
+    }
+
+    @Test
+    void copiedSubmissionIsFoundAndStarterCodeIsNot() {
+        starterCode.put(EXERCISE, STARTER);
+        start();
+
+        service.update(1L, EXERCISE, 100L, SOLUTION);
+        service.update(2L, EXERCISE, 200L, RENAMED_AND_REFORMATTED);
+        service.update(3L, EXERCISE, 300L, STARTER); // handed in unchanged
+        service.update(4L, EXERCISE, 400L, STARTER.replace("return 0;", "return 0.0;"));
+        awaitTrue(() -> Integer.valueOf(4).equals(service.snapshot().get("submissions")));
+
+        List<PlagiarismService.SimilarSubmission> similar = service.similarToSubmission(1L, 0.5, 10);
+        assertEquals(1, similar.size());
+        assertEquals(2L, (long) similar.get(0).submissionId());
+        assertEquals(200L, (long) similar.get(0).userId());
+
+        assertTrue(service.similarToSubmission(3L, 0.0, 10).isEmpty(), "the starter code is the base of the exercise");
+    }
+
+    @Test
+    void starterCodeChangeMovesTheBase() {
+        start();
+        service.update(3L, EXERCISE, 300L, STARTER);
+        service.update(4L, EXERCISE, 400L, STARTER);
+        awaitTrue(() -> !service.similarToSubmission(3L, 0.0, 10).isEmpty());
+
+        service.exerciseChanged(EXERCISE, STARTER);
+        awaitTrue(() -> service.similarToSubmission(3L, 0.0, 10).isEmpty());
+    }
+
+    @Test
+    void removedSubmissionsAndExercisesAreForgotten() {
+        start();
+        service.update(1L, EXERCISE, 100L, SOLUTION);
+        service.update(2L, EXERCISE, 200L, SOLUTION);
+        awaitTrue(() -> !service.similarToSubmission(1L, 0.5, 10).isEmpty());
+
+        service.remove(2L);
+        awaitTrue(() -> service.similarToSubmission(1L, 0.5, 10).isEmpty());
+
+        service.exerciseRemoved(EXERCISE);
+        awaitTrue(() -> Integer.valueOf(0).equals(service.snapshot().get("submissions")));
+        assertEquals(0, service.snapshot().get("exercises"));
+    }
+
+    // ==================== Fixtures ====================
+
+    private void start() {
+        service = newService();
+        service.start();
+        awaitTrue(() -> Boolean.TRUE.equals(service.snapshot().get("ready")));
+    }
+
+    private PlagiarismService newService() {
+        ExerciseRepository exercises = (ExerciseRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{ExerciseRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findStarterCodeById" -> Optional.ofNullable(starterCode.get((Long) args[0]));
+                case "toString" -> "ExerciseRepository(test)";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        SubmissionRepository submissions = (SubmissionRepository) Proxy.newProxyInstance(getClass().getClassLoader(),
+            new Class<?>[]{SubmissionRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                case "findFingerprintSourcesAfter" -> List.of();
+                case "toString" -> "SubmissionRepository(test)";
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+        return new PlagiarismService(exercises, submissions, true, 8, 6, 3, 0.5, 100, 2);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not reached in 5 s");
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("interrupted");
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorCodecTest {
+
+    @Test
+    void float32RoundTripIsExact() {
+        float[] vector = random(new SplittableRandom(1), 384);
+
+        byte[] blob = VectorCodec.encode(vector, VectorCodec.Format.FLOAT32);
+
+        assertEquals(1 + 384 * Float.BYTES, blob.length);
+        assertEquals(VectorCodec.Format.FLOAT32, VectorCodec.format(blob));
+        assertEquals(384, VectorCodec.dimension(blob));
+        assertArrayEquals(vector, VectorCodec.decode(blob), 0f);
+    }
+
+    @Test
+    void int8ErrorIsAtMostHalfAStep() {
+        SplittableRandom random = new SplittableRandom(2);
+        for (int round = 0; round < 100; round++) {
+            float[] vector = random(random, 384);
+            float max = 0;
+            for (float v : vector) {
+                max = Math.max(max, Math.abs(v));
+            }
+            float halfStep = max / 127f / 2;
+
+            byte[] blob = VectorCodec.encode(vector, VectorCodec.Format.INT8);
+            float[] decoded = VectorCodec.decode(blob);
+
+            assertEquals(1 + Float.BYTES + 384, blob.length, "a quarter of the float32 size");
+            assertEquals(384, VectorCodec.dimension(blob));
+            for (int i = 0; i < vector.length; i++) {
+                assertEquals(vector[i], decoded[i], halfStep * 1.001f, "component " + i);
+            }
+        }
+    }
+
+    @Test
+    void int8KeepsCosineOfUnitVectorsClose() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int round = 0; round < 100; round++) {
+            float[] a = KnowledgeIndexService.normalize(random(random, 384));
+            float[] b = KnowledgeIndexService.normalize(random(random, 384));
+            float[] a8 = KnowledgeIndexService.normalize(VectorCodec.decode(VectorCodec.encode(a, VectorCodec.Format.INT8)));
+            float[] b8 = KnowledgeIndexService.normalize(VectorCodec.decode(VectorCodec.encode(b, VectorCodec.Format.INT8)));
+
+            assertEquals(dot(a, b), dot(a8, b8), 0.01f);
+        }
+    }
+
+    @Test
+    void zeroVectorRoundTrips() {
+        float[] zero = new float[8];
+
+        assertArrayEquals(zero, VectorCodec.decode(VectorCodec.encode(zero, VectorCodec.Format.INT8)), 0f);
+        assertEquals(0f, VectorCodec.norm(zero));
+    }
+
+    @Test
+    void decodeReusesTheGivenArray() {
+        float[] out = new float[4];
+
+        VectorCodec.decode(VectorCodec.encode(new float[]{1, 2, 3, 4}, VectorCodec.Format.FLOAT32), out);
+        assertArrayEquals(new float[]{1, 2, 3, 4}, out, 0f);
+
+        VectorCodec.decode(VectorCodec.encode(new float[]{-4, 0, 2, 4}, VectorCodec.Format.INT8), out);
+        assertArrayEquals(new float[]{-4, 0, 2, 4}, out, 4f / 127 / 2 * 1.001f);
+    }
+
+    @Test
+    void unknownFormatIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> VectorCodec.decode(new byte[]{9, 0, 0, 0, 0}));
+    }
+
+    private static float[] random(SplittableRandom random, int dimension) {
+        float[] v = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            v[i] = (float) (random.nextDouble() * 2 - 1) * (i % 7 == 0 ? 3 : 1);
+        }
+        return v;
+    }
+
+    private static float dot(float[] a, float[] b) {
+        float s = 0;
+        for (int i = 0; i < a.length; i++) {
+            s += a[i] * b[i];
+        }
+        return s;
+    }
+}
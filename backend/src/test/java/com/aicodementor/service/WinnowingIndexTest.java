@@ -0,0 +1,165 @@
+package com.aicodementor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link WinnowingIndex}: which k-grams winnowing selects, the guarantee it gives on common runs,
+ * and the inverted index with its base document.
+ */
+class WinnowingIndexTest {
+
+    private static final int K = 5;
+    private static final int WINDOW = 4;
+
+    @Test
+    void selectsTheRightmostMinimumOfEachWindow() {
+        // Windows of 3: [5 3 3] -> 2, [3 3 7] -> 2 again, [3 7 3] -> 4, [7 3 9] -> 4 again
+        assertArrayEquals(new int[]{2, 4}, WinnowingIndex.winnow(new int[]{5, 3, 3, 7, 3, 9}, 3));
+        // On a run of equal hashes every window selects its last position
+        assertArrayEquals(new int[]{2, 3, 4, 5}, WinnowingIndex.winnow(new int[]{4, 4, 4, 4, 4, 4}, 3));
+        assertArrayEquals(new int[]{0, 1, 2}, WinnowingIndex.winnow(new int[]{9, 8, 7}, 1));
+    }
+
+    @Test
+    void everyWindowHoldsASelectedPosition() {
+        SplittableRandom random = new SplittableRandom(3);
+        for (int round = 0; round < 200; round++) {
+            int[] hashes = random.ints(50 + random.nextInt(100), 0, 20).toArray();
+            int[] positions = WinnowingIndex.winnow(hashes, WINDOW);
+            for (int start = 0; start + WINDOW <= hashes.length; start++) {
+                int from = start;
+                int min = IntStream.range(start, start + WINDOW).map(i -> hashes[i]).min().getAsInt();
+                assertTrue(Arrays.stream(positions).anyMatch(p -> p >= from && p < from + WINDOW && hashes[p] == min),
+                    "window at " + start + " has no selected minimum");
+            }
+        }
+    }
+
+    @Test
+    void commonRunOfKPlusWindowMinusOneTokensIsAlwaysShared() {
+        SplittableRandom random = new SplittableRandom(5);
+        int guaranteed = K + WINDOW - 1;
+        for (int round = 0; round < 200; round++) {
+            int[] run = random.ints(guaranteed).toArray();
+            int[] a = concat(random.ints(random.nextInt(40)).toArray(), run, random.ints(random.nextInt(40)).toArray());
+            int[] b = concat(random.ints(random.nextInt(40)).toArray(), run, random.ints(random.nextInt(40)).toArray());
+
+            assertTrue(shared(WinnowingIndex.fingerprints(a, K, WINDOW), WinnowingIndex.fingerprints(b, K, WINDOW)) > 0,
+                "round " + round);
+        }
+    }
+
+    @Test
+    void runsShorterThanKAreNeverShared() {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int round = 0; round < 200; round++) {
+            int[] run = random.ints(K - 1).toArray();
+            int[] a = concat(random.ints(30).toArray(), run, random.ints(30).toArray());
+            int[] b = concat(random.ints(30).toArray(), run, random.ints(30).toArray());
+
+            assertEquals(0, shared(WinnowingIndex.fingerprints(a, K, WINDOW), WinnowingIndex.fingerprints(b, K, WINDOW)));
+        }
+    }
+
+    @Test
+    void fingerprintsAreSortedAndDistinct() {
+        int[] prints = WinnowingIndex.fingerprints(new SplittableRandom(9).ints(300, 0, 5).toArray(), K, WINDOW);
+
+        for (int i = 1; i < prints.length; i++) {
+            assertTrue(prints[i - 1] < prints[i]);
+        }
+        assertEquals(0, WinnowingIndex.fingerprints(new int[K - 1], K, WINDOW).length);
+    }
+
+    @Test
+    void baseFingerprintsNeverCountAsShared() {
+        SplittableRandom random = new SplittableRandom(11);
+        int[] starter = random.ints(60).toArray();
+        int[] ownWorkA = random.ints(60).toArray();
+        int[] ownWorkB = random.ints(60).toArray();
+        WinnowingIndex index = new WinnowingIndex(100);
+        index.setBase(prints(starter));
+        index.put(1, 100, prints(concat(starter, ownWorkA)));
+        index.put(2, 200, prints(concat(starter, ownWorkB)));
+
+        assertTrue(index.similarTo(1, 1, 0.0, 10).isEmpty(), "only the starter code is common");
+
+        index.setBase(null);
+        assertEquals(List.of(2L), ids(index.similarTo(1, 1, 0.0, 10)), "without a base the starter code matches");
+    }
+
+    @Test
+    void copiedWorkIsFoundOutsideTheBase() {
+        SplittableRandom random = new SplittableRandom(13);
+        int[] starter = random.ints(60).toArray();
+        int[] work = random.ints(80).toArray();
+        WinnowingIndex index = new WinnowingIndex(100);
+        index.setBase(prints(starter));
+        index.put(1, 100, prints(concat(starter, work)));
+        index.put(2, 200, prints(concat(starter, work, random.ints(5).toArray())));
+        index.put(3, 300, prints(concat(starter, random.ints(80).toArray())));
+
+        List<WinnowingIndex.Match> matches = index.similarTo(1, 3, 0.5, 10);
+
+        assertEquals(List.of(2L), ids(matches));
+        assertEquals(200, matches.get(0).owner());
+        assertTrue(matches.get(0).similarity() > 0.9, "similarity is measured on the fingerprints outside the base");
+    }
+
+    @Test
+    void sameOwnerAndBoilerplateAreIgnored() {
+        SplittableRandom random = new SplittableRandom(17);
+        int[] work = random.ints(80).toArray();
+        WinnowingIndex index = new WinnowingIndex(2);
+        index.put(1, 100, prints(work));
+        index.put(2, 100, prints(work)); // a resubmission of the same student
+
+        assertTrue(index.similarTo(1, 1, 0.0, 10).isEmpty());
+
+        index.put(3, 300, prints(work)); // now held by 3 documents, above maxPostings 2
+        assertTrue(index.similarTo(1, 1, 0.0, 10).isEmpty());
+    }
+
+    @Test
+    void putReplacesAndRemoveForgets() {
+        SplittableRandom random = new SplittableRandom(19);
+        int[] work = random.ints(80).toArray();
+        WinnowingIndex index = new WinnowingIndex(100);
+        index.put(1, 100, prints(work));
+        index.put(2, 200, prints(work));
+        index.put(2, 200, prints(random.ints(80).toArray()));
+
+        assertEquals(2, index.size());
+        assertTrue(index.similarTo(1, 1, 0.0, 10).isEmpty(), "the replaced fingerprints must be gone");
+
+        index.put(2, 200, prints(work));
+        assertTrue(index.remove(2));
+        assertFalse(index.remove(2));
+        assertNull(index.ownerOf(2));
+        assertTrue(index.similarTo(1, 1, 0.0, 10).isEmpty());
+        assertArrayEquals(new long[]{1}, index.ids());
+    }
+
+    private static int[] prints(int[] tokens) {
+        return WinnowingIndex.fingerprints(tokens, K, WINDOW);
+    }
+
+    private static int[] concat(int[]... parts) {
+        return Arrays.stream(parts).flatMapToInt(Arrays::stream).toArray();
+    }
+
+    private static int shared(int[] a, int[] b) {
+        return (int) Arrays.stream(a).filter(print -> Arrays.binarySearch(b, print) >= 0).count();
+    }
+
+    private static List<Long> ids(List<WinnowingIndex.Match> matches) {
+        return matches.stream().map(WinnowingIndex.Match::id).toList();
+    }
+}
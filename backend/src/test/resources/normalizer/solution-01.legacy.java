@@ -0,0 +1,10 @@
+public class Expected {
+    public static int sum(int[] array) {
+        if (array == null || array.length == 0) return 0;
+        int total = 0;
+        for (int num : array) {
+            total += num;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,7 @@
+public class Expected {
+    public static String reverse(String s) {
+        if (s == null) return null;
+        return new StringBuilder(s).reverse().toString();
+    }
+
+}
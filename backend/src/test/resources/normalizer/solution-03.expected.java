@@ -0,0 +1,13 @@
+import java.util.HashMap;
+import java.util.Map;
+
+public class Expected {
+    public static Map<String, Integer> count(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        if (text == null || text.isBlank()) return counts;
+        for (String w : text.trim().split("\\s+")) {
+            counts.merge(w.toLowerCase(), 1, Integer::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,10 @@
+public class Expected {
+    public static long factorial(int n) {
+        if (n < 0) throw new IllegalArgumentException("n < 0");
+        long result = 1;
+        for (int i = 2; i <= n; i++) {
+            result *= i;
+        }
+        return result;
+    }
+}
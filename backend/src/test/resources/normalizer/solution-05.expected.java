@@ -0,0 +1,14 @@
+public class Expected {
+    public static int max(int[] values) {
+        if (values == null || values.length == 0) {
+            throw new IllegalArgumentException("empty");
+        }
+        int best = values[0];
+        for (int v : values) {
+            if (v > best) {
+                best = v;
+            }
+        }
+        return best;
+    }
+}
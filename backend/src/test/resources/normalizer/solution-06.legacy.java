@@ -0,0 +1,11 @@
+public class Expected {
+    // checks "{" handling in strings: "}"
+    public static boolean isPalindrome(String s) {
+        if (s == null) return false;
+        String c = s.replaceAll("[^a-zA-Z]", "").toLowerCase();
+        int i = 0, j = c.length() - 1;
+        while (i < j) {
+            if (c.charAt(i++) != c.charAt(j--)) return false;
+        }
+        return true;
+    }
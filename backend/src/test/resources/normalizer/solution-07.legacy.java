@@ -0,0 +1,10 @@
+public class Expected {
+    public static int countVowels(String s) {
+        if (s == null) return 0;
+        int n = 0;
+        for (char ch : s.toLowerCase().toCharArray()) {
+            if ("aeiou".indexOf(ch) >= 0) n++;
+        }
+        return n;
+    }
+}
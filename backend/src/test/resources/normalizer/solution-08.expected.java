@@ -0,0 +1,11 @@
+import java.util.Arrays;
+
+public class Expected {
+    public static int[] sort(int[] a) {
+        if (a == null) return new int[0];
+        int[] copy = Arrays.copyOf(a, a.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+}
@@ -0,0 +1,14 @@
+public class Expected {
+    public static int[] sort(int[] a) {
+        if (a == null) return new int[0];
+        int[] copy = Arrays.copyOf(a, a.length);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    public static void main(String... args) {
+        System.out.println(Arrays.toString(sort(new int[]{3, 1, 2})));
+    }
+}
+
+Cette solution trie une copie du tableau.
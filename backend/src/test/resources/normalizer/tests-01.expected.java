@@ -0,0 +1,20 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testCasBasique() {
+        assertEquals(6, ArraySum.sum(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    void testCasLimite() {
+        assertEquals(0, ArraySum.sum(new int[]{}));
+        assertEquals(0, ArraySum.sum(null));
+    }
+
+    @Test
+    void testCasComplexe() {
+        assertEquals(-1, ArraySum.sum(new int[]{-1, 0}));
+    }
+}
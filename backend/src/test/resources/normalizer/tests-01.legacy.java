@@ -0,0 +1,18 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testCasBasique() {
+        assertEquals(6, ArraySum.sum(new int[]{1, 2, 3}));
+    }
+
+    void testCasLimite() {
+        assertEquals(0, ArraySum.sum(new int[]{}));
+        assertEquals(0, ArraySum.sum(null));
+    }
+
+    void testCasComplexe() {
+        assertEquals(-1, ArraySum.sum(new int[]{-1, 0}));
+    }
+}
@@ -0,0 +1,15 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testReverse() {
+        assertEquals("cba", Expected.reverse("abc"));
+    }
+    @Test
+    void testEmpty() {
+        String s = "";
+        assertEquals(0, s.length());
+        assertEquals("", Expected.reverse(""));
+    }
+}
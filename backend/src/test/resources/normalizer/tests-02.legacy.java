@@ -0,0 +1,14 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testReverse() {
+        assertEquals("cba", Expected.reverse("abc"));
+    }
+    void testEmpty() {
+        String s = "";
+        assertEquals(0, Expected.length());
+        assertEquals("", Expected.reverse(""));
+    }
+}
@@ -0,0 +1,9 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpectedTest {
+    @Test
+    void testA() {
+        assertTrue(Palindrome.isPalindrome("aba"));
+    }
+}
@@ -0,0 +1,15 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testZero() {
+        assertEquals(1, Fact.factorial(0));
+    }
+
+
+    @Test
+    void testFive() {
+        assertEquals(120, Fact.factorial(5));
+    }
+}
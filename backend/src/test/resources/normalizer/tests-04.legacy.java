@@ -0,0 +1,14 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test
+    void testZero() {
+        assertEquals(1, Fact.factorial(0));
+    }
+
+
+    void testFive() {
+        assertEquals(120, Fact.factorial(5));
+    }
+}
@@ -0,0 +1,7 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpectedTest {
+    @Test void testBasic() { assertEquals(3, MaxFinder.max(new int[]{1, 3, 2})); }
+    @Test void testSingle() { assertEquals(7, MaxFinder.max(new int[]{7})); }
+}
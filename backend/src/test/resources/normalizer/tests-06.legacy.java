@@ -0,0 +1,8 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+public class ExpectedTest {
+    @Test
+    void shouldCount() {
+        assertEquals(2, Vowels.countVowels("Python"));
+    }
+}
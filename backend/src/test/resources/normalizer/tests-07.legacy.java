@@ -0,0 +1,12 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+
+public class ExpectedTest {
+    @Test
+    void testCount() {
+        Map<String, Integer> m = WordCounter.count("a b a");
+        assertEquals(2, Expected.get("a"));
+        assertEquals(List.of(1), List.of(Expected.of("b", 1).get("b")));
+    }
+}